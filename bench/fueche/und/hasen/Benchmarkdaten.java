@@ -0,0 +1,96 @@
+package fueche.und.hasen;
+
+/**
+ * Gemeinsame Hilfsmethoden der Benchmarks: Abmessungen aus einem
+ * Parameter lesen und Felder mit gegebener Dichte fuellen.
+ *
+ * @author Merlin
+ */
+class Benchmarkdaten
+{
+    // Anteil der Fuechse an den Tieren eines gefuellten Feldes
+    static final double FUCHSANTEIL = 0.2;
+
+    /**
+     * Lies Abmessungen der Form "TIEFExBREITE", etwa "100x120".
+     * @param groesse die Abmessungen als Text.
+     * @return Tiefe und Breite.
+     */
+    static int[] abmessungen(String groesse)
+    {
+        int trenner = groesse.indexOf('x');
+        if(trenner < 0) {
+            throw new IllegalArgumentException("Groesse der Form TIEFExBREITE erwartet: " + groesse);
+        }
+        return new int[] { Integer.parseInt(groesse.substring(0, trenner)),
+                           Integer.parseInt(groesse.substring(trenner + 1)) };
+    }
+
+    /**
+     * Erzeuge ein Feld, in dem jede Zelle mit der Wahrscheinlichkeit
+     * dichte ein Tier enthaelt, davon etwa ein Fuenftel Fuechse.
+     * @param groesse die Abmessungen, etwa "100x120".
+     * @param dichte der Anteil der belegten Zellen (0 bis 1).
+     * @param seed der SEED-Wert fuer Belegung und Nachbarsuche.
+     * @return das gefuellte Feld.
+     */
+    static Feld bevoelkertesFeld(String groesse, double dichte, long seed)
+    {
+        int[] masse = abmessungen(groesse);
+        Zufallsstrom rand = new Zufallsstrom(seed);
+        Feld feld = new Feld(masse[0], masse[1], rand);
+        for(int zeile = 0; zeile < masse[0]; zeile++) {
+            for(int spalte = 0; spalte < masse[1]; spalte++) {
+                if(rand.nextDouble() < dichte) {
+                    Position position = feld.gibPosition(zeile, spalte);
+                    if(rand.nextDouble() < FUCHSANTEIL) {
+                        new Fuchs(true, feld, position);
+                    }
+                    else {
+                        new Hase(true, feld, position);
+                    }
+                }
+            }
+        }
+        return feld;
+    }
+
+    /**
+     * Liefere Parameter, mit denen beim Bevoelkern etwa der Anteil
+     * dichte aller Zellen belegt wird, davon etwa ein Fuenftel Fuechse.
+     * @param dichte der Anteil der belegten Zellen (0 bis 1).
+     * @return die Standardparameter mit geaenderten Anfangsdichten.
+     */
+    static Simulationsparameter parameter(double dichte)
+    {
+        double fuchsdichte = dichte * FUCHSANTEIL;
+        // Hasen werden nur in Zellen ohne Fuchs gewuerfelt.
+        double hasendichte = dichte * (1 - FUCHSANTEIL) / (1 - fuchsdichte);
+        return Simulationsparameter.STANDARD.mit("fuchs.anfangsdichte", fuchsdichte)
+                                            .mit("hase.anfangsdichte", hasendichte);
+    }
+
+    /**
+     * Erzeuge einen Kern des gegebenen Namens (siehe FuecheUndHasen).
+     * @param name objekt, spalten oder streifen.
+     * @param groesse die Abmessungen, etwa "100x120".
+     * @param seed der SEED-Wert der Simulation.
+     * @param parameter die Eigenschaften der Tiere.
+     * @return der noch nicht bevoelkerte Kern.
+     */
+    static Simulationskern kern(String name, String groesse, long seed, Simulationsparameter parameter)
+    {
+        int[] masse = abmessungen(groesse);
+        if(name.equals("objekt")) {
+            return new Objektkern(masse[0], masse[1], seed, parameter);
+        }
+        else if(name.equals("spalten")) {
+            return new Spaltenkern(masse[0], masse[1], seed, parameter);
+        }
+        else if(name.equals("streifen")) {
+            return new Streifenkern(masse[0], masse[1], Runtime.getRuntime().availableProcessors(),
+                                    Streifenkern.STANDARD_STREIFENHOEHE, seed, parameter);
+        }
+        throw new IllegalArgumentException("Unbekannter Kern " + name);
+    }
+}
@@ -0,0 +1,60 @@
+package fueche.und.hasen;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Misst das Raeumen und Bevoelkern eines Feldes (Simulator.zuruecksetzen
+ * bzw. die bevoelkere-Methoden der Kerne).
+ *
+ * @author Merlin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BevoelkerungBenchmark
+{
+    @Param({"100x120", "1000x1000"})
+    public String groesse;
+
+    @Param({"objekt", "spalten", "streifen"})
+    public String kern;
+
+    @Param({"1111"})
+    public long seed;
+
+    private Simulationskern simulationskern;
+
+    @Setup
+    public void vorbereiten()
+    {
+        simulationskern = Benchmarkdaten.kern(kern, groesse, seed, Simulationsparameter.STANDARD);
+    }
+
+    @TearDown
+    public void aufraeumen()
+    {
+        simulationskern.schliesse();
+    }
+
+    @Benchmark
+    public Feldbelegung bevoelkere()
+    {
+        simulationskern.zuruecksetzen();
+        return simulationskern.gibBelegung();
+    }
+}
@@ -0,0 +1,92 @@
+package fueche.und.hasen;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Misst die Nachbarabfragen des Feldes an wechselnden Positionen:
+ * die alten Listenmethoden nachbarpositionen und
+ * freieNachbarpositionen, die einmalige Durchsuchung scanneNachbarn
+ * und die Beutesuche, mit der Fuchs.findeNahrung beginnt.
+ *
+ * @author Merlin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeldBenchmark
+{
+    // Schrittweite durch die Zellen (Primzahl, damit alle Zellen drankommen)
+    private static final int SCHRITTWEITE = 7919;
+
+    @Param({"100x120", "1000x1000"})
+    public String groesse;
+
+    @Param({"0.1", "0.5", "0.9"})
+    public double dichte;
+
+    @Param({"1111"})
+    public long seed;
+
+    private Feld feld;
+    private int zellen;
+    private int zelle;
+
+    @Setup
+    public void vorbereiten()
+    {
+        feld = Benchmarkdaten.bevoelkertesFeld(groesse, dichte, seed);
+        zellen = feld.gibTiefe() * feld.gibBreite();
+    }
+
+    /**
+     * @return die naechste Position der Messreihe.
+     */
+    private Position naechstePosition()
+    {
+        zelle = (int) ((zelle + (long) SCHRITTWEITE) % zellen);
+        return feld.gibPosition(zelle);
+    }
+
+    @Benchmark
+    public List<Position> nachbarpositionen()
+    {
+        return feld.nachbarpositionen(naechstePosition());
+    }
+
+    @Benchmark
+    public List<Position> freieNachbarpositionen()
+    {
+        return feld.freieNachbarpositionen(naechstePosition());
+    }
+
+    @Benchmark
+    public int scanneNachbarn()
+    {
+        return feld.scanneNachbarn(naechstePosition(), null).gibAnzahlFrei();
+    }
+
+    /**
+     * Der Suchteil von Fuchs.findeNahrung: eine Durchsuchung nach
+     * Hasen. Gefressen wird nicht, damit das Feld unveraendert bleibt.
+     */
+    @Benchmark
+    public long sucheBeute()
+    {
+        return feld.scanneNachbarn(naechstePosition(), Tierart.HASE).gibBeuteZelle();
+    }
+}
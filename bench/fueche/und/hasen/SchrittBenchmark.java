@@ -0,0 +1,75 @@
+package fueche.und.hasen;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Misst einen vollstaendigen Simulationsschritt
+ * (Simulator.simuliereEinenSchritt) ohne Beobachter. Mit dem
+ * gc-Profiler ergibt "gc.alloc.rate.norm" die Bytes je Schritt.
+ *
+ * @author Merlin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchrittBenchmark
+{
+    // Schritte vor der Messung, damit sich die Populationen einpendeln
+    private static final int VORLAUF = 100;
+
+    @Param({"100x120", "500x500", "2000x2000"})
+    public String groesse;
+
+    @Param({"objekt", "spalten", "streifen"})
+    public String kern;
+
+    // Anteil der beim Bevoelkern belegten Zellen; 0.1 entspricht
+    // etwa den Standardparametern.
+    @Param({"0.1", "0.4"})
+    public double dichte;
+
+    @Param({"1111"})
+    public long seed;
+
+    private Simulator simulator;
+
+    @Setup
+    public void vorbereiten()
+    {
+        Simulationsparameter parameter = Benchmarkdaten.parameter(dichte);
+        simulator = new Simulator(Benchmarkdaten.kern(kern, groesse, seed, parameter));
+        simulator.simuliere(VORLAUF);
+    }
+
+    @TearDown
+    public void aufraeumen()
+    {
+        simulator.schliesse();
+    }
+
+    @Benchmark
+    public int schritt()
+    {
+        simulator.simuliereEinenSchritt();
+        if(!simulator.istAktiv()) {
+            // Selten: eine Art ist ausgestorben, neu beginnen.
+            simulator.zuruecksetzen();
+        }
+        return simulator.gibSchritt();
+    }
+}
@@ -0,0 +1,72 @@
+package fueche.und.hasen;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Misst einen Schritt des Kerns streifen mit verschiedenen Anzahlen
+ * von Threads. Das Verhaeltnis der Zeiten zu der mit einem Thread
+ * zeigt, wie gut der Kern mit den Kernen der Maschine skaliert; mehr
+ * Threads als Prozessoren sagen darueber nichts aus.
+ *
+ * @author Merlin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SkalierungBenchmark
+{
+    // Schritte vor der Messung, damit sich die Populationen einpendeln
+    private static final int VORLAUF = 100;
+
+    @Param({"2000x2000"})
+    public String groesse;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"1111"})
+    public long seed;
+
+    private Simulator simulator;
+
+    @Setup
+    public void vorbereiten()
+    {
+        int[] masse = Benchmarkdaten.abmessungen(groesse);
+        simulator = new Simulator(new Streifenkern(masse[0], masse[1], threads,
+                                                   Streifenkern.STANDARD_STREIFENHOEHE, seed,
+                                                   Benchmarkdaten.parameter(0.1)));
+        simulator.simuliere(VORLAUF);
+    }
+
+    @TearDown
+    public void aufraeumen()
+    {
+        simulator.schliesse();
+    }
+
+    @Benchmark
+    public int schritt()
+    {
+        simulator.simuliereEinenSchritt();
+        if(!simulator.istAktiv()) {
+            simulator.zuruecksetzen();
+        }
+        return simulator.gibSchritt();
+    }
+}
@@ -0,0 +1,77 @@
+package fueche.und.hasen;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Misst die Zaehlung der Bewohner, wie sie Konsolenstatistik und
+ * Simulationsansicht nach jedem Schritt ausfuehren, und zum Vergleich
+ * eine Zaehlung durch Absuchen aller Zellen.
+ *
+ * @author Merlin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatistikBenchmark
+{
+    @Param({"100x120", "1000x1000"})
+    public String groesse;
+
+    @Param({"0.1", "0.5"})
+    public double dichte;
+
+    @Param({"1111"})
+    public long seed;
+
+    private Feld feld;
+    private FeldStatistik stats;
+
+    @Setup
+    public void vorbereiten()
+    {
+        feld = Benchmarkdaten.bevoelkertesFeld(groesse, dichte, seed);
+        stats = new FeldStatistik();
+    }
+
+    @Benchmark
+    public String bewohnerInfo()
+    {
+        stats.zuruecksetzen();
+        return stats.gibBewohnerInfo(feld);
+    }
+
+    @Benchmark
+    public boolean istAktiv()
+    {
+        stats.zuruecksetzen();
+        return stats.istAktiv(feld);
+    }
+
+    @Benchmark
+    public int alleZellenAbsuchen()
+    {
+        int hasen = 0;
+        for(int zeile = 0; zeile < feld.gibTiefe(); zeile++) {
+            for(int spalte = 0; spalte < feld.gibBreite(); spalte++) {
+                if(feld.gibArtAn(zeile, spalte) == Tierart.HASE) {
+                    hasen++;
+                }
+            }
+        }
+        return hasen;
+    }
+}
@@ -0,0 +1,157 @@
+package fueche.und.hasen;
+
+import java.util.Arrays;
+
+/**
+ * Eine Menge geaenderter Zellen eines Feldes. Ein Feld markiert
+ * jede Zelle, deren Belegung sich aendert; ein Verbraucher wie die
+ * Simulationsansicht arbeitet nur diese Zellen ab und leert die Menge
+ * danach wieder. Ein Bit je Zelle verhindert, dass eine Zelle mehrfach
+ * in der Liste steht, so dass die Liste nie laenger als das Feld wird.
+ *
+ * Die Zellennummern sind longs, damit auch Felder mit mehr als
+ * Integer.MAX_VALUE Zellen ihre Aenderungen melden koennen. Die Bits
+ * stehen daher nicht in einem Bitfeld ueber das ganze Feld, sondern je
+ * Wort von 64 Zellen (zelle >>> 6) in einer Streutabelle, die nur die
+ * Woerter mit markierten Zellen haelt; ihr Speicher richtet sich nach
+ * der Zahl der Aenderungen, nicht nach der Groesse des Feldes.
+ *
+ * @author Merlin
+ */
+public class Aenderungen
+{
+    // Kleinste Kapazitaet der Streutabelle, eine Zweierpotenz
+    private static final int MIN_KAPAZITAET = 64;
+
+    // Die Woerter mit markierten Zellen, offen adressiert: Wortnummer + 1
+    // je Platz, 0 fuer einen freien Platz; dazu je Wort die Bits der
+    // markierten Zellen
+    private long[] woerter;
+    private long[] markiert;
+    private int anzahlWoerter;
+    // Die markierten Zellen in der Reihenfolge ihrer ersten Aenderung
+    private long[] zellen;
+    private int anzahl;
+    // Wurde das ganze Feld geaendert (etwa geraeumt)?
+    private boolean alle;
+
+    /**
+     * Erzeuge eine leere Menge, in der zunaechst das ganze Feld als
+     * geaendert gilt.
+     */
+    public Aenderungen()
+    {
+        woerter = new long[MIN_KAPAZITAET];
+        markiert = new long[MIN_KAPAZITAET];
+        zellen = new long[1024];
+        alle = true;
+    }
+
+    /**
+     * Markiere eine Zelle als geaendert.
+     * @param zelle die Nummer der Zelle.
+     */
+    public void markiere(long zelle)
+    {
+        long wort = (zelle >>> 6) + 1;
+        long bit = 1L << zelle;
+        int maske = woerter.length - 1;
+        int i = Langtabelle.streue(wort) & maske;
+        while(woerter[i] != wort) {
+            if(woerter[i] == 0) {
+                woerter[i] = wort;
+                if(++anzahlWoerter * 2 > woerter.length) {
+                    verteileNeu(woerter.length * 2);
+                    maske = woerter.length - 1;
+                    i = Langtabelle.streue(wort) & maske;
+                    continue;
+                }
+                break;
+            }
+            i = (i + 1) & maske;
+        }
+        if((markiert[i] & bit) == 0) {
+            markiert[i] |= bit;
+            if(anzahl == zellen.length) {
+                zellen = Arrays.copyOf(zellen, anzahl * 2);
+            }
+            zellen[anzahl++] = zelle;
+        }
+    }
+
+    /**
+     * Markiere das ganze Feld als geaendert.
+     */
+    public void alleMarkieren()
+    {
+        alle = true;
+    }
+
+    /**
+     * @return true wenn das ganze Feld neu betrachtet werden muss.
+     */
+    public boolean sindAlleGeaendert()
+    {
+        return alle;
+    }
+
+    /**
+     * @return die Anzahl der einzeln markierten Zellen.
+     */
+    public int gibAnzahl()
+    {
+        return anzahl;
+    }
+
+    /**
+     * @param i der Index in der Liste (0 bis gibAnzahl() - 1).
+     * @return die Nummer der i-ten markierten Zelle.
+     */
+    public long gibZelle(int i)
+    {
+        return zellen[i];
+    }
+
+    /**
+     * Leere die Menge, nachdem alle Aenderungen verarbeitet wurden. Die
+     * Streutabelle wird ganz geleert; sie ist hoechstens viermal so gross
+     * wie die Zahl der Woerter der groessten Runde und schrumpft, wenn
+     * viel weniger Woerter markiert waren.
+     */
+    public void leeren()
+    {
+        if(anzahlWoerter * 8 < woerter.length && woerter.length > MIN_KAPAZITAET) {
+            woerter = new long[woerter.length / 2];
+            markiert = new long[woerter.length];
+        }
+        else if(anzahlWoerter > 0) {
+            Arrays.fill(woerter, 0);
+            Arrays.fill(markiert, 0);
+        }
+        anzahlWoerter = 0;
+        anzahl = 0;
+        alle = false;
+    }
+
+    /**
+     * Trage alle Woerter in Arrays der neuen Kapazitaet ein.
+     */
+    private void verteileNeu(int kapazitaet)
+    {
+        long[] alteWoerter = woerter;
+        long[] alteBits = markiert;
+        woerter = new long[kapazitaet];
+        markiert = new long[kapazitaet];
+        int maske = kapazitaet - 1;
+        for(int j = 0; j < alteWoerter.length; j++) {
+            if(alteWoerter[j] != 0) {
+                int i = Langtabelle.streue(alteWoerter[j]) & maske;
+                while(woerter[i] != 0) {
+                    i = (i + 1) & maske;
+                }
+                woerter[i] = alteWoerter[j];
+                markiert[i] = alteBits[j];
+            }
+        }
+    }
+}
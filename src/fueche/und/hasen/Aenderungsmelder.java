@@ -0,0 +1,23 @@
+package fueche.und.hasen;
+
+/**
+ * Ein Feld, das geaenderte Zellen an angemeldete Aenderungsmengen
+ * meldet. Die Zellen sind zeilenweise durchnummeriert
+ * (zelle = zeile * breite + spalte).
+ *
+ * @author Merlin
+ */
+public interface Aenderungsmelder
+{
+    /**
+     * Melde ab sofort alle Aenderungen an die gegebene Menge.
+     * @param aenderungen die zu fuellende Menge.
+     */
+    void meldeAenderungenAn(Aenderungen aenderungen);
+
+    /**
+     * Melde keine Aenderungen mehr an die gegebene Menge.
+     * @param aenderungen die bisher gefuellte Menge.
+     */
+    void entferneAenderungen(Aenderungen aenderungen);
+}
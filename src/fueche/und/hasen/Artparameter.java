@@ -0,0 +1,210 @@
+package fueche.und.hasen;
+
+/**
+ * Die Eigenschaften aller Tiere einer Art in einer Simulation.
+ * Objekte dieser Klasse sind unveraenderlich und koennen daher von
+ * beliebig vielen Simulationen und Threads gemeinsam benutzt werden.
+ *
+ * @author Merlin
+ */
+public final class Artparameter
+{
+    // Das Alter, in dem ein Tier gebaerfaehig wird.
+    private final int gebaerAlter;
+    // Das Hoechstalter eines Tieres.
+    private final int maxAlter;
+    // Die Wahrscheinlichkeit, mit der ein Tier je Schritt Nachwuchs gebaert.
+    private final double gebaerWahrscheinlichkeit;
+    // Die maximale Groesse eines Wurfes (Anzahl der Jungen).
+    private final int maxWurfgroesse;
+    // Der Naehrwert eines Tieres dieser Art fuer seine Jaeger, also die
+    // Anzahl der Schritte, die ein Jaeger nach dem Fressen laufen kann.
+    private final int naehrwert;
+    // Die Wahrscheinlichkeit, mit der beim Bevoelkern ein Tier dieser
+    // Art in eine Zelle gesetzt wird.
+    private final double anfangsdichte;
+    // Die groesste Entfernung, auf die ein Jaeger dieser Art Beute
+    // wahrnimmt; 1 heisst nur in den Nachbarzellen.
+    private final int jagdradius;
+
+    /**
+     * Erzeuge die Eigenschaften einer Art, deren Tiere nur in den
+     * Nachbarzellen jagen.
+     * @param gebaerAlter das Alter, ab dem ein Tier gebaeren kann.
+     * @param maxAlter das Hoechstalter (mindestens 1).
+     * @param gebaerWahrscheinlichkeit die Geburtswahrscheinlichkeit je Schritt.
+     * @param maxWurfgroesse die groesste Zahl von Jungen je Wurf (mindestens 1).
+     * @param naehrwert der Naehrwert fuer Jaeger (mindestens 1).
+     * @param anfangsdichte die Dichte beim Bevoelkern (0 bis 1).
+     */
+    public Artparameter(int gebaerAlter, int maxAlter, double gebaerWahrscheinlichkeit,
+                        int maxWurfgroesse, int naehrwert, double anfangsdichte)
+    {
+        this(gebaerAlter, maxAlter, gebaerWahrscheinlichkeit, maxWurfgroesse, naehrwert,
+             anfangsdichte, 1);
+    }
+
+    /**
+     * Erzeuge die Eigenschaften einer Art.
+     * @param gebaerAlter das Alter, ab dem ein Tier gebaeren kann.
+     * @param maxAlter das Hoechstalter (mindestens 1).
+     * @param gebaerWahrscheinlichkeit die Geburtswahrscheinlichkeit je Schritt.
+     * @param maxWurfgroesse die groesste Zahl von Jungen je Wurf (mindestens 1).
+     * @param naehrwert der Naehrwert fuer Jaeger (mindestens 1).
+     * @param anfangsdichte die Dichte beim Bevoelkern (0 bis 1).
+     * @param jagdradius die Entfernung, auf die Beute wahrgenommen wird
+     *                   (mindestens 1).
+     */
+    public Artparameter(int gebaerAlter, int maxAlter, double gebaerWahrscheinlichkeit,
+                        int maxWurfgroesse, int naehrwert, double anfangsdichte, int jagdradius)
+    {
+        if(maxAlter < 1 || maxWurfgroesse < 1 || naehrwert < 1 || gebaerAlter < 0
+           || jagdradius < 1
+           || !(gebaerWahrscheinlichkeit >= 0 && gebaerWahrscheinlichkeit <= 1)
+           || !(anfangsdichte >= 0 && anfangsdichte <= 1)) {
+            throw new IllegalArgumentException("Ungueltige Artparameter: gebaerAlter=" + gebaerAlter
+                + " maxAlter=" + maxAlter + " gebaerWahrscheinlichkeit=" + gebaerWahrscheinlichkeit
+                + " maxWurfgroesse=" + maxWurfgroesse + " naehrwert=" + naehrwert
+                + " anfangsdichte=" + anfangsdichte + " jagdradius=" + jagdradius);
+        }
+        this.gebaerAlter = gebaerAlter;
+        this.maxAlter = maxAlter;
+        this.gebaerWahrscheinlichkeit = gebaerWahrscheinlichkeit;
+        this.maxWurfgroesse = maxWurfgroesse;
+        this.naehrwert = naehrwert;
+        this.anfangsdichte = anfangsdichte;
+        this.jagdradius = jagdradius;
+    }
+
+    /**
+     * @return das Alter, ab dem ein Tier gebaeren kann.
+     */
+    public int gibGebaerAlter()
+    {
+        return gebaerAlter;
+    }
+
+    /**
+     * @return das Hoechstalter eines Tieres.
+     */
+    public int gibMaxAlter()
+    {
+        return maxAlter;
+    }
+
+    /**
+     * @return die Wahrscheinlichkeit einer Geburt je Schritt.
+     */
+    public double gibGebaerWahrscheinlichkeit()
+    {
+        return gebaerWahrscheinlichkeit;
+    }
+
+    /**
+     * @return die maximale Wurfgroesse.
+     */
+    public int gibMaxWurfgroesse()
+    {
+        return maxWurfgroesse;
+    }
+
+    /**
+     * @return der Naehrwert eines Tieres dieser Art fuer seine Jaeger.
+     */
+    public int gibNaehrwert()
+    {
+        return naehrwert;
+    }
+
+    /**
+     * @return die Dichte beim Bevoelkern.
+     */
+    public double gibAnfangsdichte()
+    {
+        return anfangsdichte;
+    }
+
+    /**
+     * @return die Entfernung, auf die ein Jaeger dieser Art Beute
+     *         wahrnimmt und sich auf sie zubewegt (1: nur Nachbarn).
+     */
+    public int gibJagdradius()
+    {
+        return jagdradius;
+    }
+
+    /**
+     * Liefere den Wert einer Eigenschaft.
+     * @param name der Name der Eigenschaft (siehe Simulationsparameter.NAMEN).
+     * @return der Wert.
+     * @throws IllegalArgumentException bei unbekannten Namen.
+     */
+    public double gibWert(String name)
+    {
+        if(name.equals("gebaerAlter")) {
+            return gebaerAlter;
+        }
+        else if(name.equals("maxAlter")) {
+            return maxAlter;
+        }
+        else if(name.equals("gebaerWahrscheinlichkeit")) {
+            return gebaerWahrscheinlichkeit;
+        }
+        else if(name.equals("maxWurfgroesse")) {
+            return maxWurfgroesse;
+        }
+        else if(name.equals("naehrwert")) {
+            return naehrwert;
+        }
+        else if(name.equals("anfangsdichte")) {
+            return anfangsdichte;
+        }
+        else if(name.equals("jagdradius")) {
+            return jagdradius;
+        }
+        throw new IllegalArgumentException("Unbekannte Eigenschaft " + name);
+    }
+
+    /**
+     * Liefere eine Kopie, in der eine Eigenschaft geaendert ist.
+     * Ganzzahlige Eigenschaften werden gerundet.
+     * @param name der Name der Eigenschaft.
+     * @param wert der neue Wert.
+     * @return die geaenderte Kopie.
+     * @throws IllegalArgumentException bei unbekannten Namen oder
+     *         ungueltigen Werten.
+     */
+    public Artparameter mit(String name, double wert)
+    {
+        int ganz = (int) Math.round(wert);
+        if(name.equals("gebaerAlter")) {
+            return new Artparameter(ganz, maxAlter, gebaerWahrscheinlichkeit, maxWurfgroesse,
+                                    naehrwert, anfangsdichte, jagdradius);
+        }
+        else if(name.equals("maxAlter")) {
+            return new Artparameter(gebaerAlter, ganz, gebaerWahrscheinlichkeit, maxWurfgroesse,
+                                    naehrwert, anfangsdichte, jagdradius);
+        }
+        else if(name.equals("gebaerWahrscheinlichkeit")) {
+            return new Artparameter(gebaerAlter, maxAlter, wert, maxWurfgroesse,
+                                    naehrwert, anfangsdichte, jagdradius);
+        }
+        else if(name.equals("maxWurfgroesse")) {
+            return new Artparameter(gebaerAlter, maxAlter, gebaerWahrscheinlichkeit, ganz,
+                                    naehrwert, anfangsdichte, jagdradius);
+        }
+        else if(name.equals("naehrwert")) {
+            return new Artparameter(gebaerAlter, maxAlter, gebaerWahrscheinlichkeit, maxWurfgroesse,
+                                    ganz, anfangsdichte, jagdradius);
+        }
+        else if(name.equals("anfangsdichte")) {
+            return new Artparameter(gebaerAlter, maxAlter, gebaerWahrscheinlichkeit, maxWurfgroesse,
+                                    naehrwert, wert, jagdradius);
+        }
+        else if(name.equals("jagdradius")) {
+            return new Artparameter(gebaerAlter, maxAlter, gebaerWahrscheinlichkeit, maxWurfgroesse,
+                                    naehrwert, anfangsdichte, ganz);
+        }
+        throw new IllegalArgumentException("Unbekannte Eigenschaft " + name);
+    }
+}
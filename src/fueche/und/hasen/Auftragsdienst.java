@@ -0,0 +1,448 @@
+package fueche.und.hasen;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ein kleiner HTTP-Dienst, ueber den Simulationslaeufe ohne eigenes
+ * Java-Programm in Auftrag gegeben werden, etwa mit curl. Er nimmt nur
+ * Verbindungen von dieser Maschine an (Loopback-Adresse) und braucht
+ * nichts ausser dem JDK.
+ *
+ * Anfragen unter /auftraege:
+ *   POST /auftraege           einen Lauf einreihen; Werte als Formular
+ *                             oder Query: tiefe, breite, schritte, seed,
+ *                             kern, intervall und parameter (wie auf der
+ *                             Kommandozeile). Antwort 202 mit der
+ *                             Beschreibung und dem Ort des Auftrags.
+ *   GET /auftraege            je Auftrag Nummer und Zustand
+ *   GET /auftraege/N          Beschreibung und Fortschritt (name=wert)
+ *   GET /auftraege/N/reihe    die Zeitreihe als CSV ab Zeile ab=Z (0 ist
+ *                             die Kopfzeile und der Standard). Gibt es
+ *                             noch keine neuen Zeilen, wartet die Anfrage
+ *                             bis zu einer Sekunde darauf, mit
+ *                             folgen=nein gar nicht. X-Naechste-Zeile
+ *                             nennt das naechste ab, X-Zustand den Zustand
+ *                             vor dem Lesen; ist er beendet, kommt nichts
+ *                             mehr.
+ *   DELETE /auftraege/N       den Auftrag abbrechen
+ *
+ * Gerechnet wird in einem festen Pool von Rechenthreads; hoechstens
+ * maxWartend Auftraege warten, weitere werden mit 503 abgelehnt. Die
+ * Verbindungen bedient ein eigener fester Pool, so dass Abfragen auch
+ * dann schnell beantwortet werden, wenn alle Rechenthreads belegt
+ * sind. Wer einer Reihe folgt, fragt mit ab= immer wieder nach; eine
+ * Abfrage belegt einen Verbindungsthread hoechstens eine Sekunde, und
+ * nur die Haelfte der Verbindungsthreads darf so warten. Weitere
+ * Abfragen erhalten sofort, was da ist, so dass auch bei vielen
+ * folgenden Clients Threads fuer die uebrigen Anfragen frei bleiben.
+ * Beendete Auftraege werden aufbewahrt, bis es mehr als
+ * MAX_AUFBEWAHRT sind; dann entfallen die aeltesten. Damit diese
+ * Auftraege den Speicher nicht sprengen, hat jeder hoechstens
+ * MAX_ZELLEN Zellen und liefert hoechstens MAX_ZEILEN Zeilen; laengere
+ * Laeufe waehlen ein groesseres intervall.
+ *
+ * @author Merlin
+ */
+public class Auftragsdienst
+{
+    // Standardwerte fuer bediente Anfragen und wartende Auftraege
+    public static final int STANDARD_VERBINDUNGEN = 32;
+    public static final int STANDARD_WARTEND = 100;
+    // So viele beendete Auftraege werden hoechstens aufbewahrt
+    static final int MAX_AUFBEWAHRT = 1000;
+    // Groesste Zahl von Zellen eines Auftrags: 2048x2048. Ein volles
+    // Feld dieser Groesse braucht mit seinen Tieren einige hundert MB,
+    // und jeder Rechenthread haelt eines.
+    static final long MAX_ZELLEN = 1L << 22;
+    // Groesste Zahl von Zeilen der Zeitreihe eines Auftrags, ohne
+    // Kopfzeile. Bei rund 100 Byte je Zeile sind das 200 KB je Auftrag
+    // und hoechstens 200 MB fuer alle aufbewahrten.
+    static final int MAX_ZEILEN = 2000;
+    // So lange wartet eine Abfrage der Reihe hoechstens auf neue Zeilen
+    // (Millisekunden)
+    private static final long WARTEZEIT = 1000;
+    private static final String PFAD = "/auftraege";
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor rechner;
+    private final ExecutorService verbindungen;
+    // Erlaubnisse fuer Abfragen der Reihe, die auf neue Zeilen warten
+    private final Semaphore wartende;
+    // Alle bekannten Auftraege nach Nummer, in Reihenfolge des Eingangs
+    private final Map<Integer, Simulationsauftrag> auftraege;
+    private int naechsteNummer;
+
+    /**
+     * Erzeuge einen Dienst an der Loopback-Adresse; er nimmt erst nach
+     * starte Anfragen an.
+     * @param port der Port oder 0 fuer einen freien Port.
+     * @param rechenThreads die Anzahl gleichzeitig rechnender Laeufe.
+     * @param verbindungsThreads die Anzahl gleichzeitig bedienter Anfragen.
+     * @param maxWartend so viele Auftraege duerfen auf einen Rechenthread warten.
+     * @throws IOException wenn der Port nicht belegt werden kann.
+     */
+    public Auftragsdienst(int port, int rechenThreads, int verbindungsThreads, int maxWartend)
+        throws IOException
+    {
+        if(rechenThreads < 1 || verbindungsThreads < 1 || maxWartend < 1) {
+            throw new IllegalArgumentException("Ungueltiger Dienst: " + rechenThreads
+                                               + " Rechenthreads, " + verbindungsThreads
+                                               + " Verbindungsthreads, " + maxWartend
+                                               + " wartende Auftraege");
+        }
+        rechner = new ThreadPoolExecutor(rechenThreads, rechenThreads, 0, TimeUnit.MILLISECONDS,
+                                         new ArrayBlockingQueue<Runnable>(maxWartend));
+        verbindungen = Executors.newFixedThreadPool(verbindungsThreads);
+        wartende = new Semaphore(verbindungsThreads / 2);
+        auftraege = new LinkedHashMap<Integer, Simulationsauftrag>();
+        naechsteNummer = 1;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                                   0);
+        server.setExecutor(verbindungen);
+        server.createContext(PFAD, new HttpHandler() {
+            public void handle(HttpExchange austausch) throws IOException
+            {
+                try {
+                    bearbeite(austausch);
+                }
+                finally {
+                    austausch.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Nimm ab jetzt Anfragen an.
+     */
+    public void starte()
+    {
+        server.start();
+    }
+
+    /**
+     * Beende den Dienst: keine neuen Anfragen, laufende Auftraege
+     * werden abgebrochen.
+     * @param wartezeit so viele Sekunden duerfen offene Anfragen noch dauern.
+     */
+    public void stoppe(int wartezeit)
+    {
+        synchronized(this) {
+            for(Simulationsauftrag auftrag : auftraege.values()) {
+                auftrag.brichAb();
+            }
+        }
+        server.stop(wartezeit);
+        rechner.shutdownNow();
+        verbindungen.shutdownNow();
+    }
+
+    /**
+     * @return der Port, an dem der Dienst Anfragen annimmt.
+     */
+    public int gibPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Verteile eine Anfrage nach Methode und Pfad.
+     */
+    private void bearbeite(HttpExchange austausch) throws IOException
+    {
+        String methode = austausch.getRequestMethod();
+        String rest = austausch.getRequestURI().getPath().substring(PFAD.length());
+        // teile[0] ist leer; teile[1] die Nummer, teile[2] etwa "reihe"
+        String[] teile = rest.split("/");
+        int stufen = teile.length;
+        try {
+            if(!rest.isEmpty() && !rest.startsWith("/")) {
+                antworte(austausch, 404, "text/plain", "Unbekannter Pfad\n");
+                return;
+            }
+            if(stufen <= 1) {
+                if(methode.equals("POST")) {
+                    reiheEin(austausch);
+                }
+                else if(methode.equals("GET")) {
+                    antworte(austausch, 200, "text/plain", gibUebersicht());
+                }
+                else {
+                    antworte(austausch, 405, "text/plain", "Erlaubt: GET, POST\n");
+                }
+                return;
+            }
+            Simulationsauftrag auftrag = gibAuftrag(teile[1]);
+            if(auftrag == null) {
+                antworte(austausch, 404, "text/plain", "Unbekannter Auftrag " + teile[1] + "\n");
+            }
+            else if(stufen == 2 && methode.equals("GET")) {
+                antworte(austausch, 200, "text/plain", auftrag.gibBeschreibung());
+            }
+            else if(stufen == 2 && methode.equals("DELETE")) {
+                auftrag.brichAb();
+                antworte(austausch, 200, "text/plain", auftrag.gibBeschreibung());
+            }
+            else if(stufen == 3 && teile[2].equals("reihe") && methode.equals("GET")) {
+                sendeReihe(austausch, auftrag);
+            }
+            else {
+                antworte(austausch, 404, "text/plain", "Unbekannte Anfrage " + methode + " "
+                         + austausch.getRequestURI().getPath() + "\n");
+            }
+        }
+        catch(IllegalArgumentException e) {
+            // NumberFormatException ist ebenfalls eine IllegalArgumentException
+            antworte(austausch, 400, "text/plain", e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Lege einen Auftrag aus den Werten der Anfrage an und reihe ihn ein.
+     */
+    private void reiheEin(HttpExchange austausch) throws IOException
+    {
+        Map<String, String> werte = liesWerte(austausch.getRequestURI().getRawQuery());
+        werte.putAll(liesWerte(new String(liesAlles(austausch), StandardCharsets.UTF_8)));
+        int tiefe = Integer.parseInt(wert(werte, "tiefe", "100"));
+        int breite = Integer.parseInt(wert(werte, "breite", "120"));
+        int schritte = Integer.parseInt(wert(werte, "schritte", "1000"));
+        int intervall = Integer.parseInt(wert(werte, "intervall", "1"));
+        long seed = Long.parseLong(wert(werte, "seed", Long.toString(Zufallssteuerung.gibSeed())));
+        String kern = wert(werte, "kern", "objekt");
+        Simulationsparameter parameter = Simulationsparameter.STANDARD;
+        if(werte.containsKey("parameter")) {
+            parameter = parameter.mit(werte.get("parameter"));
+        }
+        if(tiefe <= 0 || breite <= 0 || (long) tiefe * breite > MAX_ZELLEN) {
+            throw new IllegalArgumentException("Feld muss 1 bis " + MAX_ZELLEN
+                                               + " Zellen haben: " + tiefe + "x" + breite);
+        }
+        if(schritte < 0 || intervall <= 0) {
+            throw new IllegalArgumentException("Ungueltige Schritte oder Intervall: " + schritte
+                                               + ", " + intervall);
+        }
+        // Je Intervall eine Zeile, dazu der Start und, falls die Schritte
+        // kein Vielfaches sind, der letzte Schritt
+        if(1 + ((long) schritte + intervall - 1) / intervall > MAX_ZEILEN) {
+            throw new IllegalArgumentException("Hoechstens " + MAX_ZEILEN
+                                               + " Zeilen je Auftrag, groesseres intervall"
+                                               + " waehlen: " + schritte + "/" + intervall);
+        }
+        // Kern und Parameter vorab pruefen, nicht erst im Rechenthread.
+        FuecheUndHasen.erzeugeKern(kern, 1, 1, 1, 0, parameter);
+        Simulationsauftrag auftrag = null;
+        synchronized(this) {
+            Simulationsauftrag neu = new Simulationsauftrag(naechsteNummer, kern, tiefe, breite,
+                                                            seed, schritte, intervall, parameter);
+            try {
+                rechner.execute(neu);
+                auftrag = neu;
+                naechsteNummer++;
+                auftraege.put(auftrag.gibNummer(), auftrag);
+                raeumeAuf();
+            }
+            catch(RejectedExecutionException e) {
+                // Die Warteschlange ist voll; der Client soll es spaeter versuchen.
+            }
+        }
+        if(auftrag == null) {
+            antworte(austausch, 503, "text/plain", "Zu viele wartende Auftraege\n");
+            return;
+        }
+        austausch.getResponseHeaders().set("Location", PFAD + "/" + auftrag.gibNummer());
+        antworte(austausch, 202, "text/plain", auftrag.gibBeschreibung());
+    }
+
+    /**
+     * Sende die Zeilen eines Auftrags ab einer gegebenen Zeile. Gibt es
+     * keine neuen, rechnet der Auftrag noch und ist eine Erlaubnis frei,
+     * warte hoechstens WARTEZEIT auf sie.
+     */
+    private void sendeReihe(HttpExchange austausch, Simulationsauftrag auftrag)
+        throws IOException
+    {
+        Map<String, String> werte = liesWerte(austausch.getRequestURI().getRawQuery());
+        int ab = Integer.parseInt(wert(werte, "ab", "0"));
+        boolean folgen = !wert(werte, "folgen", "ja").equals("nein");
+        if(ab < 0) {
+            throw new IllegalArgumentException("Ungueltige Zeile " + ab);
+        }
+        // Erst den Zustand, dann die Zeilen: Ist er beendet, kommt keine mehr.
+        Simulationsauftrag.Zustand zustand = auftrag.gibZustand();
+        boolean warten = folgen && !auftrag.istBeendet() && wartende.tryAcquire();
+        List<String> zeilen;
+        try {
+            zeilen = auftrag.warteAufZeilen(ab, warten ? WARTEZEIT : 0);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            zeilen = new ArrayList<String>();
+        }
+        finally {
+            if(warten) {
+                wartende.release();
+            }
+        }
+        StringBuilder text = new StringBuilder();
+        for(String zeile : zeilen) {
+            text.append(zeile).append('\n');
+        }
+        austausch.getResponseHeaders().set("X-Naechste-Zeile",
+                                           Integer.toString(Math.max(ab, 0) + zeilen.size()));
+        austausch.getResponseHeaders().set("X-Zustand",
+                                           zustand.name().toLowerCase(Locale.ROOT));
+        antworte(austausch, 200, "text/csv", text.toString());
+    }
+
+    /**
+     * @return je Auftrag eine Zeile mit Nummer und Zustand.
+     */
+    private synchronized String gibUebersicht()
+    {
+        StringBuilder text = new StringBuilder();
+        for(Simulationsauftrag auftrag : auftraege.values()) {
+            text.append(auftrag.gibNummer()).append(' ')
+                .append(auftrag.gibZustand().name().toLowerCase(Locale.ROOT))
+                .append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return der Auftrag mit der Nummer im Text oder null.
+     */
+    private synchronized Simulationsauftrag gibAuftrag(String nummer)
+    {
+        try {
+            return auftraege.get(Integer.valueOf(nummer));
+        }
+        catch(NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Vergiss die aeltesten beendeten Auftraege, wenn mehr als
+     * MAX_AUFBEWAHRT beendet sind.
+     */
+    private synchronized void raeumeAuf()
+    {
+        int beendet = 0;
+        for(Simulationsauftrag auftrag : auftraege.values()) {
+            if(auftrag.istBeendet()) {
+                beendet++;
+            }
+        }
+        Iterator<Simulationsauftrag> alle = auftraege.values().iterator();
+        while(beendet > MAX_AUFBEWAHRT && alle.hasNext()) {
+            if(alle.next().istBeendet()) {
+                alle.remove();
+                beendet--;
+            }
+        }
+    }
+
+    /**
+     * Sende eine vollstaendige Antwort.
+     */
+    private static void antworte(HttpExchange austausch, int status, String typ, String text)
+        throws IOException
+    {
+        byte[] daten = text.getBytes(StandardCharsets.UTF_8);
+        austausch.getResponseHeaders().set("Content-Type", typ + "; charset=UTF-8");
+        austausch.sendResponseHeaders(status, daten.length == 0 ? -1 : daten.length);
+        if(daten.length > 0) {
+            OutputStream aus = austausch.getResponseBody();
+            aus.write(daten);
+            aus.close();
+        }
+    }
+
+    /**
+     * Lies den Rumpf einer Anfrage.
+     */
+    private static byte[] liesAlles(HttpExchange austausch) throws IOException
+    {
+        InputStream ein = austausch.getRequestBody();
+        ByteArrayOutputStream puffer = new ByteArrayOutputStream();
+        byte[] block = new byte[4096];
+        int gelesen;
+        while((gelesen = ein.read(block)) > 0) {
+            puffer.write(block, 0, gelesen);
+        }
+        return puffer.toByteArray();
+    }
+
+    /**
+     * Zerlege Werte der Form a=1&b=2 (URL-kodiert).
+     * @param text die Werte oder null.
+     * @return die Werte nach Namen.
+     */
+    static Map<String, String> liesWerte(String text)
+    {
+        Map<String, String> werte = new HashMap<String, String>();
+        if(text == null || text.trim().isEmpty()) {
+            return werte;
+        }
+        for(String paar : text.trim().split("&")) {
+            if(paar.isEmpty()) {
+                continue;
+            }
+            int gleich = paar.indexOf('=');
+            if(gleich < 0) {
+                throw new IllegalArgumentException("Wert der Form name=wert erwartet: " + paar);
+            }
+            werte.put(dekodiere(paar.substring(0, gleich)), dekodiere(paar.substring(gleich + 1)));
+        }
+        return werte;
+    }
+
+    /**
+     * @return ein Wert der Anfrage oder der Standardwert.
+     */
+    private static String wert(Map<String, String> werte, String name, String standard)
+    {
+        String wert = werte.get(name);
+        return wert == null ? standard : wert;
+    }
+
+    /**
+     * Dekodiere einen URL-kodierten Text.
+     */
+    private static String dekodiere(String text)
+    {
+        try {
+            return URLDecoder.decode(text, "UTF-8");
+        }
+        catch(UnsupportedEncodingException e) {
+            // UTF-8 gibt es in jeder JVM.
+            throw new IllegalStateException(e);
+        }
+    }
+}
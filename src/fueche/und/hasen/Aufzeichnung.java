@@ -0,0 +1,372 @@
+package fueche.und.hasen;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Ein Beobachter, der den Verlauf einer Simulation kompakt in eine
+ * Datei schreibt, damit ein interessanter Abschnitt spaeter mit einer
+ * Wiedergabe angesehen werden kann, ohne neu zu rechnen.
+ *
+ * Aufgezeichnet wird die Belegung: Je gemeldetem Schritt stehen nur
+ * die Zellen in der Datei, deren Tierart sich seit dem vorigen
+ * Eintrag geaendert hat. Ein Zug ist so ein Paar aus einer geraeumten
+ * und einer belegten Zelle, eine Geburt eine belegte, ein Tod eine
+ * geraeumte Zelle. In festen Abstaenden folgt ein Schluesselbild mit
+ * der ganzen Belegung, von dem aus eine Wiedergabe jeden Schritt
+ * schnell erreicht. Meldet die Belegung ihre Aenderungen
+ * (Aenderungsmelder), werden nur diese Zellen betrachtet.
+ *
+ * Die Datei beginnt mit der Kennung "FHAZ", der Version, der Tiefe
+ * und der Breite (je ein int). Danach werden nur noch Eintraege
+ * angehaengt: Typ (ein Byte), Schritt, Laenge der Daten und die
+ * Daten, Zahlen als Varint (7 Bit je Byte, das hoechste Bit zeigt
+ * ein weiteres Byte an). Jede Zelle hat einen Zustand: 0 fuer leer,
+ * sonst Ordnungszahl der Tierart + 1. Ein Schluesselbild besteht aus
+ * Laeufen gleicher Zellen, je (Laenge << 2 | Zustand); ein
+ * Schritt aus den geaenderten Zellen in aufsteigender Folge, je
+ * (Abstand zur vorigen << 2 | neuer Zustand). Nach dem Zuruecksetzen
+ * der Simulation beginnt die Aufzeichnung mit einem Schluesselbild
+ * neu; die Wiedergabe verwirft dann die spaeteren Schritte des
+ * vorigen Laufs.
+ *
+ * Der zuletzt aufgezeichnete Zustand steht je Wort von 64 Zellen
+ * (zelle >>> 6) in einer Langtabelle, die nur Woerter mit Tieren haelt;
+ * auch fuer ein sehr grosses, duenn besiedeltes Feld bleibt er daher
+ * klein. Die Zellennummern sind longs. Ein Schluesselbild kodiert diesen
+ * Zustand, nachdem er wie bei einem Schritt nachgefuehrt wurde, und
+ * liest nur dann das ganze Feld, wenn die Belegung keine Aenderungen
+ * meldet.
+ *
+ * @author Merlin
+ */
+public class Aufzeichnung implements Simulationsbeobachter
+{
+    // Kennung am Anfang jeder Aufzeichnung ("FHAZ")
+    static final int KENNUNG = 0x4648415a;
+    static final int VERSION = 1;
+    // Die Typen der Eintraege
+    static final byte SCHLUESSELBILD = 1;
+    static final byte SCHRITT = 2;
+    // Ab einer Aenderung je so vielen Zellen ist ein Durchlauf ueber das
+    // ganze Feld schneller als das Sortieren der gemeldeten Zellen
+    private static final int VOLLER_VERGLEICH = 8;
+    // Die Anzahl der Zellen eines Wortes
+    private static final int WORT = 64;
+
+    private final Sicherungsschreiber aus;
+    private final int schluesselintervall;
+    private final int tiefe, breite;
+    // Die Anzahl der Zellen
+    private final long zellenImFeld;
+    // Der zuletzt aufgezeichnete Zustand je Zelle, je Wort mit Tieren
+    private final Langtabelle<byte[]> bekannt;
+    // Die Aenderungen der Belegung und die Belegung, die sie meldet
+    private Aenderungen aenderungen;
+    private Aenderungsmelder quelle;
+    // Die geaenderten Zellen eines Schrittes, zum Sortieren
+    private long[] zellen;
+    // Die Daten des aktuellen Eintrags
+    private byte[] daten;
+    private int laenge;
+    // Der zuletzt aufgezeichnete Schritt oder -1
+    private int letzterSchritt;
+    private boolean geschlossen;
+
+    /**
+     * Oeffne die Datei und schreibe den Kopf.
+     * @param datei die Zieldatei; eine vorhandene Datei wird ersetzt.
+     * @param tiefe die Tiefe des aufzuzeichnenden Feldes.
+     * @param breite die Breite des aufzuzeichnenden Feldes.
+     * @param schluesselintervall Schritte zwischen zwei Schluesselbildern
+     *                            (groesser als Null).
+     * @throws IOException wenn die Datei nicht geschrieben werden kann.
+     */
+    public Aufzeichnung(Path datei, int tiefe, int breite, int schluesselintervall)
+        throws IOException
+    {
+        if(schluesselintervall <= 0) {
+            throw new IllegalArgumentException("Intervall muss groesser als Null sein: "
+                                               + schluesselintervall);
+        }
+        this.tiefe = tiefe;
+        this.breite = breite;
+        this.schluesselintervall = schluesselintervall;
+        zellenImFeld = (long) tiefe * breite;
+        bekannt = new Langtabelle<byte[]>();
+        zellen = new long[1024];
+        daten = new byte[4096];
+        letzterSchritt = -1;
+        aus = new Sicherungsschreiber(datei);
+        try {
+            aus.schreibeInt(KENNUNG);
+            aus.schreibeInt(VERSION);
+            aus.schreibeInt(tiefe);
+            aus.schreibeInt(breite);
+        }
+        catch(IOException e) {
+            aus.brichAb();
+            throw e;
+        }
+    }
+
+    /**
+     * Zeichne die Belegung nach einem Schritt auf.
+     * @param schritt welcher Iterationsschritt ist dies.
+     * @param feld die Belegung des Feldes.
+     * @throws IllegalStateException wenn die Aufzeichnung geschlossen
+     *         oder das Schreiben fehlgeschlagen ist.
+     */
+    public void zeigeStatus(int schritt, Feldbelegung feld)
+    {
+        if(geschlossen) {
+            throw new IllegalStateException("Aufzeichnung ist geschlossen");
+        }
+        if(feld.gibTiefe() != tiefe || feld.gibBreite() != breite) {
+            throw new IllegalArgumentException("Feld hat nicht die Groesse der Aufzeichnung: "
+                                               + feld.gibTiefe() + "x" + feld.gibBreite());
+        }
+        meldeAn(feld);
+        laenge = 0;
+        byte typ = letzterSchritt < 0 || schritt <= letzterSchritt
+                   || schritt % schluesselintervall == 0 ? SCHLUESSELBILD : SCHRITT;
+        if(aenderungen == null || aenderungen.sindAlleGeaendert()
+           || aenderungen.gibAnzahl() > zellenImFeld / VOLLER_VERGLEICH) {
+            vergleicheAlle(feld);
+        }
+        else {
+            vergleicheGemeldete(feld);
+        }
+        if(typ == SCHLUESSELBILD) {
+            // Die Aenderungen galten nur dem Nachfuehren.
+            laenge = 0;
+            kodiereSchluesselbild();
+        }
+        if(aenderungen != null) {
+            aenderungen.leeren();
+        }
+        letzterSchritt = schritt;
+        try {
+            aus.schreibeByte(typ);
+            schreibeVarint(schritt);
+            schreibeVarint(laenge);
+            aus.schreibeBytes(daten, 0, laenge);
+        }
+        catch(IOException e) {
+            geschlossen = true;
+            aus.brichAb();
+            throw new IllegalStateException("Aufzeichnung fehlgeschlagen", e);
+        }
+    }
+
+    /**
+     * Schreibe alle Eintraege und schliesse die Datei. Weitere Aufrufe
+     * bleiben wirkungslos.
+     * @throws IOException wenn das Schreiben fehlgeschlagen ist.
+     */
+    public void schliesse() throws IOException
+    {
+        if(geschlossen) {
+            return;
+        }
+        geschlossen = true;
+        if(quelle != null) {
+            quelle.entferneAenderungen(aenderungen);
+        }
+        aus.schliesse();
+    }
+
+    /**
+     * Lasse die Belegung ihre Aenderungen melden, wenn sie das kann.
+     */
+    private void meldeAn(Feldbelegung feld)
+    {
+        if(quelle == feld) {
+            return;
+        }
+        if(quelle != null) {
+            quelle.entferneAenderungen(aenderungen);
+            quelle = null;
+            aenderungen = null;
+        }
+        if(feld instanceof Aenderungsmelder) {
+            quelle = (Aenderungsmelder) feld;
+            aenderungen = new Aenderungen();
+            quelle.meldeAenderungenAn(aenderungen);
+            // Was wir von einer frueheren Belegung kennen, kann sich
+            // ebenfalls geaendert haben.
+            long[] woerter = bekannt.gibSchluessel();
+            for(int w = 0; w < woerter.length; w++) {
+                byte[] zustand = bekannt.gib(woerter[w]);
+                for(int i = 0; i < WORT; i++) {
+                    if(zustand[i] != 0) {
+                        aenderungen.markiere(woerter[w] * WORT + i);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Kodiere die bekannte Belegung als Laeufe gleicher Zellen. Die
+     * Luecken zwischen den Woertern sind leer.
+     */
+    private void kodiereSchluesselbild()
+    {
+        long[] woerter = bekannt.gibSchluessel();
+        Arrays.sort(woerter);
+        long beginn = 0;
+        long naechste = 0;
+        byte lauf = 0;
+        for(int w = 0; w < woerter.length; w++) {
+            long basis = woerter[w] * WORT;
+            if(basis > naechste && lauf != 0) {
+                fuegeVarintAn((naechste - beginn) << 2 | lauf);
+                beginn = naechste;
+                lauf = 0;
+            }
+            byte[] zustand = bekannt.gib(woerter[w]);
+            long ende = Math.min(basis + WORT, zellenImFeld);
+            for(long zelle = basis; zelle < ende; zelle++) {
+                byte wert = zustand[(int) (zelle - basis)];
+                if(wert != lauf) {
+                    if(zelle > beginn) {
+                        fuegeVarintAn((zelle - beginn) << 2 | lauf);
+                    }
+                    beginn = zelle;
+                    lauf = wert;
+                }
+            }
+            naechste = ende;
+        }
+        if(lauf != 0 && naechste < zellenImFeld) {
+            fuegeVarintAn((naechste - beginn) << 2 | lauf);
+            beginn = naechste;
+            lauf = 0;
+        }
+        fuegeVarintAn((zellenImFeld - beginn) << 2 | lauf);
+    }
+
+    /**
+     * Vergleiche jede Zelle mit dem bekannten Zustand.
+     */
+    private void vergleicheAlle(Feldbelegung feld)
+    {
+        long zelle = 0;
+        long vorige = -1;
+        for(int zeile = 0; zeile < tiefe; zeile++) {
+            for(int spalte = 0; spalte < breite; spalte++) {
+                byte neu = zustand(feld.gibArtAn(zeile, spalte));
+                if(neu != gibBekannt(zelle)) {
+                    vorige = fuegeAenderungAn(zelle, vorige, neu);
+                }
+                zelle++;
+            }
+        }
+    }
+
+    /**
+     * Vergleiche nur die gemeldeten Zellen, in aufsteigender Folge.
+     */
+    private void vergleicheGemeldete(Feldbelegung feld)
+    {
+        int anzahl = aenderungen.gibAnzahl();
+        if(zellen.length < anzahl) {
+            zellen = new long[Math.max(anzahl, zellen.length * 2)];
+        }
+        for(int i = 0; i < anzahl; i++) {
+            zellen[i] = aenderungen.gibZelle(i);
+        }
+        Arrays.sort(zellen, 0, anzahl);
+        long vorige = -1;
+        for(int i = 0; i < anzahl; i++) {
+            long zelle = zellen[i];
+            int zeile = (int) (zelle / breite);
+            byte neu = zustand(feld.gibArtAn(zeile, (int) (zelle - (long) zeile * breite)));
+            // Zellen, die am Ende des Schrittes wie vorher belegt sind, entfallen.
+            if(neu != gibBekannt(zelle)) {
+                vorige = fuegeAenderungAn(zelle, vorige, neu);
+            }
+        }
+    }
+
+    /**
+     * Haenge eine geaenderte Zelle an und merke ihren neuen Zustand.
+     * Ein Wort wird mit seinem ersten Tier angelegt und mit seinem
+     * letzten entfernt.
+     * @return die Zelle, als vorige fuer die naechste Aenderung.
+     */
+    private long fuegeAenderungAn(long zelle, long vorige, byte neu)
+    {
+        long wort = zelle / WORT;
+        byte[] zustand = bekannt.gib(wort);
+        if(zustand == null) {
+            zustand = new byte[WORT];
+            bekannt.setze(wort, zustand);
+        }
+        zustand[(int) (zelle % WORT)] = neu;
+        if(neu == 0 && istLeer(zustand)) {
+            bekannt.entferne(wort);
+        }
+        fuegeVarintAn((zelle - vorige - 1) << 2 | neu);
+        return zelle;
+    }
+
+    /**
+     * @return der zuletzt aufgezeichnete Zustand einer Zelle.
+     */
+    private byte gibBekannt(long zelle)
+    {
+        byte[] zustand = bekannt.gib(zelle / WORT);
+        return zustand == null ? 0 : zustand[(int) (zelle % WORT)];
+    }
+
+    /**
+     * @return true wenn keine Zelle eines Wortes ein Tier enthaelt.
+     */
+    private static boolean istLeer(byte[] zustand)
+    {
+        for(int i = 0; i < zustand.length; i++) {
+            if(zustand[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Haenge eine Zahl als Varint an die Daten des Eintrags an.
+     */
+    private void fuegeVarintAn(long wert)
+    {
+        if(daten.length - laenge < 10) {
+            daten = Arrays.copyOf(daten, daten.length * 2);
+        }
+        while((wert & ~0x7fL) != 0) {
+            daten[laenge++] = (byte) (wert | 0x80);
+            wert >>>= 7;
+        }
+        daten[laenge++] = (byte) wert;
+    }
+
+    /**
+     * Schreibe eine Zahl als Varint in die Datei.
+     */
+    private void schreibeVarint(long wert) throws IOException
+    {
+        while((wert & ~0x7fL) != 0) {
+            aus.schreibeByte((byte) (wert | 0x80));
+            wert >>>= 7;
+        }
+        aus.schreibeByte((byte) wert);
+    }
+
+    /**
+     * @return der Zustand einer Zelle mit einem Tier der gegebenen Art.
+     */
+    private static byte zustand(Tierart art)
+    {
+        return art == null ? 0 : (byte) (art.ordinal() + 1);
+    }
+}
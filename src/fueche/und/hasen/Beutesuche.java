@@ -0,0 +1,133 @@
+package fueche.und.hasen;
+
+/**
+ * Die Suche nach dem naechsten Hasen, mit der Fuechse mit einem
+ * Jagdradius groesser als 1 (siehe Artparameter.gibJagdradius) ihre
+ * Beute finden, ohne jede Zelle im Radius anzusehen.
+ *
+ * Die Suche haelt selbst keine Daten. Sie liest die Hasen je Kachel von
+ * KANTE x KANTE Zellen als long mit einem Bit je Zelle (gibHasen); das
+ * Feld liefert dafuer die Masken, die es ohnehin fuehrt. Sie geht die
+ * Kacheln ringweise um die Kachel des Fuchses ab, ueberspringt leere
+ * Kacheln mit einem Vergleich und hoert auf, sobald kein weiterer Ring
+ * naeher liegen kann. Ihr Aufwand haengt daher von der Zahl der
+ * Kacheln im Radius ab, nicht von der Zahl der Zellen.
+ *
+ * Entfernungen werden wie bei den Nachbarn gemessen: Auch diagonal
+ * zaehlt jeder Schritt 1 (Maximum der Abstaende in Zeilen und Spalten).
+ *
+ * @author Merlin
+ */
+abstract class Beutesuche
+{
+    // Zweierlogarithmus der Kantenlaenge einer Kachel
+    static final int KANTE_BITS = 3;
+    // Kantenlaenge einer Kachel in Zellen
+    static final int KANTE = 1 << KANTE_BITS;
+
+    private final int breite;
+    // Die Anzahl der Kacheln je Zeile und je Spalte von Kacheln
+    private final int kachelnJeZeile, kachelnJeSpalte;
+
+    /**
+     * Erzeuge die Suche fuer ein Feld.
+     * @param tiefe die Tiefe des Feldes.
+     * @param breite die Breite des Feldes.
+     */
+    Beutesuche(int tiefe, int breite)
+    {
+        this.breite = breite;
+        kachelnJeZeile = (breite + KANTE - 1) >> KANTE_BITS;
+        kachelnJeSpalte = (tiefe + KANTE - 1) >> KANTE_BITS;
+    }
+
+    /**
+     * @param kachel die Nummer einer Kachel, zeilenweise gezaehlt.
+     * @return ein Bit je Zelle der Kachel mit einem Hasen, Bit
+     *         (zeile % KANTE) * KANTE + spalte % KANTE.
+     */
+    abstract long gibHasen(int kachel);
+
+    /**
+     * Suche den naechsten Hasen um eine Zelle. Unter gleich weit
+     * entfernten gewinnt der erste in Suchreihenfolge.
+     * @param zeile die Zeile des Jaegers.
+     * @param spalte die Spalte des Jaegers.
+     * @param radius die groesste Entfernung.
+     * @return die Zelle des Hasen (zeile * breite + spalte) oder -1.
+     */
+    long findeNaechste(int zeile, int spalte, int radius)
+    {
+        int kachelZeile = zeile >> KANTE_BITS;
+        int kachelSpalte = spalte >> KANTE_BITS;
+        long beste = -1;
+        int besterAbstand = radius + 1;
+        for(int ring = 0; ; ring++) {
+            // Keine Zelle eines Rings liegt naeher als dieser Abstand.
+            int mindestens = ring == 0 ? 0 : (ring - 1) * KANTE + 1;
+            if(mindestens >= besterAbstand) {
+                return beste;
+            }
+            int oben = Math.max(0, kachelZeile - ring);
+            int unten = Math.min(kachelnJeSpalte - 1, kachelZeile + ring);
+            int links = Math.max(0, kachelSpalte - ring);
+            int rechts = Math.min(kachelnJeZeile - 1, kachelSpalte + ring);
+            for(int kz = oben; kz <= unten; kz++) {
+                boolean randzeile = kz == kachelZeile - ring || kz == kachelZeile + ring;
+                // Innerhalb des Rings nur die Kacheln am linken und rechten Rand
+                int schritt = randzeile || ring == 0 ? 1 : 2 * ring;
+                for(int ks = kachelSpalte - ring; ks <= kachelSpalte + ring; ks += schritt) {
+                    if(ks < links || ks > rechts) {
+                        continue;
+                    }
+                    long bits = gibHasen(kz * kachelnJeZeile + ks);
+                    while(bits != 0) {
+                        int b = Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        int z = (kz << KANTE_BITS) + (b >> KANTE_BITS);
+                        int s = (ks << KANTE_BITS) + (b & (KANTE - 1));
+                        int abstand = Math.max(Math.abs(z - zeile), Math.abs(s - spalte));
+                        if(abstand > 0 && abstand < besterAbstand) {
+                            beste = (long) z * breite + s;
+                            besterAbstand = abstand;
+                        }
+                    }
+                }
+            }
+            if(oben == 0 && links == 0 && unten == kachelnJeSpalte - 1
+               && rechts == kachelnJeZeile - 1) {
+                // Der Ring umfasst schon das ganze Feld.
+                return beste;
+            }
+        }
+    }
+
+    /**
+     * Waehle unter den freien Nachbarzellen die, die einem Ziel am
+     * naechsten liegt. Unter gleich nahen gewinnt die erste; die freien
+     * Zellen sind zufaellig gemischt.
+     * @param nachbarn die durchsuchten Nachbarn des Jaegers.
+     * @param erste der Index der ersten noch freien Zelle (die davor
+     *              sind etwa mit Neugeborenen belegt).
+     * @param ziel die Zelle des Ziels.
+     * @return die gewaehlte Zelle oder -1, wenn keine frei ist.
+     */
+    long waehleSchrittZu(Nachbarscan nachbarn, int erste, long ziel)
+    {
+        long zielZeile = ziel / breite;
+        long zielSpalte = ziel - zielZeile * breite;
+        long beste = -1;
+        long besterAbstand = Long.MAX_VALUE;
+        for(int i = erste; i < nachbarn.gibAnzahlFrei(); i++) {
+            long zelle = nachbarn.gibFreieZelle(i);
+            long zeile = zelle / breite;
+            long abstand = Math.max(Math.abs(zeile - zielZeile),
+                                    Math.abs(zelle - zeile * breite - zielSpalte));
+            if(abstand < besterAbstand) {
+                beste = zelle;
+                besterAbstand = abstand;
+            }
+        }
+        return beste;
+    }
+}
@@ -0,0 +1,36 @@
+package fueche.und.hasen;
+
+/**
+ * Eine Feldbelegung, die Geburten und Todesfaelle je Tierart
+ * mitzaehlt. Die Zaehler laufen seit dem letzten Bevoelkern (bzw.
+ * seit dem Fortsetzen einer Sicherung) und werden nie kleiner;
+ * Beobachter bilden die Differenz zu ihrem letzten Aufruf.
+ * Die Anfangsbevoelkerung zaehlt nicht als Geburt.
+ *
+ * @author Merlin
+ */
+public interface Bevoelkerungsbilanz
+{
+    /**
+     * @param art die gewuenschte Tierart.
+     * @return die Anzahl der bisher geborenen Tiere dieser Art.
+     */
+    long gibGeburten(Tierart art);
+
+    /**
+     * Gefressene, verhungerte, an Altersschwaeche und an
+     * Ueberpopulation gestorbene Tiere zaehlen gleichermassen.
+     * @param art die gewuenschte Tierart.
+     * @return die Anzahl der bisher gestorbenen Tiere dieser Art.
+     */
+    long gibTodesfaelle(Tierart art);
+
+    /**
+     * Die Todesfaelle einer Art nach Ursache; ueber alle Ursachen
+     * summiert ergeben sie gibTodesfaelle(art).
+     * @param art die gewuenschte Tierart.
+     * @param ursache die gewuenschte Todesursache.
+     * @return die Anzahl der bisher daran gestorbenen Tiere dieser Art.
+     */
+    long gibTodesfaelle(Tierart art, Todesursache ursache);
+}
@@ -0,0 +1,579 @@
+package fueche.und.hasen;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import org.w3c.dom.NodeList;
+
+/**
+ * Ein Beobachter, der die Belegung je gemeldetem Schritt als Bild
+ * exportiert, ohne ein Fenster zu oeffnen: als PNG-Dateien in einem
+ * Verzeichnis (bild_000120.png fuer Schritt 120) oder als animiertes
+ * GIF, wenn das Ziel auf .gif endet. Die Farben sind die der Ansicht
+ * (siehe Tierart.gibFarbe).
+ *
+ * Die Simulation liest je Bild nur den Zustand der Zellen (0 fuer
+ * leer, sonst Ordnungszahl der Tierart + 1) in einen Puffer; bei einem
+ * Massstab k < 0 zaehlt sie die Arten gleich je Pixel und legt nur
+ * dessen Farbe ab, so dass ein Puffer so gross ist wie das Bild und
+ * nicht wie das Feld. Anders
+ * als die Aufzeichnung laesst sich der Export keine Aenderungen
+ * melden: Das Mitschreiben kostet den Kern in jedem Schritt mehr, als
+ * das Lesen des ganzen Feldes alle paar Schritte kostet. Zeichnen und
+ * Kodieren uebernehmen die Threads eines Pools. Es gibt eine feste
+ * Zahl von Puffern, so dass die Warteschlange des Pools begrenzt ist;
+ * die Simulation wartet nur, wenn die Threads auf Dauer langsamer sind
+ * als sie und alle Puffer belegt sind.
+ *
+ * Ein Massstab k > 0 zeichnet jede Zelle als k x k Pixel, k < 0
+ * fasst -k x -k Zellen zu einem Pixel zusammen, dessen Farbe die
+ * Farben nach den Anteilen der Arten mischt. Die Bilder benutzen eine
+ * feste Palette dieser Mischungen, damit PNG und GIF ohne
+ * Farbreduktion geschrieben werden koennen. PNG-Dateien schreiben die
+ * Threads unabhaengig voneinander; die Bilder eines GIF haengt der
+ * Thread an, der das jeweils naechste fertig gezeichnet hat.
+ *
+ * @author Merlin
+ */
+public class Bildexport implements Simulationsbeobachter
+{
+    // Die groesste Kantenlaenge eines Bildes beim Standardmassstab
+    private static final int MAX_BILDGROESSE = 1024;
+    // Der groesste Standardmassstab in Pixeln je Zelle
+    private static final int MAX_PIXEL_JE_ZELLE = 6;
+    // Anzeigedauer eines GIF-Bildes in Hundertstelsekunden
+    private static final int ANZEIGEDAUER = 10;
+    // Kompressionsqualitaet der PNG-Dateien: 1 ist ungepackt, die
+    // Voreinstellung packt am staerksten und ist etwa dreimal langsamer
+    private static final float PNG_QUALITAET = 0.75f;
+    // Die Anzahl der Tierarten
+    private static final int ARTEN = Tierart.values().length;
+    // Stufen des Anteils einer Art in der Palette; je Art eine Stelle
+    // zur Basis STUFEN + 1, so dass alle Mischungen in 256 Farben passen
+    private static final int STUFEN = (int) Math.floor(Math.pow(256, 1.0 / ARTEN) + 1e-9) - 1;
+    private static final Color LEER_FARBE = Color.white;
+
+    private final Path ziel;
+    private final boolean gif;
+    private final int tiefe, breite;
+    private final int massstab;
+    private final int bildbreite, bildhoehe;
+    private final IndexColorModel palette;
+    // Der Palettenindex einer voll belegten Zelle je Zustand
+    private final byte[] zellfarbe;
+    // Freie Puffer fuer den Zustand eines Bildes: je Zelle bei k > 0,
+    // je Pixel bei k < 0
+    private final BlockingQueue<byte[]> frei;
+    // Die Tiere je Art in den Pixeln einer Pixelzeile, beim Lesen mit
+    // k < 0; nur die Simulation benutzt sie
+    private final int[] anzahl;
+    private final ThreadPoolExecutor pool;
+    // Die Nummer des naechsten Bildes
+    private int bilder;
+    // Der GIF-Schreiber, die gezeichneten, noch nicht angehaengten
+    // Bilder und die Nummer des naechsten anzuhaengenden
+    private final ImageWriter schreiber;
+    private final ImageOutputStream aus;
+    private final Map<Integer, BufferedImage> wartend;
+    private int naechstes;
+    // Der erste Fehler der Threads oder null
+    private volatile IOException fehler;
+    private boolean geschlossen;
+
+    /**
+     * Bereite den Export vor und starte die Threads.
+     * @param ziel ein Verzeichnis fuer PNG-Dateien (wird angelegt) oder
+     *             eine Datei mit der Endung .gif, die ersetzt wird.
+     * @param tiefe die Tiefe des Feldes.
+     * @param breite die Breite des Feldes.
+     * @param massstab Pixel je Zelle (k > 0) oder Zellen je Pixel (-k).
+     * @param threads die Anzahl der Threads zum Zeichnen und Kodieren.
+     * @throws IOException wenn das Ziel nicht angelegt werden kann.
+     */
+    public Bildexport(Path ziel, int tiefe, int breite, int massstab, int threads)
+        throws IOException
+    {
+        if(massstab == 0 || massstab == Integer.MIN_VALUE) {
+            throw new IllegalArgumentException("Massstab darf nicht Null sein");
+        }
+        if(threads <= 0) {
+            throw new IllegalArgumentException("Threads muessen mehr als Null sein: " + threads);
+        }
+        this.ziel = ziel;
+        this.tiefe = tiefe;
+        this.breite = breite;
+        this.massstab = massstab;
+        gif = ziel.toString().toLowerCase(Locale.ROOT).endsWith(".gif");
+        if(massstab > 0) {
+            bildbreite = breite * massstab;
+            bildhoehe = tiefe * massstab;
+        }
+        else {
+            bildbreite = (breite - massstab - 1) / -massstab;
+            bildhoehe = (tiefe - massstab - 1) / -massstab;
+        }
+        if((long) bildbreite * bildhoehe > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bild zu gross: " + bildbreite + "x" + bildhoehe);
+        }
+        palette = erzeugePalette();
+        zellfarbe = new byte[ARTEN + 1];
+        int stelle = 1;
+        for(int a = 0; a < ARTEN; a++) {
+            zellfarbe[a + 1] = (byte) (STUFEN * stelle);
+            stelle *= STUFEN + 1;
+        }
+        wartend = new TreeMap<Integer, BufferedImage>();
+        if(gif) {
+            Iterator<ImageWriter> schreiberListe = ImageIO.getImageWritersByFormatName("gif");
+            if(!schreiberListe.hasNext()) {
+                throw new IOException("Kein GIF-Schreiber vorhanden");
+            }
+            schreiber = schreiberListe.next();
+            Files.deleteIfExists(ziel);
+            aus = ImageIO.createImageOutputStream(ziel.toFile());
+            if(aus == null) {
+                throw new IOException("Datei nicht beschreibbar: " + ziel);
+            }
+            schreiber.setOutput(aus);
+            schreiber.prepareWriteSequence(gifStrommetadaten());
+        }
+        else {
+            schreiber = null;
+            aus = null;
+            Files.createDirectories(ziel);
+        }
+        // Je Thread ein Puffer in Arbeit und einer in der Warteschlange
+        frei = new ArrayBlockingQueue<byte[]>(2 * threads);
+        for(int i = 0; i < 2 * threads; i++) {
+            frei.add(new byte[massstab > 0 ? tiefe * breite : bildbreite * bildhoehe]);
+        }
+        anzahl = massstab > 0 ? null : new int[bildbreite * ARTEN];
+        pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                                      new ArrayBlockingQueue<Runnable>(2 * threads),
+                                      new ThreadFactory() {
+            private int nummer;
+
+            public synchronized Thread newThread(Runnable aufgabe)
+            {
+                Thread thread = new Thread(aufgabe, "Bildexport-" + ++nummer);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Waehle einen Massstab, bei dem das Bild hoechstens MAX_BILDGROESSE
+     * Pixel breit und hoch ist.
+     * @param tiefe die Tiefe des Feldes.
+     * @param breite die Breite des Feldes.
+     * @return Pixel je Zelle (k > 0) oder Zellen je Pixel (-k).
+     */
+    public static int gibStandardmassstab(int tiefe, int breite)
+    {
+        int groesser = Math.max(Math.max(tiefe, breite), 1);
+        if(groesser <= MAX_BILDGROESSE) {
+            return Math.max(1, Math.min(MAX_PIXEL_JE_ZELLE, MAX_BILDGROESSE / groesser));
+        }
+        int zellen = (groesser + MAX_BILDGROESSE - 1) / MAX_BILDGROESSE;
+        return -zellen;
+    }
+
+    /**
+     * Lies die Belegung und uebergib sie den Threads.
+     * @param schritt welcher Iterationsschritt ist dies.
+     * @param feld die Belegung des Feldes.
+     * @throws IllegalStateException wenn der Export geschlossen oder
+     *         das Schreiben fehlgeschlagen ist.
+     */
+    public void zeigeStatus(int schritt, Feldbelegung feld)
+    {
+        if(geschlossen) {
+            throw new IllegalStateException("Export ist geschlossen");
+        }
+        if(fehler != null) {
+            throw new IllegalStateException("Export fehlgeschlagen", fehler);
+        }
+        if(feld.gibTiefe() != tiefe || feld.gibBreite() != breite) {
+            throw new IllegalArgumentException("Feld hat nicht die Groesse des Exports: "
+                                               + feld.gibTiefe() + "x" + feld.gibBreite());
+        }
+        final byte[] puffer;
+        try {
+            puffer = frei.take();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Export unterbrochen", e);
+        }
+        lies(feld, puffer);
+        final int nummer = bilder++;
+        final int bildschritt = schritt;
+        // Es sind nie mehr Aufgaben unterwegs als Puffer, die Warteschlange
+        // des Pools laeuft daher nicht ueber.
+        pool.execute(new Runnable() {
+            public void run()
+            {
+                bearbeite(nummer, bildschritt, puffer);
+            }
+        });
+    }
+
+    /**
+     * Warte auf alle Bilder und schliesse das GIF. Weitere Aufrufe
+     * bleiben wirkungslos.
+     * @throws IOException wenn das Schreiben fehlgeschlagen ist.
+     */
+    public void schliesse() throws IOException
+    {
+        if(geschlossen) {
+            return;
+        }
+        geschlossen = true;
+        pool.shutdown();
+        try {
+            while(!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                // weiter warten
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+            throw new IOException("Export unterbrochen", e);
+        }
+        if(gif) {
+            try {
+                if(fehler == null) {
+                    schreiber.endWriteSequence();
+                }
+            }
+            catch(IOException e) {
+                fehler = e;
+            }
+            finally {
+                schreiber.dispose();
+                aus.close();
+            }
+        }
+        if(fehler != null) {
+            throw fehler;
+        }
+    }
+
+    /**
+     * @return die Anzahl der bisher uebergebenen Bilder.
+     */
+    public int gibAnzahlBilder()
+    {
+        return bilder;
+    }
+
+    /**
+     * Zeichne und schreibe ein Bild in einem Thread des Pools und gib
+     * den Puffer wieder frei. Nach einem Fehler werden die Puffer nur
+     * noch freigegeben, damit die Simulation nicht haengen bleibt.
+     */
+    private void bearbeite(int nummer, int schritt, byte[] zustand)
+    {
+        BufferedImage bild = null;
+        try {
+            if(fehler == null) {
+                bild = zeichne(zustand);
+            }
+        }
+        catch(RuntimeException e) {
+            fehler = new IOException("Bild " + schritt + " nicht gezeichnet", e);
+        }
+        finally {
+            frei.add(zustand);
+        }
+        if(bild == null) {
+            return;
+        }
+        try {
+            if(gif) {
+                haengeAn(nummer, bild);
+            }
+            else {
+                schreibePng(bild, ziel.resolve(String.format(Locale.ROOT, "bild_%06d.png",
+                                                             schritt)));
+            }
+        }
+        catch(IOException e) {
+            fehler = e;
+        }
+        catch(RuntimeException e) {
+            fehler = new IOException("Bild " + schritt + " nicht geschrieben", e);
+        }
+    }
+
+    /**
+     * Schreibe ein Bild als PNG-Datei, mit schwaecherer und dafuer
+     * deutlich schnellerer Kompression als voreingestellt.
+     */
+    private static void schreibePng(BufferedImage bild, Path datei) throws IOException
+    {
+        Iterator<ImageWriter> schreiberListe = ImageIO.getImageWritersByFormatName("png");
+        if(!schreiberListe.hasNext()) {
+            throw new IOException("Kein PNG-Schreiber vorhanden");
+        }
+        ImageWriter png = schreiberListe.next();
+        Files.deleteIfExists(datei);
+        ImageOutputStream datenstrom = ImageIO.createImageOutputStream(datei.toFile());
+        if(datenstrom == null) {
+            throw new IOException("Datei nicht beschreibbar: " + datei);
+        }
+        try {
+            png.setOutput(datenstrom);
+            ImageWriteParam einstellung = png.getDefaultWriteParam();
+            if(einstellung.canWriteCompressed()) {
+                einstellung.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                einstellung.setCompressionQuality(PNG_QUALITAET);
+            }
+            png.write(null, new IIOImage(bild, null, null), einstellung);
+        }
+        finally {
+            png.dispose();
+            datenstrom.close();
+        }
+    }
+
+    /**
+     * Haenge ein Bild an das GIF an, wenn es das naechste ist, sonst
+     * lege es zurueck; mit ihm werden auch die zurueckgelegten Bilder
+     * angehaengt, die jetzt an der Reihe sind.
+     */
+    private synchronized void haengeAn(int nummer, BufferedImage bild) throws IOException
+    {
+        wartend.put(nummer, bild);
+        while(fehler == null && wartend.containsKey(naechstes)) {
+            BufferedImage naechstesBild = wartend.remove(naechstes);
+            schreiber.writeToSequence(new IIOImage(naechstesBild, null,
+                                                   gifMetadaten(naechstesBild, naechstes == 0)),
+                                      null);
+            naechstes++;
+        }
+    }
+
+    /**
+     * Zeichne den Zustand der Zellen als Bild mit der Palette; bei
+     * k < 0 enthaelt der Zustand schon die Pixel (siehe liesVerkleinert).
+     */
+    private BufferedImage zeichne(byte[] zustand)
+    {
+        BufferedImage bild = new BufferedImage(bildbreite, bildhoehe,
+                                               BufferedImage.TYPE_BYTE_INDEXED, palette);
+        byte[] pixel = ((DataBufferByte) bild.getRaster().getDataBuffer()).getData();
+        if(massstab > 0) {
+            int k = massstab;
+            for(int zeile = 0; zeile < tiefe; zeile++) {
+                int p = zeile * k * bildbreite;
+                int zelle = zeile * breite;
+                for(int spalte = 0; spalte < breite; spalte++) {
+                    byte farbe = zellfarbe[zustand[zelle++]];
+                    for(int x = 0; x < k; x++) {
+                        pixel[p++] = farbe;
+                    }
+                }
+                // Die uebrigen Pixelzeilen der Zelle gleichen der ersten.
+                int erste = zeile * k * bildbreite;
+                for(int y = 1; y < k; y++) {
+                    System.arraycopy(pixel, erste, pixel, erste + y * bildbreite, bildbreite);
+                }
+            }
+        }
+        else {
+            System.arraycopy(zustand, 0, pixel, 0, pixel.length);
+        }
+        return bild;
+    }
+
+    /**
+     * Erzeuge die Palette: Index i steht fuer die Anteile, deren
+     * Stellen zur Basis STUFEN + 1 die Anteile der Arten in STUFEN-teln
+     * sind; der Rest ist leer.
+     */
+    private static IndexColorModel erzeugePalette()
+    {
+        Tierart[] arten = Tierart.values();
+        int groesse = 1;
+        for(int a = 0; a < ARTEN; a++) {
+            groesse *= STUFEN + 1;
+        }
+        byte[] rot = new byte[groesse];
+        byte[] gruen = new byte[groesse];
+        byte[] blau = new byte[groesse];
+        for(int i = 0; i < groesse; i++) {
+            double leer = 1;
+            double r = 0, g = 0, b = 0;
+            int rest = i;
+            for(int a = 0; a < ARTEN; a++) {
+                double anteil = Math.min(leer, (double) (rest % (STUFEN + 1)) / STUFEN);
+                rest /= STUFEN + 1;
+                Color farbe = arten[a].gibFarbe();
+                r += anteil * farbe.getRed();
+                g += anteil * farbe.getGreen();
+                b += anteil * farbe.getBlue();
+                leer -= anteil;
+            }
+            rot[i] = (byte) Math.round(r + leer * LEER_FARBE.getRed());
+            gruen[i] = (byte) Math.round(g + leer * LEER_FARBE.getGreen());
+            blau[i] = (byte) Math.round(b + leer * LEER_FARBE.getBlue());
+        }
+        return new IndexColorModel(8, groesse, rot, gruen, blau);
+    }
+
+    /**
+     * Erzeuge die Metadaten des GIF-Stroms mit der Palette als globaler
+     * Farbtabelle, die alle Bilder teilen.
+     */
+    private IIOMetadata gifStrommetadaten() throws IOException
+    {
+        IIOMetadata metadaten = schreiber.getDefaultStreamMetadata(null);
+        String format = metadaten.getNativeMetadataFormatName();
+        IIOMetadataNode wurzel = (IIOMetadataNode) metadaten.getAsTree(format);
+        IIOMetadataNode bildschirm = new IIOMetadataNode("LogicalScreenDescriptor");
+        bildschirm.setAttribute("logicalScreenWidth", Integer.toString(bildbreite));
+        bildschirm.setAttribute("logicalScreenHeight", Integer.toString(bildhoehe));
+        bildschirm.setAttribute("colorResolution", "8");
+        bildschirm.setAttribute("pixelAspectRatio", "0");
+        wurzel.appendChild(bildschirm);
+        IIOMetadataNode tabelle = new IIOMetadataNode("GlobalColorTable");
+        tabelle.setAttribute("sizeOfGlobalColorTable", Integer.toString(palette.getMapSize()));
+        tabelle.setAttribute("backgroundColorIndex", "0");
+        tabelle.setAttribute("sortFlag", "FALSE");
+        for(int i = 0; i < palette.getMapSize(); i++) {
+            IIOMetadataNode eintrag = new IIOMetadataNode("ColorTableEntry");
+            eintrag.setAttribute("index", Integer.toString(i));
+            eintrag.setAttribute("red", Integer.toString(palette.getRed(i)));
+            eintrag.setAttribute("green", Integer.toString(palette.getGreen(i)));
+            eintrag.setAttribute("blue", Integer.toString(palette.getBlue(i)));
+            tabelle.appendChild(eintrag);
+        }
+        wurzel.appendChild(tabelle);
+        metadaten.setFromTree(format, wurzel);
+        return metadaten;
+    }
+
+    /**
+     * Erzeuge die Metadaten eines GIF-Bildes mit Anzeigedauer; das
+     * erste Bild legt ausserdem fest, dass die Animation endlos laeuft.
+     */
+    private IIOMetadata gifMetadaten(BufferedImage bild, boolean erstes) throws IOException
+    {
+        IIOMetadata metadaten = schreiber.getDefaultImageMetadata(
+            ImageTypeSpecifier.createFromRenderedImage(bild), null);
+        String format = metadaten.getNativeMetadataFormatName();
+        IIOMetadataNode wurzel = (IIOMetadataNode) metadaten.getAsTree(format);
+        // Ohne lokale Farbtabelle gilt die globale, also die Palette.
+        NodeList tabellen = wurzel.getElementsByTagName("LocalColorTable");
+        for(int i = 0; i < tabellen.getLength(); i++) {
+            wurzel.removeChild(tabellen.item(i));
+        }
+        IIOMetadataNode steuerung = (IIOMetadataNode) wurzel
+            .getElementsByTagName("GraphicControlExtension").item(0);
+        if(steuerung == null) {
+            steuerung = new IIOMetadataNode("GraphicControlExtension");
+            wurzel.appendChild(steuerung);
+        }
+        steuerung.setAttribute("disposalMethod", "none");
+        steuerung.setAttribute("userInputFlag", "FALSE");
+        steuerung.setAttribute("transparentColorFlag", "FALSE");
+        steuerung.setAttribute("delayTime", Integer.toString(ANZEIGEDAUER));
+        steuerung.setAttribute("transparentColorIndex", "0");
+        if(erstes) {
+            IIOMetadataNode anwendungen = new IIOMetadataNode("ApplicationExtensions");
+            IIOMetadataNode schleife = new IIOMetadataNode("ApplicationExtension");
+            schleife.setAttribute("applicationID", "NETSCAPE");
+            schleife.setAttribute("authenticationCode", "2.0");
+            // Unterblock 1 mit 0 Wiederholungen: endlos
+            schleife.setUserObject(new byte[] { 1, 0, 0 });
+            anwendungen.appendChild(schleife);
+            wurzel.appendChild(anwendungen);
+        }
+        metadaten.setFromTree(format, wurzel);
+        return metadaten;
+    }
+
+    /**
+     * Lies den Zustand jeder Zelle, bei k < 0 gleich je Pixel.
+     */
+    private void lies(Feldbelegung feld, byte[] zustand)
+    {
+        if(massstab < 0) {
+            liesVerkleinert(feld, zustand);
+            return;
+        }
+        int zelle = 0;
+        for(int zeile = 0; zeile < tiefe; zeile++) {
+            for(int spalte = 0; spalte < breite; spalte++) {
+                zustand[zelle++] = zustand(feld.gibArtAn(zeile, spalte));
+            }
+        }
+    }
+
+    /**
+     * Lies die Zellen in Baendern von -k Zeilen, zaehle die Arten je
+     * Pixel des Bandes und lege die Farbe jedes Pixels ab: Index der
+     * Palette nach den gerundeten Anteilen der Arten.
+     */
+    private void liesVerkleinert(Feldbelegung feld, byte[] pixel)
+    {
+        int n = -massstab;
+        for(int y = 0; y < bildhoehe; y++) {
+            int oben = y * n;
+            int unten = Math.min(tiefe, oben + n);
+            Arrays.fill(anzahl, 0);
+            for(int zeile = oben; zeile < unten; zeile++) {
+                for(int spalte = 0; spalte < breite; spalte++) {
+                    Tierart art = feld.gibArtAn(zeile, spalte);
+                    if(art != null) {
+                        anzahl[spalte / n * ARTEN + art.ordinal()]++;
+                    }
+                }
+            }
+            for(int x = 0; x < bildbreite; x++) {
+                int links = x * n;
+                int rechts = Math.min(breite, links + n);
+                int zellen = (unten - oben) * (rechts - links);
+                int index = 0;
+                int stelle = 1;
+                for(int a = 0; a < ARTEN; a++) {
+                    index += (anzahl[x * ARTEN + a] * STUFEN + zellen / 2) / zellen * stelle;
+                    stelle *= STUFEN + 1;
+                }
+                pixel[y * bildbreite + x] = (byte) index;
+            }
+        }
+    }
+
+    /**
+     * @return der Zustand einer Zelle mit einem Tier der gegebenen Art.
+     */
+    private static byte zustand(Tierart art)
+    {
+        return art == null ? 0 : (byte) (art.ordinal() + 1);
+    }
+}
@@ -0,0 +1,403 @@
+package fueche.und.hasen;
+
+import java.util.Arrays;
+
+/**
+ * Die Belegung eines Feldes fuer die Anzeige, mit Zaehlern je Block in
+ * mehreren Stufen, damit auch ein sehr grosses Feld verkleinert
+ * angezeigt werden kann, ohne bei jedem Bild alle Zellen zu lesen.
+ *
+ * Stufe s fasst Bloecke von 2^s x 2^s Zellen zusammen; ab MIN_STUFE
+ * haelt jeder Block die Anzahl der Tiere jeder Art und den Stand, an
+ * dem sich zuletzt eine seiner Zellen geaendert hat. Die oberste Stufe
+ * umfasst das ganze Feld in einem Block. Die Bloecke der untersten
+ * Stufe halten ausserdem den Zustand ihrer Zellen (0 fuer leer, sonst
+ * Ordnungszahl der Art + 1); darunter wird aus den Zellen gezaehlt.
+ * Aktualisiert wird nur, was sich geaendert hat: Meldet die Belegung
+ * ihre Aenderungen (Aenderungsmelder), werden nur diese Zellen
+ * verglichen, sonst alle. Je geaenderter Zelle werden die Zaehler
+ * eines Blocks je Stufe nachgefuehrt.
+ *
+ * Angelegt sind nur Bloecke mit Tieren, je Stufe in einer Langtabelle;
+ * wie beim Feld richtet sich der Speicher nach der Bevoelkerung, nicht
+ * nach der Flaeche. Ein Block, der leer wird, wird sofort entfernt. Sein
+ * Stand geht damit verloren; fuer fehlende Bloecke liefert gibGeaendert
+ * den Stand des naechsten vorhandenen umfassenden Blocks, der nie
+ * kleiner ist, so dass eine Ansicht hoechstens einmal zu oft zeichnet.
+ *
+ * Die Karte ist nicht synchronisiert; die Ansicht schuetzt sie mit
+ * ihrer Bildsperre. Eine zweite Karte holt mit uebernimm nur die seit
+ * ihrer letzten Uebernahme geaenderten Zellen ab, so dass die Ansicht
+ * die Sperre nur fuer das Kopieren haelt und aus ihrer eigenen Karte
+ * zeichnet.
+ *
+ * @author Merlin
+ */
+class Dichtekarte
+{
+    // Die unterste Stufe mit eigenen Zaehlern (Bloecke von 8 x 8 Zellen)
+    static final int MIN_STUFE = 3;
+    // Die Anzahl der Tierarten
+    private static final int ARTEN = Tierart.values().length;
+
+    private final int tiefe, breite;
+    // Die oberste Stufe; ihr einziger Block umfasst das ganze Feld
+    private final int maxStufe;
+    // Je Stufe ab MIN_STUFE die Bloecke mit Tieren (siehe schluessel)
+    private final Langtabelle<Block>[] bloecke;
+    // Der Block der obersten Stufe; er bleibt auch leer erhalten
+    private final Block feldblock;
+    // Wird bei jeder Aktualisierung erhoeht
+    private int stand;
+    // Die geaenderten Zellen und die Belegung, die sie meldet
+    private Aenderungen aenderungen;
+    private Aenderungsmelder quelle;
+    // Die seit der letzten Uebernahme durch eine Kopie geaenderten
+    // Zellen; angelegt mit der ersten Uebernahme
+    private Aenderungen ungelesen;
+
+    /**
+     * Erzeuge eine leere Karte.
+     * @param tiefe die Tiefe des Feldes.
+     * @param breite die Breite des Feldes.
+     */
+    @SuppressWarnings("unchecked")
+    Dichtekarte(int tiefe, int breite)
+    {
+        this.tiefe = tiefe;
+        this.breite = breite;
+        int stufe = MIN_STUFE;
+        while(stufe < 31 && (1 << stufe) < Math.max(tiefe, breite)) {
+            stufe++;
+        }
+        maxStufe = stufe;
+        bloecke = new Langtabelle[maxStufe + 1];
+        for(int s = MIN_STUFE; s <= maxStufe; s++) {
+            bloecke[s] = new Langtabelle<Block>();
+        }
+        feldblock = new Block(maxStufe == MIN_STUFE);
+        bloecke[maxStufe].setze(0, feldblock);
+    }
+
+    /**
+     * Bringe die Karte auf den Stand der Belegung.
+     * @param feld die Belegung; sie muss die Groesse der Karte haben.
+     */
+    void aktualisiere(Feldbelegung feld)
+    {
+        meldeAn(feld);
+        stand++;
+        if(aenderungen == null || aenderungen.sindAlleGeaendert()) {
+            for(int zeile = 0; zeile < tiefe; zeile++) {
+                for(int spalte = 0; spalte < breite; spalte++) {
+                    vergleiche(feld, zeile, spalte);
+                }
+            }
+        }
+        else {
+            int anzahl = aenderungen.gibAnzahl();
+            for(int i = 0; i < anzahl; i++) {
+                long zelle = aenderungen.gibZelle(i);
+                int zeile = (int) (zelle / breite);
+                vergleiche(feld, zeile, (int) (zelle - (long) zeile * breite));
+            }
+        }
+        if(aenderungen != null) {
+            aenderungen.leeren();
+        }
+    }
+
+    /**
+     * Bringe diese Karte auf den Stand einer anderen gleicher Groesse.
+     * Kopiert werden nur die Zellen, die sich seit der letzten
+     * Uebernahme aus derselben Karte geaendert haben, beim ersten Mal
+     * die Bloecke beider Karten.
+     * @param quelle die Karte, deren Stand uebernommen wird.
+     */
+    void uebernimm(Dichtekarte quelle)
+    {
+        stand++;
+        if(quelle.ungelesen == null) {
+            quelle.ungelesen = new Aenderungen();
+        }
+        Aenderungen neu = quelle.ungelesen;
+        if(neu.sindAlleGeaendert()) {
+            uebernimmBloecke(quelle, bloecke[MIN_STUFE].gibSchluessel());
+            uebernimmBloecke(quelle, quelle.bloecke[MIN_STUFE].gibSchluessel());
+        }
+        else {
+            int anzahl = neu.gibAnzahl();
+            for(int i = 0; i < anzahl; i++) {
+                long zelle = neu.gibZelle(i);
+                int zeile = (int) (zelle / breite);
+                int spalte = (int) (zelle - (long) zeile * breite);
+                setze(zeile, spalte, quelle.gibZustand(zeile, spalte));
+            }
+        }
+        neu.leeren();
+    }
+
+    /**
+     * Melde die Karte von der Belegung ab, damit diese keine
+     * Aenderungen mehr sammelt.
+     */
+    void abmelden()
+    {
+        if(quelle != null) {
+            quelle.entferneAenderungen(aenderungen);
+            quelle = null;
+            aenderungen = null;
+        }
+    }
+
+    /**
+     * @return die Tiefe des Feldes.
+     */
+    int gibTiefe()
+    {
+        return tiefe;
+    }
+
+    /**
+     * @return die Breite des Feldes.
+     */
+    int gibBreite()
+    {
+        return breite;
+    }
+
+    /**
+     * @return der Stand der letzten Aktualisierung.
+     */
+    int gibStand()
+    {
+        return stand;
+    }
+
+    /**
+     * @return der Zustand einer Zelle: 0 fuer leer, sonst Ordnungszahl + 1.
+     */
+    int gibZustand(int zeile, int spalte)
+    {
+        Block block = bloecke[MIN_STUFE].gib(schluessel(zeile >> MIN_STUFE,
+                                                         spalte >> MIN_STUFE));
+        return block == null ? 0 : block.zellen[index(zeile, spalte)];
+    }
+
+    /**
+     * Liefere den Stand, an dem sich zuletzt eine Zelle eines Blocks
+     * geaendert hat. Bloecke ueber der obersten Stufe umfassen das
+     * ganze Feld. Fuer einen leeren Block kann der Stand zu gross sein
+     * (siehe oben), nie zu klein.
+     * @param stufe die Stufe des Blocks (mindestens MIN_STUFE).
+     * @param blockZeile die Zeile des Blocks in seiner Stufe.
+     * @param blockSpalte die Spalte des Blocks in seiner Stufe.
+     * @return der Stand oder 0, wenn sich nie etwas geaendert hat.
+     */
+    int gibGeaendert(int stufe, int blockZeile, int blockSpalte)
+    {
+        if(stufe > maxStufe) {
+            return blockZeile == 0 && blockSpalte == 0 ? feldblock.stand : 0;
+        }
+        for(int s = stufe; s < maxStufe; s++) {
+            Block block = bloecke[s].gib(schluessel(blockZeile, blockSpalte));
+            if(block != null) {
+                return block.stand;
+            }
+            blockZeile >>= 1;
+            blockSpalte >>= 1;
+        }
+        return feldblock.stand;
+    }
+
+    /**
+     * Zaehle die Tiere in einem Block. Unter MIN_STUFE wird aus den
+     * Zellen gezaehlt, sonst werden die Zaehler gelesen.
+     * @param stufe die Stufe (0 ist eine einzelne Zelle).
+     * @param blockZeile die Zeile des Blocks in seiner Stufe.
+     * @param blockSpalte die Spalte des Blocks in seiner Stufe.
+     * @param anzahl erhaelt je Ordnungszahl einer Art die Anzahl.
+     * @return die Anzahl der Zellen des Blocks innerhalb des Feldes.
+     */
+    int zaehle(int stufe, int blockZeile, int blockSpalte, int[] anzahl)
+    {
+        int oben = blockZeile << stufe;
+        int links = blockSpalte << stufe;
+        int unten = Math.min(tiefe, oben + (1 << stufe));
+        int rechts = Math.min(breite, links + (1 << stufe));
+        Arrays.fill(anzahl, 0, ARTEN, 0);
+        if(stufe >= MIN_STUFE) {
+            Block block;
+            if(stufe >= maxStufe) {
+                block = blockZeile == 0 && blockSpalte == 0 ? feldblock : null;
+            }
+            else {
+                block = bloecke[stufe].gib(schluessel(blockZeile, blockSpalte));
+            }
+            if(block != null) {
+                System.arraycopy(block.anzahl, 0, anzahl, 0, ARTEN);
+            }
+        }
+        else {
+            // Ein Block unter MIN_STUFE liegt ganz in einem Block der untersten Stufe.
+            Block block = bloecke[MIN_STUFE].gib(schluessel(oben >> MIN_STUFE,
+                                                             links >> MIN_STUFE));
+            if(block != null) {
+                for(int zeile = oben; zeile < unten; zeile++) {
+                    for(int spalte = links; spalte < rechts; spalte++) {
+                        int wert = block.zellen[index(zeile, spalte)];
+                        if(wert != 0) {
+                            anzahl[wert - 1]++;
+                        }
+                    }
+                }
+            }
+        }
+        return (unten - oben) * (rechts - links);
+    }
+
+    /**
+     * @return die oberste Stufe.
+     */
+    int gibMaxStufe()
+    {
+        return maxStufe;
+    }
+
+    /**
+     * Uebernimm alle Zellen der gegebenen Bloecke der untersten Stufe
+     * aus einer anderen Karte.
+     */
+    private void uebernimmBloecke(Dichtekarte quelle, long[] schluessel)
+    {
+        for(int i = 0; i < schluessel.length; i++) {
+            int oben = (int) (schluessel[i] >>> 32) << MIN_STUFE;
+            int links = (int) schluessel[i] << MIN_STUFE;
+            int unten = Math.min(tiefe, oben + (1 << MIN_STUFE));
+            int rechts = Math.min(breite, links + (1 << MIN_STUFE));
+            for(int zeile = oben; zeile < unten; zeile++) {
+                for(int spalte = links; spalte < rechts; spalte++) {
+                    setze(zeile, spalte, quelle.gibZustand(zeile, spalte));
+                }
+            }
+        }
+    }
+
+    /**
+     * Vergleiche eine Zelle mit der Belegung und fuehre bei einer
+     * Aenderung die Zaehler aller Stufen nach.
+     */
+    private void vergleiche(Feldbelegung feld, int zeile, int spalte)
+    {
+        Tierart art = feld.gibArtAn(zeile, spalte);
+        setze(zeile, spalte, art == null ? 0 : art.ordinal() + 1);
+    }
+
+    /**
+     * Setze den Zustand einer Zelle und fuehre bei einer Aenderung die
+     * Zaehler aller Stufen nach. Bloecke werden mit ihrem ersten Tier
+     * angelegt und mit ihrem letzten entfernt.
+     */
+    private void setze(int zeile, int spalte, int neu)
+    {
+        long unterster = schluessel(zeile >> MIN_STUFE, spalte >> MIN_STUFE);
+        Block block = bloecke[MIN_STUFE].gib(unterster);
+        int index = index(zeile, spalte);
+        int alt = block == null ? 0 : block.zellen[index];
+        if(neu == alt) {
+            return;
+        }
+        if(ungelesen != null) {
+            ungelesen.markiere((long) zeile * breite + spalte);
+        }
+        for(int s = MIN_STUFE; s <= maxStufe; s++) {
+            long schluessel = schluessel(zeile >> s, spalte >> s);
+            Block b = s == MIN_STUFE ? block
+                      : s == maxStufe ? feldblock : bloecke[s].gib(schluessel);
+            if(b == null) {
+                b = new Block(s == MIN_STUFE);
+                bloecke[s].setze(schluessel, b);
+            }
+            b.stand = stand;
+            if(alt != 0) {
+                b.anzahl[alt - 1]--;
+                b.tiere--;
+            }
+            if(neu != 0) {
+                b.anzahl[neu - 1]++;
+                b.tiere++;
+            }
+            if(b.zellen != null) {
+                b.zellen[index] = (byte) neu;
+            }
+            if(b.tiere == 0 && b != feldblock) {
+                bloecke[s].entferne(schluessel);
+            }
+        }
+    }
+
+    /**
+     * Lasse die Belegung ihre Aenderungen melden, wenn sie das kann.
+     */
+    private void meldeAn(Feldbelegung feld)
+    {
+        if(quelle == feld) {
+            return;
+        }
+        abmelden();
+        if(feld instanceof Aenderungsmelder) {
+            quelle = (Aenderungsmelder) feld;
+            aenderungen = new Aenderungen();
+            quelle.meldeAenderungenAn(aenderungen);
+            // Was wir von einer frueheren Belegung kennen, kann sich
+            // ebenfalls geaendert haben.
+            long[] schluessel = bloecke[MIN_STUFE].gibSchluessel();
+            for(int i = 0; i < schluessel.length; i++) {
+                int oben = (int) (schluessel[i] >>> 32) << MIN_STUFE;
+                int links = (int) schluessel[i] << MIN_STUFE;
+                byte[] zellen = bloecke[MIN_STUFE].gib(schluessel[i]).zellen;
+                for(int index = 0; index < zellen.length; index++) {
+                    if(zellen[index] != 0) {
+                        aenderungen.markiere((long) (oben + (index >> MIN_STUFE)) * breite
+                                             + links + (index & ((1 << MIN_STUFE) - 1)));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return der Schluessel eines Blocks in der Tabelle seiner Stufe.
+     */
+    private static long schluessel(int blockZeile, int blockSpalte)
+    {
+        return (long) blockZeile << 32 | blockSpalte;
+    }
+
+    /**
+     * @return der Index einer Zelle in ihrem Block der untersten Stufe.
+     */
+    private static int index(int zeile, int spalte)
+    {
+        return (zeile & ((1 << MIN_STUFE) - 1)) << MIN_STUFE | (spalte & ((1 << MIN_STUFE) - 1));
+    }
+
+    /**
+     * Ein Block einer Stufe mit mindestens einem Tier.
+     */
+    private static class Block
+    {
+        // Der Stand der letzten Aenderung einer seiner Zellen
+        private int stand;
+        // Die Anzahl der Tiere, insgesamt und je Art
+        private int tiere;
+        private final int[] anzahl = new int[ARTEN];
+        // Der Zustand jeder Zelle, nur in der untersten Stufe
+        private final byte[] zellen;
+
+        private Block(boolean unterster)
+        {
+            zellen = unterster ? new byte[1 << (2 * MIN_STUFE)] : null;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package fueche.und.hasen;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fuehrt viele voneinander unabhaengige Simulationslaeufe desselben
+ * Szenarios mit verschiedenen SEED-Werten auf allen Prozessorkernen
+ * aus (Monte-Carlo-Ensemble). Jeder Lauf hat seinen eigenen Kern und
+ * Zufallsstrom; die SEED-Werte werden aus einem Basiswert abgeleitet.
+ *
+ * Die Laeufe werden in der Reihenfolge ihrer Nummern in eine
+ * Ensemblestatistik aufgenommen, egal welcher Thread zuerst fertig
+ * ist. Ist eine Genauigkeit gesetzt, endet das Ensemble nach dem
+ * ersten Lauf, mit dem alle Konfidenzintervalle schmal genug sind;
+ * das Ergebnis haengt daher nicht von der Anzahl der Threads ab.
+ *
+ * @author Merlin
+ */
+public class Ensemble
+{
+    private final Kernfabrik fabrik;
+    private final int schritte;
+    private final int maxLaeufe;
+    private final int threads;
+    // Die Eigenschaften der Tiere in allen Laeufen
+    private Simulationsparameter parameter;
+    // Erlaubte relative halbe Breite der Konfidenzintervalle (0: alle Laeufe)
+    private double genauigkeit;
+    private int mindestLaeufe;
+
+    /**
+     * Erzeuge ein Ensemble.
+     * @param fabrik erzeugt fuer jeden Lauf einen neuen Kern.
+     * @param schritte die Anzahl der Schritte je Lauf.
+     * @param maxLaeufe die hoechste Anzahl von Laeufen.
+     * @param threads die Anzahl der gleichzeitig rechnenden Threads.
+     */
+    public Ensemble(Kernfabrik fabrik, int schritte, int maxLaeufe, int threads)
+    {
+        if(schritte < 0 || maxLaeufe < 1 || threads < 1) {
+            throw new IllegalArgumentException("Ungueltiges Ensemble: " + schritte + " Schritte, "
+                                               + maxLaeufe + " Laeufe, " + threads + " Threads");
+        }
+        this.fabrik = fabrik;
+        this.schritte = schritte;
+        this.maxLaeufe = maxLaeufe;
+        this.threads = threads;
+        parameter = Simulationsparameter.STANDARD;
+    }
+
+    /**
+     * Setze die Eigenschaften der Tiere fuer alle Laeufe.
+     * @param parameter die Parameter der Simulation.
+     */
+    public void setzeParameter(Simulationsparameter parameter)
+    {
+        this.parameter = parameter;
+    }
+
+    /**
+     * Beende das Ensemble vorzeitig, sobald die Mittelwerte genau
+     * genug bekannt sind (siehe Ensemblestatistik.istGenauGenug).
+     * @param genauigkeit die erlaubte relative halbe Breite, etwa 0.05;
+     *                    0 schaltet das vorzeitige Ende ab.
+     * @param mindestLaeufe so viele Laeufe werden in jedem Fall ausgefuehrt.
+     */
+    public void setzeGenauigkeit(double genauigkeit, int mindestLaeufe)
+    {
+        this.genauigkeit = genauigkeit;
+        this.mindestLaeufe = Math.max(2, mindestLaeufe);
+    }
+
+    /**
+     * Fuehre das Ensemble aus.
+     * @param seed der Basiswert, aus dem die SEED-Werte der Laeufe
+     *             abgeleitet werden.
+     * @return die Statistik ueber alle aufgenommenen Laeufe.
+     * @throws InterruptedException wenn der aufrufende Thread
+     *         unterbrochen wurde.
+     */
+    public Ensemblestatistik fuehreAus(long seed) throws InterruptedException
+    {
+        Zufallsstrom basis = new Zufallsstrom(seed);
+        Ensemblestatistik statistik = new Ensemblestatistik(schritte, Ensemblestatistik.STANDARD_QUANTILE);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CompletionService<Lauf> fertig = new ExecutorCompletionService<Lauf>(pool);
+        // Fertige Laeufe, deren Vorgaenger noch rechnen
+        Map<Integer, Lauf> wartend = new HashMap<Integer, Lauf>();
+        int gestartet = 0;
+        int laufend = 0;
+        boolean genugGenau = false;
+        try {
+            while(!genugGenau && (gestartet < maxLaeufe || laufend > 0)) {
+                // Nur wenige Laeufe vorausrechnen, damit ein vorzeitiges
+                // Ende nicht viel Arbeit verwirft.
+                while(gestartet < maxLaeufe && laufend < 2 * threads) {
+                    fertig.submit(new Lauf(gestartet, basis.abgeleiteterSeed(gestartet, 0)));
+                    gestartet++;
+                    laufend++;
+                }
+                Lauf lauf = fertig.take().get();
+                laufend--;
+                wartend.put(lauf.nummer, lauf);
+                Lauf naechster = wartend.remove(statistik.gibAnzahlLaeufe());
+                while(naechster != null && !genugGenau) {
+                    statistik.fuegeHinzu(naechster.reihen, naechster.aussterbeschritt, naechster.amplitude);
+                    genugGenau = genauigkeit > 0 && statistik.gibAnzahlLaeufe() >= mindestLaeufe
+                                 && statistik.istGenauGenug(genauigkeit);
+                    naechster = wartend.remove(statistik.gibAnzahlLaeufe());
+                }
+            }
+        }
+        catch(ExecutionException e) {
+            throw new IllegalStateException("Simulationslauf fehlgeschlagen", e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        return statistik;
+    }
+
+    /**
+     * Ein einzelner Lauf, der in einem Thread des Pools rechnet.
+     */
+    private class Lauf implements Callable<Lauf>
+    {
+        private final int nummer;
+        private final long seed;
+        // Je Tierart die Population in jedem Schritt
+        private int[][] reihen;
+        private int aussterbeschritt;
+        private int amplitude;
+
+        Lauf(int nummer, long seed)
+        {
+            this.nummer = nummer;
+            this.seed = seed;
+        }
+
+        public Lauf call() throws InterruptedException
+        {
+            Simulator simulator = new Simulator(fabrik.erzeugeKern(seed, parameter));
+            try {
+                Tierart[] arten = Tierart.values();
+                reihen = new int[arten.length][schritte + 1];
+                aussterbeschritt = -1;
+                int minimum = Integer.MAX_VALUE;
+                int maximum = 0;
+                for(int schritt = 0; schritt <= schritte; schritt++) {
+                    if(schritt > 0) {
+                        if(Thread.interrupted()) {
+                            throw new InterruptedException();
+                        }
+                        simulator.simuliereEinenSchritt();
+                    }
+                    Feldbelegung belegung = simulator.gibBelegung();
+                    for(Tierart art : arten) {
+                        reihen[art.ordinal()][schritt] = belegung.gibAnzahl(art);
+                    }
+                    // Auch nach dem Aussterben einer Art weiterrechnen, damit
+                    // jeder Schritt ueber alle Laeufe gemittelt wird.
+                    if(aussterbeschritt < 0 && !simulator.istAktiv()) {
+                        aussterbeschritt = schritt;
+                    }
+                    // Die Schwankungsbreite erst nach dem Einschwingen messen.
+                    if(2 * schritt >= schritte) {
+                        int hasen = reihen[Tierart.HASE.ordinal()][schritt];
+                        minimum = Math.min(minimum, hasen);
+                        maximum = Math.max(maximum, hasen);
+                    }
+                }
+                amplitude = maximum - minimum;
+            }
+            finally {
+                simulator.schliesse();
+            }
+            return this;
+        }
+    }
+}
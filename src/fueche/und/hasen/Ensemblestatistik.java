@@ -0,0 +1,246 @@
+package fueche.und.hasen;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Fasst die Populationen vieler Simulationslaeufe schrittweise
+ * zusammen, ohne die einzelnen Laeufe aufzubewahren: je Tierart und
+ * Schritt Mittelwert und Varianz (nach Welford) sowie geschaetzte
+ * Quantile (P2Quantil). Dazu kommen je Lauf der Schritt, in dem eine
+ * Art ausgestorben ist, und die Schwankungsbreite der Hasen.
+ *
+ * @author Merlin
+ */
+public class Ensemblestatistik
+{
+    // Die standardmaessig geschaetzten Quantile
+    public static final double[] STANDARD_QUANTILE = { 0.05, 0.5, 0.95 };
+    // Das Quantil der Normalverteilung fuer 95%-Konfidenzintervalle
+    private static final double Z_95 = 1.959964;
+
+    // Die Anzahl der Schritte je Lauf
+    private final int schritte;
+    // Die Anzahl der zusammengefassten Laeufe
+    private int laeufe;
+    // Je Tierart und Schritt: Mittelwert und Summe der Abweichungsquadrate
+    private final double[][] mittel;
+    private final double[][] abweichungen;
+    // Je Tierart und Quantil ein Schaetzer mit einer Reihe je Schritt
+    private final P2Quantil[][] quantile;
+    // Laeufe, in denen eine Art ausgestorben ist, und deren Aussterbeschritte
+    private int ausgestorben;
+    private double aussterbeMittel;
+    // Mittlere Schwankungsbreite der Hasen je Lauf
+    private double amplitudeMittel;
+
+    /**
+     * Erzeuge eine leere Statistik.
+     * @param schritte die Anzahl der Schritte je Lauf.
+     * @param ps die zu schaetzenden Quantile.
+     */
+    public Ensemblestatistik(int schritte, double[] ps)
+    {
+        this.schritte = schritte;
+        int arten = Tierart.values().length;
+        mittel = new double[arten][schritte + 1];
+        abweichungen = new double[arten][schritte + 1];
+        quantile = new P2Quantil[arten][ps.length];
+        for(int art = 0; art < arten; art++) {
+            for(int q = 0; q < ps.length; q++) {
+                quantile[art][q] = new P2Quantil(ps[q], schritte + 1);
+            }
+        }
+    }
+
+    /**
+     * Nimm einen abgeschlossenen Lauf auf.
+     * @param reihen je Tierart (Ordnungszahl) die Population in jedem
+     *               Schritt von 0 bis schritte.
+     * @param aussterbeschritt der Schritt, in dem eine Art ausgestorben
+     *                         ist, oder -1.
+     * @param amplitude die Schwankungsbreite der Hasen.
+     */
+    void fuegeHinzu(int[][] reihen, int aussterbeschritt, int amplitude)
+    {
+        laeufe++;
+        for(int art = 0; art < reihen.length; art++) {
+            int[] reihe = reihen[art];
+            double[] m = mittel[art];
+            double[] a = abweichungen[art];
+            for(int schritt = 0; schritt <= schritte; schritt++) {
+                double x = reihe[schritt];
+                double d = x - m[schritt];
+                m[schritt] += d / laeufe;
+                a[schritt] += d * (x - m[schritt]);
+            }
+            for(P2Quantil schaetzer : quantile[art]) {
+                for(int schritt = 0; schritt <= schritte; schritt++) {
+                    schaetzer.fuegeHinzu(schritt, reihe[schritt]);
+                }
+            }
+        }
+        if(aussterbeschritt >= 0) {
+            ausgestorben++;
+            aussterbeMittel += (aussterbeschritt - aussterbeMittel) / ausgestorben;
+        }
+        amplitudeMittel += (amplitude - amplitudeMittel) / laeufe;
+    }
+
+    /**
+     * @return die Anzahl der zusammengefassten Laeufe.
+     */
+    public int gibAnzahlLaeufe()
+    {
+        return laeufe;
+    }
+
+    /**
+     * @return die Anzahl der Schritte je Lauf.
+     */
+    public int gibSchritte()
+    {
+        return schritte;
+    }
+
+    /**
+     * @param art die Tierart.
+     * @param schritt der Schritt.
+     * @return die mittlere Population.
+     */
+    public double gibMittelwert(Tierart art, int schritt)
+    {
+        return mittel[art.ordinal()][schritt];
+    }
+
+    /**
+     * @param art die Tierart.
+     * @param schritt der Schritt.
+     * @return die (Stichproben-)Varianz der Population.
+     */
+    public double gibVarianz(Tierart art, int schritt)
+    {
+        return laeufe > 1 ? abweichungen[art.ordinal()][schritt] / (laeufe - 1) : 0;
+    }
+
+    /**
+     * @param art die Tierart.
+     * @param schritt der Schritt.
+     * @return die halbe Breite des 95%-Konfidenzintervalls des Mittelwerts.
+     */
+    public double gibKonfidenzHalbbreite(Tierart art, int schritt)
+    {
+        if(laeufe < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Z_95 * Math.sqrt(gibVarianz(art, schritt) / laeufe);
+    }
+
+    /**
+     * @param art die Tierart.
+     * @param schritt der Schritt.
+     * @param index der Index des Quantils (siehe gibQuantile).
+     * @return das geschaetzte Quantil der Population.
+     */
+    public double gibQuantil(Tierart art, int schritt, int index)
+    {
+        return quantile[art.ordinal()][index].gibSchaetzung(schritt);
+    }
+
+    /**
+     * @return die geschaetzten Quantile (zwischen 0 und 1).
+     */
+    public double[] gibQuantile()
+    {
+        P2Quantil[] schaetzer = quantile[0];
+        double[] ps = new double[schaetzer.length];
+        for(int q = 0; q < ps.length; q++) {
+            ps[q] = schaetzer[q].gibP();
+        }
+        return ps;
+    }
+
+    /**
+     * Pruefe, ob die Mittelwerte genau genug bekannt sind: In jedem
+     * Schritt und fuer jede Art darf das 95%-Konfidenzintervall
+     * hoechstens um den Anteil genauigkeit vom Mittelwert abweichen
+     * (bei Mittelwerten unter 1 absolut um genauigkeit).
+     * @param genauigkeit die erlaubte relative halbe Breite, etwa 0.05.
+     * @return true wenn alle Intervalle schmal genug sind.
+     */
+    public boolean istGenauGenug(double genauigkeit)
+    {
+        for(Tierart art : Tierart.values()) {
+            for(int schritt = 0; schritt <= schritte; schritt++) {
+                double grenze = genauigkeit * Math.max(1, gibMittelwert(art, schritt));
+                if(gibKonfidenzHalbbreite(art, schritt) > grenze) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return der Anteil der Laeufe, in denen eine Art ausgestorben ist.
+     */
+    public double gibAussterbeAnteil()
+    {
+        return laeufe > 0 ? (double) ausgestorben / laeufe : 0;
+    }
+
+    /**
+     * @return der mittlere Aussterbeschritt der Laeufe mit ausgestorbener
+     *         Art oder NaN, wenn es keine gab.
+     */
+    public double gibMittlerenAussterbeschritt()
+    {
+        return ausgestorben > 0 ? aussterbeMittel : Double.NaN;
+    }
+
+    /**
+     * @return die mittlere Schwankungsbreite der Hasen je Lauf.
+     */
+    public double gibMittlereAmplitude()
+    {
+        return amplitudeMittel;
+    }
+
+    /**
+     * Schreibe eine Tabelle (kommagetrennt) mit einer Zeile fuer jeden
+     * intervall-ten Schritt und eine Zusammenfassung als Kommentar.
+     * @param ausgabe der Ausgabestrom.
+     * @param intervall der Abstand der Zeilen in Schritten.
+     */
+    public void schreibeTabelle(PrintStream ausgabe, int intervall)
+    {
+        double[] ps = gibQuantile();
+        StringBuilder kopf = new StringBuilder("schritt");
+        for(Tierart art : Tierart.values()) {
+            String name = art.name().toLowerCase(Locale.ROOT);
+            kopf.append(',').append(name).append("_mittel");
+            kopf.append(',').append(name).append("_std");
+            kopf.append(',').append(name).append("_ki95");
+            for(double p : ps) {
+                kopf.append(',').append(name).append("_q").append(Math.round(p * 100));
+            }
+        }
+        ausgabe.println(kopf);
+        for(int schritt = 0; schritt <= schritte; schritt += intervall) {
+            StringBuilder zeile = new StringBuilder();
+            zeile.append(schritt);
+            for(Tierart art : Tierart.values()) {
+                zeile.append(String.format(Locale.ROOT, ",%.2f,%.2f,%.2f", gibMittelwert(art, schritt),
+                                           Math.sqrt(gibVarianz(art, schritt)),
+                                           gibKonfidenzHalbbreite(art, schritt)));
+                for(int q = 0; q < ps.length; q++) {
+                    zeile.append(String.format(Locale.ROOT, ",%.1f", gibQuantil(art, schritt, q)));
+                }
+            }
+            ausgabe.println(zeile);
+        }
+        ausgabe.println(String.format(Locale.ROOT,
+            "# laeufe=%d ausgestorben=%.3f mittlerer_aussterbeschritt=%.1f mittlere_amplitude_hasen=%.1f",
+            laeufe, gibAussterbeAnteil(), gibMittlerenAussterbeschritt(), gibMittlereAmplitude()));
+    }
+}
@@ -1,37 +1,158 @@
 package fueche.und.hasen;
 
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
 /**
  * Ein rechteckiges Gitter von Feldpositionen.
  * Jede Position kann ein einzelnes Tier aufnehmen.
+ *
+ * Das Gitter ist in quadratische Bereiche von KANTE x KANTE Zellen
+ * zerlegt, die erst angelegt werden, wenn sie gebraucht werden, und
+ * am Ende eines Schrittes wieder freigegeben werden, wenn sie leer
+ * sind (siehe gibLeereBereicheFrei). Der Speicherbedarf eines grossen,
+ * duenn besiedelten Feldes richtet sich daher nach seiner Bevoelkerung,
+ * nicht nach seiner Flaeche. Neben den Tieren haelt jeder Bereich je
+ * ein long als Bitmaske der belegten Zellen und der Zellen jeder
+ * Tierart; die Suche nach freien Nachbarn und Beute liest daraus mit
+ * wenigen Wortzugriffen einen 3 x 3 Block, die Suche nach Hasen im
+ * Jagdradius (siehe Beutesuche) die Hasenmasken der Bereiche.
+ *
+ * Die Bereiche stehen in Gruppen von GRUPPE Bereichen aufeinander
+ * folgender Nummern; eine Gruppe wird mit ihrem ersten Bereich angelegt
+ * und mit ihrem letzten freigegeben. Ein fast leeres Feld belegt daher
+ * auch fuer die Verwaltung der Bereiche kaum Speicher. Die Zellennummern
+ * (zeile * breite + spalte) sind longs, so dass ein Feld mehr als
+ * Integer.MAX_VALUE Zellen haben kann; begrenzt ist nur die Anzahl der
+ * Bereiche auf Integer.MAX_VALUE.
  * 
  * @author David J. Barnes und Michael K�lling
  * @version 2008.03.30
  */
-public class Feld
+public class Feld implements Feldbelegung, Aenderungsmelder, Bevoelkerungsbilanz,
+                             Zustandshash
 {
-    private static final Random rand = Zufallssteuerung.gibZufallsgenerator();
+    // Der Zufallsgenerator dieses Feldes und seiner Tiere
+    private final Random rand;
+    // Die Eigenschaften der Tiere auf diesem Feld
+    private final Simulationsparameter parameter;
     
     // Die Tiefe und die Breite des Feldes
     private int tiefe, breite;
-    // Speicher f�r die Tiere
-    private Object[][] feld;
+    // Zweierlogarithmus der Kantenlaenge eines Bereichs; die Bereiche
+    // sind zugleich die Kacheln der Beutesuche
+    private static final int KANTE_BITS = Beutesuche.KANTE_BITS;
+    // Kantenlaenge eines Bereichs in Zellen
+    private static final int KANTE = 1 << KANTE_BITS;
+    // Zweierlogarithmus der Anzahl der Bereiche einer Gruppe
+    private static final int GRUPPE_BITS = 12;
+    // Die Anzahl der Bereiche einer Gruppe
+    private static final int GRUPPE = 1 << GRUPPE_BITS;
+    // Die Anzahl der Tierarten
+    private static final int ARTEN = Tierart.values().length;
+
+    // Speicher f�r die Tiere: die Bereiche zeilenweise in Gruppen,
+    // null fuer Gruppen und Bereiche, die nicht angelegt sind
+    private Bereich[][] gruppen;
+    // Die Anzahl der angelegten Bereiche je Gruppe
+    private int[] gruppenbelegung;
+    // Die kanonischen Positionen, wie die Bereiche in Gruppen und je
+    // Bereich KANTE * KANTE; sie bleiben angelegt, wenn ein Bereich
+    // freigegeben oder das Feld geraeumt wird
+    private Position[][][] positionen;
+    // Die Anzahl der Bereiche je Zeile von Bereichen
+    private int bereicheJeZeile;
+    // Die Anzahl der angelegten Bereiche
+    private int angelegteBereiche;
+    // Bereiche, die seit der letzten Freigabe leer geworden sind
+    private int[] vorgemerkt;
+    private int anzahlVorgemerkt;
+    // Die Anzahl der Tiere je Art, nach Ordnungszahl der Tierart
+    private int[] bewohner;
+    // Der Zobrist-Hash der Belegung (siehe Zustandshash)
+    private long zustandshash;
+    // Die Bilanz seit dem Bevoelkern: Anfangsbestand und Geburten je Art
+    private int[] anfangsbestand;
+    private long[] geburten;
+    // Die Todesfaelle seit dem Bevoelkern je Art und Ursache
+    private long[] todesfaelle;
+    // Die Mengen, an die geaenderte Zellen gemeldet werden
+    private Aenderungen[] aenderungen;
+    // Vorberechnete Nachbarschaftstabellen fuer dieses Feld
+    private Nachbarschaft nachbarschaft;
+    // Wiederverwendeter Puffer fuer Nachbarabfragen
+    private Nachbarscan scan;
+    // Die Suche nach Hasen ueber die Hasenmasken der Bereiche
+    private Beutesuche beutesuche;
 
     /**
-     * Erzeuge ein Feld mit den angegebenen Dimensionen.
+     * Erzeuge ein Feld mit den angegebenen Dimensionen und einem
+     * eigenen Zufallsstrom mit dem vorgegebenen SEED-Wert.
      * @param tiefe die Tiefe des Feldes.
      * @param breite die Breite des Feldes.
      */
     public Feld(int tiefe, int breite)
     {
+        this(tiefe, breite, new Zufallsstrom(Zufallssteuerung.gibSeed()));
+    }
+
+    /**
+     * Erzeuge ein Feld mit eigenem Zufallsgenerator. Alle Zufallszahlen
+     * des Feldes und der Tiere darauf stammen aus diesem Generator.
+     * @param tiefe die Tiefe des Feldes.
+     * @param breite die Breite des Feldes.
+     * @param rand der Zufallsgenerator dieser Simulation.
+     */
+    public Feld(int tiefe, int breite, Random rand)
+    {
+        this(tiefe, breite, rand, Simulationsparameter.STANDARD);
+    }
+
+    /**
+     * Erzeuge ein Feld mit eigenem Zufallsgenerator und eigenen
+     * Parametern. Alle Tiere auf diesem Feld richten sich nach
+     * diesen Parametern.
+     * @param tiefe die Tiefe des Feldes.
+     * @param breite die Breite des Feldes.
+     * @param rand der Zufallsgenerator dieser Simulation.
+     * @param parameter die Eigenschaften der Tiere.
+     */
+    public Feld(int tiefe, int breite, Random rand, Simulationsparameter parameter)
+    {
+        if(tiefe <= 0 || breite <= 0) {
+            throw new IllegalArgumentException("Abmessungen muessen groesser als Null sein: "
+                                               + tiefe + "x" + breite);
+        }
+        long anzahlBereiche = (long) ((tiefe + KANTE - 1) >> KANTE_BITS)
+                              * ((breite + KANTE - 1) >> KANTE_BITS);
+        if(anzahlBereiche > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Feld zu gross: " + tiefe + "x" + breite);
+        }
+        this.rand = rand;
+        this.parameter = parameter;
         this.tiefe = tiefe;
         this.breite = breite;
-        feld = new Object[tiefe][breite];
+        bereicheJeZeile = (breite + KANTE - 1) >> KANTE_BITS;
+        gruppen = new Bereich[(int) ((anzahlBereiche + GRUPPE - 1) >> GRUPPE_BITS)][];
+        gruppenbelegung = new int[gruppen.length];
+        positionen = new Position[gruppen.length][][];
+        vorgemerkt = new int[16];
+        bewohner = new int[Tierart.values().length];
+        anfangsbestand = new int[bewohner.length];
+        geburten = new long[bewohner.length];
+        todesfaelle = new long[bewohner.length * Todesursache.ANZAHL];
+        aenderungen = new Aenderungen[0];
+        nachbarschaft = new Nachbarschaft(tiefe, breite);
+        scan = new Nachbarscan();
+        beutesuche = new Beutesuche(tiefe, breite) {
+            long gibHasen(int kachel)
+            {
+                Bereich bereich = gibAngelegtenBereich(kachel);
+                return bereich == null ? 0 : bereich.arten[Tierart.HASE.ordinal()];
+            }
+        };
     }
     
     /**
@@ -39,11 +160,15 @@ public class Feld
      */
     public void raeumen()
     {
-        for(int zeile = 0; zeile < tiefe; zeile++) {
-            for(int spalte = 0; spalte < breite; spalte++) {
-                feld[zeile][spalte] = null;
-            }
+        for(int i = 0; i < aenderungen.length; i++) {
+            markiereBelegte(aenderungen[i]);
         }
+        Arrays.fill(gruppen, null);
+        Arrays.fill(gruppenbelegung, 0);
+        angelegteBereiche = 0;
+        anzahlVorgemerkt = 0;
+        Arrays.fill(bewohner, 0);
+        zustandshash = 0;
     }
     
     /**
@@ -52,7 +177,23 @@ public class Feld
      */
     public void raeumen(Position position)
     {
-        feld[position.gibZeile()][position.gibSpalte()] = null;
+        int zeile = position.gibZeile();
+        int spalte = position.gibSpalte();
+        Bereich bereich = gibAngelegtenBereich(bereichsnummer(zeile, spalte));
+        long zelle = (long) zeile * breite + spalte;
+        if(bereich != null) {
+            int index = index(zeile, spalte);
+            Object alt = bereich.tiere[index];
+            if(alt != null) {
+                zaehle(alt, -1, zelle);
+                bereich.tiere[index] = null;
+                bereich.trageAus(alt, index);
+                if(--bereich.belegt == 0) {
+                    merkeVor(bereichsnummer(zeile, spalte), bereich);
+                }
+            }
+        }
+        markiere(zelle);
     }
     
     /**
@@ -65,7 +206,7 @@ public class Feld
      */
     public void platziere(Object tier, int zeile, int spalte)
     {
-        platziere(tier, new Position(zeile, spalte));
+        platziere(tier, gibPosition(zeile, spalte));
     }
     
     /**
@@ -77,7 +218,24 @@ public class Feld
      */
     public void platziere(Object tier, Position position)
     {
-        feld[position.gibZeile()][position.gibSpalte()] = tier;
+        int zeile = position.gibZeile();
+        int spalte = position.gibSpalte();
+        Bereich bereich = gibBereich(zeile, spalte);
+        int index = index(zeile, spalte);
+        Object alt = bereich.tiere[index];
+        long zelle = (long) zeile * breite + spalte;
+        zaehle(alt, -1, zelle);
+        zaehle(tier, 1, zelle);
+        bereich.tiere[index] = tier;
+        bereich.trageAus(alt, index);
+        bereich.trageEin(tier, index);
+        if(alt == null && tier != null) {
+            bereich.belegt++;
+        }
+        else if(alt != null && tier == null && --bereich.belegt == 0) {
+            merkeVor(bereichsnummer(zeile, spalte), bereich);
+        }
+        markiere(zelle);
     }
     
     /**
@@ -100,7 +258,155 @@ public class Feld
      */
     public Object gibObjektAn(int zeile, int spalte)
     {
-        return feld[zeile][spalte];
+        Bereich bereich = gibAngelegtenBereich(bereichsnummer(zeile, spalte));
+        return bereich == null ? null : bereich.tiere[index(zeile, spalte)];
+    }
+
+    /**
+     * Liefere die Art des Tieres an der angegebenen Position.
+     * @param zeile die gewuenschte Zeile.
+     * @param spalte die gewuenschte Spalte.
+     * @return die Art des Tieres oder null, wenn die Position leer ist.
+     */
+    public Tierart gibArtAn(int zeile, int spalte)
+    {
+        return Tierart.von(gibObjektAn(zeile, spalte));
+    }
+
+    /**
+     * Liefere die Anzahl der Tiere einer Art im Feld.
+     * @param art die gewuenschte Tierart.
+     * @return die Anzahl der Tiere dieser Art.
+     */
+    public int gibAnzahl(Tierart art)
+    {
+        return bewohner[art.ordinal()];
+    }
+
+    /**
+     * Zaehle Geburten mit (siehe Bevoelkerungsbilanz).
+     * @param art die Art der Neugeborenen.
+     * @param anzahl die Anzahl der Neugeborenen.
+     */
+    void zaehleGeburten(Tierart art, int anzahl)
+    {
+        geburten[art.ordinal()] += anzahl;
+    }
+
+    /**
+     * Zaehle einen Todesfall mit (siehe Bevoelkerungsbilanz).
+     * @param art die Art des Tieres.
+     * @param ursache die Todesursache.
+     */
+    void zaehleTod(Tierart art, Todesursache ursache)
+    {
+        todesfaelle[ursache.index(art)]++;
+    }
+
+    /**
+     * Beginne die Bilanz mit der aktuellen Bevoelkerung, etwa nach dem
+     * Bevoelkern. Geburten und Todesfaelle beginnen wieder bei Null.
+     */
+    void beginneBilanz()
+    {
+        System.arraycopy(bewohner, 0, anfangsbestand, 0, bewohner.length);
+        Arrays.fill(geburten, 0);
+        Arrays.fill(todesfaelle, 0);
+    }
+
+    /**
+     * @return der Zobrist-Hash der aktuellen Belegung.
+     */
+    public long gibZustandshash()
+    {
+        return zustandshash;
+    }
+
+    /**
+     * @param art die gewuenschte Tierart.
+     * @return die Anzahl der seit dem Bevoelkern geborenen Tiere.
+     */
+    public long gibGeburten(Tierart art)
+    {
+        return geburten[art.ordinal()];
+    }
+
+    /**
+     * @param art die gewuenschte Tierart.
+     * @return die Anzahl der seit dem Bevoelkern gestorbenen Tiere.
+     */
+    public long gibTodesfaelle(Tierart art)
+    {
+        int i = art.ordinal();
+        return anfangsbestand[i] + geburten[i] - bewohner[i];
+    }
+
+    /**
+     * @param art die gewuenschte Tierart.
+     * @param ursache die gewuenschte Todesursache.
+     * @return die Anzahl der seit dem Bevoelkern daran gestorbenen Tiere.
+     */
+    public long gibTodesfaelle(Tierart art, Todesursache ursache)
+    {
+        return todesfaelle[ursache.index(art)];
+    }
+
+    /**
+     * Melde ab sofort alle Aenderungen an die gegebene Menge. Statt das
+     * ganze Feld als geaendert zu markieren, wird jede belegte Zelle
+     * markiert; ein Verbraucher, der das Feld bisher leer glaubt, kommt
+     * damit auf den Stand, ohne jede Zelle des Feldes zu lesen.
+     * @param neueAenderungen die zu fuellende Menge.
+     */
+    public void meldeAenderungenAn(Aenderungen neueAenderungen)
+    {
+        aenderungen = Arrays.copyOf(aenderungen, aenderungen.length + 1);
+        aenderungen[aenderungen.length - 1] = neueAenderungen;
+        neueAenderungen.leeren();
+        markiereBelegte(neueAenderungen);
+    }
+
+    /**
+     * Melde keine Aenderungen mehr an die gegebene Menge.
+     * @param alteAenderungen die bisher gefuellte Menge.
+     */
+    public void entferneAenderungen(Aenderungen alteAenderungen)
+    {
+        for(int i = 0; i < aenderungen.length; i++) {
+            if(aenderungen[i] == alteAenderungen) {
+                Aenderungen[] rest = new Aenderungen[aenderungen.length - 1];
+                System.arraycopy(aenderungen, 0, rest, 0, i);
+                System.arraycopy(aenderungen, i + 1, rest, i, rest.length - i);
+                aenderungen = rest;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Melde eine geaenderte Zelle an alle angemeldeten Mengen.
+     */
+    private void markiere(long zelle)
+    {
+        for(int i = 0; i < aenderungen.length; i++) {
+            aenderungen[i].markiere(zelle);
+        }
+    }
+
+    /**
+     * Zaehle ein Tier, das ins Feld kommt oder es verlaesst, und
+     * fuehre den Zustandshash nach.
+     * @param tier das Tier oder null.
+     * @param aenderung +1 oder -1.
+     * @param zelle die Zelle des Tieres.
+     */
+    private void zaehle(Object tier, int aenderung, long zelle)
+    {
+        Tierart art = Tierart.von(tier);
+        if(art != null) {
+            bewohner[art.ordinal()] += aenderung;
+            zustandshash ^= art.schluessel(zelle);
+        }
     }
     
     /**
@@ -114,8 +420,10 @@ public class Feld
      */
     public Position zufaelligeNachbarposition(Position position)
     {
-        List<Position> nachbarn = nachbarpositionen(position);
-        return nachbarn.get(0);
+        int[] richtungen = scan.nachbarn;
+        int anzahl = nachbarschaft.richtungen(position.gibZeile(), position.gibSpalte(),
+                                              richtungen, rand);
+        return anzahl > 0 ? gibNachbarposition(position, richtungen[0]) : position;
     }
     
     /**
@@ -126,12 +434,10 @@ public class Feld
      */
     public List<Position> freieNachbarpositionen(Position position)
     {
-        List<Position> frei = new LinkedList<Position>();
-        List<Position> nachbarn = nachbarpositionen(position);
-        for(Position naechste : nachbarn) {
-            if(gibObjektAn(naechste) == null) {
-                frei.add(naechste);
-            }
+        Nachbarscan ergebnis = scanneNachbarn(position, null);
+        List<Position> frei = new ArrayList<Position>(ergebnis.gibAnzahlFrei());
+        for(int i = 0; i < ergebnis.gibAnzahlFrei(); i++) {
+            frei.add(gibPosition(ergebnis.gibFreieZelle(i)));
         }
         return frei;
     }
@@ -147,9 +453,9 @@ public class Feld
     public Position freieNachbarposition(Position position)
     {
         // Die verf�gbaren freien Nachbarpositionen
-        List<Position> frei = freieNachbarpositionen(position);
-        if(frei.size() > 0) {
-            return frei.get(0);
+        Nachbarscan ergebnis = scanneNachbarn(position, null);
+        if(ergebnis.gibAnzahlFrei() > 0) {
+            return gibPosition(ergebnis.gibFreieZelle(0));
         } 
         else {
             return null;
@@ -167,27 +473,341 @@ public class Feld
     {
         assert position != null : "Keine Position an nachbarpostionen uebergeben";
         // Die Liste der zurueckzuliefernden Positionen
-        List<Position> positionen = new LinkedList<Position>();
+        List<Position> positionen = new ArrayList<Position>(Nachbarschaft.ANZAHL);
         if(position != null) {
-            int zeile = position.gibZeile();
-            int spalte = position.gibSpalte();
-            for(int zDiff = -1; zDiff <= 1; zDiff++) {
-                int naechsteZeile = zeile + zDiff;
-                if(naechsteZeile >= 0 && naechsteZeile < tiefe) {
-                    for(int sDiff = -1; sDiff <= 1; sDiff++) {
-                        int naechsteSpalte = spalte + sDiff;
-                        // Ungueltige Positionen und Ausgangsposition ausschliessen.
-                        if(naechsteSpalte >= 0 && naechsteSpalte < breite && (zDiff != 0 || sDiff != 0)) {
-                            positionen.add(new Position(naechsteZeile, naechsteSpalte));
+            // Die Nachbarn kommen bereits gemischt aus der Tabelle.
+            // Verschiedene andere Methoden verlassen sich darauf, 
+            // dass die Liste ungeordnet ist.
+            int[] richtungen = scan.nachbarn;
+            int anzahl = nachbarschaft.richtungen(position.gibZeile(), position.gibSpalte(),
+                                                  richtungen, rand);
+            for(int i = 0; i < anzahl; i++) {
+                positionen.add(gibNachbarposition(position, richtungen[i]));
+            }
+        }
+        return positionen;
+    }
+
+    /**
+     * Durchsuche die Nachbarn der gegebenen Position ein einziges Mal
+     * in zufaelliger Reihenfolge. Das Ergebnis enthaelt alle freien
+     * Nachbarzellen in dieser Reihenfolge und die erste Zelle mit einem
+     * Tier der gesuchten Art. Es wird nichts angelegt; das gelieferte
+     * Objekt gehoert dem Feld und gilt bis zur naechsten Abfrage.
+     * Die Belegung der Nachbarn kommt aus den Bits der Bereiche (siehe
+     * lesBlock), nicht aus den Tierobjekten.
+     * @param position die Position, deren Nachbarn durchsucht werden.
+     * @param beute die gesuchte Tierart oder null.
+     * @return das Ergebnis der Durchsuchung.
+     */
+    public Nachbarscan scanneNachbarn(Position position, Tierart beute)
+    {
+        int zeile = position.gibZeile();
+        int spalte = position.gibSpalte();
+        int[] richtungen = scan.nachbarn;
+        int anzahl = nachbarschaft.richtungen(zeile, spalte, richtungen, rand);
+        scan.leeren();
+        int block = lesBlock(zeile, spalte, beute == null ? -1 : beute.ordinal());
+        int belegt = nachbarbits(block);
+        int gesucht = nachbarbits(block >>> 16);
+        long zelle = (long) zeile * breite + spalte;
+        for(int i = 0; i < anzahl; i++) {
+            int k = richtungen[i];
+            if((belegt >>> k & 1) == 0) {
+                scan.fuegeFreieHinzu(zelle + nachbarschaft.gibZellenVersatz(k));
+            }
+            else if((gesucht >>> k & 1) != 0) {
+                scan.fuegeBeuteHinzu(zelle + nachbarschaft.gibZellenVersatz(k));
+            }
+        }
+        return scan;
+    }
+
+    /**
+     * Lies die Belegung der 3 x 3 Zellen um eine Zelle aus den Bits der
+     * Bereiche, je Zeile des Blocks mit einem Zugriff, wenn die drei
+     * Spalten im selben Bereich liegen. Bit 3 * r + c steht fuer die
+     * Zelle (zeile - 1 + r, spalte - 1 + c); Zellen ausserhalb des
+     * Feldes gelten als leer.
+     * @param zeile die Zeile der mittleren Zelle.
+     * @param spalte die Spalte der mittleren Zelle.
+     * @param art die Ordnungszahl einer Tierart oder -1.
+     * @return die belegten Zellen in den Bits 0 bis 8, die Zellen mit
+     *         Tieren der Art in den Bits 16 bis 24.
+     */
+    private int lesBlock(int zeile, int spalte, int art)
+    {
+        int block = 0;
+        int links = spalte - 1;
+        boolean einBereich = links >= 0 && (links & (KANTE - 1)) <= KANTE - 3;
+        for(int r = 0; r < 3; r++) {
+            int z = zeile - 1 + r;
+            if(z < 0 || z >= tiefe) {
+                continue;
+            }
+            if(einBereich) {
+                Bereich bereich = gibAngelegtenBereich(bereichsnummer(z, links));
+                if(bereich != null) {
+                    int index = index(z, links);
+                    block |= (int) (bereich.belegung >>> index & 7) << 3 * r;
+                    if(art >= 0) {
+                        block |= (int) (bereich.arten[art] >>> index & 7) << 16 + 3 * r;
+                    }
+                }
+            }
+            else {
+                for(int c = 0; c < 3; c++) {
+                    int s = links + c;
+                    if(s < 0 || s >= breite) {
+                        continue;
+                    }
+                    Bereich bereich = gibAngelegtenBereich(bereichsnummer(z, s));
+                    if(bereich != null) {
+                        int index = index(z, s);
+                        block |= (int) (bereich.belegung >>> index & 1) << 3 * r + c;
+                        if(art >= 0) {
+                            block |= (int) (bereich.arten[art] >>> index & 1) << 16 + 3 * r + c;
                         }
                     }
                 }
-            }          
-            // Mische die Liste. Verschiedene andere Methoden verlassen sich darauf, 
-            // dass die Liste ungeordnet ist.
-            Collections.shuffle(positionen, rand);
+            }
         }
-        return positionen;
+        return block;
+    }
+
+    /**
+     * @param block 3 x 3 Bits wie von lesBlock.
+     * @return die Bits der acht Nachbarn, Bit k fuer Richtung k der
+     *         Nachbarschaft (die mittlere Zelle entfaellt).
+     */
+    private static int nachbarbits(int block)
+    {
+        return block & 0xf | block >>> 1 & 0xf0;
+    }
+
+    /**
+     * Suche den naechsten Hasen im Umkreis einer Position (siehe
+     * Beutesuche).
+     * @param position die Position des Jaegers.
+     * @param radius die groesste Entfernung.
+     * @return die Zelle des Hasen oder -1.
+     */
+    long findeHasen(Position position, int radius)
+    {
+        return beutesuche.findeNaechste(position.gibZeile(), position.gibSpalte(), radius);
+    }
+
+    /**
+     * Waehle die freie Nachbarzelle, die einer Zelle am naechsten liegt
+     * (siehe Beutesuche.waehleSchrittZu).
+     * @param nachbarn das Ergebnis von scanneNachbarn.
+     * @param erste der Index der ersten noch freien Zelle.
+     * @param ziel die Zelle des Ziels, etwa von findeHasen.
+     * @return die gewaehlte Zelle oder -1, wenn keine frei ist.
+     */
+    long waehleSchrittZu(Nachbarscan nachbarn, int erste, long ziel)
+    {
+        return beutesuche.waehleSchrittZu(nachbarn, erste, ziel);
+    }
+
+    /**
+     * Liefere die Position zu einer Zellennummer, wie sie von
+     * scanneNachbarn geliefert wird (zeile * breite + spalte).
+     * @param zelle die Zellennummer.
+     * @return die kanonische Position der Zelle.
+     */
+    public Position gibPosition(long zelle)
+    {
+        int zeile = (int) (zelle / breite);
+        return gibPosition(zeile, (int) (zelle - (long) zeile * breite));
+    }
+
+    /**
+     * @return die Position des Nachbarn in Richtung k (siehe
+     *         Nachbarschaft.richtungen).
+     */
+    private Position gibNachbarposition(Position position, int k)
+    {
+        return gibPosition(position.gibZeile() + Nachbarschaft.ZEILEN_VERSATZ[k],
+                           position.gibSpalte() + Nachbarschaft.SPALTEN_VERSATZ[k]);
+    }
+
+    /**
+     * Liefere die kanonische Position fuer Zeile und Spalte. Das Feld
+     * legt je Zelle hoechstens ein Position-Objekt an und liefert danach
+     * immer dasselbe, auch nachdem der Bereich der Zelle freigegeben oder
+     * das Feld geraeumt wurde; Positionen desselben Feldes lassen sich
+     * daher mit == vergleichen. Die Positionen haengen nicht an den
+     * Bereichen, eine Abfrage legt also keinen Bereich an; ihr Speicher
+     * richtet sich nach den je abgefragten Zellen, nicht nach der Flaeche.
+     * @param zeile die Zeile der Position.
+     * @param spalte die Spalte der Position.
+     * @return die kanonische Position.
+     */
+    public Position gibPosition(int zeile, int spalte)
+    {
+        int nummer = bereichsnummer(zeile, spalte);
+        Position[][] gruppe = positionen[nummer >>> GRUPPE_BITS];
+        if(gruppe == null) {
+            gruppe = new Position[GRUPPE][];
+            positionen[nummer >>> GRUPPE_BITS] = gruppe;
+        }
+        Position[] bereich = gruppe[nummer & (GRUPPE - 1)];
+        if(bereich == null) {
+            bereich = new Position[KANTE * KANTE];
+            gruppe[nummer & (GRUPPE - 1)] = bereich;
+        }
+        int index = index(zeile, spalte);
+        Position position = bereich[index];
+        if(position == null) {
+            position = new Position(zeile, spalte);
+            bereich[index] = position;
+        }
+        return position;
+    }
+
+    /**
+     * Gib alle Bereiche frei, die seit dem letzten Aufruf leer geworden
+     * und noch immer leer sind. Die Kerne rufen dies am Ende jedes
+     * Schrittes auf; waehrend eines Schrittes bleiben Bereiche erhalten,
+     * auch wenn ein Tier sie kurz verlaesst.
+     */
+    public void gibLeereBereicheFrei()
+    {
+        for(int i = 0; i < anzahlVorgemerkt; i++) {
+            int nummer = vorgemerkt[i];
+            Bereich bereich = gibAngelegtenBereich(nummer);
+            if(bereich != null) {
+                bereich.vorgemerkt = false;
+                if(bereich.belegt == 0) {
+                    int gruppe = nummer >>> GRUPPE_BITS;
+                    if(--gruppenbelegung[gruppe] == 0) {
+                        gruppen[gruppe] = null;
+                    }
+                    else {
+                        gruppen[gruppe][nummer & (GRUPPE - 1)] = null;
+                    }
+                    angelegteBereiche--;
+                }
+            }
+        }
+        anzahlVorgemerkt = 0;
+    }
+
+    /**
+     * @return die Anzahl der angelegten Bereiche, ein Mass fuer den
+     *         Speicherbedarf des Feldes.
+     */
+    public int gibAngelegteBereiche()
+    {
+        return angelegteBereiche;
+    }
+
+    /**
+     * Liefere den Bereich einer Zelle und lege ihn bei Bedarf an.
+     * Neue Bereiche sind leer und werden fuer die Freigabe vorgemerkt.
+     */
+    private Bereich gibBereich(int zeile, int spalte)
+    {
+        int nummer = bereichsnummer(zeile, spalte);
+        Bereich[] gruppe = gruppen[nummer >>> GRUPPE_BITS];
+        if(gruppe == null) {
+            gruppe = new Bereich[GRUPPE];
+            gruppen[nummer >>> GRUPPE_BITS] = gruppe;
+        }
+        Bereich bereich = gruppe[nummer & (GRUPPE - 1)];
+        if(bereich == null) {
+            bereich = new Bereich();
+            gruppe[nummer & (GRUPPE - 1)] = bereich;
+            gruppenbelegung[nummer >>> GRUPPE_BITS]++;
+            angelegteBereiche++;
+            merkeVor(nummer, bereich);
+        }
+        return bereich;
+    }
+
+    /**
+     * @return der Bereich mit der gegebenen Nummer oder null, wenn er
+     *         nicht angelegt ist.
+     */
+    private Bereich gibAngelegtenBereich(int nummer)
+    {
+        Bereich[] gruppe = gruppen[nummer >>> GRUPPE_BITS];
+        return gruppe == null ? null : gruppe[nummer & (GRUPPE - 1)];
+    }
+
+    /**
+     * Markiere jede belegte Zelle der angelegten Bereiche.
+     */
+    private void markiereBelegte(Aenderungen ziel)
+    {
+        for(int g = 0; g < gruppen.length; g++) {
+            Bereich[] gruppe = gruppen[g];
+            if(gruppe == null) {
+                continue;
+            }
+            for(int i = 0; i < gruppe.length; i++) {
+                Bereich bereich = gruppe[i];
+                if(bereich == null) {
+                    continue;
+                }
+                int nummer = g << GRUPPE_BITS | i;
+                int oben = nummer / bereicheJeZeile << KANTE_BITS;
+                int links = nummer % bereicheJeZeile << KANTE_BITS;
+                for(long bits = bereich.belegung; bits != 0; bits &= bits - 1) {
+                    int index = Long.numberOfTrailingZeros(bits);
+                    ziel.markiere((long) (oben + (index >> KANTE_BITS)) * breite
+                                  + links + (index & (KANTE - 1)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Merke einen (vielleicht) leeren Bereich fuer die Freigabe vor.
+     */
+    private void merkeVor(int nummer, Bereich bereich)
+    {
+        if(!bereich.vorgemerkt) {
+            bereich.vorgemerkt = true;
+            if(anzahlVorgemerkt == vorgemerkt.length) {
+                vorgemerkt = Arrays.copyOf(vorgemerkt, anzahlVorgemerkt * 2);
+            }
+            vorgemerkt[anzahlVorgemerkt++] = nummer;
+        }
+    }
+
+    /**
+     * @return die Nummer des Bereichs, in dem die Zelle liegt.
+     */
+    private int bereichsnummer(int zeile, int spalte)
+    {
+        return (zeile >> KANTE_BITS) * bereicheJeZeile + (spalte >> KANTE_BITS);
+    }
+
+    /**
+     * @return der Index der Zelle innerhalb ihres Bereichs.
+     */
+    private static int index(int zeile, int spalte)
+    {
+        return (zeile & (KANTE - 1)) << KANTE_BITS | (spalte & (KANTE - 1));
+    }
+
+    /**
+     * Liefere den Zufallsgenerator dieses Feldes.
+     * @return der Zufallsgenerator der Simulation.
+     */
+    public Random gibZufallsgenerator()
+    {
+        return rand;
+    }
+
+    /**
+     * @return die Eigenschaften der Tiere auf diesem Feld.
+     */
+    public Simulationsparameter gibParameter()
+    {
+        return parameter;
     }
 
     /**
@@ -207,4 +827,49 @@ public class Feld
     {
         return breite;
     }
+
+    /**
+     * Ein Bereich von KANTE x KANTE Zellen mit seinen Tieren und den
+     * bei Bedarf angelegten kanonischen Positionen.
+     */
+    private static class Bereich
+    {
+        private final Object[] tiere = new Object[KANTE * KANTE];
+        // Die Anzahl der belegten Zellen
+        private int belegt;
+        // Ein Bit je belegter Zelle, Bit index(zeile, spalte)
+        private long belegung;
+        // Ebenso je Tierart, nach Ordnungszahl
+        private final long[] arten = new long[ARTEN];
+        // Steht der Bereich in der Liste zur Freigabe?
+        private boolean vorgemerkt;
+
+        /**
+         * Setze die Bits eines Tieres, das in eine Zelle kommt.
+         */
+        private void trageEin(Object tier, int index)
+        {
+            if(tier != null) {
+                belegung |= 1L << index;
+                Tierart art = Tierart.von(tier);
+                if(art != null) {
+                    arten[art.ordinal()] |= 1L << index;
+                }
+            }
+        }
+
+        /**
+         * Loesche die Bits eines Tieres, das eine Zelle verlaesst.
+         */
+        private void trageAus(Object tier, int index)
+        {
+            if(tier != null) {
+                belegung &= ~(1L << index);
+                Tierart art = Tierart.von(tier);
+                if(art != null) {
+                    arten[art.ordinal()] &= ~(1L << index);
+                }
+            }
+        }
+    }
 }
@@ -1,23 +1,20 @@
 package fueche.und.hasen;
 
-import java.awt.Color;
-import java.util.HashMap;
-
 /**
- * Diese Klasse sammelt und liefert statistische Daten �ber den
- * Zustand eines Feldes. Auf sehr flexible Weise: Es wird ein
- * Z�hler angelegt und gepflegt f�r jede Objektklasse, die im
- * Feld gefunden wird.
+ * Diese Klasse sammelt und liefert statistische Daten ueber den
+ * Zustand eines Feldes. Die Felder zaehlen ihre Bewohner bei jeder
+ * Aenderung selbst mit; die Statistik liest diese Zaehlerstaende
+ * nur noch aus, statt jede Zelle zu durchsuchen. Es gibt einen
+ * Zaehler je Tierart, indiziert ueber deren Ordnungszahl.
  * 
  * @author David J. Barnes und Michael K�lling
  * @version 2008.03.30
  */
 public class FeldStatistik
 {
-    // Die Z�hler f�r die jeweiligen Akteurstypen (Fuchs, Hase, etc.)
-    // in der Simulation.
-    private HashMap<Class, Zaehler> zaehler;
-    // Sind die Z�hlerst�nde momentan aktuell?
+    // Die Zaehler fuer die Tierarten, nach Ordnungszahl der Tierart
+    private Zaehler[] zaehler;
+    // Sind die Zaehlerstaende momentan aktuell?
     private boolean zaehlerAktuell;
 
     /**
@@ -25,10 +22,12 @@ public class FeldStatistik
      */
     public FeldStatistik()
     {
-        // Wir legen eine Sammlung f�r die Z�hler an, die wir f�r
-        // die gefundenen Tierarten erzeugen.
-        zaehler = new HashMap<Class, Zaehler>();
-        zaehlerAktuell = true;
+        Tierart[] arten = Tierart.values();
+        zaehler = new Zaehler[arten.length];
+        for(Tierart art : arten) {
+            zaehler[art.ordinal()] = new Zaehler(art.gibKlasse().getName());
+        }
+        zaehlerAktuell = false;
     }
 
     /**
@@ -36,14 +35,13 @@ public class FeldStatistik
      * @return Eine Beschreibung, welche Tiere das
      *          Feld bev�lkern.
      */
-    public String gibBewohnerInfo(Feld feld)
+    public String gibBewohnerInfo(Feldbelegung feld)
     {
         StringBuffer buffer = new StringBuffer();
         if(!zaehlerAktuell) {
             ermittleZaehlerstaende(feld);
         }
-        for (Class schluessel : zaehler.keySet()) {
-            Zaehler info = zaehler.get(schluessel);
+        for(Zaehler info : zaehler) {
             buffer.append(info.gibName());
             buffer.append(": ");
             buffer.append(info.gibStand());
@@ -53,40 +51,13 @@ public class FeldStatistik
     }
     
     /**
-     * Verwerfe alle bisher gesammelten Daten; setze alle Z�hler
-     * auf Null zur�ck.
+     * Verwerfe alle bisher gesammelten Daten, etwa weil ein neuer
+     * Schritt simuliert wurde. Die Zaehlerstaende werden bei der
+     * naechsten Abfrage neu aus dem Feld gelesen.
      */
     public void zuruecksetzen()
     {
         zaehlerAktuell = false;
-        for(Class schluessel : zaehler.keySet()) {
-            Zaehler einzelZaehler = zaehler.get(schluessel);
-            einzelZaehler.zuruecksetzen();
-        }
-    }
-
-    /**
-     * Erh�he den Z�hler f�r eine Tierklasse.
-     * @param tierklasse Klasse der Tierart, f�r die erh�ht werden soll.
-     */
-    public void erhoeheZaehler(Class tierklasse)
-    {
-        Zaehler einzelZaehler = zaehler.get(tierklasse);
-        if(einzelZaehler == null) {
-            // Wir haben noch keinen Z�hler f�r
-            // diese Spezies - also neu anlegen
-            einzelZaehler = new Zaehler(tierklasse.getName());
-            zaehler.put(tierklasse, einzelZaehler);
-        }
-        einzelZaehler.erhoehen();
-    }
-
-    /**
-     * Signalisiere, dass eine Tierz�hlung beendet ist.
-     */
-    public void zaehlungBeendet()
-    {
-        zaehlerAktuell = true;
     }
 
     /**
@@ -94,15 +65,14 @@ public class FeldStatistik
      * ob sie weiterhin laufen sollte.
      * @return true wenn noch mehr als eine Spezies lebt.
      */
-    public boolean istAktiv(Feld feld)
+    public boolean istAktiv(Feldbelegung feld)
     {
         // Wieviele Z�hler sind nicht Null.
         int nichtNull = 0;
         if(!zaehlerAktuell) {
             ermittleZaehlerstaende(feld);
         }
-        for(Class schluessel : zaehler.keySet()) {
-            Zaehler info = zaehler.get(schluessel);
+        for(Zaehler info : zaehler) {
             if(info.gibStand() > 0) {
                 nichtNull++;
             }
@@ -111,23 +81,15 @@ public class FeldStatistik
     }
     
     /**
-     * Erzeuge Z�hler f�r die Anzahl der F�chse und Hasen.
-     * Diese werden nicht st�ndig aktuell gehalten, w�hrend
-     * F�chse und Hasen in das Feld gesetzt werden, sondern
-     * jeweils bei der Abfrage der Z�hlerst�nde berechnet.
-     * @param feld das Feld, f�r das die Statistik erstellt
+     * Uebernimm die Zaehlerstaende des Feldes. Das kostet nur
+     * eine Abfrage je Tierart, unabhaengig von der Feldgroesse.
+     * @param feld das Feld, fuer das die Statistik erstellt
      *             werden soll.
      */
-    private void ermittleZaehlerstaende(Feld feld)
+    private void ermittleZaehlerstaende(Feldbelegung feld)
     {
-        zuruecksetzen();
-        for(int zeile = 0; zeile < feld.gibTiefe(); zeile++) {
-            for(int spalte = 0; spalte < feld.gibBreite(); spalte++) {
-                Object tier = feld.gibObjektAn(zeile, spalte);
-                if(tier != null) {
-                    erhoeheZaehler(tier.getClass());
-                }
-            }
+        for(Tierart art : Tierart.values()) {
+            zaehler[art.ordinal()].setzeStand(feld.gibAnzahl(art));
         }
         zaehlerAktuell = true;
     }
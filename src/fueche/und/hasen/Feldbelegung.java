@@ -0,0 +1,37 @@
+package fueche.und.hasen;
+
+/**
+ * Eine lesende Sicht auf die Belegung eines rechteckigen Feldes.
+ * Beobachter wie Ansichten und Statistiken benutzen nur diese
+ * Sicht und funktionieren so mit jeder Speicherform des Feldes.
+ *
+ * @author Merlin
+ */
+public interface Feldbelegung
+{
+    /**
+     * @return die Tiefe des Feldes.
+     */
+    int gibTiefe();
+
+    /**
+     * @return die Breite des Feldes.
+     */
+    int gibBreite();
+
+    /**
+     * Liefere die Art des Tieres an der angegebenen Position.
+     * @param zeile die gewuenschte Zeile.
+     * @param spalte die gewuenschte Spalte.
+     * @return die Art des Tieres oder null, wenn die Position leer ist.
+     */
+    Tierart gibArtAn(int zeile, int spalte);
+
+    /**
+     * Liefere die Anzahl der Tiere einer Art im Feld. Die Anzahl wird
+     * bei jeder Aenderung mitgezaehlt, die Abfrage kostet daher nichts.
+     * @param art die gewuenschte Tierart.
+     * @return die Anzahl der Tiere dieser Art.
+     */
+    int gibAnzahl(Tierart art);
+}
@@ -1,7 +1,6 @@
 package fueche.und.hasen;
 
 import java.util.List;
-import java.util.Iterator;
 import java.util.Random;
 
 /**
@@ -13,22 +12,12 @@ import java.util.Random;
  */
 public class Fuchs
 {
-    // Eigenschaften aller F�chse (statische Datenfelder)
-    
-    // Das Alter, in dem ein Fuchs geb�rf�hig wird.
-    private static final int GEBAER_ALTER = 10;
-    // Das H�chstalter eines Fuchses.
-    private static final int MAX_ALTER = 150;
-    // Die Wahrscheinlichkeit, mit der ein Fuchs Nachwuchs geb�rt.
-    private static final double GEBAER_WAHRSCHEINLICHKEIT = 0.35;
-    // Die maximale Gr��e eines Wurfes (Anzahl der Jungen).
-    private static final int MAX_WURFGROESSE = 5;
-    // Der N�hrwert eines einzelnen Hasen. Letztendlich ist
+    // Eigenschaften aller Fuechse dieser Simulation (Parameter des Feldes).
+    private final Artparameter eigenschaften;
+    // Der Naehrwert eines einzelnen Hasen. Letztendlich ist
     // dies die Anzahl der Schritte, die ein Fuchs bis zur
-    //n�chsten Mahlzeit laufen kann.
-    private static final int HASEN_NAEHRWERT = 7;
-	// Ein gemeinsamer Zufallsgenerator, der die Geburten steuert.
-    private static final Random rand = Zufallssteuerung.gibZufallsgenerator();
+    // naechsten Mahlzeit laufen kann.
+    private final int hasenNaehrwert;
     
     // Individuelle Eigenschaften (Instanzfelder).
 
@@ -58,14 +47,17 @@ public class Fuchs
         alter = 0;
         lebendig = true;
         this.feld = feld;
+        eigenschaften = feld.gibParameter().gibFuchs();
+        hasenNaehrwert = feld.gibParameter().gibHase().gibNaehrwert();
         setzePosition(position);
         if(zufaelligesAlter) {
-            alter = rand.nextInt(MAX_ALTER);
-            futterLevel = rand.nextInt(HASEN_NAEHRWERT);
+            Random rand = feld.gibZufallsgenerator();
+            alter = rand.nextInt(eigenschaften.gibMaxAlter());
+            futterLevel = rand.nextInt(hasenNaehrwert);
         }
         else {
             // Alter bleibt 0
-            futterLevel = HASEN_NAEHRWERT;
+            futterLevel = hasenNaehrwert;
         }
     }
     
@@ -80,12 +72,15 @@ public class Fuchs
         alterErhoehen();
         hungerVergroessern();
         if(lebendig) {
-            gebaereNachwuchs(neueFuechse);
+            // Die Nachbarn nur einmal nach Hasen und freien Zellen durchsuchen.
+            Nachbarscan nachbarn = feld.scanneNachbarn(position, Tierart.HASE);
+            int geburten = gebaereNachwuchs(neueFuechse, nachbarn);
             // In die Richtung bewegen, in der Futter gefunden wurde.
-            Position neuePosition = findeNahrung(position);
-            if(neuePosition == null) {  
-                // kein Futter - zuf�llig bewegen
-                neuePosition = feld.freieNachbarposition(position);
+            Position neuePosition = findeNahrung(nachbarn);
+            if(neuePosition == null && geburten < nachbarn.gibAnzahlFrei()) {  
+                // kein Futter - auf den naechsten Hasen im Jagdradius zu
+                // oder zuf�llig bewegen
+                neuePosition = feld.gibPosition(pirscheAn(nachbarn, geburten));
             }
             // Ist Bewegung m�glich?
             if(neuePosition != null) {
@@ -93,7 +88,7 @@ public class Fuchs
             }
             else {
                 // �berpopulation
-                sterben();
+                sterben(Todesursache.UEBERFUELLUNG);
             }
         }
     }
@@ -107,6 +102,33 @@ public class Fuchs
         return lebendig;
     }
 
+    /**
+     * @return das Alter dieses Fuchses (fuer Sicherungen).
+     */
+    int gibAlter()
+    {
+        return alter;
+    }
+
+    /**
+     * @return der Futter-Level dieses Fuchses (fuer Sicherungen).
+     */
+    int gibFutterLevel()
+    {
+        return futterLevel;
+    }
+
+    /**
+     * Setze Alter und Futter-Level beim Wiederherstellen einer Sicherung.
+     * @param neuesAlter das gesicherte Alter.
+     * @param neuerFutterLevel der gesicherte Futter-Level.
+     */
+    void setzeZustand(int neuesAlter, int neuerFutterLevel)
+    {
+        alter = neuesAlter;
+        futterLevel = neuerFutterLevel;
+    }
+
     /**
      * Liefere die Position des Fuches.
      * @return die Position des Fuches.
@@ -136,8 +158,8 @@ public class Fuchs
     private void alterErhoehen()
     {
         alter++;
-        if(alter > MAX_ALTER) {
-            sterben();
+        if(alter > eigenschaften.gibMaxAlter()) {
+            sterben(Todesursache.ALTER);
         }
     }
     
@@ -149,52 +171,67 @@ public class Fuchs
     {
         futterLevel--;
         if(futterLevel <= 0) {
-            sterben();
+            sterben(Todesursache.HUNGER);
         }
     }
     
     /**
      * Suche nach Nahrung (Hasen) in den Nachbarpositionen.
      * Es wird nur der erste lebendige Hase gefressen.
-     * @param position die Position, an der sich der Fuchs befindet.
+     * @param nachbarn die durchsuchten Nachbarn dieses Fuchses.
      * @return die Position mit Nahrung, oder null, wenn keine vorhanden.
      */
-    private Position findeNahrung(Position position)
-    {
-        List<Position> nachbarPositionen = 
-                               feld.nachbarpositionen(position);
-        Iterator<Position> iter = nachbarPositionen.iterator();
-        while(iter.hasNext()) {
-            Position pos = iter.next();
-            Object tier = feld.gibObjektAn(pos);
-            if(tier instanceof Hase) {
-                Hase hase = (Hase) tier;
-                if(hase.istLebendig()) { 
-                    hase.sterben();
-                    futterLevel = HASEN_NAEHRWERT;
-                    return pos;
-                }
+    private Position findeNahrung(Nachbarscan nachbarn)
+    {
+        if(nachbarn.hatBeute()) {
+            Position pos = feld.gibPosition(nachbarn.gibBeuteZelle());
+            Hase hase = (Hase) feld.gibObjektAn(pos);
+            if(hase.istLebendig()) { 
+                hase.sterben();
+                futterLevel = hasenNaehrwert;
+                return pos;
             }
         }
         return null;
     }
         
+    /**
+     * Waehle die naechste Zelle, wenn kein Hase in der Nachbarschaft
+     * ist: bei einem Jagdradius groesser als 1 einen Schritt auf den
+     * naechsten Hasen im Radius zu, sonst die naechste freie Zelle.
+     * @param nachbarn die durchsuchten Nachbarn dieses Fuchses.
+     * @param erste der Index der ersten freien Zelle, die nicht von
+     *              Neugeborenen belegt ist.
+     * @return die gewaehlte freie Zelle.
+     */
+    private long pirscheAn(Nachbarscan nachbarn, int erste)
+    {
+        if(eigenschaften.gibJagdradius() > 1) {
+            long hase = feld.findeHasen(position, eigenschaften.gibJagdradius());
+            if(hase >= 0) {
+                return feld.waehleSchrittZu(nachbarn, erste, hase);
+            }
+        }
+        return nachbarn.gibFreieZelle(erste);
+    }
+
     /**
      * Pr�fe, ob dieser Fuchs in diesem Schritt geb�ren kann.
      * Neugeborene kommen in freie Nachbarpositionen.
      * @param neueFuechse Liste, in die neugeborene F�chse eingetragen werden.
+     * @param nachbarn die durchsuchten Nachbarn dieses Fuchses.
+     * @return die Anzahl der Neugeborenen.
      */
-    private void gebaereNachwuchs(List<Fuchs> neueFuechse)
+    private int gebaereNachwuchs(List<Fuchs> neueFuechse, Nachbarscan nachbarn)
     {
         // Neugeborene kommen in freie Nachbarpositionen.
-        // Freie Nachbarpositionen abfragen.
-        List<Position> frei = feld.freieNachbarpositionen(position);
-        int geburten = traechtig();
-        for(int b = 0; b < geburten && frei.size() > 0; b++) {
-            Position pos = frei.remove(0);
+        int geburten = Math.min(traechtig(), nachbarn.gibAnzahlFrei());
+        for(int b = 0; b < geburten; b++) {
+            Position pos = feld.gibPosition(nachbarn.gibFreieZelle(b));
             Fuchs jung = new Fuchs(false, feld, pos);
             neueFuechse.add(jung);
         }
+        return geburten;
     }
         
     /**
@@ -205,8 +242,9 @@ public class Fuchs
     private int traechtig()
     {
         int wurfgroesse = 0;
-        if(kannGebaeren() && rand.nextDouble() <= GEBAER_WAHRSCHEINLICHKEIT) {
-            wurfgroesse = rand.nextInt(MAX_WURFGROESSE) + 1;
+        Random rand = feld.gibZufallsgenerator();
+        if(kannGebaeren() && rand.nextDouble() <= eigenschaften.gibGebaerWahrscheinlichkeit()) {
+            wurfgroesse = rand.nextInt(eigenschaften.gibMaxWurfgroesse()) + 1;
         }
         return wurfgroesse;
     }
@@ -216,15 +254,19 @@ public class Fuchs
      */
     private boolean kannGebaeren()
     {
-        return alter >= GEBAER_ALTER;
+        return alter >= eigenschaften.gibGebaerAlter();
     }
     
     /**
      * Anzeigen, dass der Fuchs nicht mehr laenger lebendig ist.
      * Fuchs aus dem Feld entfernen.
+     * @param ursache die Todesursache fuer die Bevoelkerungsbilanz.
      */
-    private void sterben()
+    private void sterben(Todesursache ursache)
     {
+        if(lebendig) {
+            feld.zaehleTod(Tierart.FUCHS, ursache);
+        }
         lebendig = false;
         if(position != null) {
             feld.raeumen(position);
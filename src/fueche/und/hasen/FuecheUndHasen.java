@@ -4,17 +4,647 @@
  */
 package fueche.und.hasen;
 
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.management.JMException;
+
 /**
+ * Startet die Simulation von der Kommandozeile aus.
+ * Ohne Argumente wird ein Feld von 100x120 Positionen mit
+ * grafischer Ansicht simuliert.
  *
  * @author Merlin
  */
 public class FuecheUndHasen {
 
+    private static final String AUFRUF =
+        "Aufruf: FuecheUndHasen [Optionen]\n"
+        + "  --tiefe N           Tiefe des Feldes (Standard 100)\n"
+        + "  --breite N          Breite des Feldes (Standard 120)\n"
+        + "  --schritte N        Anzahl der Simulationsschritte (Standard 10000)\n"
+        + "  --seed N            SEED-Wert der Zufallssteuerung\n"
+        + "  --kern NAME         objekt (Standard), spalten (kompakter Speicher)\n"
+        + "                      oder streifen (parallel auf mehreren Kernen)\n"
+        + "  --threads N         Threads fuer den Kern streifen bzw. fuer die Laeufe\n"
+        + "                      eines Ensembles (Standard: alle Kerne)\n"
+        + "  --laeufe N          Ensemble aus N unabhaengigen Laeufen; schreibt je\n"
+        + "                      Schritt Mittelwert, Streuung und Quantile (CSV)\n"
+        + "  --genauigkeit X     Ensemble beenden, sobald alle 95%-Konfidenz-\n"
+        + "                      intervalle der Mittelwerte hoechstens um den\n"
+        + "                      Anteil X vom Mittelwert abweichen (halbe Breite;\n"
+        + "                      bei Mittelwerten unter 1 absolut)\n"
+        + "  --intervall N       Zeilenabstand der Ensembletabelle (Standard 100)\n"
+        + "  --parameter LISTE   kommagetrennt art.eigenschaft=wert, etwa\n"
+        + "                      hase.maxAlter=50,fuchs.anfangsdichte=0.05\n"
+        + "                      (Eigenschaften: gebaerAlter, maxAlter,\n"
+        + "                      gebaerWahrscheinlichkeit, maxWurfgroesse,\n"
+        + "                      naehrwert, anfangsdichte, jagdradius: Fuechse\n"
+        + "                      gehen auf Hasen in dieser Entfernung zu)\n"
+        + "  --studie ART        Parameterstudie ueber die Achsen: gitter oder lhs\n"
+        + "                      (lateinischer Hyperwuerfel); schreibt je Lauf\n"
+        + "                      eine Zusammenfassung (CSV)\n"
+        + "  --achse A=V:B[:N]   Achse der Studie von V bis B mit N Stufen\n"
+        + "                      (Standard 5), mehrfach angebbar\n"
+        + "  --punkte N          Punkte des Hyperwuerfels (Standard 20)\n"
+        + "  --wiederholungen N  Laeufe je Punkt der Studie (Standard 1)\n"
+        + "  --sicherung DATEI   Zustand regelmaessig und am Ende in DATEI sichern\n"
+        + "  --sicherungsintervall N  Schritte zwischen zwei Sicherungen\n"
+        + "                      (Standard 1000)\n"
+        + "  --fortsetzen DATEI  eine Sicherung fortsetzen; --schritte zaehlt\n"
+        + "                      dann ab dem Anfang des urspruenglichen Laufs;\n"
+        + "                      Kern, Feld, Seed und Parameter stammen aus\n"
+        + "                      der Sicherung\n"
+        + "  --export DATEI      Population, Geburten und Todesfaelle je Schritt\n"
+        + "                      in DATEI schreiben (CSV bei Endung .csv, sonst\n"
+        + "                      binaer und spaltenweise)\n"
+        + "  --exportintervall N Schritte zwischen zwei Zeilen (Standard 1)\n"
+        + "  --aufzeichnung DATEI  die Belegung je Schritt als Aenderungen in DATEI\n"
+        + "                      aufzeichnen\n"
+        + "  --schluesselintervall N  Schritte zwischen zwei vollstaendigen Bildern\n"
+        + "                      der Aufzeichnung (Standard 100)\n"
+        + "  --bilder ZIEL       die Belegung als Bilder exportieren: ZIEL.gif als\n"
+        + "                      animiertes GIF, sonst PNG-Dateien im Verzeichnis ZIEL\n"
+        + "  --bildintervall N   Schritte zwischen zwei Bildern (Standard 10)\n"
+        + "  --bildmassstab K    Pixel je Zelle, negativ: -K x -K Zellen je Pixel\n"
+        + "                      (Standard: hoechstens 1024 Pixel Kantenlaenge)\n"
+        + "  --wiedergabe DATEI  eine Aufzeichnung ab --von N bis --schritte mit den\n"
+        + "                      Beobachtern abspielen, ohne zu simulieren\n"
+        + "  --stillstand N[:T]  anhalten, sobald sich die Belegung wiederholt oder\n"
+        + "                      die Population stationaer ist: Mittel ueber 8\n"
+        + "                      Fenster von N Schritten ohne Trend und auf T\n"
+        + "                      (relativ, Standard 0.05) genau; auch fuer Studien\n"
+        + "  --dienst PORT       Laeufe per HTTP auf 127.0.0.1:PORT annehmen und ihre\n"
+        + "                      Zeitreihen liefern (POST /auftraege, siehe\n"
+        + "                      Auftragsdienst); --threads Laeufe rechnen zugleich\n"
+        + "  --messung NAME      Phasen, Latenzen und Allokationen je Schritt messen,\n"
+        + "                      per JMX als Schrittmessung NAME sichtbar; am Ende\n"
+        + "                      eine Zusammenfassung ausgeben\n"
+        + "  --beobachter LISTE  kommagetrennt: ansicht[:N], turbo[:N] (Ansicht im\n"
+        + "                      Turbo-Modus), statistik[:N] oder keine\n"
+        + "                      (Standard: ansicht, ohne Bildschirm statistik:100)";
+
     /**
      * @param args the command line arguments
      */
     public static void main(String[] args) {
-        Simulator sim = new Simulator(100, 120);
-        sim.starteLangeSimulation();
+        int tiefe = 100;
+        int breite = 120;
+        int schritte = 10000;
+        String kern = "objekt";
+        long seed = Zufallssteuerung.gibSeed();
+        int laeufe = 1;
+        double genauigkeit = 0;
+        int intervall = 100;
+        Simulationsparameter parameter = Simulationsparameter.STANDARD;
+        String studie = null;
+        List<String> achsen = new ArrayList<String>();
+        int punkte = 20;
+        int wiederholungen = 1;
+        Path sicherung = null;
+        int sicherungsintervall = 1000;
+        Path fortsetzen = null;
+        Path export = null;
+        int exportintervall = 1;
+        Path aufzeichnung = null;
+        int schluesselintervall = 100;
+        Path bilder = null;
+        int bildintervall = 10;
+        int bildmassstab = 0;
+        Path wiedergabe = null;
+        int von = 0;
+        int stillstandFenster = 0;
+        double stillstandToleranz = 0.05;
+        String messname = null;
+        int dienstPort = -1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String beobachter = GraphicsEnvironment.isHeadless() ? "statistik:100" : "ansicht";
+        // Die angegebenen Optionen, um wirkungslose abzulehnen
+        Set<String> angegeben = new HashSet<String>();
+
+        try {
+            for(int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if(option.equals("--hilfe") || option.equals("-h")) {
+                    System.out.println(AUFRUF);
+                    return;
+                }
+                angegeben.add(option);
+                if(i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Wert fehlt fuer " + option);
+                }
+                String wert = args[++i];
+                if(option.equals("--tiefe")) {
+                    tiefe = Integer.parseInt(wert);
+                }
+                else if(option.equals("--breite")) {
+                    breite = Integer.parseInt(wert);
+                }
+                else if(option.equals("--schritte")) {
+                    schritte = Integer.parseInt(wert);
+                }
+                else if(option.equals("--seed")) {
+                    seed = Long.parseLong(wert);
+                }
+                else if(option.equals("--threads")) {
+                    threads = Integer.parseInt(wert);
+                }
+                else if(option.equals("--laeufe")) {
+                    laeufe = Integer.parseInt(wert);
+                }
+                else if(option.equals("--genauigkeit")) {
+                    genauigkeit = Double.parseDouble(wert);
+                }
+                else if(option.equals("--intervall")) {
+                    intervall = Integer.parseInt(wert);
+                }
+                else if(option.equals("--parameter")) {
+                    parameter = parameter.mit(wert);
+                }
+                else if(option.equals("--studie")) {
+                    studie = wert;
+                }
+                else if(option.equals("--achse")) {
+                    achsen.add(wert);
+                }
+                else if(option.equals("--punkte")) {
+                    punkte = Integer.parseInt(wert);
+                }
+                else if(option.equals("--wiederholungen")) {
+                    wiederholungen = Integer.parseInt(wert);
+                }
+                else if(option.equals("--sicherung")) {
+                    sicherung = Paths.get(wert);
+                }
+                else if(option.equals("--sicherungsintervall")) {
+                    sicherungsintervall = Integer.parseInt(wert);
+                }
+                else if(option.equals("--fortsetzen")) {
+                    fortsetzen = Paths.get(wert);
+                }
+                else if(option.equals("--export")) {
+                    export = Paths.get(wert);
+                }
+                else if(option.equals("--exportintervall")) {
+                    exportintervall = Integer.parseInt(wert);
+                }
+                else if(option.equals("--aufzeichnung")) {
+                    aufzeichnung = Paths.get(wert);
+                }
+                else if(option.equals("--schluesselintervall")) {
+                    schluesselintervall = Integer.parseInt(wert);
+                }
+                else if(option.equals("--bilder")) {
+                    bilder = Paths.get(wert);
+                }
+                else if(option.equals("--bildintervall")) {
+                    bildintervall = Integer.parseInt(wert);
+                }
+                else if(option.equals("--bildmassstab")) {
+                    bildmassstab = Integer.parseInt(wert);
+                    if(bildmassstab == 0) {
+                        throw new IllegalArgumentException("Massstab darf nicht Null sein");
+                    }
+                }
+                else if(option.equals("--wiedergabe")) {
+                    wiedergabe = Paths.get(wert);
+                }
+                else if(option.equals("--von")) {
+                    von = Integer.parseInt(wert);
+                }
+                else if(option.equals("--stillstand")) {
+                    String[] teile = wert.split(":");
+                    stillstandFenster = Integer.parseInt(teile[0]);
+                    if(teile.length > 1) {
+                        stillstandToleranz = Double.parseDouble(teile[1]);
+                    }
+                    if(stillstandFenster <= 0 || teile.length > 2) {
+                        throw new IllegalArgumentException("Stillstand der Form N[:T] mit N > 0 erwartet: "
+                                                           + wert);
+                    }
+                }
+                else if(option.equals("--dienst")) {
+                    dienstPort = Integer.parseInt(wert);
+                }
+                else if(option.equals("--messung")) {
+                    messname = wert;
+                }
+                else if(option.equals("--kern")) {
+                    kern = wert;
+                }
+                else if(option.equals("--beobachter")) {
+                    beobachter = wert;
+                }
+                else {
+                    throw new IllegalArgumentException("Unbekannte Option " + option);
+                }
+            }
+            // Dienst, Wiedergabe, Studie und Ensemble kennen nur einen Teil
+            // der Optionen eines einzelnen Laufs.
+            String modus = null;
+            modus = pruefeModus(modus, "--dienst", dienstPort >= 0);
+            modus = pruefeModus(modus, "--wiedergabe", wiedergabe != null);
+            modus = pruefeModus(modus, "--studie", studie != null);
+            modus = pruefeModus(modus, "--laeufe", laeufe > 1);
+            if(modus != null) {
+                lehneAb(modus, "--fortsetzen", fortsetzen != null);
+                lehneAb(modus, "--sicherung", sicherung != null);
+                lehneAb(modus, "--export", export != null);
+                lehneAb(modus, "--aufzeichnung", aufzeichnung != null);
+                lehneAb(modus, "--messung", messname != null);
+                lehneAb(modus, "--bilder", bilder != null && wiedergabe == null);
+                lehneAb(modus, "--stillstand", stillstandFenster > 0 && studie == null);
+            }
+            // Eine Sicherung bringt ihren Kern, ihr Feld und ihre Parameter mit.
+            if(fortsetzen != null) {
+                for(String option : new String[] {"--kern", "--tiefe", "--breite", "--seed",
+                                                  "--parameter"}) {
+                    lehneAb("--fortsetzen", option, angegeben.contains(option));
+                }
+            }
+            if(dienstPort >= 0) {
+                starteDienst(dienstPort, threads);
+                return;
+            }
+            if(wiedergabe != null) {
+                spieleAb(wiedergabe, von, schritte, beobachter, bilder, bildintervall,
+                         bildmassstab, threads);
+                return;
+            }
+            if(studie != null) {
+                fuehreStudieAus(kern, tiefe, breite, schritte, seed, parameter, studie, achsen,
+                                punkte, wiederholungen, threads, stillstandFenster,
+                                stillstandToleranz);
+                return;
+            }
+            if(laeufe > 1) {
+                fuehreEnsembleAus(kern, tiefe, breite, schritte, seed, parameter, laeufe, threads,
+                                  genauigkeit, intervall);
+                return;
+            }
+            Simulator sim;
+            if(fortsetzen != null) {
+                sim = Simulator.fortsetzen(fortsetzen);
+            }
+            else {
+                sim = new Simulator(erzeugeKern(kern, tiefe, breite, threads, seed, parameter));
+            }
+            meldeBeobachterAn(sim, beobachter);
+            Stillstandserkennung erkennung = null;
+            if(stillstandFenster > 0) {
+                erkennung = new Stillstandserkennung(stillstandFenster, stillstandToleranz);
+                sim.setzeStillstandserkennung(erkennung);
+            }
+            Schrittmessung messung = null;
+            if(messname != null) {
+                messung = new Schrittmessung();
+                messung.registriere(messname);
+                sim.setzeMessung(messung);
+            }
+            // Kern und Dateien werden auch geschlossen, wenn der Lauf
+            // scheitert, damit Aufzeichnung und GIF bis dahin lesbar bleiben.
+            Zeitreihenexport exporter = null;
+            Aufzeichnung aufzeichner = null;
+            Bildexport bildexport = null;
+            try {
+                if(export != null) {
+                    Zeitreihenexport.Format format = export.toString().endsWith(".csv")
+                        ? Zeitreihenexport.Format.CSV : Zeitreihenexport.Format.BINAER;
+                    exporter = new Zeitreihenexport(export, format);
+                    sim.fuegeBeobachterHinzu(exporter, exportintervall);
+                }
+                if(aufzeichnung != null) {
+                    Feldbelegung belegung = sim.gibBelegung();
+                    aufzeichner = new Aufzeichnung(aufzeichnung, belegung.gibTiefe(),
+                                                   belegung.gibBreite(), schluesselintervall);
+                    sim.fuegeBeobachterHinzu(aufzeichner, 1);
+                }
+                if(bilder != null) {
+                    bildexport = meldeBildexportAn(sim, bilder, bildintervall, bildmassstab,
+                                                   threads);
+                }
+                if(sicherung != null) {
+                    simuliereMitSicherung(sim, schritte, sicherung, sicherungsintervall);
+                }
+                else {
+                    sim.simuliere(schritte - sim.gibSchritt());
+                }
+            }
+            finally {
+                sim.schliesse();
+                try {
+                    if(exporter != null) {
+                        exporter.schliesse();
+                    }
+                }
+                finally {
+                    try {
+                        if(aufzeichner != null) {
+                            aufzeichner.schliesse();
+                        }
+                    }
+                    finally {
+                        if(bildexport != null) {
+                            bildexport.schliesse();
+                        }
+                    }
+                }
+            }
+            if(erkennung != null && erkennung.istErreicht()) {
+                System.out.println("Angehalten: " + erkennung.gibBeschreibung());
+            }
+            if(messung != null) {
+                System.out.println(messung.gibZusammenfassung());
+                messung.abmelden();
+            }
+        }
+        catch(IOException e) {
+            System.err.println("Ein- oder Ausgabe fehlgeschlagen: " + e.getMessage());
+            System.exit(2);
+        }
+        catch(JMException e) {
+            System.err.println("Messung nicht anmeldbar: " + e.getMessage());
+            System.exit(2);
+        }
+        catch(IllegalArgumentException e) {
+            // NumberFormatException ist ebenfalls eine IllegalArgumentException
+            System.err.println(e.getMessage());
+            System.err.println(AUFRUF);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Merke eine Betriebsart, die einen einzelnen Lauf ersetzt; es darf
+     * nur eine geben.
+     * @param modus die bisher gewaehlte Betriebsart oder null.
+     * @param option die Option der geprueften Betriebsart.
+     * @param gesetzt ob diese Option angegeben wurde.
+     * @return die gewaehlte Betriebsart oder null.
+     * @throws IllegalArgumentException bei zwei Betriebsarten.
+     */
+    private static String pruefeModus(String modus, String option, boolean gesetzt) {
+        if(!gesetzt) {
+            return modus;
+        }
+        lehneAb(modus, option, modus != null);
+        return option;
+    }
+
+    /**
+     * Lehne eine Option ab, die in einer Betriebsart nicht wirkt.
+     * @param modus die gewaehlte Betriebsart.
+     * @param option die Option.
+     * @param gesetzt ob die Option angegeben wurde.
+     * @throws IllegalArgumentException wenn sie angegeben wurde.
+     */
+    private static void lehneAb(String modus, String option, boolean gesetzt) {
+        if(gesetzt) {
+            throw new IllegalArgumentException(option + " ist mit " + modus + " nicht moeglich");
+        }
+    }
+
+    /**
+     * Simuliere bis zum gegebenen Schritt und sichere den Zustand nach
+     * jedem intervall-ten Schritt sowie am Ende.
+     * @param bisSchritt der letzte Schritt.
+     * @param datei die Sicherungsdatei.
+     * @param intervall Schritte zwischen zwei Sicherungen.
+     * @throws IOException bei Schreibfehlern.
+     */
+    private static void simuliereMitSicherung(Simulator sim, int bisSchritt, Path datei,
+                                              int intervall) throws IOException {
+        if(intervall <= 0) {
+            throw new IllegalArgumentException("Intervall muss groesser als Null sein: " + intervall);
+        }
+        while(sim.gibSchritt() < bisSchritt && sim.istAktiv() && !sim.istAngehalten()) {
+            int naechste = (sim.gibSchritt() / intervall + 1) * intervall;
+            sim.simuliere(Math.min(naechste, bisSchritt) - sim.gibSchritt());
+            sim.sichere(datei);
+        }
+    }
+
+    /**
+     * Spiele eine Aufzeichnung mit den gegebenen Beobachtern ab.
+     * @param datei die Aufzeichnung.
+     * @param von der erste gezeigte Schritt; frueher als die
+     *            Aufzeichnung heisst ab ihrem Beginn.
+     * @param bisSchritt der letzte gezeigte Schritt.
+     * @throws IOException bei Lesefehlern oder beschaedigten Dateien.
+     */
+    private static void spieleAb(Path datei, int von, int bisSchritt, String beobachter,
+                                 Path bilder, int bildintervall, int bildmassstab, int threads)
+        throws IOException {
+        Wiedergabe wiedergabe = new Wiedergabe(datei);
+        try {
+            wiedergabe.springeZu(Math.max(von, wiedergabe.gibErstenSchritt()));
+            Simulator sim = new Simulator(wiedergabe, wiedergabe.gibSchritt());
+            meldeBeobachterAn(sim, beobachter);
+            Bildexport bildexport = null;
+            if(bilder != null) {
+                bildexport = meldeBildexportAn(sim, bilder, bildintervall, bildmassstab, threads);
+            }
+            try {
+                sim.simuliere(bisSchritt - sim.gibSchritt());
+            }
+            finally {
+                if(bildexport != null) {
+                    bildexport.schliesse();
+                }
+            }
+        }
+        finally {
+            wiedergabe.schliesse();
+        }
+    }
+
+    /**
+     * Melde einen Bildexport beim Simulator an. Die Simulation behaelt
+     * einen Thread fuer sich, die uebrigen zeichnen und kodieren.
+     * @param ziel ein Verzeichnis fuer PNG-Dateien oder eine .gif-Datei.
+     * @param intervall Schritte zwischen zwei Bildern.
+     * @param massstab der Massstab oder 0 fuer den Standardmassstab.
+     * @param threads die Anzahl der verfuegbaren Threads.
+     * @throws IOException wenn das Ziel nicht angelegt werden kann.
+     */
+    private static Bildexport meldeBildexportAn(Simulator sim, Path ziel, int intervall,
+                                                int massstab, int threads) throws IOException {
+        if(intervall <= 0) {
+            throw new IllegalArgumentException("Intervall muss groesser als Null sein: " + intervall);
+        }
+        Feldbelegung belegung = sim.gibBelegung();
+        int tiefe = belegung.gibTiefe();
+        int breite = belegung.gibBreite();
+        if(massstab == 0) {
+            massstab = Bildexport.gibStandardmassstab(tiefe, breite);
+        }
+        Bildexport bildexport = new Bildexport(ziel, tiefe, breite, massstab,
+                                               Math.max(1, threads - 1));
+        sim.fuegeBeobachterHinzu(bildexport, intervall);
+        return bildexport;
+    }
+
+    /**
+     * Starte den Auftragsdienst und beende ihn erst mit der JVM.
+     * @param port der Port an der Loopback-Adresse.
+     * @param threads die Anzahl gleichzeitig rechnender Laeufe.
+     * @throws IOException wenn der Port nicht belegt werden kann.
+     */
+    private static void starteDienst(int port, int threads) throws IOException {
+        final Auftragsdienst dienst = new Auftragsdienst(port, threads,
+                                                         Auftragsdienst.STANDARD_VERBINDUNGEN,
+                                                         Auftragsdienst.STANDARD_WARTEND);
+        Runtime.getRuntime().addShutdownHook(new Thread("Auftragsdienst beenden") {
+            public void run() {
+                dienst.stoppe(1);
+            }
+        });
+        dienst.starte();
+        System.out.println("Auftragsdienst unter http://127.0.0.1:" + dienst.gibPort()
+                           + "/auftraege");
+    }
+
+    /**
+     * Erzeuge einen Kern des gegebenen Namens.
+     * @param name objekt, spalten oder streifen.
+     * @param threads die Anzahl der Threads fuer den Kern streifen.
+     * @throws IllegalArgumentException bei unbekannten Kernen.
+     */
+    static Simulationskern erzeugeKern(String name, int tiefe, int breite, int threads,
+                                       long seed, Simulationsparameter parameter) {
+        if(name.equals("objekt")) {
+            return new Objektkern(tiefe, breite, seed, parameter);
+        }
+        else if(name.equals("spalten")) {
+            return new Spaltenkern(tiefe, breite, seed, parameter);
+        }
+        else if(name.equals("streifen")) {
+            return new Streifenkern(tiefe, breite, threads, Streifenkern.STANDARD_STREIFENHOEHE,
+                                    seed, parameter);
+        }
+        else {
+            throw new IllegalArgumentException("Unbekannter Kern " + name);
+        }
+    }
+
+    /**
+     * Fuehre ein Ensemble unabhaengiger Laeufe aus und schreibe die
+     * Statistik auf die Standardausgabe. Jeder Lauf rechnet in einem
+     * eigenen Thread, der Kern streifen daher mit nur einem Thread.
+     */
+    private static void fuehreEnsembleAus(String kern, int tiefe, int breite, int schritte,
+                                          long seed, Simulationsparameter parameter, int laeufe,
+                                          int threads, double genauigkeit, int intervall) {
+        if(intervall <= 0) {
+            throw new IllegalArgumentException("Intervall muss groesser als Null sein: " + intervall);
+        }
+        Ensemble ensemble = new Ensemble(erzeugeKernfabrik(kern, tiefe, breite), schritte,
+                                         laeufe, threads);
+        ensemble.setzeParameter(parameter);
+        if(genauigkeit > 0) {
+            ensemble.setzeGenauigkeit(genauigkeit, Math.min(10, laeufe));
+        }
+        try {
+            ensemble.fuehreAus(seed).schreibeTabelle(System.out, intervall);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fuehre eine Parameterstudie aus und schreibe je Lauf eine Zeile
+     * auf die Standardausgabe. Wie im Ensemble rechnet jeder Lauf in
+     * einem eigenen Thread.
+     * @param art gitter oder lhs.
+     * @param achsen Achsen der Form name=von:bis[:stufen].
+     */
+    private static void fuehreStudieAus(String kern, int tiefe, int breite, int schritte,
+                                        long seed, Simulationsparameter parameter, String art,
+                                        List<String> achsen, int punkte, int wiederholungen,
+                                        int threads, int stillstandFenster,
+                                        double stillstandToleranz) {
+        Parameterstudie studie = new Parameterstudie(erzeugeKernfabrik(kern, tiefe, breite),
+                                                     parameter, schritte, threads);
+        for(String achse : achsen) {
+            int gleich = achse.indexOf('=');
+            String[] werte = achse.substring(gleich + 1).split(":");
+            if(gleich < 0 || werte.length < 2 || werte.length > 3) {
+                throw new IllegalArgumentException("Achse der Form name=von:bis[:stufen] erwartet: "
+                                                   + achse);
+            }
+            studie.fuegeAchseHinzu(achse.substring(0, gleich), Double.parseDouble(werte[0]),
+                                   Double.parseDouble(werte[1]),
+                                   werte.length == 3 ? Integer.parseInt(werte[2]) : 5);
+        }
+        studie.setzeWiederholungen(wiederholungen);
+        studie.setzeStillstandserkennung(stillstandFenster, stillstandToleranz);
+        List<double[]> liste;
+        if(art.equals("gitter")) {
+            liste = studie.gitter();
+        }
+        else if(art.equals("lhs")) {
+            liste = studie.hyperwuerfel(punkte, seed);
+        }
+        else {
+            throw new IllegalArgumentException("Unbekannte Studie " + art);
+        }
+        try {
+            studie.fuehreAus(liste, seed, System.out);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Liefere eine Fabrik fuer Kerne des gegebenen Namens, deren Kern
+     * streifen nur einen Thread benutzt.
+     * @throws IllegalArgumentException bei unbekannten Kernen.
+     */
+    private static Kernfabrik erzeugeKernfabrik(final String kern, final int tiefe,
+                                                final int breite) {
+        // Den Kernnamen vorab pruefen, nicht erst in den Threads.
+        erzeugeKern(kern, 1, 1, 1, 0, Simulationsparameter.STANDARD);
+        return new Kernfabrik() {
+            public Simulationskern erzeugeKern(long laufSeed, Simulationsparameter parameter) {
+                return FuecheUndHasen.erzeugeKern(kern, tiefe, breite, 1, laufSeed, parameter);
+            }
+        };
+    }
+
+    /**
+     * Melde die in der Liste genannten Beobachter beim Simulator an.
+     * @param sim der Simulator.
+     * @param liste kommagetrennte Beobachter der Form name[:intervall].
+     * @throws IllegalArgumentException bei unbekannten Beobachtern.
+     */
+    private static void meldeBeobachterAn(Simulator sim, String liste) {
+        for(String eintrag : liste.split(",")) {
+            String name = eintrag.trim();
+            int intervall = 1;
+            int trenner = name.indexOf(':');
+            if(trenner >= 0) {
+                intervall = Integer.parseInt(name.substring(trenner + 1));
+                name = name.substring(0, trenner);
+            }
+            if(name.equals("ansicht")) {
+                sim.fuegeAnsichtHinzu(intervall);
+            }
+            else if(name.equals("turbo")) {
+                sim.fuegeAnsichtHinzu(intervall).setzeTurbo(true);
+            }
+            else if(name.equals("statistik")) {
+                sim.fuegeBeobachterHinzu(new Konsolenstatistik(), intervall);
+            }
+            else if(!name.equals("keine")) {
+                throw new IllegalArgumentException("Unbekannter Beobachter " + name);
+            }
+        }
     }
 }
\ No newline at end of file
@@ -12,18 +12,8 @@ import java.util.Random;
  */
 public class Hase
 {
-    // Eigenschaften aller Hasen (statische Datenfelder).
-
-    // Das Alter, in dem ein Hase geb�rf�hig wird.
-    private static final int GEBAER_ALTER = 5;
-    // Das H�chstalter eines Hasen.
-    private static final int MAX_ALTER = 40;
-    // Die Wahrscheinlichkeit, mit der ein Hase Nachwuchs geb�rt.
-    private static final double GEBAER_WAHRSCHEINLICHKEIT = 0.15;
-    // Die maximale Gr��e eines Wurfes (Anzahl der Jungen)
-    private static final int MAX_WURFGROESSE = 4;
-	// Ein gemeinsamer Zufallsgenerator, der die Geburten steuert.
-    private static final Random rand = Zufallssteuerung.gibZufallsgenerator();
+    // Eigenschaften aller Hasen dieser Simulation (Parameter des Feldes).
+    private final Artparameter eigenschaften;
     
     // Individuelle Eigenschaften eines Hasen (Instanzfelder).
     
@@ -48,9 +38,11 @@ public class Hase
         alter = 0;
         lebendig = true;
         this.feld = feld;
+        eigenschaften = feld.gibParameter().gibHase();
         setzePosition(position);
         if(zufaelligesAlter) {
-            alter = rand.nextInt(MAX_ALTER);
+            Random rand = feld.gibZufallsgenerator();
+            alter = rand.nextInt(eigenschaften.gibMaxAlter());
         }
     }
     
@@ -64,15 +56,17 @@ public class Hase
     {
         alterErhoehen();
         if(lebendig) {
-            gebaereNachwuchs(neueHasen);
+            // Die Nachbarn nur einmal durchsuchen: Neugeborene belegen
+            // die ersten freien Zellen, der Hase zieht in die n�chste.
+            Nachbarscan nachbarn = feld.scanneNachbarn(position, null);
+            int geburten = gebaereNachwuchs(neueHasen, nachbarn);
             // nur in das n�chste Feld setzen, wenn eine Position frei ist
-            Position neuePosition = feld.freieNachbarposition(position);
-            if(neuePosition != null) {
-                setzePosition(neuePosition);
+            if(geburten < nachbarn.gibAnzahlFrei()) {
+                setzePosition(feld.gibPosition(nachbarn.gibFreieZelle(geburten)));
             }
             else {
                 // �berpopulation 
-                sterben();
+                sterben(Todesursache.UEBERFUELLUNG);
             }
         }
     }
@@ -86,6 +80,23 @@ public class Hase
         return lebendig;
     }
 
+    /**
+     * @return das Alter dieses Hasen (fuer Sicherungen).
+     */
+    int gibAlter()
+    {
+        return alter;
+    }
+
+    /**
+     * Setze das Alter beim Wiederherstellen einer Sicherung.
+     * @param neuesAlter das gesicherte Alter.
+     */
+    void setzeZustand(int neuesAlter)
+    {
+        alter = neuesAlter;
+    }
+
     /**
      * Liefere die Position des Hasen.
      * @return die Position des Hasen.
@@ -96,11 +107,25 @@ public class Hase
     }
 	
     /**
-     * Anzeigen, dass der Hase nicht mehr laenger lebendig ist.
+     * Anzeigen, dass der Hase nicht mehr laenger lebendig ist, weil
+     * ein Fuchs ihn gefressen hat.
      * Hase aus dem Feld entfernen.
      */
     public void sterben()
     {
+        sterben(Todesursache.GEFRESSEN);
+    }
+
+    /**
+     * Anzeigen, dass der Hase nicht mehr laenger lebendig ist.
+     * Hase aus dem Feld entfernen.
+     * @param ursache die Todesursache fuer die Bevoelkerungsbilanz.
+     */
+    private void sterben(Todesursache ursache)
+    {
+        if(lebendig) {
+            feld.zaehleTod(Tierart.HASE, ursache);
+        }
         lebendig = false;
         if(position != null) {
             feld.raeumen(position);
@@ -129,8 +154,8 @@ public class Hase
     private void alterErhoehen()
     {
         alter++;
-        if(alter > MAX_ALTER) {
-            sterben();
+        if(alter > eigenschaften.gibMaxAlter()) {
+            sterben(Todesursache.ALTER);
         }
     }
        
@@ -138,18 +163,19 @@ public class Hase
      * Pr�fe, ob dieser Hase in diesem Schritt geb�ren kann.
      * Neugeborene kommen in freie Nachbarpositionen.
      * @param neueHasen Liste, in die neugeborene Hasen eingetragen werden.
+     * @param nachbarn die durchsuchten Nachbarn dieses Hasen.
+     * @return die Anzahl der Neugeborenen.
      */
-    private void gebaereNachwuchs(List<Hase> neueHasen)
+    private int gebaereNachwuchs(List<Hase> neueHasen, Nachbarscan nachbarn)
     {
         // Neugeborene kommen in freie Nachbarpositionen.
-        // Freie Nachbarpositionen abfragen.
-        List<Position> frei = feld.freieNachbarpositionen(position);
-        int geburten = traechtig();
-        for(int b = 0; b < geburten && frei.size() > 0; b++) {
-            Position pos = frei.remove(0);
+        int geburten = Math.min(traechtig(), nachbarn.gibAnzahlFrei());
+        for(int b = 0; b < geburten; b++) {
+            Position pos = feld.gibPosition(nachbarn.gibFreieZelle(b));
             Hase jung = new Hase(false, feld, pos);
             neueHasen.add(jung);
         }
+        return geburten;
     }
 
     /**
@@ -160,8 +186,9 @@ public class Hase
     private int traechtig()
     {
         int wurfgroesse = 0;
-        if(kannGebaeren() && rand.nextDouble() <= GEBAER_WAHRSCHEINLICHKEIT) {
-            wurfgroesse = rand.nextInt(MAX_WURFGROESSE) + 1;
+        Random rand = feld.gibZufallsgenerator();
+        if(kannGebaeren() && rand.nextDouble() <= eigenschaften.gibGebaerWahrscheinlichkeit()) {
+            wurfgroesse = rand.nextInt(eigenschaften.gibMaxWurfgroesse()) + 1;
         }
         return wurfgroesse;
     }
@@ -171,6 +198,6 @@ public class Hase
      */
     private boolean kannGebaeren()
     {
-        return alter >= GEBAER_ALTER;
+        return alter >= eigenschaften.gibGebaerAlter();
     }
 }
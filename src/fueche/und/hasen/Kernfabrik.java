@@ -0,0 +1,20 @@
+package fueche.und.hasen;
+
+/**
+ * Erzeugt Simulationskerne fuer einzelne Laeufe, etwa in einem
+ * Ensemble oder einer Parameterstudie. Jeder Aufruf muss einen neuen,
+ * von allen anderen unabhaengigen Kern liefern; die Methode wird
+ * aus mehreren Threads gleichzeitig aufgerufen.
+ *
+ * @author Merlin
+ */
+public interface Kernfabrik
+{
+    /**
+     * Erzeuge einen neuen Kern.
+     * @param seed der SEED-Wert des Laufs.
+     * @param parameter die Eigenschaften der Tiere in diesem Lauf.
+     * @return der noch nicht zurueckgesetzte Kern.
+     */
+    Simulationskern erzeugeKern(long seed, Simulationsparameter parameter);
+}
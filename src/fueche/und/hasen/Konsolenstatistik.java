@@ -0,0 +1,46 @@
+package fueche.und.hasen;
+
+import java.io.PrintStream;
+
+/**
+ * Ein Beobachter ohne grafische Oberflaeche, der die Population
+ * des Feldes zeilenweise auf einen Ausgabestrom schreibt.
+ *
+ * @author Merlin
+ */
+public class Konsolenstatistik implements Simulationsbeobachter
+{
+    // Der Strom, auf den geschrieben wird
+    private PrintStream ausgabe;
+    // Ein Statistik-Objekt zur Berechnung der Populationen
+    private FeldStatistik stats;
+
+    /**
+     * Erzeuge einen Beobachter, der auf die Standardausgabe schreibt.
+     */
+    public Konsolenstatistik()
+    {
+        this(System.out);
+    }
+
+    /**
+     * Erzeuge einen Beobachter, der auf den gegebenen Strom schreibt.
+     * @param ausgabe der Ausgabestrom.
+     */
+    public Konsolenstatistik(PrintStream ausgabe)
+    {
+        this.ausgabe = ausgabe;
+        stats = new FeldStatistik();
+    }
+
+    /**
+     * Schreibe den Schritt und die Population des Feldes.
+     * @param schritt welcher Iterationsschritt ist dies.
+     * @param feld die Belegung des Feldes nach dem Schritt.
+     */
+    public void zeigeStatus(int schritt, Feldbelegung feld)
+    {
+        stats.zuruecksetzen();
+        ausgabe.println("Schritt " + schritt + ": " + stats.gibBewohnerInfo(feld));
+    }
+}
@@ -0,0 +1,177 @@
+package fueche.und.hasen;
+
+import java.util.Arrays;
+
+/**
+ * Eine Streutabelle von long-Schluesseln auf Werte, fuer die duennen
+ * Seitenstrukturen eines grossen Feldes (Bloecke der Dichtekarte,
+ * bekannte Zellen der Aufzeichnung). Sie legt keine Objekte je Eintrag
+ * an: Schluessel und Werte stehen in zwei Arrays, offen adressiert mit
+ * linearer Sondierung, und beim Entfernen ruecken nachfolgende Eintraege
+ * nach, so dass keine Grabsteine zurueckbleiben. Schluessel muessen
+ * mindestens 0 sein.
+ *
+ * @param <W> der Typ der Werte.
+ * @author Merlin
+ */
+class Langtabelle<W>
+{
+    // Kleinste Kapazitaet, eine Zweierpotenz
+    private static final int MIN_KAPAZITAET = 16;
+
+    // Die Schluessel + 1 je Platz, 0 fuer einen freien Platz
+    private long[] schluessel;
+    private Object[] werte;
+    private int anzahl;
+
+    /**
+     * Erzeuge eine leere Tabelle.
+     */
+    Langtabelle()
+    {
+        schluessel = new long[MIN_KAPAZITAET];
+        werte = new Object[MIN_KAPAZITAET];
+    }
+
+    /**
+     * @param s ein Schluessel.
+     * @return der Wert zum Schluessel oder null.
+     */
+    @SuppressWarnings("unchecked")
+    W gib(long s)
+    {
+        int maske = schluessel.length - 1;
+        for(int i = streue(s) & maske; schluessel[i] != 0; i = (i + 1) & maske) {
+            if(schluessel[i] == s + 1) {
+                return (W) werte[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Trage einen Wert ein; ein Wert zum selben Schluessel wird ersetzt.
+     * @param s der Schluessel.
+     * @param wert der Wert (nicht null).
+     */
+    void setze(long s, W wert)
+    {
+        int maske = schluessel.length - 1;
+        int i = streue(s) & maske;
+        while(schluessel[i] != 0 && schluessel[i] != s + 1) {
+            i = (i + 1) & maske;
+        }
+        if(schluessel[i] == 0) {
+            schluessel[i] = s + 1;
+            anzahl++;
+        }
+        werte[i] = wert;
+        if(anzahl * 2 > schluessel.length) {
+            verteileNeu(schluessel.length * 2);
+        }
+    }
+
+    /**
+     * Entferne den Eintrag zu einem Schluessel, falls vorhanden.
+     * @param s der Schluessel.
+     */
+    void entferne(long s)
+    {
+        int maske = schluessel.length - 1;
+        int i = streue(s) & maske;
+        while(schluessel[i] != s + 1) {
+            if(schluessel[i] == 0) {
+                return;
+            }
+            i = (i + 1) & maske;
+        }
+        // Nachfolgende Eintraege derselben Kette in die Luecke ziehen
+        for(int j = (i + 1) & maske; schluessel[j] != 0; j = (j + 1) & maske) {
+            int heimat = streue(schluessel[j] - 1) & maske;
+            if(((j - heimat) & maske) >= ((j - i) & maske)) {
+                schluessel[i] = schluessel[j];
+                werte[i] = werte[j];
+                i = j;
+            }
+        }
+        schluessel[i] = 0;
+        werte[i] = null;
+        anzahl--;
+        if(anzahl * 8 < schluessel.length && schluessel.length > MIN_KAPAZITAET) {
+            verteileNeu(schluessel.length / 2);
+        }
+    }
+
+    /**
+     * Entferne alle Eintraege.
+     */
+    void leeren()
+    {
+        if(schluessel.length > MIN_KAPAZITAET) {
+            schluessel = new long[MIN_KAPAZITAET];
+            werte = new Object[MIN_KAPAZITAET];
+        }
+        else {
+            Arrays.fill(schluessel, 0);
+            Arrays.fill(werte, null);
+        }
+        anzahl = 0;
+    }
+
+    /**
+     * @return die Anzahl der Eintraege.
+     */
+    int gibAnzahl()
+    {
+        return anzahl;
+    }
+
+    /**
+     * @return alle Schluessel in keiner bestimmten Reihenfolge, als
+     *         neues Array.
+     */
+    long[] gibSchluessel()
+    {
+        long[] alle = new long[anzahl];
+        int n = 0;
+        for(int i = 0; i < schluessel.length; i++) {
+            if(schluessel[i] != 0) {
+                alle[n++] = schluessel[i] - 1;
+            }
+        }
+        return alle;
+    }
+
+    /**
+     * Trage alle Eintraege in Arrays der neuen Kapazitaet ein.
+     */
+    private void verteileNeu(int kapazitaet)
+    {
+        long[] alteSchluessel = schluessel;
+        Object[] alteWerte = werte;
+        schluessel = new long[kapazitaet];
+        werte = new Object[kapazitaet];
+        int maske = kapazitaet - 1;
+        for(int j = 0; j < alteSchluessel.length; j++) {
+            if(alteSchluessel[j] != 0) {
+                int i = streue(alteSchluessel[j] - 1) & maske;
+                while(schluessel[i] != 0) {
+                    i = (i + 1) & maske;
+                }
+                schluessel[i] = alteSchluessel[j];
+                werte[i] = alteWerte[j];
+            }
+        }
+    }
+
+    /**
+     * Verteile einen Schluessel gleichmaessig (Fibonacci-Hashing), damit
+     * auch Zeilen- und Spaltennummern in den oberen Bits nicht gehaeuft
+     * auf dieselben Plaetze fallen.
+     */
+    static int streue(long s)
+    {
+        long h = s * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) ^ (int) h;
+    }
+}
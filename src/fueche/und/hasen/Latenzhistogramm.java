@@ -0,0 +1,138 @@
+package fueche.und.hasen;
+
+import java.util.Arrays;
+
+/**
+ * Ein Histogramm fuer Dauern in Nanosekunden mit logarithmischen
+ * Klassen: Jede Zweierpotenz ist in acht gleich breite Klassen
+ * geteilt, Quantile sind daher auf etwa 6% genau. Das Histogramm hat
+ * eine feste Groesse, Erfassen legt nichts an.
+ *
+ * Alle Methoden sind synchronisiert, damit ein anderer Thread (etwa
+ * JMX) lesen kann, waehrend die Simulation erfasst.
+ *
+ * @author Merlin
+ */
+public class Latenzhistogramm
+{
+    // Zweierlogarithmus der Klassen je Zweierpotenz
+    private static final int UNTERTEILUNG_BITS = 3;
+    private static final int UNTERTEILUNG = 1 << UNTERTEILUNG_BITS;
+
+    private final long[] klassen;
+    private long anzahl;
+    private long summe;
+    private long maximum;
+
+    /**
+     * Erzeuge ein leeres Histogramm.
+     */
+    public Latenzhistogramm()
+    {
+        klassen = new long[(64 - UNTERTEILUNG_BITS + 1) * UNTERTEILUNG];
+    }
+
+    /**
+     * Erfasse eine Dauer.
+     * @param nanos die Dauer in Nanosekunden; negative zaehlen als 0.
+     */
+    public synchronized void erfasse(long nanos)
+    {
+        long wert = Math.max(nanos, 0);
+        klassen[klasse(wert)]++;
+        anzahl++;
+        summe += wert;
+        maximum = Math.max(maximum, wert);
+    }
+
+    /**
+     * @return die Anzahl der erfassten Dauern.
+     */
+    public synchronized long gibAnzahl()
+    {
+        return anzahl;
+    }
+
+    /**
+     * @return die Summe aller erfassten Dauern in Nanosekunden.
+     */
+    public synchronized long gibSumme()
+    {
+        return summe;
+    }
+
+    /**
+     * @return die mittlere Dauer in Nanosekunden oder 0.
+     */
+    public synchronized long gibMittel()
+    {
+        return anzahl == 0 ? 0 : summe / anzahl;
+    }
+
+    /**
+     * @return die laengste erfasste Dauer in Nanosekunden.
+     */
+    public synchronized long gibMaximum()
+    {
+        return maximum;
+    }
+
+    /**
+     * Schaetze ein Quantil aus den Klassen.
+     * @param p die Wahrscheinlichkeit (zwischen 0 und 1).
+     * @return die Mitte der Klasse, in die das Quantil faellt, hoechstens
+     *         das Maximum; 0 wenn nichts erfasst wurde.
+     */
+    public synchronized long gibQuantil(double p)
+    {
+        if(anzahl == 0) {
+            return 0;
+        }
+        long rang = Math.max(1, (long) Math.ceil(p * anzahl));
+        long bisher = 0;
+        for(int i = 0; i < klassen.length; i++) {
+            bisher += klassen[i];
+            if(bisher >= rang) {
+                return Math.min(maximum, (untergrenze(i) + untergrenze(i + 1)) / 2);
+            }
+        }
+        return maximum;
+    }
+
+    /**
+     * Vergiss alle erfassten Dauern.
+     */
+    public synchronized void leeren()
+    {
+        Arrays.fill(klassen, 0);
+        anzahl = 0;
+        summe = 0;
+        maximum = 0;
+    }
+
+    /**
+     * @return die Klasse eines nicht negativen Wertes.
+     */
+    private static int klasse(long wert)
+    {
+        if(wert < UNTERTEILUNG) {
+            return (int) wert;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(wert);
+        int unterklasse = (int) (wert >>> (exponent - UNTERTEILUNG_BITS)) & (UNTERTEILUNG - 1);
+        return (exponent - UNTERTEILUNG_BITS + 1) * UNTERTEILUNG + unterklasse;
+    }
+
+    /**
+     * @return der kleinste Wert einer Klasse.
+     */
+    private static long untergrenze(int klasse)
+    {
+        if(klasse < UNTERTEILUNG) {
+            return klasse;
+        }
+        int exponent = klasse / UNTERTEILUNG + UNTERTEILUNG_BITS - 1;
+        long unterklasse = klasse % UNTERTEILUNG;
+        return (1L << exponent) + (unterklasse << (exponent - UNTERTEILUNG_BITS));
+    }
+}
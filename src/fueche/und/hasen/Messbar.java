@@ -0,0 +1,17 @@
+package fueche.und.hasen;
+
+/**
+ * Ein Simulationskern, der die Phasen seiner Schritte einzeln an eine
+ * Schrittmessung melden kann (Hasen, Fuechse, Aufraeumen). Der
+ * Simulator reicht seine Messung an solche Kerne weiter.
+ *
+ * @author Merlin
+ */
+public interface Messbar
+{
+    /**
+     * Melde die Phasen ab sofort an die gegebene Messung.
+     * @param messung die Messung oder null fuer keine.
+     */
+    void setzeMessung(Schrittmessung messung);
+}
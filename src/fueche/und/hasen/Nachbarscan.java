@@ -0,0 +1,97 @@
+package fueche.und.hasen;
+
+/**
+ * Das Ergebnis einer einzigen Durchsuchung der Nachbarzellen:
+ * die freien Nachbarn in zufaelliger Reihenfolge und der erste
+ * Nachbar (in derselben Reihenfolge) mit einem Tier der gesuchten
+ * Beuteart. Ein solches Objekt wird nur einmal angelegt und bei
+ * jeder Abfrage neu gefuellt; der Inhalt gilt daher nur bis zur
+ * naechsten Abfrage mit demselben Objekt.
+ *
+ * Die Zellennummern (zeile * breite + spalte) sind longs, damit auch
+ * Felder mit mehr als Integer.MAX_VALUE Zellen durchsucht werden
+ * koennen; die dichten Kerne, deren Felder kleiner sind, wandeln sie
+ * zurueck in ints.
+ *
+ * @author Merlin
+ */
+public class Nachbarscan
+{
+    // Arbeitspuffer fuer die gemischten Nachbarzellen
+    final int[] nachbarn;
+    // Die freien Nachbarzellen in zufaelliger Reihenfolge
+    private final long[] frei;
+    private int anzahlFrei;
+    // Die erste Zelle mit Beute oder -1
+    private long beute;
+
+    /**
+     * Erzeuge ein leeres Ergebnis.
+     */
+    public Nachbarscan()
+    {
+        nachbarn = new int[Nachbarschaft.ANZAHL];
+        frei = new long[Nachbarschaft.ANZAHL];
+        beute = -1;
+    }
+
+    /**
+     * Beginne eine neue Durchsuchung.
+     */
+    void leeren()
+    {
+        anzahlFrei = 0;
+        beute = -1;
+    }
+
+    /**
+     * Vermerke eine freie Zelle.
+     */
+    void fuegeFreieHinzu(long zelle)
+    {
+        frei[anzahlFrei++] = zelle;
+    }
+
+    /**
+     * Vermerke eine Zelle mit Beute, falls noch keine gefunden wurde.
+     */
+    void fuegeBeuteHinzu(long zelle)
+    {
+        if(beute < 0) {
+            beute = zelle;
+        }
+    }
+
+    /**
+     * @return die Anzahl der freien Nachbarzellen.
+     */
+    public int gibAnzahlFrei()
+    {
+        return anzahlFrei;
+    }
+
+    /**
+     * @param i der Rang in der zufaelligen Reihenfolge (0 ist der erste).
+     * @return die Nummer der i-ten freien Nachbarzelle.
+     */
+    public long gibFreieZelle(int i)
+    {
+        return frei[i];
+    }
+
+    /**
+     * @return true wenn ein Nachbar Beute enthaelt.
+     */
+    public boolean hatBeute()
+    {
+        return beute >= 0;
+    }
+
+    /**
+     * @return die Nummer der ersten Zelle mit Beute oder -1.
+     */
+    public long gibBeuteZelle()
+    {
+        return beute;
+    }
+}
@@ -0,0 +1,135 @@
+package fueche.und.hasen;
+
+import java.util.Random;
+
+/**
+ * Die Moore-Nachbarschaft einer Zelle als vorberechnete Tabellen.
+ * Die Reihenfolge der Nachbarn (zeilenweise von links oben nach
+ * rechts unten) und das Mischen entsprechen der urspruenglichen
+ * Implementierung mit Collections.shuffle, so dass die Zufallsfolge
+ * unveraendert bleibt.
+ *
+ * @author Merlin
+ */
+public class Nachbarschaft
+{
+    // Die Anzahl der Nachbarn einer inneren Zelle
+    public static final int ANZAHL = 8;
+    // Zeilen- und Spaltenversatz der Nachbarn in Aufzaehlungsreihenfolge
+    static final int[] ZEILEN_VERSATZ = { -1, -1, -1,  0, 0,  1, 1, 1 };
+    static final int[] SPALTEN_VERSATZ = { -1,  0,  1, -1, 1, -1, 0, 1 };
+
+    // Die Tiefe und Breite des Feldes
+    private final int tiefe, breite;
+    // Versatz der Zellennummern der Nachbarn fuer diese Breite
+    private final int[] zellenVersatz;
+
+    /**
+     * Berechne die Tabellen fuer ein Feld der gegebenen Groesse.
+     * @param tiefe die Tiefe des Feldes.
+     * @param breite die Breite des Feldes.
+     */
+    public Nachbarschaft(int tiefe, int breite)
+    {
+        this.tiefe = tiefe;
+        this.breite = breite;
+        zellenVersatz = new int[ANZAHL];
+        for(int k = 0; k < ANZAHL; k++) {
+            zellenVersatz[k] = ZEILEN_VERSATZ[k] * breite + SPALTEN_VERSATZ[k];
+        }
+    }
+
+    /**
+     * Schreibe die Nachbarzellen der gegebenen Zelle in gemischter
+     * Reihenfolge in das Ziel. Es wird nichts angelegt.
+     * @param zeile die Zeile der Zelle.
+     * @param spalte die Spalte der Zelle.
+     * @param ziel ein Array mit Platz fuer mindestens ANZAHL Zellen.
+     * @param rand der Zufallsgenerator zum Mischen.
+     * @return die Anzahl der Nachbarzellen im Ziel.
+     */
+    public int nachbarzellen(int zeile, int spalte, int[] ziel, Random rand)
+    {
+        int zelle = zeile * breite + spalte;
+        int anzahl = 0;
+        if(zeile > 0 && zeile < tiefe - 1 && spalte > 0 && spalte < breite - 1) {
+            // Innere Zelle: alle Nachbarn gueltig.
+            for(int k = 0; k < ANZAHL; k++) {
+                ziel[k] = zelle + zellenVersatz[k];
+            }
+            anzahl = ANZAHL;
+        }
+        else {
+            // Randzelle: Nachbarn ausserhalb des Feldes auslassen.
+            for(int k = 0; k < ANZAHL; k++) {
+                int z = zeile + ZEILEN_VERSATZ[k];
+                int s = spalte + SPALTEN_VERSATZ[k];
+                if(z >= 0 && z < tiefe && s >= 0 && s < breite) {
+                    ziel[anzahl++] = zelle + zellenVersatz[k];
+                }
+            }
+        }
+        mische(ziel, anzahl, rand);
+        return anzahl;
+    }
+
+    /**
+     * Schreibe die Richtungen (Indizes 0 bis ANZAHL - 1 in
+     * Aufzaehlungsreihenfolge) der gueltigen Nachbarn in gemischter
+     * Reihenfolge in das Ziel. Es werden genau dieselben Zufallszahlen
+     * gezogen wie bei nachbarzellen, und zelle + gibZellenVersatz(k)
+     * ergibt dieselbe Folge von Zellen.
+     * @param zeile die Zeile der Zelle.
+     * @param spalte die Spalte der Zelle.
+     * @param ziel ein Array mit Platz fuer mindestens ANZAHL Werte.
+     * @param rand der Zufallsgenerator zum Mischen.
+     * @return die Anzahl der Richtungen im Ziel.
+     */
+    public int richtungen(int zeile, int spalte, int[] ziel, Random rand)
+    {
+        int anzahl = 0;
+        if(zeile > 0 && zeile < tiefe - 1 && spalte > 0 && spalte < breite - 1) {
+            for(int k = 0; k < ANZAHL; k++) {
+                ziel[k] = k;
+            }
+            anzahl = ANZAHL;
+        }
+        else {
+            for(int k = 0; k < ANZAHL; k++) {
+                int z = zeile + ZEILEN_VERSATZ[k];
+                int s = spalte + SPALTEN_VERSATZ[k];
+                if(z >= 0 && z < tiefe && s >= 0 && s < breite) {
+                    ziel[anzahl++] = k;
+                }
+            }
+        }
+        mische(ziel, anzahl, rand);
+        return anzahl;
+    }
+
+    /**
+     * @param k eine Richtung (0 bis ANZAHL - 1).
+     * @return der Versatz der Zellennummer des Nachbarn in dieser Richtung.
+     */
+    public int gibZellenVersatz(int k)
+    {
+        return zellenVersatz[k];
+    }
+
+    /**
+     * Mische die ersten anzahl Werte an Ort und Stelle, mit genau
+     * denselben Zufallszahlen wie Collections.shuffle.
+     * @param werte die zu mischenden Werte.
+     * @param anzahl wie viele Werte gemischt werden.
+     * @param rand der Zufallsgenerator.
+     */
+    public static void mische(int[] werte, int anzahl, Random rand)
+    {
+        for(int i = anzahl; i > 1; i--) {
+            int j = rand.nextInt(i);
+            int tmp = werte[i - 1];
+            werte[i - 1] = werte[j];
+            werte[j] = tmp;
+        }
+    }
+}
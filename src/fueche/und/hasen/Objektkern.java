@@ -0,0 +1,288 @@
+package fueche.und.hasen;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Der klassische Simulationskern: Jeder Hase und jeder Fuchs ist
+ * ein eigenes Objekt, das Feld speichert Referenzen auf diese
+ * Objekte.
+ *
+ * @author David J. Barnes und Michael Kolling
+ * @version 2008.03.30
+ */
+public class Objektkern implements Simulationskern, Messbar
+{
+    // Listen der Tiere im Feld. Getrennte Listen vereinfachen das Iterieren.
+    // Nach jedem Schritt enthalten sie nur lebende Tiere: die
+    // Ueberlebenden in ihrer bisherigen Reihenfolge, dahinter die
+    // Neugeborenen in der Reihenfolge ihrer Geburt.
+    private List<Hase> hasen;
+    private List<Fuchs> fuechse;
+    // Die Neugeborenen eines Schrittes; werden wiederverwendet
+    private List<Hase> neueHasen;
+    private List<Fuchs> neueFuechse;
+    // Der aktuelle Zustand des Feldes
+    private Feld feld;
+    // Der Zufallsstrom des Feldes und seiner Tiere
+    private final Zufallsstrom rand;
+    // Die Messung der Phasen eines Schrittes, oder null
+    private Schrittmessung messung;
+
+    /**
+     * Erzeuge einen Kern mit einem leeren Feld der gegebenen Groesse
+     * und dem vorgegebenen SEED-Wert der Zufallssteuerung.
+     * @param tiefe die Tiefe des Feldes.
+     * @param breite die Breite des Feldes.
+     */
+    public Objektkern(int tiefe, int breite)
+    {
+        this(tiefe, breite, Zufallssteuerung.gibSeed());
+    }
+
+    /**
+     * Erzeuge einen Kern mit einem leeren Feld der gegebenen Groesse
+     * und einem eigenen Zufallsstrom.
+     * @param tiefe die Tiefe des Feldes.
+     * @param breite die Breite des Feldes.
+     * @param seed der SEED-Wert dieser Simulation.
+     */
+    public Objektkern(int tiefe, int breite, long seed)
+    {
+        this(tiefe, breite, seed, Simulationsparameter.STANDARD);
+    }
+
+    /**
+     * Erzeuge einen Kern mit einem leeren Feld, einem eigenen
+     * Zufallsstrom und eigenen Parametern.
+     * @param tiefe die Tiefe des Feldes.
+     * @param breite die Breite des Feldes.
+     * @param seed der SEED-Wert dieser Simulation.
+     * @param parameter die Eigenschaften der Tiere.
+     */
+    public Objektkern(int tiefe, int breite, long seed, Simulationsparameter parameter)
+    {
+        hasen = new ArrayList<Hase>();
+        fuechse = new ArrayList<Fuchs>();
+        neueHasen = new ArrayList<Hase>();
+        neueFuechse = new ArrayList<Fuchs>();
+        rand = new Zufallsstrom(seed);
+        feld = new Feld(tiefe, breite, rand, parameter);
+    }
+
+    /**
+     * Fuehre einen einzelnen Simulationsschritt aus:
+     * Durchlaufe alle Feldpositionen und aktualisiere den
+     * Zustand jedes Fuchses und Hasen.
+     */
+    public void simuliereEinenSchritt()
+    {
+        neueHasen.clear();
+        neueFuechse.clear();
+        long zeit = messung != null ? System.nanoTime() : 0;
+        // Alle Hasen agieren lassen. Tote Hasen bleiben vorerst in der
+        // Liste, da Fuechse noch weitere Hasen fressen koennen.
+        for(int i = 0; i < hasen.size(); i++) {
+            hasen.get(i).laufe(neueHasen);
+        }
+        if(messung != null) {
+            zeit = messung.erfasse(Schrittmessung.Phase.HASEN, zeit);
+        }
+
+        // Alle Fuechse agieren lassen und die Ueberlebenden dabei
+        // nach vorn ruecken.
+        int lebend = 0;
+        for(int i = 0; i < fuechse.size(); i++) {
+            Fuchs fuchs = fuechse.get(i);
+            fuchs.jage(neueFuechse);
+            if(fuchs.istLebendig()) {
+                fuechse.set(lebend++, fuchs);
+            }
+        }
+        kuerze(fuechse, lebend);
+        if(messung != null) {
+            zeit = messung.erfasse(Schrittmessung.Phase.FUECHSE, zeit);
+        }
+
+        // Gestorbene und gefressene Hasen in einem Durchgang entfernen.
+        lebend = 0;
+        for(int i = 0; i < hasen.size(); i++) {
+            Hase hase = hasen.get(i);
+            if(hase.istLebendig()) {
+                hasen.set(lebend++, hase);
+            }
+        }
+        kuerze(hasen, lebend);
+
+        // Neu geborene Fuechse und Hasen in die Hauptlisten einfuegen,
+        // ausser Hasen, die schon gefressen wurden.
+        for(int i = 0; i < neueHasen.size(); i++) {
+            Hase hase = neueHasen.get(i);
+            if(hase.istLebendig()) {
+                hasen.add(hase);
+            }
+        }
+        fuechse.addAll(neueFuechse);
+        feld.zaehleGeburten(Tierart.HASE, neueHasen.size());
+        feld.zaehleGeburten(Tierart.FUCHS, neueFuechse.size());
+        // Bereiche freigeben, die in diesem Schritt leer geworden sind.
+        feld.gibLeereBereicheFrei();
+        if(messung != null) {
+            messung.erfasse(Schrittmessung.Phase.AUFRAEUMEN, zeit);
+        }
+    }
+
+    /**
+     * Melde die Phasen der Schritte an eine Messung (siehe Messbar).
+     * @param neueMessung die Messung oder null fuer keine.
+     */
+    public void setzeMessung(Schrittmessung neueMessung)
+    {
+        messung = neueMessung;
+    }
+
+    /**
+     * Entferne die Eintraege ab der gegebenen Laenge vom Ende einer
+     * Liste. Bei einer ArrayList wird dabei nichts verschoben.
+     * @param liste die zu kuerzende Liste.
+     * @param laenge die neue Laenge.
+     */
+    private static void kuerze(List<?> liste, int laenge)
+    {
+        liste.subList(laenge, liste.size()).clear();
+    }
+
+    /**
+     * Setze den Kern an den Anfang zurueck.
+     */
+    public void zuruecksetzen()
+    {
+        hasen.clear();
+        fuechse.clear();
+        bevoelkere();
+        feld.beginneBilanz();
+    }
+
+    /**
+     * Entscheide, ob die Simulation weiterlaufen soll.
+     * @return true wenn noch Fuechse und Hasen leben.
+     */
+    public boolean istAktiv()
+    {
+        return feld.gibAnzahl(Tierart.HASE) > 0 && feld.gibAnzahl(Tierart.FUCHS) > 0;
+    }
+
+    /**
+     * Der Kern haelt weder Threads noch Dateien; nichts zu tun.
+     */
+    public void schliesse()
+    {
+    }
+
+    /**
+     * @return das Feld dieses Kerns.
+     */
+    public Feldbelegung gibBelegung()
+    {
+        return feld;
+    }
+
+    /**
+     * @return das Feld dieses Kerns.
+     */
+    public Feld gibFeld()
+    {
+        return feld;
+    }
+
+    /**
+     * Schreibe den Zustand dieses Kerns in eine Sicherung (siehe
+     * Sicherungspunkt). Die Tiere werden in Listenfolge geschrieben.
+     * @param aus die Sicherung.
+     */
+    void sichere(Sicherungsschreiber aus) throws IOException
+    {
+        int breite = feld.gibBreite();
+        aus.schreibeInt(feld.gibTiefe());
+        aus.schreibeInt(breite);
+        Sicherungspunkt.schreibeParameter(aus, feld.gibParameter());
+        rand.sichere(aus);
+        aus.schreibeInt(hasen.size());
+        for(Hase hase : hasen) {
+            Position position = hase.gibPosition();
+            aus.schreibeLong((long) position.gibZeile() * breite + position.gibSpalte());
+            aus.schreibeInt(hase.gibAlter());
+        }
+        aus.schreibeInt(fuechse.size());
+        for(Fuchs fuchs : fuechse) {
+            Position position = fuchs.gibPosition();
+            aus.schreibeLong((long) position.gibZeile() * breite + position.gibSpalte());
+            aus.schreibeInt(fuchs.gibAlter());
+            aus.schreibeInt(fuchs.gibFutterLevel());
+        }
+    }
+
+    /**
+     * Erzeuge einen Kern aus einer Sicherung (siehe sichere).
+     * @param ein die Sicherung.
+     * @return der Kern im gesicherten Zustand.
+     */
+    static Objektkern lade(Sicherungsleser ein) throws IOException
+    {
+        int tiefe = ein.liesInt();
+        int breite = ein.liesInt();
+        Objektkern kern = new Objektkern(tiefe, breite, 0, Sicherungspunkt.liesParameter(ein));
+        kern.rand.lade(ein);
+        Feld feld = kern.feld;
+        int anzahl = ein.liesInt();
+        for(int i = 0; i < anzahl; i++) {
+            Hase hase = new Hase(false, feld, feld.gibPosition(liesZelle(ein)));
+            hase.setzeZustand(ein.liesInt());
+            kern.hasen.add(hase);
+        }
+        anzahl = ein.liesInt();
+        for(int i = 0; i < anzahl; i++) {
+            Fuchs fuchs = new Fuchs(false, feld, feld.gibPosition(liesZelle(ein)));
+            fuchs.setzeZustand(ein.liesInt(), ein.liesInt());
+            kern.fuechse.add(fuchs);
+        }
+        feld.beginneBilanz();
+        return kern;
+    }
+
+    /**
+     * Lies die Zelle eines Tieres; bis Version 2 der Sicherung war sie
+     * ein int, seither ein long.
+     */
+    private static long liesZelle(Sicherungsleser ein) throws IOException
+    {
+        return ein.gibVersion() >= 3 ? ein.liesLong() : ein.liesInt();
+    }
+
+    /**
+     * Bevoelkere das Feld mit Fuechsen und Hasen.
+     */
+    private void bevoelkere()
+    {
+        Simulationsparameter parameter = feld.gibParameter();
+        double fuchsdichte = parameter.gibFuchs().gibAnfangsdichte();
+        double hasendichte = parameter.gibHase().gibAnfangsdichte();
+        feld.raeumen();
+        for(int zeile = 0; zeile < feld.gibTiefe(); zeile++) {
+            for(int spalte = 0; spalte < feld.gibBreite(); spalte++) {
+                if(rand.nextDouble() <= fuchsdichte) {
+                    Position position = feld.gibPosition(zeile, spalte);
+                    Fuchs fuchs = new Fuchs(true, feld, position);
+                    fuechse.add(fuchs);
+                }
+                else if(rand.nextDouble() <= hasendichte) {
+                    Position position = feld.gibPosition(zeile, spalte);
+                    Hase hase = new Hase(true, feld, position);
+                    hasen.add(hase);
+                }
+                // ansonsten die Position leer lassen
+            }
+        }
+    }
+}
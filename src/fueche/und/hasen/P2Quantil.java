@@ -0,0 +1,200 @@
+package fueche.und.hasen;
+
+import java.util.Arrays;
+
+/**
+ * Schaetzt ein Quantil fuer viele Zahlenreihen gleichzeitig, ohne alle
+ * Werte zu speichern (P2-Verfahren von Jain und Chlamtac). Je Reihe
+ * werden nur fuenf Markierungen gehalten; alle Reihen liegen in
+ * gemeinsamen Feldern, so dass etwa fuer jeden Simulationsschritt
+ * eine eigene Reihe gefuehrt werden kann.
+ *
+ * Das Verfahren braucht viele Werte, bis die mittlere Markierung beim
+ * gesuchten Quantil angekommen ist; sie beginnt beim Median der ersten
+ * Werte. Bis EXAKT_BIS Werte bewahrt jede Reihe ihre Werte daher
+ * sortiert auf und liefert das exakte Quantil (linear zwischen den
+ * benachbarten Werten interpoliert). Mit dem naechsten Wert werden die
+ * Markierungen aus den sortierten Werten gesetzt, die Werte verworfen,
+ * und die Reihe wird mit P2 weitergefuehrt.
+ *
+ * @author Merlin
+ */
+public class P2Quantil
+{
+    // Die Anzahl der Markierungen je Reihe
+    private static final int M = 5;
+    // Bis zu so vielen Werten wird das Quantil exakt bestimmt
+    static final int EXAKT_BIS = 100;
+
+    // Das gesuchte Quantil (zwischen 0 und 1)
+    private final double p;
+    // Der Zuwachs der Sollpositionen je Wert
+    private final double[] zuwachs;
+    // Je Reihe fuenf Markierungen: Hoehe, Position und Sollposition
+    private final double[] hoehe;
+    private final int[] position;
+    private final double[] soll;
+    // Die Anzahl der Werte je Reihe
+    private final int[] anzahl;
+    // Je Reihe die bisherigen Werte sortiert, solange es hoechstens
+    // EXAKT_BIS sind, danach null
+    private final double[][] werte;
+
+    /**
+     * Erzeuge Schaetzer fuer die gegebene Anzahl von Reihen.
+     * @param p das gesuchte Quantil, etwa 0.5 fuer den Median.
+     * @param reihen die Anzahl der Reihen.
+     */
+    public P2Quantil(double p, int reihen)
+    {
+        if(p <= 0 || p >= 1) {
+            throw new IllegalArgumentException("Quantil muss zwischen 0 und 1 liegen: " + p);
+        }
+        this.p = p;
+        zuwachs = new double[] { 0, p / 2, p, (1 + p) / 2, 1 };
+        hoehe = new double[reihen * M];
+        position = new int[reihen * M];
+        soll = new double[reihen * M];
+        anzahl = new int[reihen];
+        werte = new double[reihen][];
+    }
+
+    /**
+     * @return das geschaetzte Quantil (zwischen 0 und 1).
+     */
+    public double gibP()
+    {
+        return p;
+    }
+
+    /**
+     * Nimm einen Wert in eine Reihe auf.
+     * @param reihe die Nummer der Reihe.
+     * @param x der Wert.
+     */
+    public void fuegeHinzu(int reihe, double x)
+    {
+        int b = reihe * M;
+        int n = anzahl[reihe]++;
+        if(n < EXAKT_BIS) {
+            // Die Werte sortiert einfuegen.
+            double[] w = werte[reihe];
+            if(w == null || w.length == n) {
+                w = Arrays.copyOf(w == null ? new double[0] : w,
+                                  Math.min(EXAKT_BIS, Math.max(M, 2 * n)));
+                werte[reihe] = w;
+            }
+            int i = n;
+            while(i > 0 && w[i - 1] > x) {
+                w[i] = w[i - 1];
+                i--;
+            }
+            w[i] = x;
+            return;
+        }
+        if(n == EXAKT_BIS) {
+            setzeMarkierungen(b, werte[reihe]);
+            werte[reihe] = null;
+        }
+
+        // Die Zelle k mit hoehe[k] <= x < hoehe[k + 1] bestimmen.
+        int k;
+        if(x < hoehe[b]) {
+            hoehe[b] = x;
+            k = 0;
+        }
+        else if(x >= hoehe[b + M - 1]) {
+            hoehe[b + M - 1] = x;
+            k = M - 2;
+        }
+        else {
+            k = 0;
+            while(x >= hoehe[b + k + 1]) {
+                k++;
+            }
+        }
+        for(int i = k + 1; i < M; i++) {
+            position[b + i]++;
+        }
+        for(int i = 0; i < M; i++) {
+            soll[b + i] += zuwachs[i];
+        }
+
+        // Die mittleren Markierungen bei Bedarf um eins verschieben.
+        for(int i = 1; i < M - 1; i++) {
+            int j = b + i;
+            double d = soll[j] - position[j];
+            if((d >= 1 && position[j + 1] - position[j] > 1)
+               || (d <= -1 && position[j - 1] - position[j] < -1)) {
+                int s = d > 0 ? 1 : -1;
+                double neu = parabolisch(j, s);
+                if(hoehe[j - 1] < neu && neu < hoehe[j + 1]) {
+                    hoehe[j] = neu;
+                }
+                else {
+                    hoehe[j] += s * (hoehe[j + s] - hoehe[j]) / (position[j + s] - position[j]);
+                }
+                position[j] += s;
+            }
+        }
+    }
+
+    /**
+     * Liefere die Schaetzung fuer eine Reihe; bis EXAKT_BIS Werte ist
+     * sie das exakte Quantil.
+     * @param reihe die Nummer der Reihe.
+     * @return das geschaetzte Quantil oder NaN, wenn die Reihe leer ist.
+     */
+    public double gibSchaetzung(int reihe)
+    {
+        int n = anzahl[reihe];
+        int b = reihe * M;
+        if(n == 0) {
+            return Double.NaN;
+        }
+        if(n <= EXAKT_BIS) {
+            double[] w = werte[reihe];
+            double h = p * (n - 1);
+            int unten = (int) h;
+            if(unten + 1 >= n) {
+                return w[n - 1];
+            }
+            return w[unten] + (h - unten) * (w[unten + 1] - w[unten]);
+        }
+        return hoehe[b + 2];
+    }
+
+    /**
+     * Setze die Markierungen einer Reihe aus ihren sortierten Werten:
+     * jede an die ganzzahlige Position, die ihrer Sollposition am
+     * naechsten liegt, mit der Hoehe des Wertes dort.
+     */
+    private void setzeMarkierungen(int b, double[] sortiert)
+    {
+        int n = sortiert.length;
+        for(int i = 0; i < M; i++) {
+            soll[b + i] = 1 + (n - 1) * zuwachs[i];
+            int pos = (int) Math.round(soll[b + i]);
+            // Die Positionen muessen streng steigen und Platz fuer die
+            // folgenden Markierungen lassen.
+            pos = Math.min(pos, n - (M - 1 - i));
+            if(i > 0) {
+                pos = Math.max(pos, position[b + i - 1] + 1);
+            }
+            position[b + i] = pos;
+            hoehe[b + i] = sortiert[pos - 1];
+        }
+    }
+
+    /**
+     * Die parabolische Vorhersage fuer eine verschobene Markierung.
+     */
+    private double parabolisch(int j, int s)
+    {
+        double links = position[j] - position[j - 1];
+        double rechts = position[j + 1] - position[j];
+        return hoehe[j] + s / (double) (position[j + 1] - position[j - 1])
+               * ((links + s) * (hoehe[j + 1] - hoehe[j]) / rechts
+                  + (rechts - s) * (hoehe[j] - hoehe[j - 1]) / links);
+    }
+}
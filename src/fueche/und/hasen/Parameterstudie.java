@@ -0,0 +1,384 @@
+package fueche.und.hasen;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tastet den Parameterraum der Simulation ab: Fuer jeden Punkt eines
+ * Gitters oder eines lateinischen Hyperwuerfels werden einige
+ * unabhaengige Laeufe auf allen Prozessorkernen gerechnet.
+ *
+ * Ein Lauf endet, sobald eine Art ausgestorben ist, und auf Wunsch
+ * auch, sobald die Population stationaer ist oder sich die Belegung
+ * wiederholt (siehe setzeStillstandserkennung). Von jedem Lauf
+ * wird nur eine kurze Zusammenfassung behalten und als CSV-Zeile
+ * geschrieben, in der Reihenfolge der Laeufe und unabhaengig von der
+ * Anzahl der Threads. Die Wiederholung w eines jeden Punktes benutzt
+ * denselben SEED-Wert; Unterschiede zwischen Punkten stammen so von
+ * den Parametern und nicht vom Zufall.
+ *
+ * @author Merlin
+ */
+public class Parameterstudie
+{
+    private final Kernfabrik fabrik;
+    private final Simulationsparameter basis;
+    private final int schritte;
+    private final int threads;
+    // Die Achsen des Parameterraums
+    private final List<Achse> achsen;
+    private int wiederholungen;
+    // Fenster und Toleranz der Stillstandserkennung; Fenster 0 fuer keine
+    private int stillstandFenster;
+    private double stillstandToleranz;
+
+    /**
+     * Erzeuge eine Studie ohne Achsen.
+     * @param fabrik erzeugt fuer jeden Lauf einen neuen Kern.
+     * @param basis die Parameter, von denen die Achsen abweichen.
+     * @param schritte die hoechste Anzahl von Schritten je Lauf.
+     * @param threads die Anzahl der gleichzeitig rechnenden Threads.
+     */
+    public Parameterstudie(Kernfabrik fabrik, Simulationsparameter basis, int schritte, int threads)
+    {
+        if(schritte < 0 || threads < 1) {
+            throw new IllegalArgumentException("Ungueltige Studie: " + schritte + " Schritte, "
+                                               + threads + " Threads");
+        }
+        this.fabrik = fabrik;
+        this.basis = basis;
+        this.schritte = schritte;
+        this.threads = threads;
+        achsen = new ArrayList<Achse>();
+        wiederholungen = 1;
+    }
+
+    /**
+     * Fuege eine Achse hinzu.
+     * @param name der Name des Parameters, etwa "hase.maxAlter".
+     * @param von der kleinste Wert.
+     * @param bis der groesste Wert.
+     * @param stufen die Anzahl der Gitterwerte (mindestens 1; im
+     *               Hyperwuerfel ohne Bedeutung).
+     * @throws IllegalArgumentException bei unbekannten Namen oder
+     *         ungueltigen Werten.
+     */
+    public void fuegeAchseHinzu(String name, double von, double bis, int stufen)
+    {
+        if(stufen < 1) {
+            throw new IllegalArgumentException("Mindestens eine Stufe erforderlich: " + name);
+        }
+        // Unbekannte Namen und unzulaessige Werte sofort melden.
+        basis.mit(name, von);
+        basis.mit(name, bis);
+        achsen.add(new Achse(name, von, bis, stufen));
+    }
+
+    /**
+     * @param wiederholungen die Anzahl der Laeufe je Punkt (mindestens 1).
+     */
+    public void setzeWiederholungen(int wiederholungen)
+    {
+        if(wiederholungen < 1) {
+            throw new IllegalArgumentException("Mindestens eine Wiederholung erforderlich: "
+                                               + wiederholungen);
+        }
+        this.wiederholungen = wiederholungen;
+    }
+
+    /**
+     * Beende jeden Lauf vorzeitig, sobald eine Stillstandserkennung
+     * mit den gegebenen Werten anschlaegt. Die Tabelle erhaelt dann
+     * die Spalte stillstand mit dem Schritt der Erkennung (oder -1);
+     * die Mittelwerte beziehen sich auf die gerechneten Schritte.
+     * @param fenster die Fensterlaenge oder 0 fuer keine Erkennung.
+     * @param toleranz die erlaubte relative Abweichung zweier Fenster.
+     */
+    public void setzeStillstandserkennung(int fenster, double toleranz)
+    {
+        if(fenster != 0) {
+            // Unzulaessige Werte sofort melden.
+            new Stillstandserkennung(fenster, toleranz);
+        }
+        stillstandFenster = fenster;
+        stillstandToleranz = toleranz;
+    }
+
+    /**
+     * Liefere alle Punkte des vollstaendigen Gitters ueber die Achsen.
+     * Die erste Achse aendert sich am langsamsten.
+     * @return die Punkte, je Punkt ein Wert je Achse.
+     */
+    public List<double[]> gitter()
+    {
+        long anzahl = 1;
+        for(Achse achse : achsen) {
+            anzahl *= achse.stufen;
+            if(anzahl > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Gitter zu gross");
+            }
+        }
+        List<double[]> punkte = new ArrayList<double[]>((int) anzahl);
+        for(int nummer = 0; nummer < anzahl; nummer++) {
+            double[] punkt = new double[achsen.size()];
+            int rest = nummer;
+            for(int a = achsen.size() - 1; a >= 0; a--) {
+                Achse achse = achsen.get(a);
+                punkt[a] = achse.stufe(rest % achse.stufen);
+                rest /= achse.stufen;
+            }
+            punkte.add(punkt);
+        }
+        return punkte;
+    }
+
+    /**
+     * Liefere die Punkte eines lateinischen Hyperwuerfels: Jede Achse
+     * wird in so viele gleich breite Schichten geteilt, wie es Punkte
+     * gibt, und jede Schicht jeder Achse enthaelt genau einen Punkt.
+     * So decken schon wenige Punkte alle Achsen gleichmaessig ab.
+     * @param anzahl die Anzahl der Punkte (mindestens 1).
+     * @param seed der SEED-Wert fuer Schichtfolge und Lage in der Schicht.
+     * @return die Punkte, je Punkt ein Wert je Achse.
+     */
+    public List<double[]> hyperwuerfel(int anzahl, long seed)
+    {
+        if(anzahl < 1) {
+            throw new IllegalArgumentException("Mindestens ein Punkt erforderlich: " + anzahl);
+        }
+        Zufallsstrom rand = new Zufallsstrom(seed);
+        List<double[]> punkte = new ArrayList<double[]>(anzahl);
+        for(int p = 0; p < anzahl; p++) {
+            punkte.add(new double[achsen.size()]);
+        }
+        int[] schichten = new int[anzahl];
+        for(int a = 0; a < achsen.size(); a++) {
+            Achse achse = achsen.get(a);
+            // Zufaellige Reihenfolge der Schichten (Fisher-Yates)
+            for(int i = 0; i < anzahl; i++) {
+                int j = rand.nextInt(i + 1);
+                schichten[i] = schichten[j];
+                schichten[j] = i;
+            }
+            for(int p = 0; p < anzahl; p++) {
+                double anteil = (schichten[p] + rand.nextDouble()) / anzahl;
+                punkte.get(p)[a] = achse.von + anteil * (achse.bis - achse.von);
+            }
+        }
+        return punkte;
+    }
+
+    /**
+     * Rechne alle Laeufe und schreibe je Lauf eine CSV-Zeile mit
+     * Punkt, Wiederholung, SEED-Wert, den (gerundeten) Werten der
+     * Achsen, dem letzten Schritt, ob beide Arten ueberlebt haben,
+     * den Populationen am Ende und ihren Mittelwerten.
+     * @param punkte die Punkte, etwa aus gitter oder hyperwuerfel.
+     * @param seed der Basiswert, aus dem die SEED-Werte abgeleitet werden.
+     * @param aus der Strom fuer die Tabelle.
+     * @throws InterruptedException wenn der aufrufende Thread
+     *         unterbrochen wurde.
+     */
+    public void fuehreAus(List<double[]> punkte, long seed, PrintStream aus)
+        throws InterruptedException
+    {
+        Zufallsstrom basisStrom = new Zufallsstrom(seed);
+        schreibeKopf(aus);
+        long gesamt = (long) punkte.size() * wiederholungen;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CompletionService<Lauf> fertig = new ExecutorCompletionService<Lauf>(pool);
+        // Fertige Laeufe, deren Vorgaenger noch rechnen
+        Map<Long, Lauf> wartend = new HashMap<Long, Lauf>();
+        long gestartet = 0;
+        long geschrieben = 0;
+        int laufend = 0;
+        try {
+            while(geschrieben < gesamt) {
+                while(gestartet < gesamt && laufend < 2 * threads) {
+                    int punkt = (int) (gestartet / wiederholungen);
+                    int wiederholung = (int) (gestartet % wiederholungen);
+                    fertig.submit(new Lauf(gestartet, punkt, wiederholung,
+                                           basisStrom.abgeleiteterSeed(wiederholung, 0),
+                                           erzeugeParameter(punkte.get(punkt))));
+                    gestartet++;
+                    laufend++;
+                }
+                Lauf lauf = fertig.take().get();
+                laufend--;
+                wartend.put(lauf.nummer, lauf);
+                Lauf naechster = wartend.remove(geschrieben);
+                while(naechster != null) {
+                    naechster.schreibe(aus);
+                    geschrieben++;
+                    naechster = wartend.remove(geschrieben);
+                }
+            }
+        }
+        catch(ExecutionException e) {
+            throw new IllegalStateException("Simulationslauf fehlgeschlagen", e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        aus.flush();
+    }
+
+    /**
+     * Setze die Werte eines Punktes in die Basisparameter ein.
+     */
+    private Simulationsparameter erzeugeParameter(double[] punkt)
+    {
+        Simulationsparameter parameter = basis;
+        for(int a = 0; a < achsen.size(); a++) {
+            parameter = parameter.mit(achsen.get(a).name, punkt[a]);
+        }
+        return parameter;
+    }
+
+    /**
+     * Schreibe die Kopfzeile der Tabelle.
+     */
+    private void schreibeKopf(PrintStream aus)
+    {
+        StringBuilder kopf = new StringBuilder("punkt,wiederholung,seed");
+        for(Achse achse : achsen) {
+            kopf.append(',').append(achse.name);
+        }
+        kopf.append(",schritte,koexistenz,hasen,fuechse,mittel_hasen,mittel_fuechse");
+        if(stillstandFenster > 0) {
+            kopf.append(",stillstand");
+        }
+        aus.println(kopf);
+    }
+
+    /**
+     * Eine Achse des Parameterraums.
+     */
+    private static class Achse
+    {
+        private final String name;
+        private final double von;
+        private final double bis;
+        private final int stufen;
+
+        Achse(String name, double von, double bis, int stufen)
+        {
+            this.name = name;
+            this.von = von;
+            this.bis = bis;
+            this.stufen = stufen;
+        }
+
+        /**
+         * @return der Wert der Stufe i des Gitters.
+         */
+        double stufe(int i)
+        {
+            return stufen == 1 ? von : von + (bis - von) * i / (stufen - 1);
+        }
+    }
+
+    /**
+     * Ein einzelner Lauf, der in einem Thread des Pools rechnet.
+     */
+    private class Lauf implements Callable<Lauf>
+    {
+        private final long nummer;
+        private final int punkt;
+        private final int wiederholung;
+        private final long seed;
+        private final Simulationsparameter parameter;
+        // Die Zusammenfassung des Laufs
+        private int endschritt;
+        private boolean koexistenz;
+        private int hasen, fuechse;
+        private double mittelHasen, mittelFuechse;
+        private int stillstand;
+
+        Lauf(long nummer, int punkt, int wiederholung, long seed, Simulationsparameter parameter)
+        {
+            this.nummer = nummer;
+            this.punkt = punkt;
+            this.wiederholung = wiederholung;
+            this.seed = seed;
+            this.parameter = parameter;
+        }
+
+        public Lauf call() throws InterruptedException
+        {
+            Simulator simulator = new Simulator(fabrik.erzeugeKern(seed, parameter));
+            try {
+                Stillstandserkennung erkennung = null;
+                if(stillstandFenster > 0) {
+                    erkennung = new Stillstandserkennung(stillstandFenster, stillstandToleranz);
+                    simulator.setzeStillstandserkennung(erkennung);
+                }
+                Feldbelegung belegung = simulator.gibBelegung();
+                long summeHasen = belegung.gibAnzahl(Tierart.HASE);
+                long summeFuechse = belegung.gibAnzahl(Tierart.FUCHS);
+                endschritt = 0;
+                while(endschritt < schritte && simulator.istAktiv() && !simulator.istAngehalten()) {
+                    if(Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    simulator.simuliereEinenSchritt();
+                    endschritt++;
+                    belegung = simulator.gibBelegung();
+                    summeHasen += belegung.gibAnzahl(Tierart.HASE);
+                    summeFuechse += belegung.gibAnzahl(Tierart.FUCHS);
+                }
+                koexistenz = simulator.istAktiv();
+                stillstand = erkennung != null ? erkennung.gibSchritt() : -1;
+                hasen = belegung.gibAnzahl(Tierart.HASE);
+                fuechse = belegung.gibAnzahl(Tierart.FUCHS);
+                mittelHasen = (double) summeHasen / (endschritt + 1);
+                mittelFuechse = (double) summeFuechse / (endschritt + 1);
+            }
+            finally {
+                simulator.schliesse();
+            }
+            return this;
+        }
+
+        /**
+         * Schreibe die Zeile dieses Laufs.
+         */
+        void schreibe(PrintStream aus)
+        {
+            StringBuilder zeile = new StringBuilder();
+            zeile.append(punkt).append(',').append(wiederholung).append(',').append(seed);
+            for(Achse achse : achsen) {
+                zeile.append(',').append(formatiere(parameter.gibWert(achse.name)));
+            }
+            zeile.append(',').append(endschritt).append(',').append(koexistenz ? 1 : 0)
+                 .append(',').append(hasen).append(',').append(fuechse)
+                 .append(',').append(String.format(Locale.ROOT, "%.2f", mittelHasen))
+                 .append(',').append(String.format(Locale.ROOT, "%.2f", mittelFuechse));
+            if(stillstandFenster > 0) {
+                zeile.append(',').append(stillstand);
+            }
+            aus.println(zeile);
+        }
+
+        /**
+         * Ganze Zahlen ohne, andere mit vier Nachkommastellen.
+         */
+        private String formatiere(double wert)
+        {
+            if(wert == Math.rint(wert)) {
+                return Long.toString((long) wert);
+            }
+            return String.format(Locale.ROOT, "%.4f", wert);
+        }
+    }
+}
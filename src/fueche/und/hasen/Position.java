@@ -10,8 +10,8 @@ package fueche.und.hasen;
 public class Position
 {
     // Zeilen- und Spaltenposition.
-    private int zeile;
-    private int spalte;
+    private final int zeile;
+    private final int spalte;
 
     /**
      * Repr�sentiere eine Zeile und eine Spalte.
@@ -25,11 +25,16 @@ public class Position
     }
     
     /**
-     * Pr�fung auf Datengleichheit.
+     * Pr�fung auf Datengleichheit. Positionen aus demselben Feld
+     * sind identisch (siehe Feld.gibPosition); der Vergleich der Werte
+     * gilt Positionen verschiedener Felder und selbst erzeugten.
      */
     public boolean equals(Object obj)
     {
-        if(obj instanceof Position) {
+        if(obj == this) {
+            return true;
+        }
+        else if(obj instanceof Position) {
             Position anderePosition = (Position) obj;
             return zeile == anderePosition.gibZeile()
                 && spalte == anderePosition.gibSpalte();
@@ -49,15 +54,15 @@ public class Position
     }
     
     /**
-     * Benutze die 16 h�herwertigen Bits f�r den den Zeilenwert
-     * und die 16 niederwertigen Bits f�r den Spaltenwert.
-     * Au�er f�r sehr gro�e Felder sollte dies einen eindeutigen
-     * Hashwert f�r jedes Zeile-Spalte-Paar geben.
+     * Multipliziere den Zeilenwert mit einer grossen ungeraden
+     * Konstante (Fibonacci-Hashing) und addiere den Spaltenwert.
+     * Anders als eine Verschiebung um 16 Bit verteilt das auch
+     * Felder mit mehr als 65536 Spalten gleichmaessig.
      * @return einen Hash-Code f�r diese Position.
      */
     public int hashCode()
     {
-        return (zeile << 16) + spalte;
+        return zeile * 0x9E3779B1 + spalte;
     }
     
     /**
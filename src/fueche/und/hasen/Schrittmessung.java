@@ -0,0 +1,241 @@
+package fueche.und.hasen;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Misst, wohin die Zeit eines Simulationsschrittes geht: je Phase
+ * (Hasen, Fuechse, Aufraeumen im Kern, Beobachter, ganzer Schritt)
+ * ein Latenzhistogramm, dazu Schritte je Sekunde, die je Schritt
+ * angelegten Bytes und die Bevoelkerungsbilanz mit Todesursachen.
+ *
+ * Eine Messung wird mit Simulator.setzeMessung eingeschaltet; ohne
+ * sie pruefen Simulator und Kerne je Schritt nur ein Feld auf null.
+ * Mit registriere ist sie als MXBean ueber JMX sichtbar, etwa in
+ * jconsole. Gemessen wird im Simulationsthread; beim Kern streifen
+ * zaehlen die Allokationen der Pool-Threads daher nicht mit.
+ *
+ * @author Merlin
+ */
+public class Schrittmessung implements SchrittmessungMXBean
+{
+    /**
+     * Die gemessenen Phasen eines Schrittes.
+     */
+    public enum Phase
+    {
+        HASEN, FUECHSE, AUFRAEUMEN, BEOBACHTER, SCHRITT
+    }
+
+    // Die Quantile, die ueber JMX und in der Zusammenfassung erscheinen
+    private static final double[] QUANTILE = { 0.5, 0.9, 0.99 };
+
+    private final Latenzhistogramm[] latenzen;
+    // Misst die Allokationen eines Threads, oder null
+    private final com.sun.management.ThreadMXBean allokationen;
+    // Summe der Bytes und Anzahl der Schritte, in denen gemessen wurde
+    private long bytes;
+    private long schritteMitBytes;
+    // Die Bilanz beim letzten Schritt: je Art Geburten, dann Todesursachen
+    private final long[] bilanz;
+    private boolean hatBilanz;
+    // Der Name, unter dem die Messung angemeldet ist, oder null
+    private ObjectName name;
+
+    /**
+     * Erzeuge eine leere Messung.
+     */
+    public Schrittmessung()
+    {
+        latenzen = new Latenzhistogramm[Phase.values().length];
+        for(int i = 0; i < latenzen.length; i++) {
+            latenzen[i] = new Latenzhistogramm();
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(threads instanceof com.sun.management.ThreadMXBean
+           && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            allokationen = (com.sun.management.ThreadMXBean) threads;
+            allokationen.setThreadAllocatedMemoryEnabled(true);
+        }
+        else {
+            allokationen = null;
+        }
+        bilanz = new long[Tierart.values().length * (1 + Todesursache.ANZAHL)];
+    }
+
+    /**
+     * Erfasse die Dauer einer Phase bis jetzt.
+     * @param phase die Phase.
+     * @param beginn der Beginn der Phase (System.nanoTime).
+     * @return jetzt, als Beginn der naechsten Phase.
+     */
+    public long erfasse(Phase phase, long beginn)
+    {
+        long jetzt = System.nanoTime();
+        latenzen[phase.ordinal()].erfasse(jetzt - beginn);
+        return jetzt;
+    }
+
+    /**
+     * @return die bisher im aktuellen Thread angelegten Bytes oder -1.
+     */
+    long gibAllokiert()
+    {
+        return allokationen != null
+            ? allokationen.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    /**
+     * Schliesse einen Schritt ab: Dauer, Allokationen und Bilanz.
+     * @param beginn der Beginn des Schrittes (System.nanoTime).
+     * @param bytesVorher gibAllokiert zu Beginn des Schrittes.
+     * @param belegung die Belegung nach dem Schritt.
+     */
+    void beendeSchritt(long beginn, long bytesVorher, Feldbelegung belegung)
+    {
+        erfasse(Phase.SCHRITT, beginn);
+        long bytesNachher = gibAllokiert();
+        synchronized(this) {
+            if(bytesVorher >= 0 && bytesNachher >= 0) {
+                bytes += bytesNachher - bytesVorher;
+                schritteMitBytes++;
+            }
+            if(belegung instanceof Bevoelkerungsbilanz) {
+                Bevoelkerungsbilanz quelle = (Bevoelkerungsbilanz) belegung;
+                int i = 0;
+                for(Tierart art : Tierart.values()) {
+                    bilanz[i++] = quelle.gibGeburten(art);
+                    for(Todesursache ursache : Todesursache.values()) {
+                        bilanz[i++] = quelle.gibTodesfaelle(art, ursache);
+                    }
+                }
+                hatBilanz = true;
+            }
+        }
+    }
+
+    /**
+     * Melde diese Messung beim MBean-Server der JVM an.
+     * @param messname der Name der Messung, etwa der Name des Laufs.
+     * @throws JMException wenn der Name ungueltig oder schon vergeben ist.
+     */
+    public void registriere(String messname) throws JMException
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName neuerName = new ObjectName("fueche.und.hasen:type=Schrittmessung,name="
+                                              + ObjectName.quote(messname));
+        server.registerMBean(this, neuerName);
+        name = neuerName;
+    }
+
+    /**
+     * Melde diese Messung wieder ab, falls sie angemeldet ist.
+     * @throws JMException wenn das Abmelden fehlschlaegt.
+     */
+    public void abmelden() throws JMException
+    {
+        if(name != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            name = null;
+        }
+    }
+
+    /**
+     * @param phase die gewuenschte Phase.
+     * @return das Histogramm der Phase.
+     */
+    public Latenzhistogramm gibLatenzen(Phase phase)
+    {
+        return latenzen[phase.ordinal()];
+    }
+
+    public long getSchritte()
+    {
+        return latenzen[Phase.SCHRITT.ordinal()].gibAnzahl();
+    }
+
+    public double getSchritteJeSekunde()
+    {
+        Latenzhistogramm schritte = latenzen[Phase.SCHRITT.ordinal()];
+        long summe = schritte.gibSumme();
+        return summe == 0 ? 0 : schritte.gibAnzahl() * 1e9 / summe;
+    }
+
+    public synchronized double getBytesJeSchritt()
+    {
+        return schritteMitBytes == 0 ? -1 : (double) bytes / schritteMitBytes;
+    }
+
+    public Map<String, Long> getLatenzen()
+    {
+        Map<String, Long> werte = new LinkedHashMap<String, Long>();
+        for(Phase phase : Phase.values()) {
+            Latenzhistogramm h = latenzen[phase.ordinal()];
+            String praefix = phase.name().toLowerCase(Locale.ROOT) + ".";
+            werte.put(praefix + "anzahl", h.gibAnzahl());
+            werte.put(praefix + "mittel", h.gibMittel());
+            for(double q : QUANTILE) {
+                werte.put(praefix + "p" + Math.round(q * 100), h.gibQuantil(q));
+            }
+            werte.put(praefix + "max", h.gibMaximum());
+        }
+        return werte;
+    }
+
+    public synchronized Map<String, Long> getBilanz()
+    {
+        Map<String, Long> werte = new LinkedHashMap<String, Long>();
+        if(!hatBilanz) {
+            return werte;
+        }
+        int i = 0;
+        for(Tierart art : Tierart.values()) {
+            String praefix = art.name().toLowerCase(Locale.ROOT) + ".";
+            werte.put(praefix + "geburten", bilanz[i++]);
+            for(Todesursache ursache : Todesursache.values()) {
+                werte.put(praefix + ursache.name().toLowerCase(Locale.ROOT), bilanz[i++]);
+            }
+        }
+        return werte;
+    }
+
+    public synchronized void zuruecksetzen()
+    {
+        for(Latenzhistogramm h : latenzen) {
+            h.leeren();
+        }
+        bytes = 0;
+        schritteMitBytes = 0;
+    }
+
+    /**
+     * @return eine Tabelle der Messwerte fuer Menschen (Zeiten in
+     *         Mikrosekunden).
+     */
+    public String gibZusammenfassung()
+    {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "%-11s %9s %9s %9s %9s %9s %9s%n", "Phase",
+                                  "Anzahl", "Mittel", "p50", "p90", "p99", "Max"));
+        for(Phase phase : Phase.values()) {
+            Latenzhistogramm h = latenzen[phase.ordinal()];
+            text.append(String.format(Locale.ROOT, "%-11s %9d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                                      phase.name().toLowerCase(Locale.ROOT), h.gibAnzahl(),
+                                      h.gibMittel() / 1e3, h.gibQuantil(0.5) / 1e3,
+                                      h.gibQuantil(0.9) / 1e3, h.gibQuantil(0.99) / 1e3,
+                                      h.gibMaximum() / 1e3));
+        }
+        text.append(String.format(Locale.ROOT, "Schritte je Sekunde: %.1f, Bytes je Schritt: %.0f%n",
+                                  getSchritteJeSekunde(), getBytesJeSchritt()));
+        for(Map.Entry<String, Long> eintrag : getBilanz().entrySet()) {
+            text.append(eintrag.getKey()).append('=').append(eintrag.getValue()).append(' ');
+        }
+        return text.toString().trim();
+    }
+}
@@ -0,0 +1,45 @@
+package fueche.und.hasen;
+
+import java.util.Map;
+
+/**
+ * Die JMX-Sicht einer Schrittmessung (siehe Schrittmessung). Die
+ * Namen folgen den Regeln von JMX: Getter werden zu Attributen.
+ *
+ * @author Merlin
+ */
+public interface SchrittmessungMXBean
+{
+    /**
+     * @return die Anzahl der gemessenen Schritte.
+     */
+    long getSchritte();
+
+    /**
+     * @return gemessene Schritte je Sekunde Rechenzeit (Kern und Beobachter).
+     */
+    double getSchritteJeSekunde();
+
+    /**
+     * @return die im Mittel je Schritt im Simulationsthread angelegten
+     *         Bytes oder -1, wenn die JVM das nicht messen kann.
+     */
+    double getBytesJeSchritt();
+
+    /**
+     * @return je Phase Anzahl, Mittel, Quantile und Maximum in Nanosekunden,
+     *         etwa "hasen.p99".
+     */
+    Map<String, Long> getLatenzen();
+
+    /**
+     * @return je Art Geburten und Todesfaelle nach Ursache seit dem
+     *         Bevoelkern, etwa "fuchs.hunger".
+     */
+    Map<String, Long> getBilanz();
+
+    /**
+     * Vergiss alle Latenzen und Zaehler der Schritte.
+     */
+    void zuruecksetzen();
+}
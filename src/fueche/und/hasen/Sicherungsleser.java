@@ -0,0 +1,116 @@
+package fueche.und.hasen;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Liest die Werte, die ein Sicherungsschreiber geschrieben hat, in
+ * derselben Reihenfolge wieder ein.
+ *
+ * @author Merlin
+ */
+class Sicherungsleser
+{
+    // Groesse des Puffers in Bytes
+    private static final int PUFFERGROESSE = 1 << 20;
+
+    private final FileChannel kanal;
+    private final ByteBuffer puffer;
+    // Die Version des Dateiformats, sobald sie gelesen wurde
+    private int version;
+
+    /**
+     * Oeffne eine Datei zum Lesen.
+     * @param datei die zu lesende Datei.
+     * @throws IOException wenn die Datei nicht geoeffnet werden kann.
+     */
+    Sicherungsleser(Path datei) throws IOException
+    {
+        kanal = FileChannel.open(datei, StandardOpenOption.READ);
+        puffer = ByteBuffer.allocateDirect(PUFFERGROESSE);
+        puffer.flip();
+    }
+
+    /**
+     * @return das naechste gelesene Byte.
+     */
+    byte liesByte() throws IOException
+    {
+        mindestens(1);
+        return puffer.get();
+    }
+
+    /**
+     * @return das naechste gelesene int.
+     */
+    int liesInt() throws IOException
+    {
+        mindestens(4);
+        return puffer.getInt();
+    }
+
+    /**
+     * @return das naechste gelesene long.
+     */
+    long liesLong() throws IOException
+    {
+        mindestens(8);
+        return puffer.getLong();
+    }
+
+    /**
+     * @return das naechste gelesene double.
+     */
+    double liesDouble() throws IOException
+    {
+        mindestens(8);
+        return puffer.getDouble();
+    }
+
+    /**
+     * Merke die gelesene Version des Dateiformats, fuer Werte, die
+     * erst ab einer Version in der Datei stehen.
+     */
+    void setzeVersion(int neueVersion)
+    {
+        version = neueVersion;
+    }
+
+    /**
+     * @return die mit setzeVersion gemerkte Version.
+     */
+    int gibVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Schliesse die Datei.
+     */
+    void schliesse() throws IOException
+    {
+        kanal.close();
+    }
+
+    /**
+     * Lies nach, falls weniger als anzahl Bytes im Puffer sind.
+     * @throws EOFException wenn die Datei vorher endet.
+     */
+    private void mindestens(int anzahl) throws IOException
+    {
+        if(puffer.remaining() >= anzahl) {
+            return;
+        }
+        puffer.compact();
+        while(puffer.position() < anzahl) {
+            if(kanal.read(puffer) < 0) {
+                throw new EOFException("Sicherungsdatei ist unvollstaendig");
+            }
+        }
+        puffer.flip();
+    }
+}
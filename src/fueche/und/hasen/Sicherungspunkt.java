@@ -0,0 +1,168 @@
+package fueche.und.hasen;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Sichert den vollstaendigen Zustand einer Simulation in eine
+ * kompakte Binaerdatei und stellt ihn wieder her: den Schritt, die
+ * Parameter, den Zustand der Zufallsstroeme und jedes Tier mit Zelle,
+ * Alter und Futter-Level in der Reihenfolge, in der es agiert. Eine
+ * fortgesetzte Simulation verlaeuft daher genau so weiter, als waere
+ * sie nie unterbrochen worden.
+ *
+ * Die Datei wird zunaechst unter einem temporaeren Namen geschrieben
+ * und erst danach umbenannt; ein Absturz waehrend des Sicherns
+ * hinterlaesst also immer die vorige, vollstaendige Sicherung.
+ *
+ * @author Merlin
+ */
+public class Sicherungspunkt
+{
+    // Kennung am Anfang jeder Sicherungsdatei ("FHCP")
+    private static final int KENNUNG = 0x46484350;
+    // Version 2 enthaelt den Jagdradius, Version 3 die Zellen des
+    // Objektkerns als long; die frueheren Versionen werden noch gelesen.
+    private static final int VERSION = 3;
+    // Die Arten von Kernen in der Datei
+    private static final byte OBJEKTKERN = 1;
+    private static final byte SPALTENKERN = 2;
+    private static final byte STREIFENKERN = 3;
+
+    /**
+     * Sichere einen Kern samt Schritt in eine Datei.
+     * @param kern der Kern (Objekt-, Spalten- oder Streifenkern).
+     * @param schritt der aktuelle Schritt der Simulation.
+     * @param datei die Zieldatei; eine vorhandene Datei wird ersetzt.
+     * @throws IOException bei Schreibfehlern.
+     * @throws IllegalArgumentException fuer Kerne, die nicht gesichert
+     *         werden koennen.
+     */
+    public static void schreibe(Simulationskern kern, int schritt, Path datei) throws IOException
+    {
+        byte art;
+        if(kern instanceof Objektkern) {
+            art = OBJEKTKERN;
+        }
+        else if(kern instanceof Spaltenkern) {
+            art = SPALTENKERN;
+        }
+        else if(kern instanceof Streifenkern) {
+            art = STREIFENKERN;
+        }
+        else {
+            throw new IllegalArgumentException("Kern kann nicht gesichert werden: "
+                                               + kern.getClass().getName());
+        }
+        Path temporaer = datei.resolveSibling(datei.getFileName() + ".neu");
+        Sicherungsschreiber aus = new Sicherungsschreiber(temporaer);
+        try {
+            aus.schreibeInt(KENNUNG);
+            aus.schreibeInt(VERSION);
+            aus.schreibeByte(art);
+            aus.schreibeInt(schritt);
+            if(art == OBJEKTKERN) {
+                ((Objektkern) kern).sichere(aus);
+            }
+            else if(art == SPALTENKERN) {
+                ((Spaltenkern) kern).sichere(aus);
+            }
+            else {
+                ((Streifenkern) kern).sichere(aus);
+            }
+            aus.schliesse();
+        }
+        catch(IOException e) {
+            aus.brichAb();
+            Files.deleteIfExists(temporaer);
+            throw e;
+        }
+        try {
+            Files.move(temporaer, datei, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(AtomicMoveNotSupportedException e) {
+            Files.move(temporaer, datei, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Lies eine Sicherung und setze die Simulation fort.
+     * @param datei die Sicherungsdatei.
+     * @return ein Simulator ohne Beobachter im gesicherten Zustand.
+     * @throws IOException bei Lesefehlern oder fremden Dateien.
+     */
+    public static Simulator lies(Path datei) throws IOException
+    {
+        Sicherungsleser ein = new Sicherungsleser(datei);
+        try {
+            if(ein.liesInt() != KENNUNG) {
+                throw new IOException("Keine Sicherungsdatei: " + datei);
+            }
+            int version = ein.liesInt();
+            if(version < 1 || version > VERSION) {
+                throw new IOException("Unbekannte Version " + version + " der Sicherung " + datei);
+            }
+            ein.setzeVersion(version);
+            byte art = ein.liesByte();
+            int schritt = ein.liesInt();
+            Simulationskern kern;
+            if(art == OBJEKTKERN) {
+                kern = Objektkern.lade(ein);
+            }
+            else if(art == SPALTENKERN) {
+                kern = Spaltenkern.lade(ein);
+            }
+            else if(art == STREIFENKERN) {
+                kern = Streifenkern.lade(ein);
+            }
+            else {
+                throw new IOException("Unbekannter Kern " + art + " in der Sicherung " + datei);
+            }
+            return new Simulator(kern, schritt);
+        }
+        catch(IllegalArgumentException e) {
+            // Unsinnige Abmessungen oder Parameter aus einer beschaedigten Datei
+            throw new IOException("Beschaedigte Sicherung " + datei + ": " + e.getMessage(), e);
+        }
+        finally {
+            ein.schliesse();
+        }
+    }
+
+    /**
+     * Schreibe die Parameter einer Simulation.
+     */
+    static void schreibeParameter(Sicherungsschreiber aus, Simulationsparameter parameter)
+        throws IOException
+    {
+        for(Tierart tierart : Tierart.values()) {
+            Artparameter art = parameter.gib(tierart);
+            aus.schreibeInt(art.gibGebaerAlter());
+            aus.schreibeInt(art.gibMaxAlter());
+            aus.schreibeDouble(art.gibGebaerWahrscheinlichkeit());
+            aus.schreibeInt(art.gibMaxWurfgroesse());
+            aus.schreibeInt(art.gibNaehrwert());
+            aus.schreibeDouble(art.gibAnfangsdichte());
+            aus.schreibeInt(art.gibJagdradius());
+        }
+    }
+
+    /**
+     * Lies die mit schreibeParameter geschriebenen Parameter.
+     */
+    static Simulationsparameter liesParameter(Sicherungsleser ein) throws IOException
+    {
+        Artparameter[] arten = new Artparameter[Tierart.values().length];
+        for(int i = 0; i < arten.length; i++) {
+            arten[i] = new Artparameter(ein.liesInt(), ein.liesInt(), ein.liesDouble(),
+                                        ein.liesInt(), ein.liesInt(), ein.liesDouble(),
+                                        ein.gibVersion() >= 2 ? ein.liesInt() : 1);
+        }
+        return new Simulationsparameter(arten[Tierart.HASE.ordinal()],
+                                        arten[Tierart.FUCHS.ordinal()]);
+    }
+}
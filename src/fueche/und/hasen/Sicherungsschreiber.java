@@ -0,0 +1,138 @@
+package fueche.und.hasen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Schreibt primitive Werte ueber einen FileChannel in eine Datei,
+ * etwa fuer Sicherungen und Zeitreihenexporte. Die Werte werden in
+ * einem einzigen direkten Puffer gesammelt und blockweise
+ * geschrieben; je Wert wird nichts angelegt, so dass auch Felder mit
+ * vielen Millionen Tieren in Sekunden gesichert sind.
+ *
+ * @author Merlin
+ */
+class Sicherungsschreiber
+{
+    // Groesse des Puffers in Bytes
+    private static final int PUFFERGROESSE = 1 << 20;
+
+    private final FileChannel kanal;
+    private final ByteBuffer puffer;
+
+    /**
+     * Oeffne eine Datei zum Schreiben; ein alter Inhalt geht verloren.
+     * @param datei die zu schreibende Datei.
+     * @throws IOException wenn die Datei nicht geoeffnet werden kann.
+     */
+    Sicherungsschreiber(Path datei) throws IOException
+    {
+        kanal = FileChannel.open(datei, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                 StandardOpenOption.TRUNCATE_EXISTING);
+        puffer = ByteBuffer.allocateDirect(PUFFERGROESSE);
+    }
+
+    /**
+     * Schreibe ein Byte.
+     */
+    void schreibeByte(byte wert) throws IOException
+    {
+        platzFuer(1);
+        puffer.put(wert);
+    }
+
+    /**
+     * Schreibe ein int.
+     */
+    void schreibeInt(int wert) throws IOException
+    {
+        platzFuer(4);
+        puffer.putInt(wert);
+    }
+
+    /**
+     * Schreibe ein long.
+     */
+    void schreibeLong(long wert) throws IOException
+    {
+        platzFuer(8);
+        puffer.putLong(wert);
+    }
+
+    /**
+     * Schreibe ein double.
+     */
+    void schreibeDouble(double wert) throws IOException
+    {
+        platzFuer(8);
+        puffer.putDouble(wert);
+    }
+
+    /**
+     * Schreibe einen Ausschnitt eines Byte-Arrays.
+     */
+    void schreibeBytes(byte[] werte, int von, int anzahl) throws IOException
+    {
+        while(anzahl > 0) {
+            platzFuer(1);
+            int teil = Math.min(anzahl, puffer.remaining());
+            puffer.put(werte, von, teil);
+            von += teil;
+            anzahl -= teil;
+        }
+    }
+
+    /**
+     * Schreibe alle gepufferten Werte, erzwinge sie auf den Datentraeger
+     * und schliesse die Datei.
+     * @throws IOException bei Schreibfehlern.
+     */
+    void schliesse() throws IOException
+    {
+        try {
+            leere();
+            kanal.force(false);
+        }
+        finally {
+            kanal.close();
+        }
+    }
+
+    /**
+     * Schliesse die Datei nach einem Fehler, ohne weitere Fehler zu melden.
+     */
+    void brichAb()
+    {
+        try {
+            kanal.close();
+        }
+        catch(IOException e) {
+            // Der urspruengliche Fehler ist wichtiger.
+        }
+    }
+
+    /**
+     * Schreibe den Puffer, falls weniger als anzahl Bytes frei sind.
+     */
+    private void platzFuer(int anzahl) throws IOException
+    {
+        if(puffer.remaining() < anzahl) {
+            leere();
+        }
+    }
+
+    /**
+     * Schreibe den Inhalt des Puffers in die Datei.
+     */
+    private void leere() throws IOException
+    {
+        puffer.flip();
+        while(puffer.hasRemaining()) {
+            kanal.write(puffer);
+        }
+        puffer.clear();
+    }
+}
@@ -2,7 +2,11 @@ package fueche.und.hasen;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import javax.swing.*;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -14,10 +18,19 @@ import java.util.Map;
  * Die Farben f�r die verschiedenen Tierarten k�nnen mit
  * der Methode setzeFarbe definiert werden.
  *
+ * Die Simulation laeuft in ihrem eigenen Thread und traegt jeden
+ * Zustand nur in eine Dichtekarte ein. Ein Swing-Timer zeichnet etwa
+ * 30-mal je Sekunde die sichtbaren Teile des neuesten Zustands neu und
+ * aktualisiert die Beschriftungen; alle Swing-Aufrufe geschehen so
+ * im Event-Dispatch-Thread. Ohne Turbo wartet die Simulation nach
+ * jedem Schritt auf das naechste Bild, so dass jeder Schritt zu
+ * sehen ist. Im Turbo-Modus laeuft sie ungebremst, angezeigt wird
+ * nur der jeweils neueste Stand.
+ *
  * @author David J. Barnes and Michael Kolling
  * @version 2008.03.30
  */
-public class Simulationsansicht extends JFrame
+public class Simulationsansicht extends JFrame implements Simulationsbeobachter
 {
     // Die Farbe f�r leere Positionen
     private static final Color LEER_FARBE = Color.white;
@@ -25,6 +38,9 @@ public class Simulationsansicht extends JFrame
     // Die Farbe f�r Objekte ohne definierte Farbe
     private static final Color UNDEF_FARBE = Color.gray;
 
+    // Die Dauer eines angezeigten Bildes in Millisekunden (etwa 30 je Sekunde)
+    private static final int BILDDAUER = 33;
+
     private final String SCHRITT_PREFIX = "Schritt: ";
     private final String POPULATION_PREFIX = "Population: ";
     private JLabel schrittLabel, population;
@@ -36,6 +52,16 @@ public class Simulationsansicht extends JFrame
     // von Simulationsdaten
     private FeldStatistik stats;
 
+    // Schuetzt die Dichtekarte und die folgenden Angaben zum neuesten Bild
+    private final Object bildSperre = new Object();
+    private int bildSchritt;
+    private String bildPopulation;
+    private boolean bildNeu;
+    // Laeuft die Simulation ungebremst?
+    private volatile boolean turbo;
+    // Frueheste Zeit (System.nanoTime) fuer den naechsten Schritt ohne Turbo
+    private long naechsterSchritt;
+
     /**
      * Erzeuge eine Ansicht mit der gegebenen Breite und H�he.
      * @param hoehe Die H�he der Simulation.
@@ -49,6 +75,13 @@ public class Simulationsansicht extends JFrame
         setTitle("Simulation von F�chsen und Hasen");
         schrittLabel = new JLabel(SCHRITT_PREFIX, JLabel.CENTER);
         population = new JLabel(POPULATION_PREFIX, JLabel.CENTER);
+        final JCheckBox turboSchalter = new JCheckBox("Turbo");
+        turboSchalter.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e)
+            {
+                setzeTurbo(turboSchalter.isSelected());
+            }
+        });
         
         setLocation(100, 50);
         
@@ -57,9 +90,31 @@ public class Simulationsansicht extends JFrame
         Container inhalt = getContentPane();
         inhalt.add(schrittLabel, BorderLayout.NORTH);
         inhalt.add(feldansicht, BorderLayout.CENTER);
-        inhalt.add(population, BorderLayout.SOUTH);
+        JPanel unten = new JPanel(new BorderLayout());
+        unten.add(population, BorderLayout.CENTER);
+        unten.add(turboSchalter, BorderLayout.EAST);
+        inhalt.add(unten, BorderLayout.SOUTH);
         pack();
         setVisible(true);
+
+        Timer bildTakt = new Timer(BILDDAUER, new ActionListener() {
+            public void actionPerformed(ActionEvent e)
+            {
+                zeigeNeuestesBild();
+            }
+        });
+        bildTakt.start();
+    }
+
+    /**
+     * Schalte den Turbo-Modus ein oder aus. Im Turbo-Modus wartet die
+     * Simulation nicht auf die Anzeige, es werden nur etwa 30 Bilder
+     * je Sekunde gezeigt.
+     * @param ein soll der Turbo-Modus eingeschaltet werden?
+     */
+    public void setzeTurbo(boolean ein)
+    {
+        turbo = ein;
     }
     
     /**
@@ -88,47 +143,70 @@ public class Simulationsansicht extends JFrame
     }
 
     /**
-     * Zeige den aktuellen Zustand des Feldes.
+     * Zeige den aktuellen Zustand des Feldes. Wird im Thread der
+     * Simulation aufgerufen und schreibt nur in die Dichtekarte;
+     * angezeigt wird sie vom Timer im Event-Dispatch-Thread.
      * @param schritt welcher Iterationsschritt ist dies.
      * @param feld das Feld, das angezeigt werden soll.
      */
-    public void zeigeStatus(int schritt, Feld feld)
+    public void zeigeStatus(int schritt, Feldbelegung feld)
     {
-        if(!isVisible())
-            setVisible(true);
-
-        schrittLabel.setText(SCHRITT_PREFIX + schritt);
         stats.zuruecksetzen();
-        
-        feldansicht.zeichnenVorbereiten();
-            
-        for(int zeile = 0; zeile < feld.gibTiefe(); zeile++) {
-            for(int spalte = 0; spalte < feld.gibBreite(); spalte++) {
-                Object tier = feld.gibObjektAn(zeile, spalte);
-                if(tier != null) {
-                    stats.erhoeheZaehler(tier.getClass());
-                    feldansicht.zeichneMarkierung(spalte, zeile, gibFarbe(tier.getClass()));
-                }
-                else {
-                    feldansicht.zeichneMarkierung(spalte, zeile, LEER_FARBE);
-                }
-            }
+        String info = stats.gibBewohnerInfo(feld);
+        synchronized(bildSperre) {
+            feldansicht.zeichne(feld);
+            bildSchritt = schritt;
+            bildPopulation = info;
+            bildNeu = true;
+        }
+        if(!turbo && isShowing()) {
+            warteAufNaechstesBild();
         }
-        stats.zaehlungBeendet();
+    }
 
-        population.setText(POPULATION_PREFIX + stats.gibBewohnerInfo(feld));
-        feldansicht.repaint();
+    /**
+     * Halte die Simulation an, bis seit dem letzten Schritt eine
+     * Bilddauer vergangen ist.
+     */
+    private void warteAufNaechstesBild()
+    {
+        long jetzt = System.nanoTime();
+        long warten = naechsterSchritt - jetzt;
+        if(warten > 0) {
+            try {
+                Thread.sleep(warten / 1000000, (int) (warten % 1000000));
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        naechsterSchritt = Math.max(jetzt, naechsterSchritt) + BILDDAUER * 1000000L;
     }
 
     /**
-     * Entscheide, ob die Simulation weiterlaufen soll.
-     * @return true wenn noch mehr als eine Spezies lebendig ist.
+     * Zeige den neuesten Zustand an, falls es seit dem letzten Aufruf
+     * einen gab. Laeuft im Event-Dispatch-Thread.
      */
-    public boolean istAktiv(Feld feld)
+    private void zeigeNeuestesBild()
     {
-        return stats.istAktiv(feld);
+        int schritt;
+        String info;
+        synchronized(bildSperre) {
+            if(!bildNeu) {
+                return;
+            }
+            schritt = bildSchritt;
+            info = bildPopulation;
+            bildNeu = false;
+        }
+        if(!isVisible()) {
+            setVisible(true);
+        }
+        schrittLabel.setText(SCHRITT_PREFIX + schritt);
+        population.setText(POPULATION_PREFIX + info);
+        feldansicht.repaint();
     }
-    
+
     /**
      * Liefere eine grafische Ansicht eines rechteckigen Feldes.
      * Dies ist eine geschachtelte Klasse (eine Klasse, die
@@ -137,17 +215,63 @@ public class Simulationsansicht extends JFrame
      * definiert. Diese Komponente zeigt das Feld an.
      * Dies ist fortgeschrittene GUI-Technik - Sie k�nnen sie
      * f�r Ihr Projekt ignorieren, wenn Sie wollen.
+     *
+     * Die Ansicht laesst sich mit dem Mausrad vergroessern und
+     * verkleinern und durch Ziehen verschieben; ein Doppelklick stellt
+     * den anfaenglichen Massstab wieder her. Vergroessert zeigt sie
+     * jede Zelle als Quadrat, verkleinert je Pixel einen Block von
+     * 2^n x 2^n Zellen in einer Mischfarbe aus Leer- und Tierfarben
+     * nach den Anteilen der Arten; so sind Dichte und Verhaeltnis von
+     * Fuechsen zu Hasen zu sehen. Die Zahlen liefert eine Dichtekarte,
+     * die der Thread der Simulation unter der Bildsperre nachfuehrt. Vor
+     * jedem Bild uebernimmt der Event-Dispatch-Thread unter der Sperre
+     * nur ihre Aenderungen in eine eigene Karte und zeichnet danach ohne
+     * Sperre aus dieser; so wartet die Simulation nie auf das Zeichnen.
+     *
+     * Gezeichnet wird in Kacheln, die einem Block der Dichtekarte
+     * entsprechen. Eine Kachel wird aufbewahrt und erst neu gezeichnet,
+     * wenn sich in ihrem Block etwas geaendert hat; so bleibt auch bei
+     * sehr grossen Feldern das Verschieben und Zoomen fluessig, und je
+     * Bild werden hoechstens die sichtbaren Kacheln gezeichnet.
      */
     private class Feldansicht extends JPanel
     {
         private static final long serialVersionUID = 20060330L;
         private final int DEHN_FAKTOR = 6;
+        // Groesste Kantenlaenge des Bildes in Pixeln beim Start
+        private final int MAX_BILDGROESSE = 2048;
+        // Groesste Kantenlaenge eines verkleinerten Feldes beim Start
+        private final int MAX_UEBERSICHT = 1024;
+        // Kleinste Kantenlaenge des ganz verkleinerten Feldes
+        private final int MIN_UEBERSICHT = 64;
+        // Die moeglichen Vergroesserungen in Pixeln je Zelle
+        private final int[] PIXEL_JE_ZELLE = { 1, 2, 3, 4, 6, 8 };
+        // Zweierlogarithmus der Kantenlaenge einer Kachel in Pixeln (ungefaehr)
+        private static final int KACHEL_BITS = 8;
+        // So viele Pixel duerfen die aufbewahrten Kacheln zusammen haben
+        private static final int MAX_KACHELPIXEL = 8 << 20;
 
+        // Die Groesse des angezeigten Feldes
         private int feldBreite, feldHoehe;
-        private int xFaktor, yFaktor;
-        Dimension groesse;
-        private Graphics g;
-        private Image feldImage;
+        // Der Massstab: ab 0 ein Index in PIXEL_JE_ZELLE, darunter
+        // 2^-massstab Zellen je Pixel; dazu Anfangs- und kleinster Wert
+        private int massstab;
+        private final int startMassstab;
+        private final int kleinsterMassstab;
+        // Das Pixel des Feldes in der linken oberen Ecke der Komponente
+        private int versatzX, versatzY;
+        // Die Karte der Belegung, angelegt mit dem ersten Zustand und
+        // durch die Bildsperre geschuetzt
+        private Dichtekarte karte;
+        // Die Kopie, aus der der Event-Dispatch-Thread zeichnet
+        private Dichtekarte anzeige;
+        // Die aufbewahrten Kacheln, die zuletzt benutzten zuletzt
+        private final LinkedHashMap<Long, Kachel> kacheln;
+        private int kachelpixel;
+        // Die Farbwerte, mit denen die Kacheln gezeichnet sind
+        private int[] kachelfarben;
+        // Der letzte Mauspunkt beim Ziehen
+        private Point gezogenBis;
 
         /**
          * Erzeuge eine neue Komponente zur Feldansicht.
@@ -156,7 +280,63 @@ public class Simulationsansicht extends JFrame
         {
             feldHoehe = hoehe;
             feldBreite = breite;
-            groesse = new Dimension(0, 0);
+            int groesste = Math.max(hoehe, breite);
+            int faktor = Math.min(DEHN_FAKTOR, MAX_BILDGROESSE / groesste);
+            int anfang = 0;
+            if(faktor >= 1) {
+                while(anfang + 1 < PIXEL_JE_ZELLE.length && PIXEL_JE_ZELLE[anfang + 1] <= faktor) {
+                    anfang++;
+                }
+            }
+            else {
+                while((groesste >> -anfang) > MAX_UEBERSICHT) {
+                    anfang--;
+                }
+            }
+            int kleinster = Math.min(0, anfang);
+            while((groesste >> (1 - kleinster)) >= MIN_UEBERSICHT) {
+                kleinster--;
+            }
+            startMassstab = anfang;
+            kleinsterMassstab = kleinster;
+            massstab = anfang;
+            kacheln = new LinkedHashMap<Long, Kachel>(64, 0.75f, true);
+            setToolTipText("Mausrad: zoomen, Ziehen: verschieben, Doppelklick: zuruecksetzen");
+
+            MouseAdapter maus = new MouseAdapter() {
+                public void mousePressed(MouseEvent e)
+                {
+                    gezogenBis = e.getPoint();
+                }
+
+                public void mouseDragged(MouseEvent e)
+                {
+                    if(gezogenBis != null) {
+                        versatzX -= e.getX() - gezogenBis.x;
+                        versatzY -= e.getY() - gezogenBis.y;
+                        gezogenBis = e.getPoint();
+                        repaint();
+                    }
+                }
+
+                public void mouseClicked(MouseEvent e)
+                {
+                    if(e.getClickCount() == 2) {
+                        massstab = startMassstab;
+                        versatzX = 0;
+                        versatzY = 0;
+                        repaint();
+                    }
+                }
+
+                public void mouseWheelMoved(MouseWheelEvent e)
+                {
+                    zoome(massstab - e.getWheelRotation(), e.getX(), e.getY());
+                }
+            };
+            addMouseListener(maus);
+            addMouseMotionListener(maus);
+            addMouseWheelListener(maus);
         }
 
         /**
@@ -165,61 +345,276 @@ public class Simulationsansicht extends JFrame
          */
         public Dimension getPreferredSize()
         {
-            return new Dimension(feldBreite * DEHN_FAKTOR,
-                                 feldHoehe * DEHN_FAKTOR);
+            double p = gibPixelJeZelle(startMassstab);
+            return new Dimension((int) Math.ceil(feldBreite * p), (int) Math.ceil(feldHoehe * p));
         }
-        
+
         /**
-         * Bereite eine neue Zeichenrunde vor. Da die Komponente
-         * in der Gr��e ge�ndert werden kann, muss der Ma�stab neu
-         * berechnet werden.
+         * Bringe die Dichtekarte auf den Stand des Feldes. Nur unter
+         * der Bildsperre aufrufen.
+         * @param feld das anzuzeigende Feld.
          */
-        public void zeichnenVorbereiten()
+        public void zeichne(Feldbelegung feld)
         {
-            if(! groesse.equals(getSize())) {  // Gr��e wurde ge�ndert...
-                groesse = getSize();
-                feldImage = feldansicht.createImage(groesse.width, groesse.height);
-                g = feldImage.getGraphics();
-
-                xFaktor = groesse.width / feldBreite;
-                if(xFaktor < 1) {
-                    xFaktor = DEHN_FAKTOR;
+            if(karte == null || feld.gibTiefe() != karte.gibTiefe()
+                             || feld.gibBreite() != karte.gibBreite()) {
+                if(karte != null) {
+                    karte.abmelden();
                 }
-                yFaktor = groesse.height / feldHoehe;
-                if(yFaktor < 1) {
-                    yFaktor = DEHN_FAKTOR;
+                karte = new Dichtekarte(feld.gibTiefe(), feld.gibBreite());
+            }
+            karte.aktualisiere(feld);
+        }
+
+        /**
+         * Setze einen neuen Massstab; der Punkt (x, y) der Komponente
+         * zeigt danach dieselbe Stelle des Feldes.
+         */
+        private void zoome(int neuerMassstab, int x, int y)
+        {
+            neuerMassstab = Math.max(kleinsterMassstab,
+                                     Math.min(PIXEL_JE_ZELLE.length - 1, neuerMassstab));
+            if(neuerMassstab == massstab) {
+                return;
+            }
+            double vorher = gibPixelJeZelle(massstab);
+            double nachher = gibPixelJeZelle(neuerMassstab);
+            versatzX = (int) Math.round((versatzX + x) / vorher * nachher) - x;
+            versatzY = (int) Math.round((versatzY + y) / vorher * nachher) - y;
+            massstab = neuerMassstab;
+            repaint();
+        }
+
+        /**
+         * @return die Pixel je Zelle bei einem Massstab (verkleinert ein Bruch).
+         */
+        private double gibPixelJeZelle(int wert)
+        {
+            return wert >= 0 ? PIXEL_JE_ZELLE[wert] : 1.0 / (1 << -wert);
+        }
+
+        /**
+         * @return die Stufe der Dichtekarte, deren Bloecke beim aktuellen
+         *         Massstab eine Kachel bilden.
+         */
+        private int gibKachelstufe()
+        {
+            if(massstab < 0) {
+                return KACHEL_BITS - massstab;
+            }
+            int pixel = PIXEL_JE_ZELLE[massstab];
+            return KACHEL_BITS - (31 - Integer.numberOfLeadingZeros(pixel));
+        }
+
+        /**
+         * @return die RGB-Werte fuer leere Zellen (Index 0) und
+         *         fuer jede Tierart (Ordnungszahl + 1).
+         */
+        private int[] gibFarbwerte()
+        {
+            Tierart[] arten = Tierart.values();
+            int[] farbwerte = new int[arten.length + 1];
+            farbwerte[0] = LEER_FARBE.getRGB();
+            for(Tierart art : arten) {
+                farbwerte[art.ordinal() + 1] = gibFarbe(art.gibKlasse()).getRGB();
+            }
+            return farbwerte;
+        }
+
+        /**
+         * Liefere eine Kachel des aktuellen Massstabs; sie wird nur
+         * gezeichnet, wenn sie fehlt oder ihr Block sich seither
+         * geaendert hat.
+         */
+        private Kachel gibKachel(int stufe, int kachelZeile, int kachelSpalte)
+        {
+            Long schluessel = (long) massstab << 48 | (long) kachelZeile << 24 | kachelSpalte;
+            Kachel kachel = kacheln.get(schluessel);
+            if(kachel == null) {
+                kachel = new Kachel();
+                kachel.stand = -1;
+                kacheln.put(schluessel, kachel);
+            }
+            if(kachel.stand < anzeige.gibGeaendert(stufe, kachelZeile, kachelSpalte)) {
+                kachelpixel -= kachel.gibPixel();
+                zeichneKachel(kachel, stufe, kachelZeile, kachelSpalte);
+                kachelpixel += kachel.gibPixel();
+                // Die am laengsten nicht benutzten Kacheln vergessen
+                Iterator<Kachel> alte = kacheln.values().iterator();
+                while(kachelpixel > MAX_KACHELPIXEL && alte.hasNext()) {
+                    Kachel alt = alte.next();
+                    if(alt != kachel) {
+                        kachelpixel -= alt.gibPixel();
+                        alte.remove();
+                    }
                 }
             }
+            return kachel;
         }
-        
+
         /**
-         * Zeichne an der gegebenen Position ein Rechteck mit
-         * der gegebenen Farbe.
+         * Zeichne eine Kachel aus der Dichtekarte.
          */
-        public void zeichneMarkierung(int x, int y, Color farbe)
+        private void zeichneKachel(Kachel kachel, int stufe, int kachelZeile, int kachelSpalte)
         {
-            g.setColor(farbe);
-            g.fillRect(x * xFaktor, y * yFaktor, xFaktor-1, yFaktor-1);
+            int oben = kachelZeile << stufe;
+            int links = kachelSpalte << stufe;
+            int zeilen = Math.min(1 << stufe, feldHoehe - oben);
+            int spalten = Math.min(1 << stufe, feldBreite - links);
+            kachel.stand = anzeige.gibStand();
+            // Eine leere Kachel braucht keine Zellen und Bloecke zu lesen.
+            int[] anzahl = new int[kachelfarben.length - 1];
+            anzeige.zaehle(stufe, kachelZeile, kachelSpalte, anzahl);
+            boolean leer = true;
+            for(int a = 0; a < anzahl.length; a++) {
+                leer &= anzahl[a] == 0;
+            }
+            if(massstab >= 0) {
+                int faktor = PIXEL_JE_ZELLE[massstab];
+                int[] pixel = kachel.bereite(spalten * faktor, zeilen * faktor);
+                int bildBreite = spalten * faktor;
+                // Die Fugen zwischen den Zellen bleiben in der Hintergrundfarbe.
+                Arrays.fill(pixel, getBackground().getRGB());
+                // Bei einer Zellengroesse ab 2 bleibt wie frueher eine Fuge frei.
+                int seite = faktor > 1 ? faktor - 1 : 1;
+                for(int zeile = 0; zeile < zeilen; zeile++) {
+                    for(int spalte = 0; spalte < spalten; spalte++) {
+                        int farbe = leer ? kachelfarben[0]
+                                    : kachelfarben[anzeige.gibZustand(oben + zeile, links + spalte)];
+                        int start = zeile * faktor * bildBreite + spalte * faktor;
+                        for(int y = 0; y < seite; y++) {
+                            int p = start + y * bildBreite;
+                            for(int x = 0; x < seite; x++) {
+                                pixel[p + x] = farbe;
+                            }
+                        }
+                    }
+                }
+            }
+            else {
+                int verkleinerung = -massstab;
+                int rest = (1 << verkleinerung) - 1;
+                int bildBreite = (spalten + rest) >> verkleinerung;
+                int bildHoehe = (zeilen + rest) >> verkleinerung;
+                int[] pixel = kachel.bereite(bildBreite, bildHoehe);
+                if(leer) {
+                    Arrays.fill(pixel, mischeFarbe(anzahl, 1));
+                    return;
+                }
+                int blockOben = oben >> verkleinerung;
+                int blockLinks = links >> verkleinerung;
+                int p = 0;
+                for(int y = 0; y < bildHoehe; y++) {
+                    for(int x = 0; x < bildBreite; x++) {
+                        int zellen = anzeige.zaehle(verkleinerung, blockOben + y, blockLinks + x,
+                                                    anzahl);
+                        pixel[p++] = mischeFarbe(anzahl, zellen);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return die Farbe eines Blocks: Leer- und Tierfarben gewichtet
+         *         mit ihren Anteilen an den Zellen.
+         */
+        private int mischeFarbe(int[] anzahl, int zellen)
+        {
+            int leer = zellen;
+            for(int a = 0; a < anzahl.length; a++) {
+                leer -= anzahl[a];
+            }
+            int rot = 0, gruen = 0, blau = 0;
+            for(int i = 0; i < kachelfarben.length; i++) {
+                int gewicht = i == 0 ? leer : anzahl[i - 1];
+                int farbe = kachelfarben[i];
+                rot += (farbe >> 16 & 0xff) * gewicht;
+                gruen += (farbe >> 8 & 0xff) * gewicht;
+                blau += (farbe & 0xff) * gewicht;
+            }
+            return (rot / zellen) << 16 | (gruen / zellen) << 8 | blau / zellen;
         }
 
         /**
          * Die Komponente f�r die Feldansicht muss erneut angezeigt
-         * werden. Kopiere das interne Image in die Anzeige.
+         * werden. Zeichne die sichtbaren Kacheln.
          * Der Name der Methode ist durch die GUI-Verwaltung festgelegt.
          */
         public void paintComponent(Graphics g)
         {
-            if(feldImage != null) {
-                Dimension aktuelleGroesse = getSize();
-                if(groesse.equals(aktuelleGroesse)) {
-                	g.drawImage(feldImage, 0, 0, null);
+            super.paintComponent(g);
+            synchronized(bildSperre) {
+                if(karte == null) {
+                    return;
+                }
+                if(anzeige == null || anzeige.gibTiefe() != karte.gibTiefe()
+                                   || anzeige.gibBreite() != karte.gibBreite()) {
+                    feldHoehe = karte.gibTiefe();
+                    feldBreite = karte.gibBreite();
+                    anzeige = new Dichtekarte(feldHoehe, feldBreite);
+                    kacheln.clear();
+                    kachelpixel = 0;
                 }
-                else {
-                    // Gr��e des aktuellen Images anpassen.
-                    g.drawImage(feldImage, 0, 0, aktuelleGroesse.width,
-                    		    aktuelleGroesse.height, null);
+                anzeige.uebernimm(karte);
+            }
+            int[] farbwerte = gibFarbwerte();
+            if(!Arrays.equals(farbwerte, kachelfarben)) {
+                kacheln.clear();
+                kachelpixel = 0;
+                kachelfarben = farbwerte;
+            }
+            int stufe = gibKachelstufe();
+            int seite = (int) Math.round((1 << stufe) * gibPixelJeZelle(massstab));
+            int ersteZeile = Math.max(0, teile(versatzY, seite));
+            int ersteSpalte = Math.max(0, teile(versatzX, seite));
+            int letzteZeile = Math.min((feldHoehe - 1) >> stufe,
+                                       teile(versatzY + getHeight() - 1, seite));
+            int letzteSpalte = Math.min((feldBreite - 1) >> stufe,
+                                        teile(versatzX + getWidth() - 1, seite));
+            for(int kz = ersteZeile; kz <= letzteZeile; kz++) {
+                for(int ks = ersteSpalte; ks <= letzteSpalte; ks++) {
+                    Kachel kachel = gibKachel(stufe, kz, ks);
+                    g.drawImage(kachel.bild, ks * seite - versatzX, kz * seite - versatzY, null);
                 }
             }
         }
+
+        /**
+         * @return a / b, zur naechstkleineren ganzen Zahl gerundet.
+         */
+        private int teile(int a, int b)
+        {
+            return a >= 0 ? a / b : -((-a + b - 1) / b);
+        }
+    }
+
+    /**
+     * Eine gezeichnete Kachel der Feldansicht und der Stand der
+     * Dichtekarte, den sie zeigt.
+     */
+    private static class Kachel
+    {
+        private BufferedImage bild;
+        private int stand;
+
+        /**
+         * Sorge fuer ein Bild der gegebenen Groesse.
+         * @return seine Pixel (ein int je Pixel, RGB).
+         */
+        private int[] bereite(int breite, int hoehe)
+        {
+            if(bild == null || bild.getWidth() != breite || bild.getHeight() != hoehe) {
+                bild = new BufferedImage(breite, hoehe, BufferedImage.TYPE_INT_RGB);
+            }
+            return ((DataBufferInt) bild.getRaster().getDataBuffer()).getData();
+        }
+
+        /**
+         * @return die Anzahl der Pixel des Bildes.
+         */
+        private int gibPixel()
+        {
+            return bild == null ? 0 : bild.getWidth() * bild.getHeight();
+        }
     }
 }
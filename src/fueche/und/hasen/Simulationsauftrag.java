@@ -0,0 +1,274 @@
+package fueche.und.hasen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Ein Simulationslauf, den der Auftragsdienst in eine Warteschlange
+ * stellt und in einem seiner Rechenthreads ausfuehrt. Als Beobachter
+ * seines eigenen Simulators sammelt der Auftrag je gemeldetem Schritt
+ * eine CSV-Zeile mit denselben Spalten wie der Zeitreihenexport:
+ * Schritt, dann je Tierart Population, Geburten und Todesfaelle seit
+ * der vorigen Zeile.
+ *
+ * Die Zeilen werden nur angehaengt. Leser holen sie mit warteAufZeilen
+ * ab einer bekannten Zeile ab und warten dabei hoechstens eine
+ * gegebene Zeit auf neue, so dass aufeinanderfolgende Abfragen die
+ * Reihe lueckenlos fortsetzen.
+ *
+ * @author Merlin
+ */
+class Simulationsauftrag implements Runnable, Simulationsbeobachter
+{
+    /**
+     * Die Zustaende eines Auftrags.
+     */
+    enum Zustand
+    {
+        WARTEND, LAEUFT, FERTIG, ABGEBROCHEN, FEHLGESCHLAGEN
+    }
+
+    private final int nummer;
+    private final String kern;
+    private final int tiefe, breite;
+    private final long seed;
+    private final int schritte;
+    private final int intervall;
+    private final Simulationsparameter parameter;
+    // Die Kopfzeile und je gemeldetem Schritt eine Zeile
+    private final List<String> zeilen;
+    private final Tierart[] arten;
+    // Die Zaehler der Bilanz bei der vorigen Zeile, je Tierart
+    private final long[] letzteGeburten;
+    private final long[] letzteTodesfaelle;
+    private Zustand zustand;
+    // Der zuletzt gerechnete und der zuletzt gemeldete Schritt
+    private int schritt;
+    private int gemeldet;
+    private String fehler;
+    private volatile boolean abbrechen;
+
+    /**
+     * Beschreibe einen Lauf; gerechnet wird erst mit run.
+     * @param nummer die Nummer des Auftrags im Dienst.
+     * @param kern objekt, spalten oder streifen (dann mit einem Thread).
+     * @param tiefe die Tiefe des Feldes.
+     * @param breite die Breite des Feldes.
+     * @param seed der SEED-Wert des Laufs.
+     * @param schritte die Anzahl der Schritte.
+     * @param intervall Schritte zwischen zwei Zeilen.
+     * @param parameter die Eigenschaften der Tiere.
+     */
+    Simulationsauftrag(int nummer, String kern, int tiefe, int breite, long seed, int schritte,
+                       int intervall, Simulationsparameter parameter)
+    {
+        this.nummer = nummer;
+        this.kern = kern;
+        this.tiefe = tiefe;
+        this.breite = breite;
+        this.seed = seed;
+        this.schritte = schritte;
+        this.intervall = intervall;
+        this.parameter = parameter;
+        arten = Tierart.values();
+        letzteGeburten = new long[arten.length];
+        letzteTodesfaelle = new long[arten.length];
+        zeilen = new ArrayList<String>();
+        StringBuilder kopf = new StringBuilder("schritt");
+        for(Tierart art : arten) {
+            String name = art.name().toLowerCase(Locale.ROOT);
+            kopf.append(',').append(name).append(',').append(name).append("_geburten,")
+                .append(name).append("_tode");
+        }
+        zeilen.add(kopf.toString());
+        zustand = Zustand.WARTEND;
+        gemeldet = -1;
+    }
+
+    /**
+     * Rechne den Lauf bis zum letzten Schritt, bis eine Art ausgestorben
+     * ist oder bis der Auftrag abgebrochen wird.
+     */
+    public void run()
+    {
+        synchronized(this) {
+            if(zustand != Zustand.WARTEND) {
+                return;
+            }
+            zustand = Zustand.LAEUFT;
+        }
+        Simulator sim = null;
+        try {
+            sim = new Simulator(FuecheUndHasen.erzeugeKern(kern, tiefe, breite, 1, seed,
+                                                           parameter));
+            // Der Simulator zeigt beim Anmelden sofort den Startzustand.
+            sim.fuegeBeobachterHinzu(this, intervall);
+            while(sim.gibSchritt() < schritte && sim.istAktiv() && !abbrechen) {
+                sim.simuliereEinenSchritt();
+            }
+            if(gemeldet != sim.gibSchritt()) {
+                zeigeStatus(sim.gibSchritt(), sim.gibBelegung());
+            }
+            beende(abbrechen ? Zustand.ABGEBROCHEN : Zustand.FERTIG, null);
+        }
+        catch(RuntimeException e) {
+            beende(Zustand.FEHLGESCHLAGEN, e.toString());
+        }
+        catch(Error e) {
+            // Auch etwa ein OutOfMemoryError beendet den Auftrag, damit
+            // seine Clients nicht ewig auf Zeilen warten; der Pool ersetzt
+            // den Thread.
+            beende(Zustand.FEHLGESCHLAGEN, e.toString());
+            throw e;
+        }
+        finally {
+            if(sim != null) {
+                sim.schliesse();
+            }
+        }
+    }
+
+    /**
+     * Haenge die Zeile eines Schrittes an und wecke wartende Leser.
+     * @param schritt welcher Iterationsschritt ist dies.
+     * @param feld die Belegung des Feldes nach dem Schritt.
+     */
+    public void zeigeStatus(int schritt, Feldbelegung feld)
+    {
+        Bevoelkerungsbilanz bilanz = feld instanceof Bevoelkerungsbilanz
+                                     ? (Bevoelkerungsbilanz) feld : null;
+        StringBuilder zeile = new StringBuilder();
+        zeile.append(schritt);
+        for(int a = 0; a < arten.length; a++) {
+            zeile.append(',').append(feld.gibAnzahl(arten[a]));
+            if(bilanz != null) {
+                long geburten = bilanz.gibGeburten(arten[a]);
+                long todesfaelle = bilanz.gibTodesfaelle(arten[a]);
+                if(gemeldet < 0) {
+                    letzteGeburten[a] = geburten;
+                    letzteTodesfaelle[a] = todesfaelle;
+                }
+                zeile.append(',').append(geburten - letzteGeburten[a])
+                     .append(',').append(todesfaelle - letzteTodesfaelle[a]);
+                letzteGeburten[a] = geburten;
+                letzteTodesfaelle[a] = todesfaelle;
+            }
+            else {
+                zeile.append(",-1,-1");
+            }
+        }
+        gemeldet = schritt;
+        synchronized(this) {
+            this.schritt = schritt;
+            zeilen.add(zeile.toString());
+            notifyAll();
+        }
+    }
+
+    /**
+     * Brich den Auftrag ab: Ein wartender Auftrag rechnet nicht mehr,
+     * ein laufender endet nach dem aktuellen Schritt.
+     * @return true, wenn der Auftrag noch nicht beendet war.
+     */
+    boolean brichAb()
+    {
+        abbrechen = true;
+        synchronized(this) {
+            if(zustand == Zustand.WARTEND) {
+                zustand = Zustand.ABGEBROCHEN;
+                notifyAll();
+                return true;
+            }
+            return zustand == Zustand.LAEUFT;
+        }
+    }
+
+    /**
+     * Liefere die Zeilen ab einer gegebenen Zeile. Gibt es noch keine
+     * und laeuft der Auftrag noch, warte hoechstens die gegebene Zeit.
+     * @param ab die erste gewuenschte Zeile (0 ist die Kopfzeile).
+     * @param wartezeit die laengste Wartezeit in Millisekunden.
+     * @return die Zeilen; leer, wenn keine neuen da sind.
+     * @throws InterruptedException wenn der Thread unterbrochen wird.
+     */
+    synchronized List<String> warteAufZeilen(int ab, long wartezeit) throws InterruptedException
+    {
+        long ende = System.currentTimeMillis() + wartezeit;
+        while(ab >= zeilen.size() && !istBeendet()) {
+            long rest = ende - System.currentTimeMillis();
+            if(rest <= 0) {
+                break;
+            }
+            wait(rest);
+        }
+        if(ab >= zeilen.size()) {
+            return new ArrayList<String>();
+        }
+        return new ArrayList<String>(zeilen.subList(Math.max(ab, 0), zeilen.size()));
+    }
+
+    /**
+     * @return true, wenn der Auftrag nicht mehr rechnet und nicht
+     *         mehr rechnen wird.
+     */
+    synchronized boolean istBeendet()
+    {
+        return zustand != Zustand.WARTEND && zustand != Zustand.LAEUFT;
+    }
+
+    /**
+     * @return die Nummer des Auftrags.
+     */
+    int gibNummer()
+    {
+        return nummer;
+    }
+
+    /**
+     * @return der Zustand des Auftrags.
+     */
+    synchronized Zustand gibZustand()
+    {
+        return zustand;
+    }
+
+    /**
+     * @return eine Beschreibung des Auftrags und seines Fortschritts,
+     *         eine Eigenschaft name=wert je Zeile.
+     */
+    synchronized String gibBeschreibung()
+    {
+        StringBuilder text = new StringBuilder();
+        text.append("auftrag=").append(nummer).append('\n');
+        text.append("zustand=").append(zustand.name().toLowerCase(Locale.ROOT)).append('\n');
+        text.append("kern=").append(kern).append('\n');
+        text.append("tiefe=").append(tiefe).append('\n');
+        text.append("breite=").append(breite).append('\n');
+        text.append("seed=").append(seed).append('\n');
+        text.append("schritte=").append(schritte).append('\n');
+        text.append("intervall=").append(intervall).append('\n');
+        text.append("schritt=").append(schritt).append('\n');
+        text.append("zeilen=").append(zeilen.size() - 1).append('\n');
+        for(Tierart art : arten) {
+            for(String name : Simulationsparameter.EIGENSCHAFTEN) {
+                String voll = art.name().toLowerCase(Locale.ROOT) + "." + name;
+                text.append(voll).append('=').append(parameter.gibWert(voll)).append('\n');
+            }
+        }
+        if(fehler != null) {
+            text.append("fehler=").append(fehler).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Setze den Endzustand und wecke wartende Leser.
+     */
+    private synchronized void beende(Zustand ende, String meldung)
+    {
+        zustand = ende;
+        fehler = meldung;
+        notifyAll();
+    }
+}
@@ -0,0 +1,19 @@
+package fueche.und.hasen;
+
+/**
+ * Ein Beobachter, der vom Simulator nach Simulationsschritten
+ * benachrichtigt wird. Grafische Ansichten, Statistiken und
+ * Exporte melden sich als Beobachter an und sind damit fuer
+ * die Simulation selbst optional.
+ *
+ * @author Merlin
+ */
+public interface Simulationsbeobachter
+{
+    /**
+     * Zeige den aktuellen Zustand des Feldes bzw. werte ihn aus.
+     * @param schritt welcher Iterationsschritt ist dies.
+     * @param feld die Belegung des Feldes nach dem Schritt.
+     */
+    void zeigeStatus(int schritt, Feldbelegung feld);
+}
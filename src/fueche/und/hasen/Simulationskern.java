@@ -0,0 +1,38 @@
+package fueche.und.hasen;
+
+/**
+ * Der Kern einer Simulation: Speicherung der Tiere und die
+ * Regeln eines Simulationsschrittes. Der Simulator zaehlt die
+ * Schritte und benachrichtigt die Beobachter, der Kern legt
+ * fest, wie Feld und Tiere im Speicher abgelegt werden.
+ *
+ * @author Merlin
+ */
+public interface Simulationskern
+{
+    /**
+     * Raeume das Feld und bevoelkere es neu mit Fuechsen und Hasen.
+     */
+    void zuruecksetzen();
+
+    /**
+     * Fuehre einen einzelnen Simulationsschritt aus.
+     */
+    void simuliereEinenSchritt();
+
+    /**
+     * @return true wenn noch Fuechse und Hasen leben.
+     */
+    boolean istAktiv();
+
+    /**
+     * @return die aktuelle Belegung des Feldes.
+     */
+    Feldbelegung gibBelegung();
+
+    /**
+     * Gib Threads und Dateien des Kerns frei. Danach rechnet der Kern
+     * nicht mehr; weitere Aufrufe bleiben wirkungslos.
+     */
+    void schliesse();
+}
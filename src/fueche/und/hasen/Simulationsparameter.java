@@ -0,0 +1,135 @@
+package fueche.und.hasen;
+
+/**
+ * Alle Parameter einer Simulation: die Eigenschaften der Hasen und
+ * der Fuechse. Jede Simulation bekommt ihr eigenes (unveraenderliches)
+ * Objekt; verschiedene Szenarien brauchen daher keine Neuuebersetzung.
+ *
+ * Einzelne Werte werden ueber Namen der Form "art.eigenschaft"
+ * angesprochen, etwa "hase.maxAlter" oder "fuchs.anfangsdichte".
+ *
+ * @author Merlin
+ */
+public final class Simulationsparameter
+{
+    /**
+     * Die Eigenschaften, die je Art eingestellt werden koennen.
+     */
+    public static final String[] EIGENSCHAFTEN = {
+        "gebaerAlter", "maxAlter", "gebaerWahrscheinlichkeit",
+        "maxWurfgroesse", "naehrwert", "anfangsdichte", "jagdradius"
+    };
+
+    /**
+     * Die urspruenglichen Werte des Modells. Der Naehrwert der Fuechse
+     * wird nicht benutzt, da niemand Fuechse frisst.
+     */
+    public static final Simulationsparameter STANDARD = new Simulationsparameter(
+        new Artparameter(5, 40, 0.15, 4, 7, 0.08),
+        new Artparameter(10, 150, 0.35, 5, 1, 0.02));
+
+    // Die Eigenschaften je Art, nach Ordnungszahl der Tierart
+    private final Artparameter[] arten;
+
+    /**
+     * Erzeuge die Parameter einer Simulation.
+     * @param hase die Eigenschaften der Hasen.
+     * @param fuchs die Eigenschaften der Fuechse.
+     */
+    public Simulationsparameter(Artparameter hase, Artparameter fuchs)
+    {
+        arten = new Artparameter[Tierart.values().length];
+        arten[Tierart.HASE.ordinal()] = hase;
+        arten[Tierart.FUCHS.ordinal()] = fuchs;
+    }
+
+    /**
+     * @return die Eigenschaften der Hasen.
+     */
+    public Artparameter gibHase()
+    {
+        return arten[Tierart.HASE.ordinal()];
+    }
+
+    /**
+     * @return die Eigenschaften der Fuechse.
+     */
+    public Artparameter gibFuchs()
+    {
+        return arten[Tierart.FUCHS.ordinal()];
+    }
+
+    /**
+     * @param art die Tierart.
+     * @return die Eigenschaften dieser Art.
+     */
+    public Artparameter gib(Tierart art)
+    {
+        return arten[art.ordinal()];
+    }
+
+    /**
+     * Liefere einen Wert ueber seinen Namen.
+     * @param name etwa "hase.maxAlter".
+     * @return der Wert.
+     * @throws IllegalArgumentException bei unbekannten Namen.
+     */
+    public double gibWert(String name)
+    {
+        int punkt = name.indexOf('.');
+        return gib(gibArt(name, punkt)).gibWert(name.substring(punkt + 1));
+    }
+
+    /**
+     * Liefere eine Kopie, in der ein Wert geaendert ist.
+     * @param name etwa "fuchs.gebaerWahrscheinlichkeit".
+     * @param wert der neue Wert (ganzzahlige Werte werden gerundet).
+     * @return die geaenderte Kopie.
+     * @throws IllegalArgumentException bei unbekannten Namen oder
+     *         ungueltigen Werten.
+     */
+    public Simulationsparameter mit(String name, double wert)
+    {
+        int punkt = name.indexOf('.');
+        Tierart art = gibArt(name, punkt);
+        Artparameter neu = gib(art).mit(name.substring(punkt + 1), wert);
+        return art == Tierart.HASE ? new Simulationsparameter(neu, gibFuchs())
+                                   : new Simulationsparameter(gibHase(), neu);
+    }
+
+    /**
+     * Liefere eine Kopie mit mehreren geaenderten Werten.
+     * @param zuweisungen kommagetrennt, etwa "hase.maxAlter=50,fuchs.naehrwert=9".
+     * @return die geaenderte Kopie.
+     * @throws IllegalArgumentException bei fehlerhaften Zuweisungen.
+     */
+    public Simulationsparameter mit(String zuweisungen)
+    {
+        Simulationsparameter ergebnis = this;
+        for(String zuweisung : zuweisungen.split(",")) {
+            int gleich = zuweisung.indexOf('=');
+            if(gleich < 0) {
+                throw new IllegalArgumentException("Zuweisung der Form name=wert erwartet: " + zuweisung);
+            }
+            ergebnis = ergebnis.mit(zuweisung.substring(0, gleich).trim(),
+                                    Double.parseDouble(zuweisung.substring(gleich + 1).trim()));
+        }
+        return ergebnis;
+    }
+
+    /**
+     * Bestimme die Art aus dem Teil eines Namens vor dem Punkt.
+     */
+    private static Tierart gibArt(String name, int punkt)
+    {
+        if(punkt > 0) {
+            String art = name.substring(0, punkt);
+            for(Tierart t : Tierart.values()) {
+                if(t.name().equalsIgnoreCase(art)) {
+                    return t;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unbekannter Parameter " + name);
+    }
+}
@@ -1,10 +1,10 @@
 package fueche.und.hasen;
 
-import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Random;
 
 /**
  * Ein einfacher J�ger-Beute-Simulator, basierend auf einem
@@ -20,23 +20,18 @@ public class Simulator
     private static final int STANDARD_BREITE = 50;
     // Die Standardtiefe f�r ein Feld.
     private static final int STANDARD_TIEFE = 50;
-    // Die Wahrscheinlichkeit f�r die Geburt eines Fuchses an
-    // einer beliebigen Position im Feld.
-    private static final double FUCHSGEBURT_WAHRSCHEINLICH = 0.02;
-    // Die Wahrscheinlichkeit f�r die Geburt eines Hasen an
-    // einer beliebigen Position im Feld.
-    private static final double HASENGEBURT_WAHRSCHEINLICH = 0.08;    
-
-    // Listen der Tiere im Feld. Getrennte Listen vereinfachen das Iterieren.
-    private List<Hase> hasen;
-    private List<Fuchs> fuechse;
-    // Der aktuelle Zustand des Feldes
-    private Feld feld;
+
+    // Der Kern mit dem Feld, den Tieren und den Simulationsregeln
+    private Simulationskern kern;
     // Der aktuelle Schritt der Simulation
     private int schritt;
-    // Eine grafische Ansicht der Simulation
-    private Simulationsansicht ansicht;
-    
+    // Die angemeldeten Beobachter (Ansichten, Statistiken, Exporte)
+    private List<Anmeldung> beobachter;
+    // Haelt die Simulation bei einem Stillstand an, oder null
+    private Stillstandserkennung stillstand;
+    // Misst die Phasen der Schritte, oder null
+    private Schrittmessung messung;
+
     /**
      * Erzeuge ein Simulationsfeld mit einer Standardgr��e.
      */
@@ -51,6 +46,20 @@ public class Simulator
      * @param breite die Breite des Feldes (muss gr��er als Null sein).
      */
     public Simulator(int tiefe, int breite)
+    {
+        this(tiefe, breite, true);
+    }
+
+    /**
+     * Erzeuge ein Simulationsfeld mit der gegebenen Groesse, wahlweise
+     * ohne grafische Ansicht (etwa fuer Stapellaeufe auf Servern).
+     * Weitere Beobachter koennen mit fuegeBeobachterHinzu angemeldet
+     * werden.
+     * @param tiefe die Tiefe des Feldes (muss gr��er als Null sein).
+     * @param breite die Breite des Feldes (muss gr��er als Null sein).
+     * @param mitAnsicht soll eine grafische Ansicht erzeugt werden?
+     */
+    public Simulator(int tiefe, int breite, boolean mitAnsicht)
     {
         if(breite <= 0 || tiefe <= 0) {
             System.out.println("Abmessungen m�ssen gr��er als Null sein.");
@@ -58,18 +67,207 @@ public class Simulator
             tiefe = STANDARD_TIEFE;
             breite = STANDARD_BREITE;
         }
-        hasen = new ArrayList<Hase>();
-        fuechse = new ArrayList<Fuchs>();
-        feld = new Feld(tiefe, breite);
+        initialisiere(new Objektkern(tiefe, breite));
+
+        if(mitAnsicht) {
+            fuegeAnsichtHinzu(1);
+        }
+    }
+
+    /**
+     * Erzeuge einen Simulator ohne grafische Ansicht, der den
+     * gegebenen Kern benutzt, etwa einen Spaltenkern fuer sehr
+     * grosse Felder.
+     * @param kern der Simulationskern.
+     */
+    public Simulator(Simulationskern kern)
+    {
+        initialisiere(kern);
+    }
+
+    /**
+     * Setze eine gesicherte Simulation fort (siehe Sicherungspunkt).
+     * Der Kern wird nicht zurueckgesetzt.
+     * @param kern der wiederhergestellte Kern.
+     * @param schritt der gesicherte Schritt.
+     */
+    Simulator(Simulationskern kern, int schritt)
+    {
+        this.kern = kern;
+        this.schritt = schritt;
+        beobachter = new ArrayList<Anmeldung>();
+    }
+
+    /**
+     * Setze eine mit sichere geschriebene Simulation genau an der
+     * gesicherten Stelle fort. Beobachter muessen neu angemeldet werden.
+     * @param datei die Sicherungsdatei.
+     * @return der Simulator im gesicherten Zustand.
+     * @throws IOException bei Lesefehlern oder beschaedigten Dateien.
+     */
+    public static Simulator fortsetzen(Path datei) throws IOException
+    {
+        return Sicherungspunkt.lies(datei);
+    }
+
+    /**
+     * Uebernimm den Kern und nimm einen gueltigen Startzustand ein.
+     * @param neuerKern der Simulationskern.
+     */
+    private void initialisiere(Simulationskern neuerKern)
+    {
+        kern = neuerKern;
+        beobachter = new ArrayList<Anmeldung>();
 
-        // Eine Ansicht der Zust�nde aller Positionen im Feld erzeugen.
-        ansicht = new Simulationsansicht(tiefe, breite);
-        ansicht.setzeFarbe(Fuchs.class, Color.blue);
-        ansicht.setzeFarbe(Hase.class, Color.orange);
-        
         // Einen g�ltigen Startzustand einnehmen.
         zuruecksetzen();
     }
+
+    /**
+     * Erzeuge eine grafische Ansicht des Feldes und melde sie
+     * als Beobachter an.
+     * @param intervall nach wie vielen Schritten die Ansicht
+     *                  aktualisiert wird.
+     * @return die neue Ansicht, etwa um den Turbo-Modus einzuschalten.
+     */
+    public Simulationsansicht fuegeAnsichtHinzu(int intervall)
+    {
+        // Eine Ansicht der Zust�nde aller Positionen im Feld erzeugen.
+        Feldbelegung belegung = kern.gibBelegung();
+        Simulationsansicht ansicht = new Simulationsansicht(belegung.gibTiefe(), belegung.gibBreite());
+        for(Tierart art : Tierart.values()) {
+            ansicht.setzeFarbe(art.gibKlasse(), art.gibFarbe());
+        }
+        fuegeBeobachterHinzu(ansicht, intervall);
+        return ansicht;
+    }
+
+    /**
+     * Melde einen Beobachter an, der nach jedem Schritt
+     * benachrichtigt wird.
+     * @param neuerBeobachter der anzumeldende Beobachter.
+     */
+    public void fuegeBeobachterHinzu(Simulationsbeobachter neuerBeobachter)
+    {
+        fuegeBeobachterHinzu(neuerBeobachter, 1);
+    }
+
+    /**
+     * Melde einen Beobachter an, der nur nach jedem intervall-ten
+     * Schritt benachrichtigt wird. Der Startzustand wird ihm
+     * sofort gezeigt.
+     * @param neuerBeobachter der anzumeldende Beobachter.
+     * @param intervall nach wie vielen Schritten benachrichtigt wird
+     *                  (muss groesser als Null sein).
+     */
+    public void fuegeBeobachterHinzu(Simulationsbeobachter neuerBeobachter, int intervall)
+    {
+        if(intervall <= 0) {
+            throw new IllegalArgumentException("Intervall muss groesser als Null sein: " + intervall);
+        }
+        beobachter.add(new Anmeldung(neuerBeobachter, intervall));
+        neuerBeobachter.zeigeStatus(schritt, kern.gibBelegung());
+    }
+
+    /**
+     * Melde einen Beobachter wieder ab.
+     * @param alterBeobachter der abzumeldende Beobachter.
+     */
+    public void entferneBeobachter(Simulationsbeobachter alterBeobachter)
+    {
+        for(Iterator<Anmeldung> iter = beobachter.iterator(); iter.hasNext(); ) {
+            if(iter.next().beobachter == alterBeobachter) {
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Lass simuliere anhalten, sobald die gegebene Erkennung einen
+     * Stillstand meldet. Die Erkennung wird als Beobachter nach jedem
+     * Schritt angemeldet; eine vorher gesetzte wird abgemeldet.
+     * @param erkennung die Erkennung oder null fuer keine.
+     */
+    public void setzeStillstandserkennung(Stillstandserkennung erkennung)
+    {
+        if(stillstand != null) {
+            entferneBeobachter(stillstand);
+        }
+        stillstand = erkennung;
+        if(erkennung != null) {
+            fuegeBeobachterHinzu(erkennung, 1);
+        }
+    }
+
+    /**
+     * @return true wenn die Stillstandserkennung angeschlagen hat und
+     *         simuliere daher keine Schritte mehr ausfuehrt.
+     */
+    public boolean istAngehalten()
+    {
+        return stillstand != null && stillstand.istErreicht();
+    }
+
+    /**
+     * Miss ab sofort jeden Schritt mit der gegebenen Messung: den
+     * ganzen Schritt, die Beobachter und die Allokationen, bei einem
+     * messbaren Kern (siehe Messbar) auch dessen Phasen.
+     * @param neueMessung die Messung oder null fuer keine.
+     */
+    public void setzeMessung(Schrittmessung neueMessung)
+    {
+        messung = neueMessung;
+        if(kern instanceof Messbar) {
+            ((Messbar) kern).setzeMessung(neueMessung);
+        }
+    }
+
+    /**
+     * Sichere den vollstaendigen Zustand der Simulation in eine Datei,
+     * etwa um einen langen Lauf spaeter mit fortsetzen weiterzufuehren.
+     * @param datei die Zieldatei; eine vorhandene Datei wird ersetzt.
+     * @throws IOException bei Schreibfehlern.
+     */
+    public void sichere(Path datei) throws IOException
+    {
+        Sicherungspunkt.schreibe(kern, schritt, datei);
+    }
+
+    /**
+     * Liefere den aktuellen Schritt der Simulation.
+     * @return die Anzahl der seit dem Zuruecksetzen ausgefuehrten Schritte.
+     */
+    public int gibSchritt()
+    {
+        return schritt;
+    }
+
+    /**
+     * Liefere die Belegung des Feldes der Simulation.
+     * @return die aktuelle Belegung.
+     */
+    public Feldbelegung gibBelegung()
+    {
+        return kern.gibBelegung();
+    }
+
+    /**
+     * Entscheide, ob die Simulation weiterlaufen soll.
+     * @return true wenn noch Fuechse und Hasen leben.
+     */
+    public boolean istAktiv()
+    {
+        return kern.istAktiv();
+    }
+
+    /**
+     * Gib die Threads und Dateien des Kerns frei, wenn die Simulation
+     * nicht mehr weiterlaufen soll.
+     */
+    public void schliesse()
+    {
+        kern.schliesse();
+    }
     
     /**
      * Starte die Simulation vom aktuellen Zustand aus f�r einen l�ngeren
@@ -83,12 +281,13 @@ public class Simulator
     /**
      * F�hre vom aktuellen Zustand aus die angegebene Anzahl an
      * Simulationsschritten durch.
-     * Brich vorzeitig ab, wenn die Simulation nicht mehr aktiv ist.
+     * Brich vorzeitig ab, wenn die Simulation nicht mehr aktiv ist
+     * oder ein Stillstand erkannt wurde.
      * @param schritte die Anzahl der auszuf�hrenden Schritte.
      */
     public void simuliere(int schritte)
     {
-        for(int schritt = 1; schritt <= schritte && ansicht.istAktiv(feld); schritt++) {
+        for(int schritt = 1; schritt <= schritte && istAktiv() && !istAngehalten(); schritt++) {
             simuliereEinenSchritt();
         }
     }
@@ -100,35 +299,21 @@ public class Simulator
      */
     public void simuliereEinenSchritt()
     {
-        schritt++;
-        
-        // Platz f�r neugeborene Hasen anlegen.
-        List<Hase> neueHasen = new ArrayList<Hase>();
-        // Alle Hasen agieren lassen.
-        for(Iterator<Hase> iter = hasen.iterator(); iter.hasNext(); ) {
-            Hase hase = iter.next();
-            hase.laufe(neueHasen);
-            if(!hase.istLebendig()) {
-                iter.remove();
-            }
-        }
-        
-        // Platz f�r neugeborene F�chse anlegen.
-        List<Fuchs> neueFuechse = new ArrayList<Fuchs>();
-        // Alle F�chse agieren lassen.
-        for(Iterator<Fuchs> iter = fuechse.iterator(); iter.hasNext(); ) {
-            Fuchs fuchs = iter.next();
-            fuchs.jage(neueFuechse);
-            if(!fuchs.istLebendig()) {
-                iter.remove();
-            }
-        }
+        if(messung == null) {
+            schritt++;
+            kern.simuliereEinenSchritt();
 
-        // Neu geborene F�chse und Hasen in die Hauptlisten einf�gen.
-        hasen.addAll(neueHasen);
-        fuechse.addAll(neueFuechse);
-
-        ansicht.zeigeStatus(schritt, feld);
+            benachrichtigeBeobachter(false);
+            return;
+        }
+        long bytes = messung.gibAllokiert();
+        long beginn = System.nanoTime();
+        schritt++;
+        kern.simuliereEinenSchritt();
+        long zeit = System.nanoTime();
+        benachrichtigeBeobachter(false);
+        messung.erfasse(Schrittmessung.Phase.BEOBACHTER, zeit);
+        messung.beendeSchritt(beginn, bytes, kern.gibBelegung());
     }
         
     /**
@@ -137,35 +322,39 @@ public class Simulator
     public void zuruecksetzen()
     {
         schritt = 0;
-        hasen.clear();
-        fuechse.clear();
-        bevoelkere();
-        
-        // Zeige den Startzustand in der Ansicht.
-        ansicht.zeigeStatus(schritt, feld);
+        kern.zuruecksetzen();
+
+        // Zeige den Startzustand allen Beobachtern.
+        benachrichtigeBeobachter(true);
     }
-    
+
     /**
-     * Bev�lkere das Feld mit F�chsen und Hasen.
-     */
-    private void bevoelkere()
-    {
-        Random rand = Zufallssteuerung.gibZufallsgenerator();
-        feld.raeumen();
-        for(int zeile = 0; zeile < feld.gibTiefe(); zeile++) {
-            for(int spalte = 0; spalte < feld.gibBreite(); spalte++) {
-                if(rand.nextDouble() <= FUCHSGEBURT_WAHRSCHEINLICH) {
-                    Position position = new Position(zeile, spalte); 
-                    Fuchs fuchs = new Fuchs(true, feld, position);
-                    fuechse.add(fuchs);
-                }
-                else if(rand.nextDouble() <= HASENGEBURT_WAHRSCHEINLICH) {
-                    Position position = new Position(zeile, spalte); 
-                    Hase hase = new Hase(true, feld, position);
-                    hasen.add(hase);
-                }
-                // ansonsten die Position leer lassen
+     * Benachrichtige die Beobachter, deren Intervall im aktuellen
+     * Schritt faellig ist.
+     * @param alle sollen alle Beobachter unabhaengig von ihrem
+     *             Intervall benachrichtigt werden?
+     */
+    private void benachrichtigeBeobachter(boolean alle)
+    {
+        for(Anmeldung anmeldung : beobachter) {
+            if(alle || schritt % anmeldung.intervall == 0) {
+                anmeldung.beobachter.zeigeStatus(schritt, kern.gibBelegung());
             }
         }
     }
+    
+    /**
+     * Ein angemeldeter Beobachter zusammen mit seinem Intervall.
+     */
+    private static class Anmeldung
+    {
+        private final Simulationsbeobachter beobachter;
+        private final int intervall;
+
+        Anmeldung(Simulationsbeobachter beobachter, int intervall)
+        {
+            this.beobachter = beobachter;
+            this.intervall = intervall;
+        }
+    }
 }
\ No newline at end of file
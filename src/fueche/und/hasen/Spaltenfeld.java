@@ -0,0 +1,410 @@
+package fueche.und.hasen;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Ein rechteckiges Gitter, das statt Objektreferenzen nur eine
+ * Zahl je Zelle speichert. Zellen werden zeilenweise durchnummeriert
+ * (zelle = zeile * breite + spalte). Eine belegte Zelle enthaelt
+ * die Art und den Index des Tieres in dessen Tierspalten.
+ *
+ * @author Merlin
+ */
+public class Spaltenfeld implements Feldbelegung, Aenderungsmelder, Bevoelkerungsbilanz,
+                                    Zustandshash
+{
+    // Der Eintrag fuer eine leere Zelle
+    static final int LEER = 0;
+
+    // Die Tiefe und die Breite des Feldes
+    private final int tiefe, breite;
+    // Je Zelle LEER oder (index * 2 + Ordnungszahl der Art) + 1
+    private final int[] zellen;
+    // Die Anzahl der Tiere je Art, nach Ordnungszahl der Tierart
+    private final int[] bewohner;
+    // Der Zobrist-Hash der Belegung (siehe Zustandshash)
+    private long zustandshash;
+    // Die Bilanz seit dem Bevoelkern: Anfangsbestand und Geburten je Art
+    private final int[] anfangsbestand;
+    private final long[] geburten;
+    // Die Todesfaelle seit dem Bevoelkern je Art und Ursache
+    private final long[] todesfaelle;
+    // Die Mengen, an die geaenderte Zellen gemeldet werden
+    private Aenderungen[] aenderungen;
+    // Vorberechnete Nachbarschaftstabellen fuer dieses Feld
+    private final Nachbarschaft nachbarschaft;
+    // Ein Bit je Zelle mit einem Hasen, je Kachel der Beutesuche (siehe
+    // legeHasenkachelnAn), sonst null
+    private long[] hasenkacheln;
+    // Die Anzahl der Kacheln je Zeile von Kacheln
+    private final int kachelnJeZeile;
+    // Die Suche nach Hasen ueber hasenkacheln
+    private Beutesuche beutesuche;
+
+    /**
+     * Erzeuge ein leeres Feld mit den angegebenen Dimensionen.
+     * @param tiefe die Tiefe des Feldes.
+     * @param breite die Breite des Feldes.
+     */
+    public Spaltenfeld(int tiefe, int breite)
+    {
+        if(tiefe <= 0 || breite <= 0) {
+            throw new IllegalArgumentException("Abmessungen muessen groesser als Null sein: "
+                                               + tiefe + "x" + breite);
+        }
+        if((long) tiefe * breite > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Feld zu gross: " + tiefe + "x" + breite);
+        }
+        this.tiefe = tiefe;
+        this.breite = breite;
+        zellen = new int[tiefe * breite];
+        bewohner = new int[Tierart.values().length];
+        anfangsbestand = new int[bewohner.length];
+        geburten = new long[bewohner.length];
+        todesfaelle = new long[bewohner.length * Todesursache.ANZAHL];
+        aenderungen = new Aenderungen[0];
+        nachbarschaft = new Nachbarschaft(tiefe, breite);
+        kachelnJeZeile = (breite + Beutesuche.KANTE - 1) >> Beutesuche.KANTE_BITS;
+    }
+
+    /**
+     * Raeume das Feld.
+     */
+    public void raeumen()
+    {
+        Arrays.fill(zellen, LEER);
+        Arrays.fill(bewohner, 0);
+        zustandshash = 0;
+        if(hasenkacheln != null) {
+            Arrays.fill(hasenkacheln, 0);
+        }
+        for(int i = 0; i < aenderungen.length; i++) {
+            aenderungen[i].alleMarkieren();
+        }
+    }
+
+    /**
+     * Trage ein Tier in eine Zelle ein. Ein dort eingetragenes Tier
+     * geht verloren.
+     * @param zelle die Nummer der Zelle.
+     * @param art die Art des Tieres.
+     * @param index der Index des Tieres in den Spalten seiner Art.
+     */
+    public void platziere(int zelle, Tierart art, int index)
+    {
+        int alt = zellen[zelle];
+        if(alt != LEER) {
+            bewohner[(alt - 1) & 1]--;
+            zustandshash ^= gibArtAn(zelle).schluessel(zelle);
+        }
+        bewohner[art.ordinal()]++;
+        zustandshash ^= art.schluessel(zelle);
+        zellen[zelle] = (index << 1 | art.ordinal()) + 1;
+        if(hasenkacheln != null) {
+            if(art == Tierart.HASE) {
+                hasenkacheln[kachel(zelle)] |= bit(zelle);
+            }
+            else if(alt != LEER && ((alt - 1) & 1) == Tierart.HASE.ordinal()) {
+                hasenkacheln[kachel(zelle)] &= ~bit(zelle);
+            }
+        }
+        markiere(zelle);
+    }
+
+    /**
+     * Trage fuer das Tier in einer Zelle einen neuen Index ein, etwa
+     * nach dem Kompaktieren der Spalten. Die Belegung bleibt gleich
+     * und wird daher weder gezaehlt noch als Aenderung gemeldet.
+     * @param zelle die Nummer einer belegten Zelle.
+     * @param index der neue Index des Tieres.
+     */
+    void nummeriereUm(int zelle, int index)
+    {
+        zellen[zelle] = (index << 1 | ((zellen[zelle] - 1) & 1)) + 1;
+    }
+
+    /**
+     * Leere die gegebene Zelle.
+     * @param zelle die Nummer der Zelle.
+     */
+    public void raeumen(int zelle)
+    {
+        int alt = zellen[zelle];
+        if(alt != LEER) {
+            bewohner[(alt - 1) & 1]--;
+            zustandshash ^= gibArtAn(zelle).schluessel(zelle);
+            if(hasenkacheln != null && ((alt - 1) & 1) == Tierart.HASE.ordinal()) {
+                hasenkacheln[kachel(zelle)] &= ~bit(zelle);
+            }
+            zellen[zelle] = LEER;
+            markiere(zelle);
+        }
+    }
+
+    /**
+     * @param zelle die Nummer der Zelle.
+     * @return true wenn die Zelle leer ist.
+     */
+    public boolean istFrei(int zelle)
+    {
+        return zellen[zelle] == LEER;
+    }
+
+    /**
+     * @param zelle die Nummer der Zelle.
+     * @return die Art des Tieres in der Zelle oder null, wenn sie leer ist.
+     */
+    public Tierart gibArtAn(int zelle)
+    {
+        int eintrag = zellen[zelle];
+        if(eintrag == LEER) {
+            return null;
+        }
+        return ((eintrag - 1) & 1) == 0 ? Tierart.HASE : Tierart.FUCHS;
+    }
+
+    /**
+     * @param zelle die Nummer einer belegten Zelle.
+     * @return der Index des Tieres in den Spalten seiner Art.
+     */
+    public int gibIndexAn(int zelle)
+    {
+        return (zellen[zelle] - 1) >>> 1;
+    }
+
+    /**
+     * Liefere die Art des Tieres an der angegebenen Position.
+     * @param zeile die gewuenschte Zeile.
+     * @param spalte die gewuenschte Spalte.
+     * @return die Art des Tieres oder null, wenn die Position leer ist.
+     */
+    public Tierart gibArtAn(int zeile, int spalte)
+    {
+        return gibArtAn(zeile * breite + spalte);
+    }
+
+    /**
+     * Liefere die Anzahl der Tiere einer Art im Feld.
+     * @param art die gewuenschte Tierart.
+     * @return die Anzahl der Tiere dieser Art.
+     */
+    public int gibAnzahl(Tierart art)
+    {
+        return bewohner[art.ordinal()];
+    }
+
+    /**
+     * Zaehle Geburten mit (siehe Bevoelkerungsbilanz).
+     * @param art die Art der Neugeborenen.
+     * @param anzahl die Anzahl der Neugeborenen.
+     */
+    void zaehleGeburten(Tierart art, int anzahl)
+    {
+        geburten[art.ordinal()] += anzahl;
+    }
+
+    /**
+     * Zaehle einen Todesfall mit (siehe Bevoelkerungsbilanz).
+     * @param art die Art des Tieres.
+     * @param ursache die Todesursache.
+     */
+    void zaehleTod(Tierart art, Todesursache ursache)
+    {
+        todesfaelle[ursache.index(art)]++;
+    }
+
+    /**
+     * Beginne die Bilanz mit der aktuellen Bevoelkerung, etwa nach dem
+     * Bevoelkern. Geburten und Todesfaelle beginnen wieder bei Null.
+     */
+    void beginneBilanz()
+    {
+        System.arraycopy(bewohner, 0, anfangsbestand, 0, bewohner.length);
+        Arrays.fill(geburten, 0);
+        Arrays.fill(todesfaelle, 0);
+    }
+
+    /**
+     * @return der Zobrist-Hash der aktuellen Belegung.
+     */
+    public long gibZustandshash()
+    {
+        return zustandshash;
+    }
+
+    /**
+     * @param art die gewuenschte Tierart.
+     * @return die Anzahl der seit dem Bevoelkern geborenen Tiere.
+     */
+    public long gibGeburten(Tierart art)
+    {
+        return geburten[art.ordinal()];
+    }
+
+    /**
+     * @param art die gewuenschte Tierart.
+     * @return die Anzahl der seit dem Bevoelkern gestorbenen Tiere.
+     */
+    public long gibTodesfaelle(Tierart art)
+    {
+        int i = art.ordinal();
+        return anfangsbestand[i] + geburten[i] - bewohner[i];
+    }
+
+    /**
+     * @param art die gewuenschte Tierart.
+     * @param ursache die gewuenschte Todesursache.
+     * @return die Anzahl der seit dem Bevoelkern daran gestorbenen Tiere.
+     */
+    public long gibTodesfaelle(Tierart art, Todesursache ursache)
+    {
+        return todesfaelle[ursache.index(art)];
+    }
+
+    /**
+     * Fuehre ab sofort die Hasen je Kachel der Beutesuche, fuer Fuechse
+     * mit einem Jagdradius groesser als 1. Anders als Feld hat dieses
+     * Feld keine Bereiche mit Hasenmasken, die die Suche lesen koennte.
+     * Nur auf einem leeren Feld aufrufen.
+     */
+    void legeHasenkachelnAn()
+    {
+        hasenkacheln = new long[((tiefe + Beutesuche.KANTE - 1) >> Beutesuche.KANTE_BITS)
+                                * kachelnJeZeile];
+        beutesuche = new Beutesuche(tiefe, breite) {
+            long gibHasen(int kachel)
+            {
+                return hasenkacheln[kachel];
+            }
+        };
+    }
+
+    /**
+     * Suche den naechsten Hasen im Umkreis einer Zelle (siehe
+     * Beutesuche). Die Hasenkacheln muessen angelegt sein.
+     * @param zelle die Zelle des Jaegers.
+     * @param radius die groesste Entfernung.
+     * @return die Zelle des Hasen oder -1.
+     */
+    int findeHasen(int zelle, int radius)
+    {
+        int zeile = zelle / breite;
+        return (int) beutesuche.findeNaechste(zeile, zelle - zeile * breite, radius);
+    }
+
+    /**
+     * Waehle die freie Nachbarzelle, die einer Zelle am naechsten liegt
+     * (siehe Beutesuche.waehleSchrittZu). Die Hasenkacheln muessen
+     * angelegt sein.
+     * @param nachbarn das Ergebnis von scanneNachbarn.
+     * @param erste der Index der ersten noch freien Zelle.
+     * @param ziel die Zelle des Ziels.
+     * @return die gewaehlte Zelle oder -1, wenn keine frei ist.
+     */
+    int waehleSchrittZu(Nachbarscan nachbarn, int erste, int ziel)
+    {
+        return (int) beutesuche.waehleSchrittZu(nachbarn, erste, ziel);
+    }
+
+    /**
+     * Melde ab sofort alle Aenderungen an die gegebene Menge.
+     * @param neueAenderungen die zu fuellende Menge.
+     */
+    public void meldeAenderungenAn(Aenderungen neueAenderungen)
+    {
+        aenderungen = Arrays.copyOf(aenderungen, aenderungen.length + 1);
+        aenderungen[aenderungen.length - 1] = neueAenderungen;
+        neueAenderungen.alleMarkieren();
+    }
+
+    /**
+     * Melde keine Aenderungen mehr an die gegebene Menge.
+     * @param alteAenderungen die bisher gefuellte Menge.
+     */
+    public void entferneAenderungen(Aenderungen alteAenderungen)
+    {
+        for(int i = 0; i < aenderungen.length; i++) {
+            if(aenderungen[i] == alteAenderungen) {
+                Aenderungen[] rest = new Aenderungen[aenderungen.length - 1];
+                System.arraycopy(aenderungen, 0, rest, 0, i);
+                System.arraycopy(aenderungen, i + 1, rest, i, rest.length - i);
+                aenderungen = rest;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Melde eine geaenderte Zelle an alle angemeldeten Mengen.
+     */
+    private void markiere(int zelle)
+    {
+        for(int i = 0; i < aenderungen.length; i++) {
+            aenderungen[i].markiere(zelle);
+        }
+    }
+
+    /**
+     * Durchsuche die Nachbarn der gegebenen Zelle ein einziges Mal in
+     * zufaelliger Reihenfolge (siehe Feld.scanneNachbarn).
+     * @param zelle die Zelle, deren Nachbarn durchsucht werden.
+     * @param beute die gesuchte Tierart oder null.
+     * @param rand der Zufallsgenerator zum Mischen.
+     * @param ergebnis das zu fuellende Ergebnis.
+     */
+    public void scanneNachbarn(int zelle, Tierart beute, Random rand, Nachbarscan ergebnis)
+    {
+        int[] nachbarn = ergebnis.nachbarn;
+        int zeile = zelle / breite;
+        int anzahl = nachbarschaft.nachbarzellen(zeile, zelle - zeile * breite, nachbarn, rand);
+        int gesucht = beute == null ? -1 : beute.ordinal();
+        ergebnis.leeren();
+        for(int i = 0; i < anzahl; i++) {
+            int eintrag = zellen[nachbarn[i]];
+            if(eintrag == LEER) {
+                ergebnis.fuegeFreieHinzu(nachbarn[i]);
+            }
+            else if(((eintrag - 1) & 1) == gesucht) {
+                ergebnis.fuegeBeuteHinzu(nachbarn[i]);
+            }
+        }
+    }
+
+    /**
+     * @return die Tiefe dieses Feldes.
+     */
+    public int gibTiefe()
+    {
+        return tiefe;
+    }
+
+    /**
+     * @return die Breite dieses Feldes.
+     */
+    public int gibBreite()
+    {
+        return breite;
+    }
+
+    /**
+     * @return die Nummer der Kachel der Beutesuche, in der eine Zelle liegt.
+     */
+    private int kachel(int zelle)
+    {
+        int zeile = zelle / breite;
+        return (zeile >> Beutesuche.KANTE_BITS) * kachelnJeZeile
+               + ((zelle - zeile * breite) >> Beutesuche.KANTE_BITS);
+    }
+
+    /**
+     * @return das Bit einer Zelle in ihrer Kachel.
+     */
+    private long bit(int zelle)
+    {
+        int zeile = zelle / breite;
+        int spalte = zelle - zeile * breite;
+        return 1L << (((zeile & (Beutesuche.KANTE - 1)) << Beutesuche.KANTE_BITS)
+                      | (spalte & (Beutesuche.KANTE - 1)));
+    }
+}
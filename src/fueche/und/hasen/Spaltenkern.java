@@ -0,0 +1,348 @@
+package fueche.und.hasen;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Ein datenorientierter Simulationskern: Es gibt keine Hase- und
+ * Fuchs-Objekte. Das Feld ist ein Spaltenfeld aus Zahlen, Alter,
+ * Futter-Level und Zelle aller Tiere liegen in Tierspalten.
+ * Ein Schritt besteht aus zwei engen Schleifen ueber diese Spalten.
+ *
+ * Die Regeln und die Reihenfolge der Zufallszahlen entsprechen
+ * Hase.laufe und Fuchs.jage; bei gleichem SEED-Wert verlaeuft eine
+ * Simulation daher genau wie mit dem Objektkern. Jeder Kern besitzt
+ * seinen eigenen Zufallsstrom.
+ *
+ * @author Merlin
+ */
+public class Spaltenkern implements Simulationskern, Messbar
+{
+    // Das Feld mit den Zellenbelegungen
+    private final Spaltenfeld feld;
+    // Die Spalten der Hasen und der Fuechse
+    private final Tierspalten hasen;
+    private final Tierspalten fuechse;
+    // Wiederverwendetes Ergebnis der Nachbarsuche, um nichts je Tier anzulegen
+    private final Nachbarscan nachbarn;
+    // Der Zufallsstrom dieser Simulation
+    private final Zufallsstrom rand;
+    // Die Eigenschaften der Hasen und der Fuechse dieser Simulation
+    private final Artparameter hase;
+    private final Artparameter fuchs;
+    // Die Messung der Phasen eines Schrittes, oder null
+    private Schrittmessung messung;
+
+    /**
+     * Erzeuge einen Kern mit einem leeren Feld der gegebenen Groesse
+     * und dem vorgegebenen SEED-Wert der Zufallssteuerung.
+     * @param tiefe die Tiefe des Feldes (muss groesser als Null sein).
+     * @param breite die Breite des Feldes (muss groesser als Null sein).
+     */
+    public Spaltenkern(int tiefe, int breite)
+    {
+        this(tiefe, breite, Zufallssteuerung.gibSeed());
+    }
+
+    /**
+     * Erzeuge einen Kern mit einem leeren Feld der gegebenen Groesse.
+     * @param tiefe die Tiefe des Feldes (muss groesser als Null sein).
+     * @param breite die Breite des Feldes (muss groesser als Null sein).
+     * @param seed der SEED-Wert dieser Simulation.
+     */
+    public Spaltenkern(int tiefe, int breite, long seed)
+    {
+        this(tiefe, breite, seed, Simulationsparameter.STANDARD);
+    }
+
+    /**
+     * Erzeuge einen Kern mit einem leeren Feld und eigenen Parametern.
+     * @param tiefe die Tiefe des Feldes (muss groesser als Null sein).
+     * @param breite die Breite des Feldes (muss groesser als Null sein).
+     * @param seed der SEED-Wert dieser Simulation.
+     * @param parameter die Eigenschaften der Tiere.
+     */
+    public Spaltenkern(int tiefe, int breite, long seed, Simulationsparameter parameter)
+    {
+        rand = new Zufallsstrom(seed);
+        hase = parameter.gibHase();
+        fuchs = parameter.gibFuchs();
+        feld = new Spaltenfeld(tiefe, breite);
+        if(fuchs.gibJagdradius() > 1) {
+            feld.legeHasenkachelnAn();
+        }
+        hasen = new Tierspalten(Tierart.HASE, false);
+        fuechse = new Tierspalten(Tierart.FUCHS, true);
+        nachbarn = new Nachbarscan();
+    }
+
+    /**
+     * Fuehre einen Simulationsschritt aus: erst laufen alle Hasen,
+     * dann jagen alle Fuechse, zuletzt werden die Toten entfernt.
+     */
+    public void simuliereEinenSchritt()
+    {
+        if(messung == null) {
+            laufeHasen(rand);
+            jageFuechse(rand);
+            hasen.kompaktiere(feld);
+            fuechse.kompaktiere(feld);
+            return;
+        }
+        long zeit = System.nanoTime();
+        laufeHasen(rand);
+        zeit = messung.erfasse(Schrittmessung.Phase.HASEN, zeit);
+        jageFuechse(rand);
+        zeit = messung.erfasse(Schrittmessung.Phase.FUECHSE, zeit);
+        hasen.kompaktiere(feld);
+        fuechse.kompaktiere(feld);
+        messung.erfasse(Schrittmessung.Phase.AUFRAEUMEN, zeit);
+    }
+
+    /**
+     * Melde die Phasen der Schritte an eine Messung (siehe Messbar).
+     * @param neueMessung die Messung oder null fuer keine.
+     */
+    public void setzeMessung(Schrittmessung neueMessung)
+    {
+        messung = neueMessung;
+    }
+
+    /**
+     * Raeume das Feld und bevoelkere es neu.
+     */
+    public void zuruecksetzen()
+    {
+        feld.raeumen();
+        hasen.leeren();
+        fuechse.leeren();
+        bevoelkere(rand);
+        feld.beginneBilanz();
+    }
+
+    /**
+     * @return true wenn noch Fuechse und Hasen leben.
+     */
+    public boolean istAktiv()
+    {
+        return feld.gibAnzahl(Tierart.HASE) > 0 && feld.gibAnzahl(Tierart.FUCHS) > 0;
+    }
+
+    /**
+     * Der Kern haelt weder Threads noch Dateien; nichts zu tun.
+     */
+    public void schliesse()
+    {
+    }
+
+    /**
+     * @return das Feld dieses Kerns.
+     */
+    public Feldbelegung gibBelegung()
+    {
+        return feld;
+    }
+
+    /**
+     * Schreibe den Zustand dieses Kerns in eine Sicherung (siehe
+     * Sicherungspunkt): je Art die lebenden Tiere in Spaltenfolge.
+     * @param aus die Sicherung.
+     */
+    void sichere(Sicherungsschreiber aus) throws IOException
+    {
+        aus.schreibeInt(feld.gibTiefe());
+        aus.schreibeInt(feld.gibBreite());
+        Sicherungspunkt.schreibeParameter(aus, new Simulationsparameter(hase, fuchs));
+        rand.sichere(aus);
+        sichere(hasen, aus);
+        sichere(fuechse, aus);
+    }
+
+    /**
+     * Schreibe die lebenden Tiere einer Art.
+     */
+    private static void sichere(Tierspalten tiere, Sicherungsschreiber aus) throws IOException
+    {
+        int lebend = 0;
+        for(int i = 0; i < tiere.anzahl; i++) {
+            if(tiere.zelle[i] != Tierspalten.TOT) {
+                lebend++;
+            }
+        }
+        aus.schreibeInt(lebend);
+        for(int i = 0; i < tiere.anzahl; i++) {
+            if(tiere.zelle[i] != Tierspalten.TOT) {
+                aus.schreibeInt(tiere.zelle[i]);
+                aus.schreibeInt(tiere.alter[i]);
+                if(tiere.futterLevel != null) {
+                    aus.schreibeInt(tiere.futterLevel[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Erzeuge einen Kern aus einer Sicherung (siehe sichere).
+     * @param ein die Sicherung.
+     * @return der Kern im gesicherten Zustand.
+     */
+    static Spaltenkern lade(Sicherungsleser ein) throws IOException
+    {
+        int tiefe = ein.liesInt();
+        int breite = ein.liesInt();
+        Spaltenkern kern = new Spaltenkern(tiefe, breite, 0, Sicherungspunkt.liesParameter(ein));
+        kern.rand.lade(ein);
+        lade(kern.hasen, kern.feld, ein);
+        lade(kern.fuechse, kern.feld, ein);
+        kern.feld.beginneBilanz();
+        return kern;
+    }
+
+    /**
+     * Lies die Tiere einer Art und trage sie ins Feld ein.
+     */
+    private static void lade(Tierspalten tiere, Spaltenfeld feld, Sicherungsleser ein)
+        throws IOException
+    {
+        int anzahl = ein.liesInt();
+        for(int i = 0; i < anzahl; i++) {
+            int zelle = ein.liesInt();
+            int alter = ein.liesInt();
+            int futterLevel = tiere.futterLevel != null ? ein.liesInt() : 0;
+            tiere.fuegeHinzu(feld, zelle, alter, futterLevel);
+        }
+    }
+
+    /**
+     * Alle Hasen altern, gebaeren und laufen (siehe Hase.laufe).
+     * Neugeborene werden hinten angehaengt und agieren erst im
+     * naechsten Schritt. Gealtert wird vorab in einem Durchlauf ueber
+     * die Spalte, der auch die Todesmaske liefert; gestorben wird wie
+     * bisher in der Reihenfolge der Hasen, damit ihre Zellen nicht
+     * frueher frei werden.
+     */
+    private void laufeHasen(Random rand)
+    {
+        int anzahl = hasen.anzahl;
+        hasen.altere(hase.gibMaxAlter());
+        for(int i = 0; i < anzahl; i++) {
+            int zelle = hasen.zelle[i];
+            if(zelle == Tierspalten.TOT) {
+                continue;
+            }
+            int alter = hasen.alter[i];
+            if(hasen.stirbtAmAlter(i)) {
+                hasen.sterben(feld, i);
+                feld.zaehleTod(Tierart.HASE, Todesursache.ALTER);
+                continue;
+            }
+            // Neugeborene kommen in die ersten freien Nachbarzellen,
+            // der Hase zieht in die naechste.
+            feld.scanneNachbarn(zelle, null, rand, nachbarn);
+            int frei = nachbarn.gibAnzahlFrei();
+            int geburten = Math.min(frei, wurfgroesse(alter, hase, rand));
+            for(int b = 0; b < geburten; b++) {
+                hasen.fuegeHinzu(feld, (int) nachbarn.gibFreieZelle(b), 0, 0);
+            }
+            // Nur weiterziehen, wenn eine Nachbarzelle frei ist.
+            if(geburten < frei) {
+                hasen.bewege(feld, i, (int) nachbarn.gibFreieZelle(geburten));
+            }
+            else {
+                // Ueberpopulation
+                hasen.sterben(feld, i);
+                feld.zaehleTod(Tierart.HASE, Todesursache.UEBERFUELLUNG);
+            }
+        }
+        feld.zaehleGeburten(Tierart.HASE, hasen.anzahl - anzahl);
+    }
+
+    /**
+     * Alle Fuechse altern, hungern, gebaeren und jagen (siehe Fuchs.jage).
+     * Gefressene Hasen werden nur als tot markiert. Alter und Hunger
+     * werden vorab in einem Durchlauf ueber die Spalten fortgeschrieben,
+     * der die Todesmasken fuer beide liefert (siehe laufeHasen).
+     */
+    private void jageFuechse(Random rand)
+    {
+        int anzahl = fuechse.anzahl;
+        fuechse.altere(fuchs.gibMaxAlter());
+        for(int i = 0; i < anzahl; i++) {
+            int zelle = fuechse.zelle[i];
+            if(zelle == Tierspalten.TOT) {
+                continue;
+            }
+            if(fuechse.stirbtAmAlter(i)) {
+                fuechse.sterben(feld, i);
+                feld.zaehleTod(Tierart.FUCHS, Todesursache.ALTER);
+                continue;
+            }
+            if(fuechse.verhungert(i)) {
+                fuechse.sterben(feld, i);
+                feld.zaehleTod(Tierart.FUCHS, Todesursache.HUNGER);
+                continue;
+            }
+            int alter = fuechse.alter[i];
+            // Die Nachbarn nur einmal nach Hasen und freien Zellen durchsuchen.
+            feld.scanneNachbarn(zelle, Tierart.HASE, rand, nachbarn);
+            int frei = nachbarn.gibAnzahlFrei();
+            int geburten = Math.min(frei, wurfgroesse(alter, fuchs, rand));
+            for(int b = 0; b < geburten; b++) {
+                fuechse.fuegeHinzu(feld, (int) nachbarn.gibFreieZelle(b), 0, hase.gibNaehrwert());
+            }
+            // In die Richtung bewegen, in der Futter gefunden wurde.
+            int ziel = (int) nachbarn.gibBeuteZelle();
+            if(ziel >= 0) {
+                hasen.sterben(feld, feld.gibIndexAn(ziel));
+                feld.zaehleTod(Tierart.HASE, Todesursache.GEFRESSEN);
+                fuechse.futterLevel[i] = hase.gibNaehrwert();
+            }
+            else if(geburten < frei) {
+                // kein Futter - auf den naechsten Hasen im Jagdradius zu
+                // oder zufaellig bewegen
+                int hase = fuchs.gibJagdradius() > 1 ? feld.findeHasen(zelle, fuchs.gibJagdradius())
+                                                     : -1;
+                ziel = hase >= 0 ? feld.waehleSchrittZu(nachbarn, geburten, hase)
+                                 : (int) nachbarn.gibFreieZelle(geburten);
+            }
+            if(ziel >= 0) {
+                fuechse.bewege(feld, i, ziel);
+            }
+            else {
+                // Ueberpopulation
+                fuechse.sterben(feld, i);
+                feld.zaehleTod(Tierart.FUCHS, Todesursache.UEBERFUELLUNG);
+            }
+        }
+        feld.zaehleGeburten(Tierart.FUCHS, fuechse.anzahl - anzahl);
+    }
+
+    /**
+     * Ziehe die Wurfgroesse wie Hase.traechtig und Fuchs.traechtig.
+     * @return die Wurfgroesse (kann Null sein).
+     */
+    private static int wurfgroesse(int alter, Artparameter art, Random rand)
+    {
+        if(alter >= art.gibGebaerAlter() && rand.nextDouble() <= art.gibGebaerWahrscheinlichkeit()) {
+            return rand.nextInt(art.gibMaxWurfgroesse()) + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Bevoelkere das Feld mit Fuechsen und Hasen (siehe Objektkern).
+     */
+    private void bevoelkere(Random rand)
+    {
+        int zellen = feld.gibTiefe() * feld.gibBreite();
+        for(int zelle = 0; zelle < zellen; zelle++) {
+            if(rand.nextDouble() <= fuchs.gibAnfangsdichte()) {
+                int alter = rand.nextInt(fuchs.gibMaxAlter());
+                fuechse.fuegeHinzu(feld, zelle, alter, rand.nextInt(hase.gibNaehrwert()));
+            }
+            else if(rand.nextDouble() <= hase.gibAnfangsdichte()) {
+                hasen.fuegeHinzu(feld, zelle, rand.nextInt(hase.gibMaxAlter()), 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package fueche.und.hasen;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ein Beobachter, der erkennt, wann sich ein weiteres Rechnen nicht
+ * mehr lohnt, damit der Simulator vorzeitig anhalten kann (siehe
+ * Simulator.setzeStillstandserkennung). Erkannt werden:
+ *
+ * - eine Wiederholung der Belegung (ZYKLUS), ueber den Zustandshash
+ *   der Belegung; Belegungen ohne Zustandshash werden darauf nicht
+ *   geprueft. Da die Regeln zufaellig sind, folgt aus einer
+ *   Wiederholung nicht, dass sich der weitere Verlauf wiederholt; sie
+ *   zeigt aber einen erstarrten oder periodischen Zustand an.
+ * - eine stationaere Population (STATIONAER), nach dem Verfahren der
+ *   Chargenmittel: Ueber die letzten CHARGEN Fenster wird fuer jede
+ *   Art das Mittel je Fenster gebildet. Stationaer ist die Population,
+ *   wenn der Standardfehler des Gesamtmittels hoechstens die Toleranz
+ *   (relativ zum Mittel) betraegt und sich die erste und die zweite
+ *   Haelfte der Fenster um hoechstens zwei Standardfehler ihrer
+ *   Differenz unterscheiden, also kein Trend mehr zu sehen ist. Das
+ *   Fenster sollte laenger sein als die Schwingungen der Populationen,
+ *   damit die Fenstermittel annaehernd unabhaengig sind.
+ *
+ * Die Erkennung zaehlt Aufrufe, sie sollte daher nach jedem Schritt
+ * benachrichtigt werden. Nach dem Zuruecksetzen beginnt sie neu.
+ *
+ * @author Merlin
+ */
+public class Stillstandserkennung implements Simulationsbeobachter
+{
+    /**
+     * Die Arten des Stillstands.
+     */
+    public enum Grund
+    {
+        ZYKLUS, STATIONAER
+    }
+
+    // Die Anzahl der Fenster, deren Mittel verglichen werden (gerade)
+    private static final int CHARGEN = 8;
+
+    private final int fenster;
+    private final double toleranz;
+    private final Tierart[] arten;
+    // Die Hashes der letzten Schritte als Ring und mit ihrem Schritt
+    private final long[] verlauf;
+    private final Map<Long, Integer> gesehen;
+    private int eintraege;
+    // Summen und Anzahl der Werte im laufenden Fenster
+    private final long[] summen;
+    private int imFenster;
+    // Die Mittel der letzten Fenster je Art als Ring
+    private final double[][] chargen;
+    private int fensterGesamt;
+    // Das Gesamtmittel je Art bei der letzten Pruefung
+    private final double[] mittel;
+    private int letzterSchritt;
+    // Das Ergebnis, sobald ein Stillstand erkannt wurde
+    private Grund grund;
+    private int schritt;
+    private int periode;
+
+    /**
+     * Erzeuge eine Erkennung, die sich die Hashes der letzten 1000
+     * Schritte merkt.
+     * @param fenster die Laenge eines Fensters in Schritten (groesser als Null).
+     * @param toleranz die erlaubte relative Abweichung zweier Fenster.
+     */
+    public Stillstandserkennung(int fenster, double toleranz)
+    {
+        this(fenster, toleranz, 1000);
+    }
+
+    /**
+     * Erzeuge eine Erkennung.
+     * @param fenster die Laenge eines Fensters in Schritten (groesser als Null).
+     * @param toleranz die erlaubte relative Abweichung zweier Fenster
+     *                 (nicht negativ).
+     * @param gedaechtnis wie viele Schritte zurueck Wiederholungen
+     *                    erkannt werden (groesser als Null).
+     */
+    public Stillstandserkennung(int fenster, double toleranz, int gedaechtnis)
+    {
+        if(fenster <= 0 || gedaechtnis <= 0) {
+            throw new IllegalArgumentException("Fenster und Gedaechtnis muessen groesser als Null sein: "
+                                               + fenster + ", " + gedaechtnis);
+        }
+        if(!(toleranz >= 0)) {
+            throw new IllegalArgumentException("Toleranz darf nicht negativ sein: " + toleranz);
+        }
+        this.fenster = fenster;
+        this.toleranz = toleranz;
+        arten = Tierart.values();
+        verlauf = new long[gedaechtnis];
+        gesehen = new HashMap<Long, Integer>();
+        summen = new long[arten.length];
+        chargen = new double[arten.length][CHARGEN];
+        mittel = new double[arten.length];
+        letzterSchritt = -1;
+    }
+
+    /**
+     * Pruefe den neuen Zustand. Nach einem erkannten Stillstand wird
+     * nichts mehr geprueft.
+     * @param neuerSchritt welcher Iterationsschritt ist dies.
+     * @param feld die Belegung des Feldes.
+     */
+    public void zeigeStatus(int neuerSchritt, Feldbelegung feld)
+    {
+        if(neuerSchritt <= letzterSchritt) {
+            beginneNeu();
+        }
+        letzterSchritt = neuerSchritt;
+        if(grund != null) {
+            return;
+        }
+        if(feld instanceof Zustandshash) {
+            pruefeWiederholung(neuerSchritt, ((Zustandshash) feld).gibZustandshash());
+        }
+        if(grund == null) {
+            pruefeFenster(neuerSchritt, feld);
+        }
+    }
+
+    /**
+     * @return true wenn ein Stillstand erkannt wurde.
+     */
+    public boolean istErreicht()
+    {
+        return grund != null;
+    }
+
+    /**
+     * @return die Art des erkannten Stillstands oder null.
+     */
+    public Grund gibGrund()
+    {
+        return grund;
+    }
+
+    /**
+     * @return der Schritt, in dem der Stillstand erkannt wurde, oder -1.
+     */
+    public int gibSchritt()
+    {
+        return grund == null ? -1 : schritt;
+    }
+
+    /**
+     * @return die Laenge des Zyklus in Schritten; 0 wenn kein Zyklus
+     *         erkannt wurde.
+     */
+    public int gibPeriode()
+    {
+        return periode;
+    }
+
+    /**
+     * @return eine Beschreibung des Ergebnisses fuer Menschen.
+     */
+    public String gibBeschreibung()
+    {
+        if(grund == null) {
+            return "kein Stillstand";
+        }
+        if(grund == Grund.ZYKLUS) {
+            return "Belegung wiederholt sich nach " + periode + " Schritten (Schritt "
+                   + schritt + ")";
+        }
+        StringBuilder text = new StringBuilder("stationaer in Schritt ").append(schritt)
+                                                                         .append(", Mittel");
+        for(int a = 0; a < arten.length; a++) {
+            text.append(' ').append(arten[a].gibKlasse().getSimpleName()).append(": ")
+                .append(String.format(Locale.ROOT, "%.1f", mittel[a]));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Vergleiche den Hash mit denen der letzten Schritte.
+     */
+    private void pruefeWiederholung(int neuerSchritt, long hash)
+    {
+        Integer frueher = gesehen.put(hash, neuerSchritt);
+        if(frueher != null) {
+            stelleFest(Grund.ZYKLUS, neuerSchritt);
+            periode = neuerSchritt - frueher;
+            return;
+        }
+        // Den aeltesten Hash vergessen, wenn das Gedaechtnis voll ist.
+        int platz = eintraege % verlauf.length;
+        if(eintraege >= verlauf.length) {
+            gesehen.remove(verlauf[platz]);
+        }
+        verlauf[platz] = hash;
+        eintraege++;
+    }
+
+    /**
+     * Summiere die Population und pruefe nach jedem vollen Fenster
+     * die Chargenmittel.
+     */
+    private void pruefeFenster(int neuerSchritt, Feldbelegung feld)
+    {
+        for(int a = 0; a < arten.length; a++) {
+            summen[a] += feld.gibAnzahl(arten[a]);
+        }
+        if(++imFenster < fenster) {
+            return;
+        }
+        int platz = fensterGesamt % CHARGEN;
+        for(int a = 0; a < arten.length; a++) {
+            chargen[a][platz] = (double) summen[a] / fenster;
+            summen[a] = 0;
+        }
+        imFenster = 0;
+        if(++fensterGesamt < CHARGEN) {
+            return;
+        }
+        boolean stationaer = true;
+        for(int a = 0; a < arten.length; a++) {
+            stationaer &= istStationaer(chargen[a], platz, a);
+        }
+        if(stationaer) {
+            stelleFest(Grund.STATIONAER, neuerSchritt);
+        }
+    }
+
+    /**
+     * Pruefe die Chargenmittel einer Art.
+     * @param werte die Fenstermittel als Ring.
+     * @param neuester der Platz des neuesten Fenstermittels.
+     * @param art die Ordnungszahl der Art, fuer das Gesamtmittel.
+     */
+    private boolean istStationaer(double[] werte, int neuester, int art)
+    {
+        double summe = 0;
+        double aeltere = 0;
+        for(int i = 0; i < CHARGEN; i++) {
+            // Vom aeltesten zum neuesten Fenster
+            double wert = werte[(neuester + 1 + i) % CHARGEN];
+            summe += wert;
+            if(i < CHARGEN / 2) {
+                aeltere += wert;
+            }
+        }
+        double gesamt = summe / CHARGEN;
+        double quadrate = 0;
+        for(int i = 0; i < CHARGEN; i++) {
+            quadrate += (werte[i] - gesamt) * (werte[i] - gesamt);
+        }
+        double streuung = Math.sqrt(quadrate / (CHARGEN - 1));
+        mittel[art] = gesamt;
+        // Standardfehler des Gesamtmittels und der Differenz der Haelften
+        double fehler = streuung / Math.sqrt(CHARGEN);
+        double trend = Math.abs(2 * aeltere / CHARGEN - 2 * (summe - aeltere) / CHARGEN);
+        return fehler <= toleranz * gesamt && trend <= 2 * 2 * fehler;
+    }
+
+    /**
+     * Halte das Ergebnis fest.
+     */
+    private void stelleFest(Grund erkannt, int neuerSchritt)
+    {
+        grund = erkannt;
+        schritt = neuerSchritt;
+    }
+
+    /**
+     * Vergiss alles, etwa nach dem Zuruecksetzen der Simulation.
+     */
+    private void beginneNeu()
+    {
+        gesehen.clear();
+        eintraege = 0;
+        Arrays.fill(summen, 0);
+        imFenster = 0;
+        fensterGesamt = 0;
+        grund = null;
+        periode = 0;
+    }
+}
@@ -0,0 +1,659 @@
+package fueche.und.hasen;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Ein Simulationskern, der einen Schritt auf mehrere Prozessorkerne
+ * verteilt. Das Feld wird in waagerechte Streifen fester Hoehe
+ * zerlegt, die mit Fork/Join bearbeitet werden.
+ *
+ * Der Zustand eines Tieres liegt in der Zelle, in der es steht
+ * (Art, Alter, Futter-Level). Ein Tier, das in einen anderen
+ * Streifen laeuft, nimmt seinen Zustand einfach mit; es gibt keine
+ * Listen, die zwischen Streifen abgeglichen werden muessten.
+ *
+ * Grenzueberschreitende Zuege, Geburten und Fressen werden so
+ * geregelt: Ein Tier liest und schreibt hoechstens eine Zeile
+ * ausserhalb seines Streifens. Ein Schritt besteht aus vier Phasen
+ * (Hasen in geraden Streifen, Hasen in ungeraden Streifen, dann
+ * dasselbe fuer Fuechse); innerhalb einer Phase laufen nur Streifen,
+ * zwischen denen mindestens ein ganzer Streifen liegt, und die
+ * sich daher nie beruehren. Jede Zelle merkt sich, in welchem
+ * Schritt ihr Tier zuletzt agiert hat, so dass ein Tier, das in
+ * einen spaeter bearbeiteten Bereich laeuft, nicht zweimal agiert.
+ * Neugeborene agieren erst im naechsten Schritt.
+ *
+ * Jeder Streifen zieht seine Zufallszahlen aus einem eigenen, aus
+ * dem Zufallsstrom des Laufs fuer Schritt und Streifennummer
+ * abgeleiteten Strom (siehe Zufallsstrom.ableiten).
+ * Das Ergebnis haengt deshalb nicht von der Anzahl der Threads ab.
+ * Gegenueber dem sequentiellen Objekt- und Spaltenkern, die als
+ * Referenz dienen, aendert sich nur die Reihenfolge, in der die
+ * Tiere eines Schrittes agieren: zeilenweise statt in Listenfolge.
+ * Das Modell reagiert darauf merklich; bei 100x120 liegt die
+ * mittlere Zahl der Hasen um etwa ein Drittel hoeher.
+ *
+ * Ein Jagdradius groesser als 1 wird nicht unterstuetzt: Fuechse
+ * wuerden dann Zeilen lesen, die gleichzeitig andere Streifen
+ * aendern.
+ *
+ * @author Merlin
+ */
+public class Streifenkern implements Simulationskern, Feldbelegung, Bevoelkerungsbilanz,
+                                     Messbar
+{
+    // Die Standardhoehe eines Streifens in Zeilen
+    public static final int STANDARD_STREIFENHOEHE = 16;
+    // Eintrag in art fuer eine leere Zelle
+    private static final byte LEER = 0;
+    private static final byte HASE = (byte) (Tierart.HASE.ordinal() + 1);
+    private static final byte FUCHS = (byte) (Tierart.FUCHS.ordinal() + 1);
+
+    // Die Tiefe und die Breite des Feldes
+    private final int tiefe, breite;
+    // Zustand je Zelle: Art des Tieres, Alter, Futter-Level und
+    // (die unteren Bits des) Schritts, in dem es zuletzt agiert hat.
+    private final byte[] art;
+    private final int[] alter;
+    private final int[] futterLevel;
+    private final byte[] marke;
+    // Die Streifen, in die das Feld zerlegt ist, und ihre Hoehe
+    private final Streifen[] streifen;
+    private final int streifenHoehe;
+    private final Nachbarschaft nachbarschaft;
+    // Die Threads fuer die Phasen oder null, wenn nur ein Thread
+    // verwendet wird (etwa in einem Ensemble vieler Laeufe)
+    private final ForkJoinPool pool;
+    // Der Zufallsstrom dieser Simulation; aus ihm wird bei jedem
+    // Zuruecksetzen der Strom des Laufs abgeteilt.
+    private final Zufallsstrom rand;
+    private Zufallsstrom laufStrom;
+    // Die Eigenschaften der Hasen und der Fuechse dieser Simulation
+    private final Artparameter hase;
+    private final Artparameter fuchs;
+
+    // Der aktuelle Schritt
+    private int schritt;
+    // Die Populationen nach dem letzten Schritt
+    private int anzahlHasen, anzahlFuechse;
+    // Die Bilanz seit dem Bevoelkern
+    private int anfangHasen, anfangFuechse;
+    private long geburtenHasen, geburtenFuechse;
+    private final long[] todesfaelle;
+    // Die Messung der Phasen eines Schrittes, oder null
+    private Schrittmessung messung;
+
+    /**
+     * Erzeuge einen Kern mit Streifen der Standardhoehe.
+     * @param tiefe die Tiefe des Feldes (muss groesser als Null sein).
+     * @param breite die Breite des Feldes (muss groesser als Null sein).
+     * @param threads die Anzahl der Threads (mindestens 1).
+     */
+    public Streifenkern(int tiefe, int breite, int threads)
+    {
+        this(tiefe, breite, threads, STANDARD_STREIFENHOEHE);
+    }
+
+    /**
+     * Erzeuge einen Kern mit einem leeren Feld der gegebenen Groesse.
+     * Die Streifenhoehe bestimmt die Zerlegung und damit das Ergebnis,
+     * die Anzahl der Threads nur die Geschwindigkeit.
+     * @param tiefe die Tiefe des Feldes (muss groesser als Null sein).
+     * @param breite die Breite des Feldes (muss groesser als Null sein).
+     * @param threads die Anzahl der Threads (mindestens 1).
+     * @param streifenHoehe die Hoehe eines Streifens (mindestens 2).
+     */
+    public Streifenkern(int tiefe, int breite, int threads, int streifenHoehe)
+    {
+        this(tiefe, breite, threads, streifenHoehe, Zufallssteuerung.gibSeed());
+    }
+
+    /**
+     * Erzeuge einen Kern mit einem leeren Feld der gegebenen Groesse
+     * und einem eigenen Zufallsstrom.
+     * @param tiefe die Tiefe des Feldes (muss groesser als Null sein).
+     * @param breite die Breite des Feldes (muss groesser als Null sein).
+     * @param threads die Anzahl der Threads (mindestens 1).
+     * @param streifenHoehe die Hoehe eines Streifens (mindestens 2).
+     * @param seed der SEED-Wert dieser Simulation.
+     */
+    public Streifenkern(int tiefe, int breite, int threads, int streifenHoehe, long seed)
+    {
+        this(tiefe, breite, threads, streifenHoehe, seed, Simulationsparameter.STANDARD);
+    }
+
+    /**
+     * Erzeuge einen Kern mit einem leeren Feld, einem eigenen
+     * Zufallsstrom und eigenen Parametern.
+     * @param tiefe die Tiefe des Feldes (muss groesser als Null sein).
+     * @param breite die Breite des Feldes (muss groesser als Null sein).
+     * @param threads die Anzahl der Threads (mindestens 1).
+     * @param streifenHoehe die Hoehe eines Streifens (mindestens 2).
+     * @param seed der SEED-Wert dieser Simulation.
+     * @param parameter die Eigenschaften der Tiere.
+     */
+    public Streifenkern(int tiefe, int breite, int threads, int streifenHoehe, long seed,
+                        Simulationsparameter parameter)
+    {
+        if(tiefe <= 0 || breite <= 0 || (long) tiefe * breite > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Ungueltige Abmessungen: " + tiefe + "x" + breite);
+        }
+        if(threads < 1) {
+            throw new IllegalArgumentException("Mindestens ein Thread erforderlich: " + threads);
+        }
+        if(streifenHoehe < 2) {
+            // Sonst beruehren sich gleichzeitig bearbeitete Streifen.
+            throw new IllegalArgumentException("Streifenhoehe muss mindestens 2 sein: " + streifenHoehe);
+        }
+        if(parameter.gibFuchs().gibJagdradius() > 1) {
+            throw new IllegalArgumentException("Der Kern streifen unterstuetzt keinen Jagdradius: "
+                                               + parameter.gibFuchs().gibJagdradius());
+        }
+        this.tiefe = tiefe;
+        this.breite = breite;
+        this.streifenHoehe = streifenHoehe;
+        int zellen = tiefe * breite;
+        art = new byte[zellen];
+        alter = new int[zellen];
+        futterLevel = new int[zellen];
+        marke = new byte[zellen];
+        nachbarschaft = new Nachbarschaft(tiefe, breite);
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        rand = new Zufallsstrom(seed);
+        hase = parameter.gibHase();
+        fuchs = parameter.gibFuchs();
+        todesfaelle = new long[Tierart.values().length * Todesursache.ANZAHL];
+
+        int anzahl = (tiefe + streifenHoehe - 1) / streifenHoehe;
+        streifen = new Streifen[anzahl];
+        for(int i = 0; i < anzahl; i++) {
+            streifen[i] = new Streifen(i, i * streifenHoehe, Math.min(tiefe, (i + 1) * streifenHoehe));
+        }
+    }
+
+    /**
+     * Fuehre einen Simulationsschritt in vier Phasen aus.
+     */
+    public void simuliereEinenSchritt()
+    {
+        schritt++;
+        for(Streifen s : streifen) {
+            s.beginneSchritt();
+        }
+        long zeit = messung != null ? System.nanoTime() : 0;
+        bearbeitePhase(HASE, 0);
+        bearbeitePhase(HASE, 1);
+        if(messung != null) {
+            zeit = messung.erfasse(Schrittmessung.Phase.HASEN, zeit);
+        }
+        bearbeitePhase(FUCHS, 0);
+        bearbeitePhase(FUCHS, 1);
+        if(messung != null) {
+            zeit = messung.erfasse(Schrittmessung.Phase.FUECHSE, zeit);
+        }
+        for(Streifen s : streifen) {
+            anzahlHasen += s.deltaHasen;
+            anzahlFuechse += s.deltaFuechse;
+            geburtenHasen += s.geborenHasen;
+            geburtenFuechse += s.geborenFuechse;
+            for(int i = 0; i < todesfaelle.length; i++) {
+                todesfaelle[i] += s.gestorben[i];
+            }
+        }
+        if(messung != null) {
+            messung.erfasse(Schrittmessung.Phase.AUFRAEUMEN, zeit);
+        }
+    }
+
+    /**
+     * Melde die Phasen der Schritte an eine Messung (siehe Messbar).
+     * Gemessen wird die Wanduhrzeit der Phasen ueber alle Streifen.
+     * @param neueMessung die Messung oder null fuer keine.
+     */
+    public void setzeMessung(Schrittmessung neueMessung)
+    {
+        messung = neueMessung;
+    }
+
+    /**
+     * Bearbeite alle Streifen einer Paritaet fuer eine Tierart. Mit nur
+     * einem Thread geschieht das ohne Pool in derselben Reihenfolge.
+     */
+    private void bearbeitePhase(byte tierart, int paritaet)
+    {
+        if(pool != null) {
+            pool.invoke(new Phase(tierart, paritaet, 0, (streifen.length + 1 - paritaet) / 2));
+        }
+        else {
+            for(int i = paritaet; i < streifen.length; i += 2) {
+                streifen[i].bearbeite(tierart);
+            }
+        }
+    }
+
+    /**
+     * Raeume das Feld und bevoelkere es neu. Die Bevoelkerung
+     * entspricht der des Spaltenkerns.
+     */
+    public void zuruecksetzen()
+    {
+        schritt = 0;
+        laufStrom = rand.teile();
+        anzahlHasen = 0;
+        anzahlFuechse = 0;
+        Arrays.fill(art, LEER);
+        Arrays.fill(marke, (byte) 0);
+        for(int zelle = 0; zelle < art.length; zelle++) {
+            if(rand.nextDouble() <= fuchs.gibAnfangsdichte()) {
+                art[zelle] = FUCHS;
+                alter[zelle] = rand.nextInt(fuchs.gibMaxAlter());
+                futterLevel[zelle] = rand.nextInt(hase.gibNaehrwert());
+                anzahlFuechse++;
+            }
+            else if(rand.nextDouble() <= hase.gibAnfangsdichte()) {
+                art[zelle] = HASE;
+                alter[zelle] = rand.nextInt(hase.gibMaxAlter());
+                anzahlHasen++;
+            }
+        }
+        beginneBilanz();
+    }
+
+    /**
+     * Schreibe den Zustand dieses Kerns in eine Sicherung (siehe
+     * Sicherungspunkt). Nur belegte Zellen werden geschrieben; die
+     * Stroeme der Streifen werden in jedem Schritt neu abgeleitet und
+     * brauchen nicht gesichert zu werden.
+     * @param aus die Sicherung.
+     */
+    void sichere(Sicherungsschreiber aus) throws IOException
+    {
+        aus.schreibeInt(tiefe);
+        aus.schreibeInt(breite);
+        aus.schreibeInt(pool == null ? 1 : pool.getParallelism());
+        aus.schreibeInt(streifenHoehe);
+        Sicherungspunkt.schreibeParameter(aus, new Simulationsparameter(hase, fuchs));
+        rand.sichere(aus);
+        laufStrom.sichere(aus);
+        aus.schreibeInt(schritt);
+        aus.schreibeInt(anzahlHasen + anzahlFuechse);
+        for(int zelle = 0; zelle < art.length; zelle++) {
+            if(art[zelle] != LEER) {
+                aus.schreibeInt(zelle);
+                aus.schreibeByte(art[zelle]);
+                aus.schreibeByte(marke[zelle]);
+                aus.schreibeInt(alter[zelle]);
+                aus.schreibeInt(futterLevel[zelle]);
+            }
+        }
+    }
+
+    /**
+     * Erzeuge einen Kern aus einer Sicherung (siehe sichere).
+     * @param ein die Sicherung.
+     * @return der Kern im gesicherten Zustand.
+     */
+    static Streifenkern lade(Sicherungsleser ein) throws IOException
+    {
+        int tiefe = ein.liesInt();
+        int breite = ein.liesInt();
+        int threads = ein.liesInt();
+        int hoehe = ein.liesInt();
+        Streifenkern kern = new Streifenkern(tiefe, breite, threads, hoehe, 0,
+                                             Sicherungspunkt.liesParameter(ein));
+        kern.rand.lade(ein);
+        kern.laufStrom = new Zufallsstrom(0);
+        kern.laufStrom.lade(ein);
+        kern.schritt = ein.liesInt();
+        int anzahl = ein.liesInt();
+        for(int i = 0; i < anzahl; i++) {
+            int zelle = ein.liesInt();
+            byte tierart = ein.liesByte();
+            kern.art[zelle] = tierart;
+            kern.marke[zelle] = ein.liesByte();
+            kern.alter[zelle] = ein.liesInt();
+            kern.futterLevel[zelle] = ein.liesInt();
+            if(tierart == HASE) {
+                kern.anzahlHasen++;
+            }
+            else if(tierart == FUCHS) {
+                kern.anzahlFuechse++;
+            }
+            else {
+                throw new IOException("Unbekannte Tierart " + tierart + " in Zelle " + zelle);
+            }
+        }
+        kern.beginneBilanz();
+        return kern;
+    }
+
+    /**
+     * @return true wenn noch Fuechse und Hasen leben.
+     */
+    public boolean istAktiv()
+    {
+        return anzahlHasen > 0 && anzahlFuechse > 0;
+    }
+
+    /**
+     * Beende die Threads des Pools, sobald sie fertig sind.
+     */
+    public void schliesse()
+    {
+        if(pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return dieser Kern selbst.
+     */
+    public Feldbelegung gibBelegung()
+    {
+        return this;
+    }
+
+    /**
+     * Liefere die Art des Tieres an der angegebenen Position.
+     * @param zeile die gewuenschte Zeile.
+     * @param spalte die gewuenschte Spalte.
+     * @return die Art des Tieres oder null, wenn die Position leer ist.
+     */
+    public Tierart gibArtAn(int zeile, int spalte)
+    {
+        byte a = art[zeile * breite + spalte];
+        return a == LEER ? null : Tierart.values()[a - 1];
+    }
+
+    /**
+     * Liefere die Anzahl der Tiere einer Art. Die Streifen zaehlen
+     * Geburten und Todesfaelle mit, die nach jedem Schritt summiert
+     * werden.
+     * @param art die gewuenschte Tierart.
+     * @return die Anzahl der Tiere dieser Art.
+     */
+    public int gibAnzahl(Tierart art)
+    {
+        return art == Tierart.HASE ? anzahlHasen : anzahlFuechse;
+    }
+
+    /**
+     * @param art die gewuenschte Tierart.
+     * @return die Anzahl der seit dem Bevoelkern geborenen Tiere.
+     */
+    public long gibGeburten(Tierart art)
+    {
+        return art == Tierart.HASE ? geburtenHasen : geburtenFuechse;
+    }
+
+    /**
+     * @param art die gewuenschte Tierart.
+     * @return die Anzahl der seit dem Bevoelkern gestorbenen Tiere.
+     */
+    public long gibTodesfaelle(Tierart art)
+    {
+        return art == Tierart.HASE ? anfangHasen + geburtenHasen - anzahlHasen
+                                   : anfangFuechse + geburtenFuechse - anzahlFuechse;
+    }
+
+    /**
+     * @param art die gewuenschte Tierart.
+     * @param ursache die gewuenschte Todesursache.
+     * @return die Anzahl der seit dem Bevoelkern daran gestorbenen Tiere.
+     */
+    public long gibTodesfaelle(Tierart art, Todesursache ursache)
+    {
+        return todesfaelle[ursache.index(art)];
+    }
+
+    /**
+     * Beginne die Bilanz mit der aktuellen Bevoelkerung.
+     */
+    private void beginneBilanz()
+    {
+        anfangHasen = anzahlHasen;
+        anfangFuechse = anzahlFuechse;
+        geburtenHasen = 0;
+        geburtenFuechse = 0;
+        Arrays.fill(todesfaelle, 0);
+    }
+
+    /**
+     * @return die Tiefe des Feldes.
+     */
+    public int gibTiefe()
+    {
+        return tiefe;
+    }
+
+    /**
+     * @return die Breite des Feldes.
+     */
+    public int gibBreite()
+    {
+        return breite;
+    }
+
+    /**
+     * Ein waagerechter Streifen des Feldes mit eigenem Zufallsgenerator
+     * und eigenen Puffern. Er wird immer nur von einem Thread bearbeitet.
+     */
+    private class Streifen
+    {
+        private final int nummer;
+        // Die erste Zelle und die Zelle hinter dem Streifen
+        private final int von, bis;
+        private final Nachbarscan nachbarn;
+        private final Zufallsstrom rand;
+        // Geburten minus Todesfaelle und Geburten in diesem Schritt
+        private int deltaHasen, deltaFuechse;
+        private int geborenHasen, geborenFuechse;
+        // Todesfaelle in diesem Schritt je Art und Ursache
+        private final int[] gestorben;
+
+        Streifen(int nummer, int vonZeile, int bisZeile)
+        {
+            this.nummer = nummer;
+            von = vonZeile * breite;
+            bis = bisZeile * breite;
+            nachbarn = new Nachbarscan();
+            rand = new Zufallsstrom(0);
+            gestorben = new int[todesfaelle.length];
+        }
+
+        void beginneSchritt()
+        {
+            laufStrom.ableitenIn(rand, schritt, nummer);
+            deltaHasen = 0;
+            deltaFuechse = 0;
+            geborenHasen = 0;
+            geborenFuechse = 0;
+            Arrays.fill(gestorben, 0);
+        }
+
+        /**
+         * Lasse alle Tiere der Art, die in diesem Schritt noch nicht
+         * agiert haben, in Zeilenreihenfolge agieren.
+         */
+        void bearbeite(byte tierart)
+        {
+            byte aktuell = (byte) schritt;
+            for(int zelle = von; zelle < bis; zelle++) {
+                if(art[zelle] == tierart && marke[zelle] != aktuell) {
+                    marke[zelle] = aktuell;
+                    if(tierart == HASE) {
+                        laufe(zelle, aktuell);
+                    }
+                    else {
+                        jage(zelle, aktuell);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Ein Hase altert, gebaert und laeuft (siehe Hase.laufe).
+         */
+        private void laufe(int zelle, byte aktuell)
+        {
+            int neuesAlter = ++alter[zelle];
+            if(neuesAlter > hase.gibMaxAlter()) {
+                art[zelle] = LEER;
+                deltaHasen--;
+                gestorben[Todesursache.ALTER.index(Tierart.HASE)]++;
+                return;
+            }
+            int frei = sammleNachbarn(zelle, LEER);
+            int geburten = Math.min(frei, wurfgroesse(neuesAlter, hase));
+            for(int b = 0; b < geburten; b++) {
+                int ziel = (int) nachbarn.gibFreieZelle(b);
+                art[ziel] = HASE;
+                alter[ziel] = 0;
+                marke[ziel] = aktuell;
+            }
+            deltaHasen += geburten;
+            geborenHasen += geburten;
+            if(geburten < frei) {
+                bewege(zelle, (int) nachbarn.gibFreieZelle(geburten));
+            }
+            else {
+                // Ueberpopulation
+                art[zelle] = LEER;
+                deltaHasen--;
+                gestorben[Todesursache.UEBERFUELLUNG.index(Tierart.HASE)]++;
+            }
+        }
+
+        /**
+         * Ein Fuchs altert, hungert, gebaert und jagt (siehe Fuchs.jage).
+         */
+        private void jage(int zelle, byte aktuell)
+        {
+            int neuesAlter = ++alter[zelle];
+            if(neuesAlter > fuchs.gibMaxAlter() || --futterLevel[zelle] <= 0) {
+                art[zelle] = LEER;
+                deltaFuechse--;
+                Todesursache ursache = neuesAlter > fuchs.gibMaxAlter() ? Todesursache.ALTER
+                                                                         : Todesursache.HUNGER;
+                gestorben[ursache.index(Tierart.FUCHS)]++;
+                return;
+            }
+            int frei = sammleNachbarn(zelle, HASE);
+            int geburten = Math.min(frei, wurfgroesse(neuesAlter, fuchs));
+            for(int b = 0; b < geburten; b++) {
+                int ziel = (int) nachbarn.gibFreieZelle(b);
+                art[ziel] = FUCHS;
+                alter[ziel] = 0;
+                futterLevel[ziel] = hase.gibNaehrwert();
+                marke[ziel] = aktuell;
+            }
+            deltaFuechse += geburten;
+            geborenFuechse += geburten;
+            int ziel = (int) nachbarn.gibBeuteZelle();
+            if(ziel >= 0) {
+                // Der Hase wird gefressen, der Fuchs nimmt seinen Platz ein.
+                art[ziel] = LEER;
+                deltaHasen--;
+                gestorben[Todesursache.GEFRESSEN.index(Tierart.HASE)]++;
+                futterLevel[zelle] = hase.gibNaehrwert();
+            }
+            else if(geburten < frei) {
+                ziel = (int) nachbarn.gibFreieZelle(geburten);
+            }
+            if(ziel >= 0) {
+                bewege(zelle, ziel);
+            }
+            else {
+                // Ueberpopulation
+                art[zelle] = LEER;
+                deltaFuechse--;
+                gestorben[Todesursache.UEBERFUELLUNG.index(Tierart.FUCHS)]++;
+            }
+        }
+
+        /**
+         * Durchsuche die Nachbarn einmal in zufaelliger Reihenfolge
+         * (siehe Spaltenfeld.scanneNachbarn).
+         * @param beute die Art der Beute oder LEER fuer keine.
+         * @return die Anzahl der freien Nachbarn.
+         */
+        private int sammleNachbarn(int zelle, byte beute)
+        {
+            int zeile = zelle / breite;
+            int anzahl = nachbarschaft.nachbarzellen(zeile, zelle - zeile * breite,
+                                                     nachbarn.nachbarn, rand);
+            nachbarn.leeren();
+            for(int i = 0; i < anzahl; i++) {
+                int n = nachbarn.nachbarn[i];
+                byte a = art[n];
+                if(a == LEER) {
+                    nachbarn.fuegeFreieHinzu(n);
+                }
+                else if(a == beute) {
+                    nachbarn.fuegeBeuteHinzu(n);
+                }
+            }
+            return nachbarn.gibAnzahlFrei();
+        }
+
+        /**
+         * Setze das Tier samt Zustand von einer Zelle in eine andere.
+         */
+        private void bewege(int zelle, int ziel)
+        {
+            art[ziel] = art[zelle];
+            alter[ziel] = alter[zelle];
+            futterLevel[ziel] = futterLevel[zelle];
+            marke[ziel] = marke[zelle];
+            art[zelle] = LEER;
+        }
+
+        /**
+         * Ziehe die Wurfgroesse wie Hase.traechtig und Fuchs.traechtig.
+         */
+        private int wurfgroesse(int tieralter, Artparameter eigenschaften)
+        {
+            if(tieralter >= eigenschaften.gibGebaerAlter()
+               && rand.nextDouble() <= eigenschaften.gibGebaerWahrscheinlichkeit()) {
+                return rand.nextInt(eigenschaften.gibMaxWurfgroesse()) + 1;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Eine Phase eines Schrittes: alle Streifen einer Paritaet, deren
+     * Index zwischen von und bis (in Zweierschritten gezaehlt) liegt.
+     * Der Bereich wird so lange halbiert, bis ein einzelner Streifen
+     * uebrig bleibt.
+     */
+    private class Phase extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final byte tierart;
+        private final int paritaet, von, bis;
+
+        Phase(byte tierart, int paritaet, int von, int bis)
+        {
+            this.tierart = tierart;
+            this.paritaet = paritaet;
+            this.von = von;
+            this.bis = bis;
+        }
+
+        protected void compute()
+        {
+            if(bis - von == 1) {
+                streifen[2 * von + paritaet].bearbeite(tierart);
+            }
+            else if(bis - von > 1) {
+                int mitte = (von + bis) >>> 1;
+                invokeAll(new Phase(tierart, paritaet, von, mitte),
+                          new Phase(tierart, paritaet, mitte, bis));
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package fueche.und.hasen;
+
+import java.awt.Color;
+
+/**
+ * Die Tierarten der Simulation. Die Ordnungszahl einer Art
+ * dient als kompakter Schluessel in Feldern und Zaehlern. Die Farbe
+ * einer Art benutzen die Ansicht und der Bildexport.
+ *
+ * @author Merlin
+ */
+public enum Tierart
+{
+    HASE(Hase.class, Color.orange),
+    FUCHS(Fuchs.class, Color.blue);
+
+    // Die Klasse der Tiere dieser Art im objektbasierten Modell
+    private final Class<?> klasse;
+    // Die Farbe der Tiere dieser Art in Ansicht und Bildern
+    private final Color farbe;
+
+    private Tierart(Class<?> klasse, Color farbe)
+    {
+        this.klasse = klasse;
+        this.farbe = farbe;
+    }
+
+    /**
+     * @return die Klasse der Tiere dieser Art.
+     */
+    public Class<?> gibKlasse()
+    {
+        return klasse;
+    }
+
+    /**
+     * @return die Farbe der Tiere dieser Art.
+     */
+    public Color gibFarbe()
+    {
+        return farbe;
+    }
+
+    /**
+     * Liefere den Zobrist-Schluessel eines Tieres dieser Art in der
+     * gegebenen Zelle (siehe Zustandshash).
+     * @param zelle die Nummer der Zelle.
+     * @return der Schluessel.
+     */
+    public long schluessel(long zelle)
+    {
+        return Zufallsstrom.wert(zelle << 1 | ordinal());
+    }
+
+    /**
+     * Bestimme die Art eines Tierobjekts.
+     * @param tier ein Hase oder ein Fuchs.
+     * @return die Art des Tieres oder null, wenn tier null oder
+     *         kein bekanntes Tier ist.
+     */
+    public static Tierart von(Object tier)
+    {
+        if(tier instanceof Hase) {
+            return HASE;
+        }
+        else if(tier instanceof Fuchs) {
+            return FUCHS;
+        }
+        else {
+            return null;
+        }
+    }
+}
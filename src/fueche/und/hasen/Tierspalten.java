@@ -0,0 +1,200 @@
+package fueche.und.hasen;
+
+import java.util.Arrays;
+
+/**
+ * Die Tiere einer Art in parallelen Spalten primitiver Werte:
+ * Das Tier mit Index i hat das Alter alter[i], den Futter-Level
+ * futterLevel[i] und steht in der Zelle zelle[i] seines Spaltenfeldes.
+ * Tote Tiere werden mit TOT markiert und bei kompaktiere entfernt.
+ * altere fuehrt Alter und Futter-Level aller Tiere in einem Durchlauf
+ * fort und haelt dabei in Bitmasken fest, welche Tiere am Alter oder
+ * am Hunger sterben.
+ *
+ * @author Merlin
+ */
+class Tierspalten
+{
+    // Zellennummer eines toten Tieres
+    static final int TOT = -1;
+    // Anfangsgroesse der Spalten
+    private static final int ANFANGS_KAPAZITAET = 64;
+
+    // Die Art der hier gespeicherten Tiere
+    final Tierart art;
+    // Anzahl der belegten Eintraege (lebend oder als TOT markiert)
+    int anzahl;
+    // Die Spalten. futterLevel ist null fuer Arten ohne Hunger.
+    int[] alter;
+    int[] futterLevel;
+    int[] zelle;
+    // Die Todesmasken von altere, ein Bit je Tier
+    private long[] altersTod;
+    private long[] hungerTod;
+
+    /**
+     * Erzeuge leere Spalten.
+     * @param art die Art der Tiere.
+     * @param mitFutter braucht diese Art eine Spalte fuer den Futter-Level?
+     */
+    Tierspalten(Tierart art, boolean mitFutter)
+    {
+        this.art = art;
+        alter = new int[ANFANGS_KAPAZITAET];
+        zelle = new int[ANFANGS_KAPAZITAET];
+        altersTod = new long[ANFANGS_KAPAZITAET >> 6];
+        hungerTod = new long[ANFANGS_KAPAZITAET >> 6];
+        if(mitFutter) {
+            futterLevel = new int[ANFANGS_KAPAZITAET];
+        }
+    }
+
+    /**
+     * Haenge ein Tier an die Spalten an und trage es ins Feld ein.
+     * @param feld das Feld, in dem das Tier steht.
+     * @param neueZelle die Zelle des Tieres.
+     * @param neuesAlter das Alter des Tieres.
+     * @param neuerFutterLevel der Futter-Level (ignoriert ohne Futterspalte).
+     * @return der Index des neuen Tieres.
+     */
+    int fuegeHinzu(Spaltenfeld feld, int neueZelle, int neuesAlter, int neuerFutterLevel)
+    {
+        if(anzahl == zelle.length) {
+            int kapazitaet = anzahl * 2;
+            alter = Arrays.copyOf(alter, kapazitaet);
+            zelle = Arrays.copyOf(zelle, kapazitaet);
+            if(futterLevel != null) {
+                futterLevel = Arrays.copyOf(futterLevel, kapazitaet);
+            }
+        }
+        int index = anzahl++;
+        alter[index] = neuesAlter;
+        zelle[index] = neueZelle;
+        if(futterLevel != null) {
+            futterLevel[index] = neuerFutterLevel;
+        }
+        feld.platziere(neueZelle, art, index);
+        return index;
+    }
+
+    /**
+     * Lasse ein Tier sterben und raeume seine Zelle.
+     * @param feld das Feld, in dem das Tier steht.
+     * @param index der Index des Tieres.
+     */
+    void sterben(Spaltenfeld feld, int index)
+    {
+        if(zelle[index] != TOT) {
+            feld.raeumen(zelle[index]);
+            zelle[index] = TOT;
+        }
+    }
+
+    /**
+     * Setze ein Tier in eine andere (freie) Zelle.
+     * @param feld das Feld, in dem das Tier steht.
+     * @param index der Index des Tieres.
+     * @param neueZelle die Zielzelle.
+     */
+    void bewege(Spaltenfeld feld, int index, int neueZelle)
+    {
+        feld.raeumen(zelle[index]);
+        zelle[index] = neueZelle;
+        feld.platziere(neueZelle, art, index);
+    }
+
+    /**
+     * Lasse alle Tiere in einem Durchlauf um einen Schritt altern und,
+     * falls die Art hungert, ihren Futter-Level um eins sinken, und
+     * bestimme dabei die Todesmasken: Wer danach aelter als maxAlter
+     * ist, stirbt am Alter; wer sonst keinen Futter-Level mehr hat,
+     * verhungert. Die Bits werden ohne Verzweigung aus dem Vorzeichen
+     * der Differenz gewonnen. Als TOT markierte Eintraege werden
+     * mitgezaehlt, da kompaktiere sie ohnehin verwirft. Angewandt werden
+     * die Tode erst in der Reihenfolge der Tiere, damit ihre Zellen
+     * nicht frueher frei werden.
+     * @param maxAlter das hoechste Alter, das ein Tier ueberlebt.
+     */
+    void altere(int maxAlter)
+    {
+        int n = anzahl;
+        int worte = (n + 63) >>> 6;
+        if(altersTod.length < worte) {
+            altersTod = new long[zelle.length >> 6];
+            hungerTod = new long[zelle.length >> 6];
+        }
+        int[] a = alter;
+        int[] f = futterLevel;
+        for(int w = 0; w < worte; w++) {
+            int anfang = w << 6;
+            int ende = Math.min(n, anfang + 64);
+            long alt = 0;
+            long hunger = 0;
+            if(f == null) {
+                for(int i = anfang; i < ende; i++) {
+                    alt |= (long) (maxAlter - ++a[i]) >>> 63 << i;
+                }
+            }
+            else {
+                for(int i = anfang; i < ende; i++) {
+                    alt |= (long) (maxAlter - ++a[i]) >>> 63 << i;
+                    hunger |= (long) (--f[i] - 1) >>> 63 << i;
+                }
+            }
+            altersTod[w] = alt;
+            hungerTod[w] = hunger & ~alt;
+        }
+    }
+
+    /**
+     * @param index der Index eines Tieres, das bei altere schon da war.
+     * @return true, wenn es laut altere am Alter stirbt.
+     */
+    boolean stirbtAmAlter(int index)
+    {
+        return (altersTod[index >>> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * @param index der Index eines Tieres, das bei altere schon da war.
+     * @return true, wenn es laut altere verhungert.
+     */
+    boolean verhungert(int index)
+    {
+        return (hungerTod[index >>> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * Entferne alle toten Tiere in einem Durchlauf. Die Reihenfolge
+     * der lebenden Tiere bleibt erhalten; ihre neuen Indizes werden
+     * ins Feld eingetragen.
+     * @param feld das Feld, in dem die Tiere stehen.
+     */
+    void kompaktiere(Spaltenfeld feld)
+    {
+        int lebend = 0;
+        for(int i = 0; i < anzahl; i++) {
+            int z = zelle[i];
+            if(z != TOT) {
+                if(lebend != i) {
+                    alter[lebend] = alter[i];
+                    zelle[lebend] = z;
+                    if(futterLevel != null) {
+                        futterLevel[lebend] = futterLevel[i];
+                    }
+                    feld.nummeriereUm(z, lebend);
+                }
+                lebend++;
+            }
+        }
+        anzahl = lebend;
+    }
+
+    /**
+     * Entferne alle Tiere (ohne das Feld zu veraendern).
+     */
+    void leeren()
+    {
+        anzahl = 0;
+    }
+}
@@ -0,0 +1,33 @@
+package fueche.und.hasen;
+
+/**
+ * Die Ursachen, an denen ein Tier sterben kann. Hasen sterben nie an
+ * Hunger, Fuechse werden nie gefressen.
+ *
+ * @author Merlin
+ */
+public enum Todesursache
+{
+    // Das Hoechstalter ist ueberschritten
+    ALTER,
+    // Der Futter-Level ist aufgebraucht (nur Fuechse)
+    HUNGER,
+    // Keine freie Nachbarzelle, in die das Tier ziehen kann
+    UEBERFUELLUNG,
+    // Von einem Fuchs gefressen (nur Hasen)
+    GEFRESSEN;
+
+    // Die Anzahl der Ursachen
+    static final int ANZAHL = values().length;
+
+    /**
+     * Liefere den Index eines Zaehlers fuer Art und Ursache in einem
+     * Array mit Tierart.values().length * ANZAHL Eintraegen.
+     * @param art die Tierart.
+     * @return der Index.
+     */
+    int index(Tierart art)
+    {
+        return art.ordinal() * ANZAHL + ordinal();
+    }
+}
@@ -0,0 +1,474 @@
+package fueche.und.hasen;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Spielt eine Aufzeichnung (siehe Aufzeichnung) ab. Jeder
+ * aufgezeichnete Schritt wird erreicht, indem das naechste
+ * Schluesselbild davor geladen und die Aenderungen bis zum Schritt
+ * angewandt werden; vorwaerts wird nur weiter angewandt. Die Tiere
+ * selbst werden dabei nicht simuliert.
+ *
+ * Die Wiedergabe ist ein Simulationskern und zugleich die Belegung
+ * des Feldes, sie laesst sich daher mit einem Simulator und dessen
+ * Beobachtern (Ansicht, Statistik, Export) abspielen. Ein Schritt des
+ * Kerns geht genau einen Schritt weiter; war ein Schritt nicht
+ * aufgezeichnet, bleibt die Belegung des vorigen stehen. Nach dem
+ * Zuruecksetzen steht sie am ersten aufgezeichneten Schritt.
+ *
+ * Beim Oeffnen wird nur das Verzeichnis der Eintraege gelesen. Ein
+ * unvollstaendiger letzter Eintrag, etwa nach einem Absturz, wird
+ * ignoriert.
+ *
+ * @author Merlin
+ */
+public class Wiedergabe implements Simulationskern, Feldbelegung, Aenderungsmelder
+{
+    // Laenge des Dateikopfes und groesste Laenge eines Eintragskopfes
+    private static final int DATEIKOPF = 16;
+    private static final int EINTRAGSKOPF = 1 + 10 + 10;
+
+    private final FileChannel kanal;
+    private final int tiefe, breite;
+    // Der Zustand je Zelle: 0 fuer leer, sonst Ordnungszahl der Art + 1
+    private final byte[] zellen;
+    // Die Anzahl der Tiere je Art, nach Ordnungszahl der Tierart
+    private final int[] bewohner;
+    // Die Eintraege: Schritt, Lage und Laenge ihrer Daten
+    private int[] schritte;
+    private long[] positionen;
+    private int[] laengen;
+    private int eintraege;
+    // Die Nummern der Eintraege mit Schluesselbildern
+    private int[] schluesselbilder;
+    private int anzahlSchluesselbilder;
+    // Der naechste anzuwendende Eintrag; die davor sind angewandt
+    private int naechster;
+    // Der aktuelle Schritt der Wiedergabe
+    private int schritt;
+    // Die Daten des zuletzt gelesenen Eintrags und die Leseposition darin
+    private byte[] daten;
+    private int gelesen;
+    // Die Mengen, an die geaenderte Zellen gemeldet werden
+    private Aenderungen[] aenderungen;
+
+    /**
+     * Oeffne eine Aufzeichnung und stelle ihren ersten Schritt ein.
+     * @param datei die Aufzeichnung.
+     * @throws IOException bei Lesefehlern oder beschaedigten Dateien.
+     */
+    public Wiedergabe(Path datei) throws IOException
+    {
+        kanal = FileChannel.open(datei, StandardOpenOption.READ);
+        try {
+            ByteBuffer kopf = ByteBuffer.allocate(DATEIKOPF);
+            if(lies(kopf, 0) < DATEIKOPF || kopf.getInt() != Aufzeichnung.KENNUNG) {
+                throw new IOException("Keine Aufzeichnung: " + datei);
+            }
+            int version = kopf.getInt();
+            if(version != Aufzeichnung.VERSION) {
+                throw new IOException("Unbekannte Version der Aufzeichnung: " + version);
+            }
+            tiefe = kopf.getInt();
+            breite = kopf.getInt();
+            if(tiefe <= 0 || breite <= 0) {
+                throw new IOException("Aufzeichnung ist beschaedigt: Feld " + tiefe + "x" + breite);
+            }
+            if((long) tiefe * breite > Integer.MAX_VALUE) {
+                // Die Wiedergabe haelt jede Zelle in einem Array.
+                throw new IOException("Feld zu gross fuer die Wiedergabe: " + tiefe + "x" + breite);
+            }
+            schritte = new int[1024];
+            positionen = new long[1024];
+            laengen = new int[1024];
+            schluesselbilder = new int[64];
+            verzeichne();
+            if(eintraege == 0) {
+                throw new IOException("Aufzeichnung enthaelt keinen Schritt: " + datei);
+            }
+            zellen = new byte[tiefe * breite];
+            bewohner = new int[Tierart.values().length];
+            daten = new byte[4096];
+            aenderungen = new Aenderungen[0];
+            springeZu(schritte[0]);
+        }
+        catch(IOException e) {
+            kanal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Stelle die Belegung eines Schrittes ein. Liegt der Schritt
+     * zwischen zwei aufgezeichneten Schritten, gilt der fruehere.
+     * @param ziel der gewuenschte Schritt, nicht vor dem ersten
+     *             aufgezeichneten.
+     * @throws IOException bei Lesefehlern oder beschaedigten Dateien.
+     */
+    public void springeZu(int ziel) throws IOException
+    {
+        if(ziel < schritte[0]) {
+            throw new IllegalArgumentException("Schritt " + ziel + " liegt vor der Aufzeichnung (ab "
+                                               + schritte[0] + ")");
+        }
+        // Die Eintraege bis zum Ziel und das letzte Schluesselbild darunter
+        int ende = Arrays.binarySearch(schritte, 0, eintraege, ziel);
+        ende = ende >= 0 ? ende + 1 : -ende - 1;
+        int k = Arrays.binarySearch(schluesselbilder, 0, anzahlSchluesselbilder, ende - 1);
+        int schluesselbild = schluesselbilder[k >= 0 ? k : -k - 2];
+        if(naechster <= schluesselbild || naechster > ende) {
+            wendeAn(schluesselbild);
+            naechster = schluesselbild + 1;
+        }
+        while(naechster < ende) {
+            wendeAn(naechster++);
+        }
+        schritt = ziel;
+    }
+
+    /**
+     * @return der aktuelle Schritt der Wiedergabe.
+     */
+    public int gibSchritt()
+    {
+        return schritt;
+    }
+
+    /**
+     * @return der erste aufgezeichnete Schritt.
+     */
+    public int gibErstenSchritt()
+    {
+        return schritte[0];
+    }
+
+    /**
+     * @return der letzte aufgezeichnete Schritt.
+     */
+    public int gibLetztenSchritt()
+    {
+        return schritte[eintraege - 1];
+    }
+
+    /**
+     * Schliesse die Datei.
+     * @throws IllegalStateException bei Fehlern beim Schliessen.
+     */
+    public void schliesse()
+    {
+        try {
+            kanal.close();
+        }
+        catch(IOException e) {
+            throw new IllegalStateException("Aufzeichnung nicht schliessbar", e);
+        }
+    }
+
+    /**
+     * Gehe an den ersten aufgezeichneten Schritt zurueck.
+     * @throws IllegalStateException wenn die Aufzeichnung nicht
+     *         gelesen werden kann.
+     */
+    public void zuruecksetzen()
+    {
+        try {
+            springeZu(schritte[0]);
+        }
+        catch(IOException e) {
+            throw new IllegalStateException("Aufzeichnung nicht lesbar", e);
+        }
+    }
+
+    /**
+     * Gehe einen Schritt weiter.
+     * @throws IllegalStateException wenn die Aufzeichnung nicht
+     *         gelesen werden kann.
+     */
+    public void simuliereEinenSchritt()
+    {
+        try {
+            springeZu(schritt + 1);
+        }
+        catch(IOException e) {
+            throw new IllegalStateException("Aufzeichnung nicht lesbar", e);
+        }
+    }
+
+    /**
+     * @return true solange der letzte aufgezeichnete Schritt noch
+     *         nicht erreicht ist.
+     */
+    public boolean istAktiv()
+    {
+        return schritt < gibLetztenSchritt();
+    }
+
+    /**
+     * @return diese Wiedergabe als Belegung des Feldes.
+     */
+    public Feldbelegung gibBelegung()
+    {
+        return this;
+    }
+
+    /**
+     * @return die Tiefe des aufgezeichneten Feldes.
+     */
+    public int gibTiefe()
+    {
+        return tiefe;
+    }
+
+    /**
+     * @return die Breite des aufgezeichneten Feldes.
+     */
+    public int gibBreite()
+    {
+        return breite;
+    }
+
+    /**
+     * Liefere die Art des Tieres an der angegebenen Position.
+     * @param zeile die gewuenschte Zeile.
+     * @param spalte die gewuenschte Spalte.
+     * @return die Art des Tieres oder null, wenn die Position leer ist.
+     */
+    public Tierart gibArtAn(int zeile, int spalte)
+    {
+        int zustand = zellen[zeile * breite + spalte];
+        return zustand == 0 ? null : Tierart.values()[zustand - 1];
+    }
+
+    /**
+     * Liefere die Anzahl der Tiere einer Art im Feld.
+     * @param art die gewuenschte Tierart.
+     * @return die Anzahl der Tiere dieser Art.
+     */
+    public int gibAnzahl(Tierart art)
+    {
+        return bewohner[art.ordinal()];
+    }
+
+    /**
+     * Melde ab sofort alle Aenderungen an die gegebene Menge.
+     * @param neueAenderungen die zu fuellende Menge.
+     */
+    public void meldeAenderungenAn(Aenderungen neueAenderungen)
+    {
+        aenderungen = Arrays.copyOf(aenderungen, aenderungen.length + 1);
+        aenderungen[aenderungen.length - 1] = neueAenderungen;
+        neueAenderungen.alleMarkieren();
+    }
+
+    /**
+     * Melde keine Aenderungen mehr an die gegebene Menge.
+     * @param alteAenderungen die bisher gefuellte Menge.
+     */
+    public void entferneAenderungen(Aenderungen alteAenderungen)
+    {
+        for(int i = 0; i < aenderungen.length; i++) {
+            if(aenderungen[i] == alteAenderungen) {
+                Aenderungen[] rest = new Aenderungen[aenderungen.length - 1];
+                System.arraycopy(aenderungen, 0, rest, 0, i);
+                System.arraycopy(aenderungen, i + 1, rest, i, rest.length - i);
+                aenderungen = rest;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Lies die Koepfe aller vollstaendigen Eintraege. Beginnt die
+     * Aufzeichnung neu (ein Schritt nicht nach dem vorigen), werden
+     * die Eintraege ab diesem Schritt verworfen.
+     */
+    private void verzeichne() throws IOException
+    {
+        ByteBuffer kopf = ByteBuffer.allocate(EINTRAGSKOPF);
+        long groesse = kanal.size();
+        long position = DATEIKOPF;
+        while(position < groesse) {
+            kopf.clear();
+            lies(kopf, position);
+            byte typ = kopf.get();
+            long neuerSchritt = liesVarint(kopf);
+            long laenge = liesVarint(kopf);
+            long beginn = position + kopf.position();
+            if(laenge < 0 || beginn + laenge > groesse) {
+                // Der letzte Eintrag ist unvollstaendig.
+                break;
+            }
+            if((typ != Aufzeichnung.SCHLUESSELBILD && typ != Aufzeichnung.SCHRITT)
+               || neuerSchritt > Integer.MAX_VALUE || laenge > Integer.MAX_VALUE) {
+                throw new IOException("Aufzeichnung ist beschaedigt bei Byte " + position);
+            }
+            if(eintraege > 0 && neuerSchritt <= schritte[eintraege - 1]) {
+                int rest = Arrays.binarySearch(schritte, 0, eintraege, (int) neuerSchritt);
+                eintraege = rest >= 0 ? rest : -rest - 1;
+                while(anzahlSchluesselbilder > 0
+                      && schluesselbilder[anzahlSchluesselbilder - 1] >= eintraege) {
+                    anzahlSchluesselbilder--;
+                }
+            }
+            if(typ == Aufzeichnung.SCHLUESSELBILD) {
+                if(anzahlSchluesselbilder == schluesselbilder.length) {
+                    schluesselbilder = Arrays.copyOf(schluesselbilder, anzahlSchluesselbilder * 2);
+                }
+                schluesselbilder[anzahlSchluesselbilder++] = eintraege;
+            }
+            else if(anzahlSchluesselbilder == 0) {
+                throw new IOException("Aufzeichnung beginnt ohne Schluesselbild");
+            }
+            if(eintraege == schritte.length) {
+                schritte = Arrays.copyOf(schritte, eintraege * 2);
+                positionen = Arrays.copyOf(positionen, eintraege * 2);
+                laengen = Arrays.copyOf(laengen, eintraege * 2);
+            }
+            schritte[eintraege] = (int) neuerSchritt;
+            positionen[eintraege] = beginn;
+            laengen[eintraege] = (int) laenge;
+            eintraege++;
+            position = beginn + laenge;
+        }
+    }
+
+    /**
+     * Wende einen Eintrag auf die Belegung an.
+     */
+    private void wendeAn(int eintrag) throws IOException
+    {
+        int laenge = laengen[eintrag];
+        if(daten.length < laenge) {
+            daten = new byte[Math.max(laenge, daten.length * 2)];
+        }
+        ByteBuffer puffer = ByteBuffer.wrap(daten, 0, laenge);
+        while(puffer.hasRemaining()) {
+            if(kanal.read(puffer, positionen[eintrag] + puffer.position()) < 0) {
+                throw new EOFException("Aufzeichnung ist unvollstaendig");
+            }
+        }
+        gelesen = 0;
+        int zustaende = bewohner.length + 1;
+        try {
+            if(Arrays.binarySearch(schluesselbilder, 0, anzahlSchluesselbilder, eintrag) >= 0) {
+                Arrays.fill(bewohner, 0);
+                int zelle = 0;
+                while(gelesen < laenge) {
+                    long wert = liesVarint(laenge);
+                    int zustand = (int) (wert & 3);
+                    long lauf = wert >>> 2;
+                    if(zustand >= zustaende || lauf > zellen.length - zelle) {
+                        throw new IOException("Aufzeichnung ist beschaedigt in Schritt "
+                                              + schritte[eintrag]);
+                    }
+                    Arrays.fill(zellen, zelle, zelle + (int) lauf, (byte) zustand);
+                    if(zustand > 0) {
+                        bewohner[zustand - 1] += lauf;
+                    }
+                    zelle += lauf;
+                }
+                if(zelle != zellen.length) {
+                    throw new IOException("Aufzeichnung ist beschaedigt in Schritt "
+                                          + schritte[eintrag]);
+                }
+                for(int i = 0; i < aenderungen.length; i++) {
+                    aenderungen[i].alleMarkieren();
+                }
+            }
+            else {
+                long zelle = -1;
+                while(gelesen < laenge) {
+                    long wert = liesVarint(laenge);
+                    int zustand = (int) (wert & 3);
+                    zelle += (wert >>> 2) + 1;
+                    if(zustand >= zustaende || zelle >= zellen.length) {
+                        throw new IOException("Aufzeichnung ist beschaedigt in Schritt "
+                                              + schritte[eintrag]);
+                    }
+                    setze((int) zelle, zustand);
+                }
+            }
+        }
+        catch(IOException e) {
+            // Die Belegung ist nun unbestimmt; der naechste Sprung laedt neu.
+            naechster = eintraege + 1;
+            throw e;
+        }
+    }
+
+    /**
+     * Setze den Zustand einer Zelle und melde die Aenderung.
+     */
+    private void setze(int zelle, int zustand)
+    {
+        int alt = zellen[zelle];
+        if(alt > 0) {
+            bewohner[alt - 1]--;
+        }
+        if(zustand > 0) {
+            bewohner[zustand - 1]++;
+        }
+        zellen[zelle] = (byte) zustand;
+        for(int i = 0; i < aenderungen.length; i++) {
+            aenderungen[i].markiere(zelle);
+        }
+    }
+
+    /**
+     * Lies einen Varint aus den Daten des aktuellen Eintrags.
+     */
+    private long liesVarint(int laenge) throws IOException
+    {
+        long wert = 0;
+        for(int verschiebung = 0; verschiebung < 64; verschiebung += 7) {
+            if(gelesen >= laenge) {
+                break;
+            }
+            byte b = daten[gelesen++];
+            wert |= (long) (b & 0x7f) << verschiebung;
+            if(b >= 0) {
+                return wert;
+            }
+        }
+        throw new IOException("Aufzeichnung enthaelt eine ungueltige Zahl");
+    }
+
+    /**
+     * Lies einen Varint aus einem Eintragskopf.
+     * @return der Wert oder -1, wenn der Kopf unvollstaendig ist.
+     */
+    private static long liesVarint(ByteBuffer kopf)
+    {
+        long wert = 0;
+        for(int verschiebung = 0; verschiebung < 64 && kopf.hasRemaining(); verschiebung += 7) {
+            byte b = kopf.get();
+            wert |= (long) (b & 0x7f) << verschiebung;
+            if(b >= 0) {
+                return wert;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lies ab einer Position, bis der Puffer voll ist oder die Datei
+     * endet, und bereite den Puffer zum Auslesen vor.
+     * @return die Anzahl der gelesenen Bytes.
+     */
+    private int lies(ByteBuffer puffer, long position) throws IOException
+    {
+        while(puffer.hasRemaining()) {
+            if(kanal.read(puffer, position + puffer.position()) < 0) {
+                break;
+            }
+        }
+        puffer.flip();
+        return puffer.limit();
+    }
+}
@@ -51,6 +51,15 @@ public class Zaehler
         zaehler++;
     }
     
+    /**
+     * Setze diesen Zaehler auf einen bekannten Stand.
+     * @param stand der neue Zaehlerstand.
+     */
+    public void setzeStand(int stand)
+    {
+        zaehler = stand;
+    }
+
     /**
      * Setze diesen Z�hler auf Null zur�ck.
      */
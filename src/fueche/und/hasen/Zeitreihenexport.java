@@ -0,0 +1,353 @@
+package fueche.und.hasen;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Ein Beobachter, der je gemeldetem Schritt die Population und die
+ * Geburten und Todesfaelle seit der vorigen Zeile je Tierart in eine
+ * Datei schreibt, wahlweise als CSV oder als kompakte Binaerdatei.
+ *
+ * Die Simulation traegt die Werte nur in einen Block im Speicher ein;
+ * volle Bloecke schreibt ein eigener Thread. Es gibt eine feste Zahl
+ * von Bloecken, die zwischen beiden Threads hin- und hergereicht
+ * werden, so dass auch bei Millionen Schritten nichts angelegt wird.
+ * Die Simulation wartet nur, wenn der Datentraeger auf Dauer langsamer
+ * ist als sie und alle Bloecke voll sind.
+ *
+ * Die Binaerdatei beginnt mit der Kennung "FHZR", der Version, der
+ * Anzahl der Spalten und ihren Namen (je Laenge und ASCII-Zeichen).
+ * Danach folgen Bloecke aus der Anzahl ihrer Zeilen und den Spalten
+ * nacheinander, jeder Wert als int (Big-Endian). Fehlt einer Belegung
+ * die Bevoelkerungsbilanz, stehen bei Geburten und Todesfaellen -1.
+ *
+ * @author Merlin
+ */
+public class Zeitreihenexport implements Simulationsbeobachter
+{
+    /**
+     * Die moeglichen Dateiformate.
+     */
+    public enum Format
+    {
+        CSV, BINAER
+    }
+
+    // Kennung am Anfang jeder Binaerdatei ("FHZR")
+    private static final int KENNUNG = 0x46485a52;
+    private static final int VERSION = 1;
+    // Zeilen je Block und Anzahl der Bloecke
+    private static final int ZEILEN_JE_BLOCK = 8192;
+    private static final int BLOECKE = 8;
+    // Meldet dem Schreiber das Ende des Exports
+    private static final Block ENDE = new Block(0);
+
+    private final Format format;
+    private final Tierart[] arten;
+    private final int spalten;
+    // Der Block, den die Simulation gerade fuellt
+    private Block block;
+    // Leere Bloecke fuer die Simulation, volle fuer den Schreiber
+    private final BlockingQueue<Block> leer;
+    private final BlockingQueue<Block> voll;
+    private final Thread schreiber;
+    // Der erste Fehler des Schreibers oder null
+    private volatile IOException fehler;
+    private boolean geschlossen;
+    // Die Zaehler der Bilanz bei der vorigen Zeile, je Tierart
+    private final long[] letzteGeburten;
+    private final long[] letzteTodesfaelle;
+
+    /**
+     * Oeffne die Datei und starte den Schreiber.
+     * @param datei die Zieldatei; eine vorhandene Datei wird ersetzt.
+     * @param format das Dateiformat.
+     * @throws IOException wenn die Datei nicht geoeffnet werden kann.
+     */
+    public Zeitreihenexport(Path datei, Format format) throws IOException
+    {
+        this.format = format;
+        arten = Tierart.values();
+        spalten = 1 + 3 * arten.length;
+        letzteGeburten = new long[arten.length];
+        letzteTodesfaelle = new long[arten.length];
+        leer = new ArrayBlockingQueue<Block>(BLOECKE);
+        voll = new ArrayBlockingQueue<Block>(BLOECKE + 1);
+        block = new Block(ZEILEN_JE_BLOCK * spalten);
+        for(int i = 1; i < BLOECKE; i++) {
+            leer.add(new Block(ZEILEN_JE_BLOCK * spalten));
+        }
+        final Sicherungsschreiber aus = new Sicherungsschreiber(datei);
+        try {
+            schreibeKopf(aus);
+        }
+        catch(IOException e) {
+            aus.brichAb();
+            throw e;
+        }
+        schreiber = new Thread("Zeitreihenexport") {
+            public void run()
+            {
+                schreibe(aus);
+            }
+        };
+        schreiber.setDaemon(true);
+        schreiber.start();
+    }
+
+    /**
+     * Trage den Schritt, die Population und die Bilanz seit der
+     * vorigen Zeile ein.
+     * @param schritt welcher Iterationsschritt ist dies.
+     * @param feld die Belegung des Feldes nach dem Schritt.
+     * @throws IllegalStateException wenn der Export geschlossen oder
+     *         das Schreiben fehlgeschlagen ist.
+     */
+    public void zeigeStatus(int schritt, Feldbelegung feld)
+    {
+        if(geschlossen) {
+            throw new IllegalStateException("Export ist geschlossen");
+        }
+        if(fehler != null) {
+            throw new IllegalStateException("Export fehlgeschlagen", fehler);
+        }
+        Bevoelkerungsbilanz bilanz = feld instanceof Bevoelkerungsbilanz
+                                     ? (Bevoelkerungsbilanz) feld : null;
+        int[] werte = block.werte;
+        int i = block.zeilen * spalten;
+        werte[i++] = schritt;
+        for(int a = 0; a < arten.length; a++) {
+            werte[i++] = feld.gibAnzahl(arten[a]);
+            if(bilanz != null) {
+                long geburten = bilanz.gibGeburten(arten[a]);
+                long todesfaelle = bilanz.gibTodesfaelle(arten[a]);
+                if(schritt == 0) {
+                    // Nach dem Zuruecksetzen beginnt die Bilanz neu.
+                    letzteGeburten[a] = geburten;
+                    letzteTodesfaelle[a] = todesfaelle;
+                }
+                werte[i++] = (int) (geburten - letzteGeburten[a]);
+                werte[i++] = (int) (todesfaelle - letzteTodesfaelle[a]);
+                letzteGeburten[a] = geburten;
+                letzteTodesfaelle[a] = todesfaelle;
+            }
+            else {
+                werte[i++] = -1;
+                werte[i++] = -1;
+            }
+        }
+        if(++block.zeilen == ZEILEN_JE_BLOCK) {
+            uebergib(block);
+            try {
+                block = leer.take();
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Export unterbrochen", e);
+            }
+        }
+    }
+
+    /**
+     * Schreibe alle eingetragenen Zeilen und schliesse die Datei.
+     * Weitere Aufrufe bleiben wirkungslos.
+     * @throws IOException wenn das Schreiben fehlgeschlagen ist.
+     */
+    public void schliesse() throws IOException
+    {
+        if(geschlossen) {
+            return;
+        }
+        geschlossen = true;
+        if(block.zeilen > 0) {
+            uebergib(block);
+        }
+        uebergib(ENDE);
+        try {
+            schreiber.join();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export unterbrochen", e);
+        }
+        if(fehler != null) {
+            throw fehler;
+        }
+    }
+
+    /**
+     * Reiche einen Block an den Schreiber weiter.
+     */
+    private void uebergib(Block voller)
+    {
+        try {
+            voll.put(voller);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Export unterbrochen", e);
+        }
+    }
+
+    /**
+     * Die Schleife des Schreibers: volle Bloecke schreiben und leer
+     * zurueckgeben. Nach einem Fehler werden die Bloecke nur noch
+     * zurueckgegeben, damit die Simulation nicht haengen bleibt.
+     */
+    private void schreibe(Sicherungsschreiber aus)
+    {
+        // Puffer fuer die Ziffern einer Zahl
+        byte[] ziffern = new byte[11];
+        try {
+            while(true) {
+                Block voller = voll.take();
+                if(voller == ENDE) {
+                    break;
+                }
+                if(fehler == null) {
+                    try {
+                        if(format == Format.CSV) {
+                            schreibeZeilen(voller, aus, ziffern);
+                        }
+                        else {
+                            schreibeSpalten(voller, aus);
+                        }
+                    }
+                    catch(IOException e) {
+                        fehler = e;
+                    }
+                }
+                voller.zeilen = 0;
+                leer.put(voller);
+            }
+        }
+        catch(InterruptedException e) {
+            fehler = new IOException("Export unterbrochen", e);
+        }
+        try {
+            if(fehler == null) {
+                aus.schliesse();
+            }
+            else {
+                aus.brichAb();
+            }
+        }
+        catch(IOException e) {
+            fehler = e;
+        }
+    }
+
+    /**
+     * Schreibe die Kopfzeile bzw. den Dateikopf.
+     */
+    private void schreibeKopf(Sicherungsschreiber aus) throws IOException
+    {
+        String[] namen = new String[spalten];
+        namen[0] = "schritt";
+        for(int a = 0; a < arten.length; a++) {
+            String art = arten[a].name().toLowerCase(Locale.ROOT);
+            namen[1 + 3 * a] = art;
+            namen[2 + 3 * a] = art + "_geburten";
+            namen[3 + 3 * a] = art + "_tode";
+        }
+        if(format == Format.CSV) {
+            for(int s = 0; s < spalten; s++) {
+                if(s > 0) {
+                    aus.schreibeByte((byte) ',');
+                }
+                schreibeText(namen[s], aus);
+            }
+            aus.schreibeByte((byte) '\n');
+        }
+        else {
+            aus.schreibeInt(KENNUNG);
+            aus.schreibeInt(VERSION);
+            aus.schreibeInt(spalten);
+            for(String name : namen) {
+                aus.schreibeInt(name.length());
+                schreibeText(name, aus);
+            }
+        }
+    }
+
+    /**
+     * Schreibe einen Block als CSV-Zeilen.
+     */
+    private void schreibeZeilen(Block voller, Sicherungsschreiber aus, byte[] ziffern)
+        throws IOException
+    {
+        int[] werte = voller.werte;
+        int i = 0;
+        for(int z = 0; z < voller.zeilen; z++) {
+            for(int s = 0; s < spalten; s++) {
+                if(s > 0) {
+                    aus.schreibeByte((byte) ',');
+                }
+                schreibeZahl(werte[i++], aus, ziffern);
+            }
+            aus.schreibeByte((byte) '\n');
+        }
+    }
+
+    /**
+     * Schreibe einen Block spaltenweise.
+     */
+    private void schreibeSpalten(Block voller, Sicherungsschreiber aus) throws IOException
+    {
+        int[] werte = voller.werte;
+        aus.schreibeInt(voller.zeilen);
+        for(int s = 0; s < spalten; s++) {
+            for(int i = s; i < voller.zeilen * spalten; i += spalten) {
+                aus.schreibeInt(werte[i]);
+            }
+        }
+    }
+
+    /**
+     * Schreibe eine Zahl als Dezimalziffern, ohne einen String anzulegen.
+     */
+    private static void schreibeZahl(int zahl, Sicherungsschreiber aus, byte[] ziffern)
+        throws IOException
+    {
+        long rest = zahl;
+        if(rest < 0) {
+            aus.schreibeByte((byte) '-');
+            rest = -rest;
+        }
+        int anzahl = 0;
+        do {
+            ziffern[anzahl++] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        } while(rest > 0);
+        while(anzahl > 0) {
+            aus.schreibeByte(ziffern[--anzahl]);
+        }
+    }
+
+    /**
+     * Schreibe einen ASCII-Text.
+     */
+    private static void schreibeText(String text, Sicherungsschreiber aus) throws IOException
+    {
+        for(int i = 0; i < text.length(); i++) {
+            aus.schreibeByte((byte) text.charAt(i));
+        }
+    }
+
+    /**
+     * Ein Block von Zeilen, zeilenweise gespeichert.
+     */
+    private static class Block
+    {
+        private final int[] werte;
+        private int zeilen;
+
+        Block(int groesse)
+        {
+            werte = new int[groesse];
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package fueche.und.hasen;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Ein schneller, teilbarer Zufallsgenerator nach dem SplitMix64-Verfahren.
+ * Anders als java.util.Random haelt er seinen Zustand in einem
+ * gewoehnlichen long statt in einem AtomicLong: Jede Simulation, jeder
+ * Thread und jede Region soll ihren eigenen Strom besitzen, ein Strom
+ * wird nie von mehreren Threads gleichzeitig benutzt.
+ *
+ * Abgeleitete Stroeme (ableiten) haengen nur vom Startwert und von
+ * den Schluesseln ab, nicht von der Reihenfolge, in der sie erzeugt
+ * werden. Damit erhalten etwa die Streifen eines parallelen Schrittes
+ * unabhaengig von der Anzahl der Threads immer dieselben Zahlen.
+ *
+ * Die Klasse erweitert Random, damit sie ueberall eingesetzt werden
+ * kann, wo bisher ein Random-Objekt benutzt wurde.
+ *
+ * @author Merlin
+ */
+public class Zufallsstrom extends Random
+{
+    private static final long serialVersionUID = 1L;
+    // Das Inkrement von SplitMix64 (ungerade, aus dem goldenen Schnitt)
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+    // Abstand zwischen zwei doubles in [0, 1) mit 53 Bit Genauigkeit
+    private static final double DOUBLE_EINHEIT = 0x1.0p-53;
+
+    // Der Startwert, aus dem abgeleitete Stroeme berechnet werden
+    private long start;
+    // Der laufende Zustand
+    private long zustand;
+
+    /**
+     * Erzeuge einen Strom mit dem gegebenen Startwert.
+     * @param seed der Startwert.
+     */
+    public Zufallsstrom(long seed)
+    {
+        super(seed);
+    }
+
+    /**
+     * Setze den Strom auf einen neuen Startwert zurueck.
+     * Wird auch vom Konstruktor von Random aufgerufen.
+     * @param seed der Startwert.
+     */
+    public void setSeed(long seed)
+    {
+        start = seed;
+        zustand = seed;
+    }
+
+    /**
+     * Liefere einen abgeleiteten Strom. Gleiche Startwerte und gleiche
+     * Schluessel ergeben immer denselben Strom; dieser Strom selbst
+     * wird dabei nicht veraendert.
+     * @param schluessel1 der erste Schluessel, etwa ein Schritt.
+     * @param schluessel2 der zweite Schluessel, etwa eine Region.
+     * @return ein neuer, unabhaengiger Strom.
+     */
+    public Zufallsstrom ableiten(long schluessel1, long schluessel2)
+    {
+        return new Zufallsstrom(abgeleiteterSeed(schluessel1, schluessel2));
+    }
+
+    /**
+     * Setze einen vorhandenen Strom auf den abgeleiteten Startwert,
+     * ohne ein neues Objekt anzulegen (siehe ableiten).
+     * @param ziel der Strom, der zurueckgesetzt wird.
+     * @param schluessel1 der erste Schluessel.
+     * @param schluessel2 der zweite Schluessel.
+     */
+    public void ableitenIn(Zufallsstrom ziel, long schluessel1, long schluessel2)
+    {
+        ziel.setSeed(abgeleiteterSeed(schluessel1, schluessel2));
+    }
+
+    /**
+     * Teile einen neuen Strom ab. Der neue Strom wird aus der naechsten
+     * Zahl dieses Stroms gebildet und ist davon statistisch unabhaengig.
+     * @return ein neuer Strom.
+     */
+    public Zufallsstrom teile()
+    {
+        return new Zufallsstrom(mische(nextLong()));
+    }
+
+    /**
+     * Fuelle einen Block im Voraus mit Zufallszahlen, etwa fuer
+     * Verbraucher, die viele Zahlen in einer engen Schleife brauchen.
+     * @param block der zu fuellende Block.
+     */
+    public void fuelle(long[] block)
+    {
+        long z = zustand;
+        for(int i = 0; i < block.length; i++) {
+            z += GAMMA;
+            block[i] = mische(z);
+        }
+        zustand = z;
+    }
+
+    /**
+     * Fuelle einen Block im Voraus mit doubles aus [0, 1).
+     * @param block der zu fuellende Block.
+     */
+    public void fuelle(double[] block)
+    {
+        long z = zustand;
+        for(int i = 0; i < block.length; i++) {
+            z += GAMMA;
+            block[i] = (mische(z) >>> 11) * DOUBLE_EINHEIT;
+        }
+        zustand = z;
+    }
+
+    /**
+     * @return die naechsten 64 Zufallsbits.
+     */
+    public long nextLong()
+    {
+        zustand += GAMMA;
+        return mische(zustand);
+    }
+
+    /**
+     * @return ein gleichverteiltes double aus [0, 1).
+     */
+    public double nextDouble()
+    {
+        return (nextLong() >>> 11) * DOUBLE_EINHEIT;
+    }
+
+    /**
+     * Liefere eine gleichverteilte Zahl aus [0, grenze) ohne Verzerrung
+     * (Multiplikationsverfahren mit Verwerfen nach Lemire).
+     * @param grenze die obere Grenze (ausschliesslich, groesser als Null).
+     * @return die Zufallszahl.
+     */
+    public int nextInt(int grenze)
+    {
+        if(grenze <= 0) {
+            throw new IllegalArgumentException("Grenze muss groesser als Null sein: " + grenze);
+        }
+        long produkt = (nextLong() >>> 32) * grenze;
+        if((produkt & 0xFFFFFFFFL) < grenze) {
+            long schwelle = (0x100000000L - grenze) % grenze;
+            while((produkt & 0xFFFFFFFFL) < schwelle) {
+                produkt = (nextLong() >>> 32) * grenze;
+            }
+        }
+        return (int) (produkt >>> 32);
+    }
+
+    /**
+     * Grundlage aller weiteren Methoden von Random.
+     * @param bits die Anzahl der gewuenschten Bits (hoechstens 32).
+     * @return die naechsten Zufallsbits.
+     */
+    protected int next(int bits)
+    {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /**
+     * Berechne den Startwert eines abgeleiteten Stroms, etwa als
+     * SEED-Wert fuer einen von vielen unabhaengigen Simulationslaeufen.
+     * @param schluessel1 der erste Schluessel.
+     * @param schluessel2 der zweite Schluessel.
+     * @return der Startwert (siehe ableiten).
+     */
+    public long abgeleiteterSeed(long schluessel1, long schluessel2)
+    {
+        return mische(mische(start + GAMMA * (schluessel1 + 1)) + GAMMA * (schluessel2 + 1));
+    }
+
+    /**
+     * Liefere den index-ten Wert des Stroms mit dem Startwert 0, ohne
+     * einen Strom anzulegen; etwa fuer feste Zufallstabellen, die zu
+     * gross waeren, um sie zu speichern.
+     * @param index die Nummer des Wertes (ab 0).
+     * @return der Wert.
+     */
+    static long wert(long index)
+    {
+        return mische(GAMMA * (index + 1));
+    }
+
+    /**
+     * Schreibe den Zustand dieses Stroms in eine Sicherung.
+     * @param aus die Sicherung.
+     */
+    void sichere(Sicherungsschreiber aus) throws IOException
+    {
+        aus.schreibeLong(start);
+        aus.schreibeLong(zustand);
+    }
+
+    /**
+     * Stelle den mit sichere geschriebenen Zustand wieder her.
+     * @param ein die Sicherung.
+     */
+    void lade(Sicherungsleser ein) throws IOException
+    {
+        start = ein.liesLong();
+        zustand = ein.liesLong();
+    }
+
+    /**
+     * Der Mischschritt von SplitMix64 (Variante 13 von Stafford).
+     * @param z der zu mischende Wert.
+     * @return der gemischte Wert.
+     */
+    static long mische(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
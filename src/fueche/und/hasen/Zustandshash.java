@@ -0,0 +1,23 @@
+package fueche.und.hasen;
+
+/**
+ * Eine Feldbelegung, die einen Zobrist-Hash ihrer Belegung mitfuehrt.
+ * Jede Kombination aus Zelle und Tierart hat einen festen zufaelligen
+ * Schluessel (Tierart.schluessel); der Hash ist das XOR der Schluessel
+ * aller belegten Zellen und wird beim Platzieren und Raeumen in
+ * konstanter Zeit nachgefuehrt. Gleiche Belegungen haben daher in
+ * jedem Feld gleicher Breite denselben Hash.
+ *
+ * Alter und Futterstand der Tiere gehen nicht ein: Sie aendern sich
+ * in jedem Schritt fuer jedes Tier, so dass sich ein Zustand mit
+ * ihnen praktisch nie wiederholen koennte.
+ *
+ * @author Merlin
+ */
+public interface Zustandshash
+{
+    /**
+     * @return der Hash der aktuellen Belegung; 0 fuer ein leeres Feld.
+     */
+    long gibZustandshash();
+}
@@ -0,0 +1,72 @@
+package fueche.und.hasen;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests fuer Aufzeichnung und Wiedergabe: Eine Wiedergabe liefert
+ * jeden aufgezeichneten Schritt so, wie er simuliert wurde.
+ *
+ * @author Merlin
+ */
+public class AufzeichnungTest
+{
+    private static final int TIEFE = 60;
+    private static final int BREITE = 80;
+    private static final int SCHRITTE = 120;
+
+    /**
+     * Zeichne einen Lauf auf und spiele ihn Schritt fuer Schritt und
+     * mit Spruengen vor und zurueck wieder ab.
+     */
+    @Test
+    public void wiedergabeLiefertAufgezeichneteSchritte() throws IOException
+    {
+        Path datei = Files.createTempFile("aufzeichnung", ".bin");
+        try {
+            final List<byte[]> belegungen = new ArrayList<byte[]>();
+            Simulator sim = new Simulator(new Objektkern(TIEFE, BREITE, 3));
+            Aufzeichnung aufzeichnung = new Aufzeichnung(datei, TIEFE, BREITE, 25);
+            sim.fuegeBeobachterHinzu(aufzeichnung);
+            sim.fuegeBeobachterHinzu(new Simulationsbeobachter() {
+                public void zeigeStatus(int schritt, Feldbelegung feld)
+                {
+                    belegungen.add(SimulationskernTest.belegung(feld));
+                }
+            });
+            sim.simuliere(SCHRITTE);
+            aufzeichnung.schliesse();
+
+            Wiedergabe wiedergabe = new Wiedergabe(datei);
+            try {
+                assertEquals(0, wiedergabe.gibErstenSchritt());
+                assertEquals(belegungen.size() - 1, wiedergabe.gibLetztenSchritt());
+                for(int schritt = 0; schritt < belegungen.size(); schritt++) {
+                    if(schritt > 0) {
+                        wiedergabe.simuliereEinenSchritt();
+                    }
+                    assertArrayEquals("Schritt " + schritt, belegungen.get(schritt),
+                                      SimulationskernTest.belegung(wiedergabe));
+                }
+                int[] spruenge = { 73, 12, 50, 51, 0, belegungen.size() - 1, 26 };
+                for(int schritt : spruenge) {
+                    wiedergabe.springeZu(schritt);
+                    assertArrayEquals("Schritt " + schritt, belegungen.get(schritt),
+                                      SimulationskernTest.belegung(wiedergabe));
+                }
+            }
+            finally {
+                wiedergabe.schliesse();
+            }
+        }
+        finally {
+            Files.delete(datei);
+        }
+    }
+}
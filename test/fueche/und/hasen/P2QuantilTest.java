@@ -0,0 +1,116 @@
+package fueche.und.hasen;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests fuer P2Quantil, vor allem fuer kleine Ensembles, in denen die
+ * Quantile exakt sein muessen.
+ *
+ * @author Merlin
+ */
+public class P2QuantilTest
+{
+    /**
+     * Sechs Werte: Die Quantile duerfen nicht alle beim Median liegen.
+     */
+    @Test
+    public void wenigeWerteLiefernExakteQuantile()
+    {
+        P2Quantil q5 = new P2Quantil(0.05, 1);
+        P2Quantil q50 = new P2Quantil(0.5, 1);
+        P2Quantil q95 = new P2Quantil(0.95, 1);
+        for(int x = 1; x <= 6; x++) {
+            q5.fuegeHinzu(0, x);
+            q50.fuegeHinzu(0, x);
+            q95.fuegeHinzu(0, x);
+        }
+        assertEquals(1.25, q5.gibSchaetzung(0), 1e-12);
+        assertEquals(3.5, q50.gibSchaetzung(0), 1e-12);
+        assertEquals(5.75, q95.gibSchaetzung(0), 1e-12);
+    }
+
+    /**
+     * Bis EXAKT_BIS Werte stimmt jede Schaetzung mit dem exakten,
+     * interpolierten Quantil der sortierten Werte ueberein, auch bei
+     * gemischter Reihenfolge und mehreren Reihen.
+     */
+    @Test
+    public void bisZurGrenzeExakt()
+    {
+        Random rand = new Random(42);
+        double[] ps = { 0.05, 0.5, 0.95 };
+        for(double p : ps) {
+            P2Quantil schaetzer = new P2Quantil(p, 2);
+            double[] werte = new double[P2Quantil.EXAKT_BIS];
+            for(int n = 1; n <= P2Quantil.EXAKT_BIS; n++) {
+                double x = rand.nextInt(1000);
+                werte[n - 1] = x;
+                schaetzer.fuegeHinzu(0, x);
+                schaetzer.fuegeHinzu(1, -x);
+                double[] sortiert = Arrays.copyOf(werte, n);
+                Arrays.sort(sortiert);
+                assertEquals(exakt(sortiert, p), schaetzer.gibSchaetzung(0), 1e-9);
+                for(int i = 0; i < n; i++) {
+                    sortiert[i] = -werte[i];
+                }
+                Arrays.sort(sortiert);
+                assertEquals(exakt(sortiert, p), schaetzer.gibSchaetzung(1), 1e-9);
+            }
+        }
+    }
+
+    /**
+     * Ueber der Grenze bleibt die Schaetzung nahe am wahren Quantil,
+     * auch gleich nach dem Wechsel zu P2.
+     */
+    @Test
+    public void vieleWerteNaheAmQuantil()
+    {
+        Random rand = new Random(7);
+        double[] ps = { 0.05, 0.5, 0.95 };
+        for(double p : ps) {
+            P2Quantil schaetzer = new P2Quantil(p, 1);
+            for(int n = 1; n <= 20000; n++) {
+                schaetzer.fuegeHinzu(0, rand.nextDouble());
+                if(n == P2Quantil.EXAKT_BIS + 1 || n == 20000) {
+                    double toleranz = n == 20000 ? 0.02 : 0.1;
+                    assertEquals(p, schaetzer.gibSchaetzung(0), toleranz);
+                }
+            }
+        }
+    }
+
+    /**
+     * Die Quantile einer Reihe sind nach Groesse geordnet.
+     */
+    @Test
+    public void quantileGeordnet()
+    {
+        P2Quantil q5 = new P2Quantil(0.05, 1);
+        P2Quantil q95 = new P2Quantil(0.95, 1);
+        Random rand = new Random(3);
+        for(int n = 1; n <= 500; n++) {
+            double x = Math.exp(rand.nextGaussian() * 2);
+            q5.fuegeHinzu(0, x);
+            q95.fuegeHinzu(0, x);
+            assertTrue(q5.gibSchaetzung(0) <= q95.gibSchaetzung(0));
+        }
+    }
+
+    /**
+     * Das interpolierte Quantil sortierter Werte.
+     */
+    private static double exakt(double[] sortiert, double p)
+    {
+        double h = p * (sortiert.length - 1);
+        int unten = (int) Math.floor(h);
+        if(unten + 1 >= sortiert.length) {
+            return sortiert[sortiert.length - 1];
+        }
+        return sortiert[unten] + (h - unten) * (sortiert[unten + 1] - sortiert[unten]);
+    }
+}
@@ -0,0 +1,65 @@
+package fueche.und.hasen;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests fuer Sicherungspunkte: Ein fortgesetzter Lauf geht genau so
+ * weiter wie der ununterbrochene.
+ *
+ * @author Merlin
+ */
+public class SicherungspunktTest
+{
+    private static final int TIEFE = 60;
+    private static final int BREITE = 80;
+
+    /**
+     * Objekt- und Spaltenkern, auch mit einem Jagdradius ueber 1.
+     */
+    @Test
+    public void fortsetzenGenau() throws IOException
+    {
+        Simulationsparameter jagd = Simulationsparameter.STANDARD.mit("fuchs.jagdradius", 3);
+        pruefeFortsetzen(new Objektkern(TIEFE, BREITE, 9), new Objektkern(TIEFE, BREITE, 9));
+        pruefeFortsetzen(new Objektkern(TIEFE, BREITE, 9, jagd),
+                         new Objektkern(TIEFE, BREITE, 9, jagd));
+        pruefeFortsetzen(new Spaltenkern(TIEFE, BREITE, 9), new Spaltenkern(TIEFE, BREITE, 9));
+    }
+
+    /**
+     * Sichere den einen Lauf nach 15 Schritten, setze ihn fort und
+     * vergleiche ihn bis Schritt 100 mit dem anderen, ununterbrochenen.
+     */
+    private static void pruefeFortsetzen(Simulationskern unterbrochen,
+                                         Simulationskern durchgehend) throws IOException
+    {
+        Path datei = Files.createTempFile("sicherung", ".bin");
+        try {
+            Simulator vorher = new Simulator(unterbrochen);
+            vorher.simuliere(15);
+            vorher.sichere(datei);
+            vorher.schliesse();
+            Simulator sim = Simulator.fortsetzen(datei);
+            assertEquals(15, sim.gibSchritt());
+
+            Simulator vergleich = new Simulator(durchgehend);
+            vergleich.simuliere(15);
+            while(sim.gibSchritt() < 100 && vergleich.istAktiv()) {
+                sim.simuliereEinenSchritt();
+                vergleich.simuliereEinenSchritt();
+                assertArrayEquals("Schritt " + sim.gibSchritt(),
+                                  SimulationskernTest.belegung(vergleich.gibBelegung()),
+                                  SimulationskernTest.belegung(sim.gibBelegung()));
+            }
+            assertEquals(vergleich.istAktiv(), sim.istAktiv());
+        }
+        finally {
+            Files.delete(datei);
+        }
+    }
+}
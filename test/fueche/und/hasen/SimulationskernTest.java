@@ -0,0 +1,90 @@
+package fueche.und.hasen;
+
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests fuer die Kerne: Objekt- und Spaltenkern laufen bei gleichem
+ * Seed Zelle fuer Zelle gleich, der Streifenkern haengt nicht von der
+ * Anzahl seiner Threads ab.
+ *
+ * @author Merlin
+ */
+public class SimulationskernTest
+{
+    private static final int TIEFE = 60;
+    private static final int BREITE = 80;
+    private static final int SCHRITTE = 150;
+
+    /**
+     * Objekt- und Spaltenkern liefern nach jedem Schritt dieselbe
+     * Belegung, auch mit einem Jagdradius ueber 1.
+     */
+    @Test
+    public void objektUndSpaltenkernGleich()
+    {
+        Simulationsparameter[] varianten = {
+            Simulationsparameter.STANDARD,
+            Simulationsparameter.STANDARD.mit("fuchs.jagdradius", 3)
+        };
+        for(Simulationsparameter parameter : varianten) {
+            Simulator objekt = new Simulator(new Objektkern(TIEFE, BREITE, 9, parameter));
+            Simulator spalten = new Simulator(new Spaltenkern(TIEFE, BREITE, 9, parameter));
+            vergleiche(objekt, spalten);
+        }
+    }
+
+    /**
+     * Der Streifenkern liefert mit einem und mit vier Threads dieselbe
+     * Belegung.
+     */
+    @Test
+    public void streifenkernUnabhaengigVonThreads()
+    {
+        Simulator einer = new Simulator(new Streifenkern(TIEFE, BREITE, 1, 8, 9));
+        Simulator vier = new Simulator(new Streifenkern(TIEFE, BREITE, 4, 8, 9));
+        try {
+            vergleiche(einer, vier);
+        }
+        finally {
+            einer.schliesse();
+            vier.schliesse();
+        }
+    }
+
+    /**
+     * Lasse zwei Simulationen Schritt fuer Schritt laufen und vergleiche
+     * nach jedem Schritt ihre Belegung.
+     */
+    private static void vergleiche(Simulator a, Simulator b)
+    {
+        assertArrayEquals(belegung(a.gibBelegung()), belegung(b.gibBelegung()));
+        int schritt = 0;
+        while(schritt < SCHRITTE && a.istAktiv()) {
+            a.simuliereEinenSchritt();
+            b.simuliereEinenSchritt();
+            schritt++;
+            assertArrayEquals("Schritt " + schritt, belegung(a.gibBelegung()),
+                              belegung(b.gibBelegung()));
+        }
+        // Sonst haette der Vergleich kaum etwas gezeigt.
+        assertTrue(schritt > 20);
+    }
+
+    /**
+     * @return der Zustand jeder Zelle: 0 fuer leer, sonst Ordnungszahl + 1.
+     */
+    static byte[] belegung(Feldbelegung feld)
+    {
+        int breite = feld.gibBreite();
+        byte[] zustand = new byte[feld.gibTiefe() * breite];
+        for(int zeile = 0; zeile < feld.gibTiefe(); zeile++) {
+            for(int spalte = 0; spalte < breite; spalte++) {
+                Tierart art = feld.gibArtAn(zeile, spalte);
+                zustand[zeile * breite + spalte] = (byte) (art == null ? 0 : art.ordinal() + 1);
+            }
+        }
+        return zustand;
+    }
+}